@@ -0,0 +1,195 @@
+package com.dosideas.estaticos;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Paso de build de los recursos estáticos (fase process-classes, ver pom.xml).
+ * Trabaja sobre target/classes/static:
+ *
+ * 1. Copia Bootstrap desde su WebJar a static/vendor/bootstrap, ya minificado,
+ * para no depender de un CDN.
+ * 2. Reescribe los import relativos entre módulos JS con la huella de
+ * contenido del archivo importado (pais.js -> pais-&lt;md5&gt;.js), la misma
+ * que calcula la cadena de recursos de Spring (ContentVersionStrategy). Así
+ * todo lo que pide el navegador tiene huella y puede cachearse como inmutable.
+ * 3. Genera las variantes .gz y .br de cada archivo de texto, que Spring
+ * entrega según el Accept-Encoding (EncodedResourceResolver).
+ *
+ * Se ejecuta como programa de un solo archivo:
+ * java -cp &lt;classpath&gt; ConstruirEstaticos.java &lt;static&gt; &lt;versión de Bootstrap&gt;
+ *
+ * @author Gabriel Romero
+ */
+public class ConstruirEstaticos {
+
+    private static final Pattern IMPORT_RELATIVO = Pattern.compile(
+            "(\\b(?:import|export)\\b[^;'\"]*?\\bfrom\\s*|\\bimport\\s*\\(?\\s*)([\"'])(\\.{1,2}/[^\"']+?)"
+            + "(?:-[0-9a-f]{32})?(\\.js)\\2");
+    private static final Pattern MAPA_FUENTE = Pattern.compile("\\s*/\\*# sourceMappingURL=[^*]*\\*/\\s*$");
+    private static final Set<String> COMPRIMIBLES = Set.of(".js", ".css", ".html", ".svg", ".json", ".txt");
+    private static final int MINIMO_A_COMPRIMIR = 512;
+
+    private final Path raiz;
+    private final Map<Path, String> huellas = new HashMap<>();
+    private final Set<Path> enProceso = new HashSet<>();
+
+    private ConstruirEstaticos(Path raiz) {
+        this.raiz = raiz;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path raiz = Path.of(args[0]).toAbsolutePath().normalize();
+        ConstruirEstaticos construir = new ConstruirEstaticos(raiz);
+        construir.copiarBootstrap(args[1]);
+        List<Path> archivos = construir.archivos();
+        for (Path archivo : archivos) {
+            if (archivo.toString().endsWith(".js")) {
+                construir.huella(archivo);
+            }
+        }
+        Brotli4jLoader.ensureAvailability();
+        int comprimidos = 0;
+        for (Path archivo : archivos) {
+            comprimidos += construir.comprimir(archivo);
+        }
+        System.out.printf("Recursos estaticos: %d archivos, %d variantes comprimidas%n",
+                archivos.size(), comprimidos);
+    }
+
+    private void copiarBootstrap(String version) throws IOException {
+        String origen = "META-INF/resources/webjars/bootstrap/" + version + "/css/bootstrap.min.css";
+        try (InputStream entrada = ConstruirEstaticos.class.getClassLoader().getResourceAsStream(origen)) {
+            if (entrada == null) {
+                throw new IOException("No esta en el classpath: " + origen);
+            }
+            // Sin el comentario del source map, que no se copia.
+            String css = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+            Path destino = raiz.resolve("vendor/bootstrap/css/bootstrap.min.css");
+            Files.createDirectories(destino.getParent());
+            Files.writeString(destino, MAPA_FUENTE.matcher(css).replaceFirst("\n"));
+        }
+    }
+
+    /**
+     * @return Los archivos originales (sin las variantes comprimidas).
+     */
+    private List<Path> archivos() throws IOException {
+        try (Stream<Path> recorrido = Files.walk(raiz)) {
+            return recorrido.filter(Files::isRegularFile)
+                    .filter(archivo -> !archivo.toString().endsWith(".gz") && !archivo.toString().endsWith(".br"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Reescribe los import del módulo con las huellas de lo que importa
+     * (primero calcula esas) y devuelve la huella del resultado.
+     */
+    private String huella(Path modulo) {
+        String huella = huellas.get(modulo);
+        if (huella != null) {
+            return huella;
+        }
+        if (!enProceso.add(modulo)) {
+            throw new IllegalStateException("Import circular en " + raiz.relativize(modulo));
+        }
+        try {
+            String codigo = Files.readString(modulo);
+            Matcher imports = IMPORT_RELATIVO.matcher(codigo);
+            StringBuilder reescrito = new StringBuilder();
+            while (imports.find()) {
+                String sinExtension = imports.group(3);
+                Path importado = modulo.resolveSibling(sinExtension + ".js").normalize();
+                if (!Files.isRegularFile(importado)) {
+                    throw new IllegalStateException(raiz.relativize(modulo) + " importa " + sinExtension
+                            + ".js, que no existe");
+                }
+                imports.appendReplacement(reescrito, Matcher.quoteReplacement(imports.group(1)
+                        + imports.group(2) + sinExtension + "-" + huella(importado) + ".js" + imports.group(2)));
+            }
+            imports.appendTail(reescrito);
+            byte[] contenido = reescrito.toString().getBytes(StandardCharsets.UTF_8);
+            Files.write(modulo, contenido);
+            huella = md5(contenido);
+            huellas.put(modulo, huella);
+            return huella;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            enProceso.remove(modulo);
+        }
+    }
+
+    /**
+     * @return Cuántas variantes comprimidas se escribieron (las que no
+     * achican el archivo no se escriben).
+     */
+    private int comprimir(Path archivo) throws IOException {
+        String nombre = archivo.getFileName().toString();
+        int punto = nombre.lastIndexOf('.');
+        if (punto < 0 || !COMPRIMIBLES.contains(nombre.substring(punto))) {
+            return 0;
+        }
+        byte[] contenido = Files.readAllBytes(archivo);
+        if (contenido.length < MINIMO_A_COMPRIMIR) {
+            return 0;
+        }
+        int escritas = 0;
+        escritas += escribirSiAchica(archivo.resolveSibling(nombre + ".gz"), gzip(contenido), contenido.length);
+        escritas += escribirSiAchica(archivo.resolveSibling(nombre + ".br"),
+                Encoder.compress(contenido, new Encoder.Parameters().setQuality(11)), contenido.length);
+        return escritas;
+    }
+
+    private static int escribirSiAchica(Path destino, byte[] comprimido, int original) throws IOException {
+        if (comprimido.length >= original) {
+            Files.deleteIfExists(destino);
+            return 0;
+        }
+        Files.write(destino, comprimido);
+        return 1;
+    }
+
+    private static byte[] gzip(byte[] contenido) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(contenido);
+        }
+        return salida.toByteArray();
+    }
+
+    private static String md5(byte[] contenido) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(contenido));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.dosideas.bench;
+
+import com.dosideas.controller.rest.SerializadoresJson;
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.ProvinciaDTO;
+import com.dosideas.dto.VistaProvincias;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compara las formas de responder una lista de provincias en JSON:
+ *
+ * - reflexivoConBuilder: como lo hacía el controller (un builder y un DTO por
+ * fila, lista de DTOs, serialización por reflexión).
+ * - especializadoConDTOs: la misma lista de DTOs con SerializadoresJson.
+ * - directoSinDTOs: VistaProvincias, escrita fila por fila desde las entidades.
+ *
+ * Con "-prof gc" se ve también la memoria reservada por operación
+ * (gc.alloc.rate.norm).
+ *
+ * @author Gabriel Romero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionJsonBenchmark {
+
+    @Param("100000")
+    private int filas;
+
+    private List<Provincia> provincias;
+    private final ObjectMapper reflexivo = new ObjectMapper();
+    private final ObjectMapper especializado = new ObjectMapper().registerModule(SerializadoresJson.modulo());
+    private final OutputStream descarte = new Descarte();
+
+    @Setup
+    public void preparar() {
+        List<Pais> paises = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            paises.add(new Pais((long) i, "País número " + i));
+        }
+        provincias = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            provincias.add(new Provincia((long) i, "Provincia de Córdoba " + i, paises.get(i % paises.size())));
+        }
+    }
+
+    @Benchmark
+    public void reflexivoConBuilder() throws IOException {
+        List<ProvinciaDTO> dtos = provincias.stream()
+                .map(provincia -> ProvinciaDTO.builder()
+                        .id(provincia.getId())
+                        .nombre(provincia.getNombre())
+                        .pais(provincia.getPais().getNombre())
+                        .build())
+                .collect(Collectors.toList());
+        reflexivo.writeValue(descarte, dtos);
+    }
+
+    @Benchmark
+    public void especializadoConDTOs() throws IOException {
+        List<ProvinciaDTO> dtos = provincias.stream()
+                .map(provincia -> new ProvinciaDTO(
+                        provincia.getId(), provincia.getNombre(), provincia.getPais().getNombre()))
+                .collect(Collectors.toList());
+        especializado.writeValue(descarte, dtos);
+    }
+
+    @Benchmark
+    public void directoSinDTOs() throws IOException {
+        especializado.writeValue(descarte, new VistaProvincias(provincias, VistaProvincias.Formato.CON_PAIS));
+    }
+
+    /**
+     * Descarta lo escrito (y admite seguir escribiendo después de close).
+     */
+    private static final class Descarte extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int desde, int largo) {
+        }
+    }
+}
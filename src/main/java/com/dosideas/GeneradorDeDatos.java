@@ -0,0 +1,251 @@
+package com.dosideas;
+
+import com.dosideas.fragmentacion.Fragmentos;
+import com.dosideas.service.RelojCambios;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Generador de un catálogo sintético de países y provincias, para probar cómo
+ * escalan las consultas con volúmenes de producción.
+ *
+ * Solo se activa con el perfil "generador" (ver application-generador.properties,
+ * que usa HSQLDB en memoria). Se puede correr desde la línea de comandos:
+ *
+ * mvn spring-boot:run -Dspring-boot.run.profiles=generador
+ *      -Dspring-boot.run.arguments=--generador.provincias=1000000
+ *
+ * o con el main de esta clase, que activa el perfil por su cuenta.
+ *
+ * El catálogo es determinístico a partir de la semilla: misma semilla y
+ * cantidades, mismos datos. La cantidad de provincias por país sigue una
+ * distribución de Zipf (pocos países con muchas provincias) y una parte de
+ * los nombres se repite entre países ("San José", "Santa Fe"...), como pasa
+ * en los datos reales. Los nombres incluyen tildes y eñes.
+ *
+ * Los inserts se hacen con JDBC por lotes, sin pasar por JPA. Cada lote de
+ * provincias es una transacción con un solo número de cambio, como en la
+ * importación (ImportacionProvinciasService), así el seguimiento de cambios
+ * y las instantáneas las ven. Solo genera datos si las tablas están vacías, y
+ * no corre con la base fragmentada: escribe únicamente en la principal.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+@Profile("generador")
+public class GeneradorDeDatos implements ApplicationRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GeneradorDeDatos.class);
+
+    private static final String[] SILABAS = {
+        "ba", "ca", "co", "cha", "da", "fa", "ga", "gua", "ja", "la", "lla", "ma", "me", "mi",
+        "na", "ña", "ne", "pa", "po", "que", "ra", "re", "ri", "ro", "sa", "se", "ta", "te",
+        "to", "tu", "va", "xa", "ya", "za", "bá", "cé", "dó", "lí", "mú", "ná", "rá", "sé",
+        "tó", "çã", "ão", "ño", "gü"
+    };
+    private static final String[] PREFIJOS = {
+        "San ", "Santa ", "La ", "El ", "Los ", "Las ", "Río ", "Villa ", "Puerto ", "Nueva ",
+        "Alto ", "Bajo ", "Monte ", "Isla ", "Valle "
+    };
+    private static final String[] SUFIJOS = {
+        " del Norte", " del Sur", " del Este", " Oeste", " Central", " de Arriba", " del Mar"
+    };
+    private static final String[] NOMBRES_COMUNES = {
+        "San José", "Santa Fe", "San Juan", "Córdoba", "Santiago", "La Paz", "Santa Cruz",
+        "San Luis", "Concepción", "Guadalupe", "San Martín", "Trinidad", "Valparaíso",
+        "Río Grande", "Santa Rosa", "San Miguel", "Los Ángeles", "Santa María", "Mérida",
+        "San Pedro"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RelojCambios relojCambios;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean fragmentada;
+    private final int cantidadPaises;
+    private final int cantidadProvincias;
+    private final long semilla;
+    private final int tamanioLote;
+    private final double sesgo;
+
+    public GeneradorDeDatos(JdbcTemplate jdbcTemplate,
+            RelojCambios relojCambios,
+            PlatformTransactionManager transactionManager,
+            ObjectProvider<Fragmentos> fragmentos,
+            @Value("${generador.paises:200}") int cantidadPaises,
+            @Value("${generador.provincias:100000}") int cantidadProvincias,
+            @Value("${generador.semilla:42}") long semilla,
+            @Value("${generador.lote:5000}") int tamanioLote,
+            @Value("${generador.sesgo:1.1}") double sesgo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.relojCambios = relojCambios;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fragmentada = fragmentos.getIfAvailable() != null;
+        this.cantidadPaises = cantidadPaises;
+        this.cantidadProvincias = cantidadProvincias;
+        this.semilla = semilla;
+        this.tamanioLote = tamanioLote;
+        this.sesgo = sesgo;
+    }
+
+    public static void main(String[] args) {
+        SpringApplication aplicacion = new SpringApplication(ApplicationConfig.class);
+        aplicacion.setAdditionalProfiles("generador");
+        aplicacion.run(args);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (fragmentada) {
+            throw new IllegalStateException(
+                    "El generador no reparte las provincias entre fragmentos: deshabilitar la fragmentación.");
+        }
+        Long existentes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM provincia", Long.class);
+        if (existentes != null && existentes > 0) {
+            LOG.warn("La tabla provincia ya tiene {} filas: no se generan datos", existentes);
+            return;
+        }
+        long inicio = System.nanoTime();
+        SplittableRandom azar = new SplittableRandom(semilla);
+
+        long[] idsPais = generarPaises(azar);
+        generarProvincias(azar, idsPais);
+
+        long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+        LOG.info("Catálogo generado: {} países y {} provincias en {} ms ({} filas/s)",
+                cantidadPaises, cantidadProvincias, milisegundos,
+                milisegundos > 0 ? (cantidadPaises + cantidadProvincias) * 1000L / milisegundos : 0);
+    }
+
+    private long[] generarPaises(SplittableRandom azar) {
+        Set<String> usados = new HashSet<>();
+        String[] nombres = new String[cantidadPaises];
+        for (int i = 0; i < cantidadPaises; i++) {
+            String nombre;
+            do {
+                nombre = palabra(azar, 2 + azar.nextInt(3));
+            } while (!usados.add(nombre));
+            nombres[i] = nombre;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO pais (nombre) VALUES (?)", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, nombres[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return nombres.length;
+            }
+        });
+        // Los IDs los asigna la base; se leen para referenciarlos desde provincia.
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM pais ORDER BY id", Long.class);
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private void generarProvincias(SplittableRandom azar, long[] idsPais) {
+        double[] acumulada = distribucionZipf(idsPais.length);
+        String sql = "INSERT INTO provincia (nombre, id_pais, cambio, version) VALUES (?, ?, ?, 0)";
+        String[] nombres = new String[tamanioLote];
+        long[] paises = new long[tamanioLote];
+
+        for (int desde = 0; desde < cantidadProvincias; desde += tamanioLote) {
+            int cantidad = Math.min(tamanioLote, cantidadProvincias - desde);
+            for (int i = 0; i < cantidad; i++) {
+                paises[i] = idsPais[elegir(acumulada, azar.nextDouble())];
+                nombres[i] = nombreProvincia(azar);
+            }
+            transactionTemplate.executeWithoutResult(estado -> {
+                long cambio = relojCambios.siguiente();
+                jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setString(1, nombres[i]);
+                        ps.setLong(2, paises[i]);
+                        ps.setLong(3, cambio);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return cantidad;
+                    }
+                });
+            });
+        }
+    }
+
+    private String nombreProvincia(SplittableRandom azar) {
+        double tirada = azar.nextDouble();
+        if (tirada < 0.15) {
+            // Nombres repetidos entre países, también con sesgo hacia los primeros.
+            int indice = (int) (NOMBRES_COMUNES.length * Math.pow(azar.nextDouble(), 2));
+            return NOMBRES_COMUNES[indice];
+        }
+        StringBuilder nombre = new StringBuilder(24);
+        if (tirada < 0.45) {
+            nombre.append(PREFIJOS[azar.nextInt(PREFIJOS.length)]);
+        }
+        nombre.append(palabra(azar, 2 + azar.nextInt(3)));
+        if (azar.nextInt(8) == 0) {
+            nombre.append(SUFIJOS[azar.nextInt(SUFIJOS.length)]);
+        }
+        return nombre.toString();
+    }
+
+    private static String palabra(SplittableRandom azar, int silabas) {
+        StringBuilder palabra = new StringBuilder(silabas * 3);
+        for (int i = 0; i < silabas; i++) {
+            palabra.append(SILABAS[azar.nextInt(SILABAS.length)]);
+        }
+        palabra.setCharAt(0, Character.toUpperCase(palabra.charAt(0)));
+        return palabra.toString();
+    }
+
+    /**
+     * Distribución acumulada de Zipf: el país k recibe un peso 1/k^sesgo.
+     */
+    private double[] distribucionZipf(int cantidad) {
+        double[] acumulada = new double[cantidad];
+        double suma = 0;
+        for (int k = 0; k < cantidad; k++) {
+            suma += 1.0 / Math.pow(k + 1, sesgo);
+            acumulada[k] = suma;
+        }
+        for (int k = 0; k < cantidad; k++) {
+            acumulada[k] /= suma;
+        }
+        return acumulada;
+    }
+
+    private static int elegir(double[] acumulada, double valor) {
+        int bajo = 0;
+        int alto = acumulada.length - 1;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (acumulada[medio] < valor) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+}
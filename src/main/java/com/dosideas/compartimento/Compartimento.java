@@ -0,0 +1,53 @@
+package com.dosideas.compartimento;
+
+/**
+ * Las clases de trabajo que atienden los controllers REST, cada una con su
+ * propio pool de hilos y su propia cola (ver {@link Compartimentos}).
+ *
+ * Cada hilo usa a lo sumo una conexión a la vez, así que la cantidad de hilos
+ * de un compartimento es también la cantidad máxima de conexiones que puede
+ * ocupar: una ráfaga de listados completos no deja sin conexiones a las
+ * búsquedas por ID.
+ *
+ * @author Gabriel Romero
+ */
+public enum Compartimento {
+
+    /** Búsquedas de una fila: por ID o por nombre exacto. */
+    LECTURA_PUNTUAL("lectura-puntual", 4, 100),
+
+    /** Listados y recorridos: todas las provincias, por país, cambios. */
+    LECTURA_LISTADO("lectura-listado", 2, 10),
+
+    /** Altas, modificaciones y bajas. */
+    ESCRITURA("escritura", 2, 50),
+
+    /** Endpoints de administración y diagnóstico. */
+    ADMIN("admin", 1, 10);
+
+    private final String clave;
+    private final int hilosPorDefecto;
+    private final int colaPorDefecto;
+
+    Compartimento(String clave, int hilosPorDefecto, int colaPorDefecto) {
+        this.clave = clave;
+        this.hilosPorDefecto = hilosPorDefecto;
+        this.colaPorDefecto = colaPorDefecto;
+    }
+
+    /**
+     * @return El nombre en las propiedades ("compartimentos.&lt;clave&gt;.hilos")
+     * y en las métricas.
+     */
+    public String getClave() {
+        return clave;
+    }
+
+    public int getHilosPorDefecto() {
+        return hilosPorDefecto;
+    }
+
+    public int getColaPorDefecto() {
+        return colaPorDefecto;
+    }
+}
@@ -0,0 +1,182 @@
+package com.dosideas.compartimento;
+
+import com.dosideas.diagnostico.AmbitoSentencias;
+import com.dosideas.diagnostico.ContadorSentencias;
+import com.dosideas.diagnostico.EtiquetasPerfil;
+import com.dosideas.dto.CompartimentoDTO;
+import com.dosideas.exception.CompartimentoLlenoException;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Un pool de hilos acotado por cada {@link Compartimento}. Los controllers
+ * REST le pasan el trabajo de cada request y devuelven el CompletableFuture:
+ * el hilo de Tomcat queda libre enseguida y cada clase de endpoints compite
+ * solo con las de su mismo compartimento, por hilos y por conexiones.
+ *
+ * Si el compartimento tiene todos sus hilos ocupados y la cola llena, el
+ * request se rechaza con {@link CompartimentoLlenoException} (503) en lugar de
+ * esperar indefinidamente.
+ *
+ * Tamaños configurables con "compartimentos.&lt;clave&gt;.hilos" y
+ * "compartimentos.&lt;clave&gt;.cola". Como cada hilo ocupa a lo sumo una
+ * conexión, al arrancar se avisa si la suma de hilos supera el tamaño del
+ * pool de conexiones.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+public class Compartimentos {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Compartimentos.class);
+
+    private final Map<Compartimento, Pool> pools = new EnumMap<>(Compartimento.class);
+
+    public Compartimentos(Environment environment,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int conexiones) {
+        int hilosTotales = 0;
+        for (Compartimento compartimento : Compartimento.values()) {
+            String prefijo = "compartimentos." + compartimento.getClave();
+            int hilos = environment.getProperty(prefijo + ".hilos", Integer.class,
+                    compartimento.getHilosPorDefecto());
+            int cola = environment.getProperty(prefijo + ".cola", Integer.class,
+                    compartimento.getColaPorDefecto());
+            pools.put(compartimento, new Pool(compartimento, hilos, cola));
+            hilosTotales += hilos;
+        }
+        if (hilosTotales > conexiones) {
+            LOG.warn("Los compartimentos suman {} hilos y el pool de conexiones tiene {}: "
+                    + "pueden quedarse esperando una conexión entre ellos", hilosTotales, conexiones);
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        pools.values().forEach(pool -> pool.executor.shutdownNow());
+    }
+
+    /**
+     * Ejecuta la tarea en el pool del compartimento. La tarea sigue contando
+     * sus sentencias SQL en el ámbito del request que la pidió, sus eventos
+     * de JFR quedan etiquetados con el endpoint del request y sus spans
+     * cuelgan de la traza del request.
+     *
+     * @param compartimento El compartimento.
+     * @param tarea El trabajo del request.
+     * @return El resultado de la tarea; si el compartimento está lleno, un
+     * future terminado con {@link CompartimentoLlenoException}.
+     */
+    public <T> CompletableFuture<T> ejecutar(Compartimento compartimento, Callable<T> tarea) {
+        Pool pool = pools.get(compartimento);
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        AmbitoSentencias ambito = ContadorSentencias.actual();
+        String endpoint = EtiquetasPerfil.endpoint();
+        Context contexto = Context.current();
+        long encolada = System.nanoTime();
+        try {
+            pool.executor.execute(() -> {
+                pool.registrarEspera(System.nanoTime() - encolada);
+                AmbitoSentencias anterior = ContadorSentencias.continuar(ambito);
+                try (Scope scope = contexto.makeCurrent();
+                        EtiquetasPerfil.Tramo tramo = EtiquetasPerfil.abrir(endpoint, false)) {
+                    resultado.complete(tarea.call());
+                    pool.completadas.increment();
+                } catch (Exception | Error e) {
+                    pool.fallidas.increment();
+                    resultado.completeExceptionally(e);
+                } finally {
+                    ContadorSentencias.restaurar(anterior);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pool.rechazadas.increment();
+            resultado.completeExceptionally(new CompartimentoLlenoException(
+                    "Compartimento " + compartimento.getClave() + " lleno"));
+        }
+        return resultado;
+    }
+
+    /**
+     * @return El estado de cada compartimento.
+     */
+    public List<CompartimentoDTO> estado() {
+        List<CompartimentoDTO> estado = new ArrayList<>();
+        pools.values().forEach(pool -> estado.add(pool.estado()));
+        return estado;
+    }
+
+    /**
+     * El pool de un compartimento y sus contadores.
+     */
+    private static final class Pool {
+
+        private final Compartimento compartimento;
+        private final int cola;
+        private final ThreadPoolExecutor executor;
+        private final LongAdder completadas = new LongAdder();
+        private final LongAdder fallidas = new LongAdder();
+        private final LongAdder rechazadas = new LongAdder();
+        private final LongAdder esperas = new LongAdder();
+        private final LongAdder esperaTotalNanos = new LongAdder();
+        private final AtomicLong esperaMaximaNanos = new AtomicLong();
+
+        private Pool(Compartimento compartimento, int hilos, int cola) {
+            this.compartimento = compartimento;
+            this.cola = cola;
+            AtomicInteger numero = new AtomicInteger();
+            // Cola acotada y AbortPolicy: si no hay lugar, se rechaza.
+            this.executor = new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS,
+                    cola > 0 ? new ArrayBlockingQueue<>(cola) : new SynchronousQueue<>(), tarea -> {
+                        Thread hilo = new Thread(tarea,
+                                "compartimento-" + compartimento.getClave() + "-" + numero.incrementAndGet());
+                        hilo.setDaemon(true);
+                        return hilo;
+                    });
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        private void registrarEspera(long nanos) {
+            esperas.increment();
+            esperaTotalNanos.add(nanos);
+            esperaMaximaNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private CompartimentoDTO estado() {
+            long cantidadEsperas = esperas.sum();
+            return CompartimentoDTO.builder()
+                    .nombre(compartimento.getClave())
+                    .hilos(executor.getMaximumPoolSize())
+                    .cola(cola)
+                    .activos(executor.getActiveCount())
+                    .enCola(executor.getQueue().size())
+                    .completadas(completadas.sum())
+                    .fallidas(fallidas.sum())
+                    .rechazadas(rechazadas.sum())
+                    .esperaPromedioMs(cantidadEsperas == 0 ? 0
+                            : esperaTotalNanos.sum() / (cantidadEsperas * 1_000_000.0))
+                    .esperaMaximaMs(esperaMaximaNanos.get() / 1_000_000.0)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.dosideas.controller;
+
+import com.dosideas.event.ProvinciaEvento;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+/**
+ * Cache de fragmentos HTML ya renderizados (las tablas paginadas de países y
+ * provincias).
+ *
+ * La clave de cada fragmento incluye la versión de los datos de su plantilla.
+ * Cuando se confirma un cambio de provincias la versión avanza, así que un
+ * fragmento que se estaba renderizando con datos viejos queda guardado con la
+ * versión anterior y nunca se vuelve a servir. Los países no se modifican
+ * desde la aplicación, por lo que su versión no cambia.
+ *
+ * En un acierto no se consulta la base ni se ejecuta el motor de plantillas.
+ * La cantidad de fragmentos guardados está acotada (se descartan los menos
+ * usados).
+ *
+ * @author Gabriel Romero
+ */
+@Component
+public class CacheFragmentos {
+
+    static final String PLANTILLA_PAISES = "pais_tabla";
+    static final String PLANTILLA_PROVINCIAS = "provincia_tabla";
+
+    private final ITemplateEngine templateEngine;
+    private final JakartaServletWebApplication aplicacion;
+    private final Map<String, AtomicLong> versiones = new ConcurrentHashMap<>();
+    private final Map<String, String> fragmentos;
+
+    public CacheFragmentos(ITemplateEngine templateEngine, ServletContext servletContext,
+            @Value("${vistas.fragmentos.maximo:256}") int maximo) {
+        this.templateEngine = templateEngine;
+        this.aplicacion = JakartaServletWebApplication.buildApplication(servletContext);
+        this.fragmentos = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> mayor) {
+                return size() > maximo;
+            }
+        });
+    }
+
+    /**
+     * Devuelve el fragmento de la plantilla para la clave dada, renderizándolo
+     * solo si no está en la cache.
+     *
+     * @param plantilla La plantilla del fragmento.
+     * @param clave Lo que distingue un fragmento de otro de la misma plantilla
+     * (página, tamaño...).
+     * @param modelo Carga las variables de la plantilla; solo se invoca si hay
+     * que renderizar.
+     * @param request El request actual, para resolver los links @{...}.
+     * @param response El response actual.
+     * @return El HTML del fragmento.
+     */
+    public String obtener(String plantilla, String clave, Supplier<Map<String, Object>> modelo,
+            HttpServletRequest request, HttpServletResponse response) {
+        // La versión se lee antes de cargar los datos: si cambian mientras se
+        // renderiza, el resultado queda bajo una clave que ya no se pide.
+        String claveCompleta = plantilla + '|' + version(plantilla).get() + '|' + clave;
+        String html = fragmentos.get(claveCompleta);
+        if (html == null) {
+            WebContext contexto = new WebContext(aplicacion.buildExchange(request, response),
+                    request.getLocale(), modelo.get());
+            html = templateEngine.process(plantilla, contexto);
+            fragmentos.put(claveCompleta, html);
+        }
+        return html;
+    }
+
+    /**
+     * Invalida las tablas de provincias cuando se confirma un cambio.
+     *
+     * @param evento El cambio confirmado.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void provinciaModificada(ProvinciaEvento evento) {
+        invalidar(PLANTILLA_PROVINCIAS);
+    }
+
+    /**
+     * Avanza la versión de la plantilla y descarta sus fragmentos guardados.
+     *
+     * @param plantilla La plantilla cuyos datos cambiaron.
+     */
+    public void invalidar(String plantilla) {
+        version(plantilla).incrementAndGet();
+        String prefijo = plantilla + '|';
+        synchronized (fragmentos) {
+            fragmentos.keySet().removeIf(clave -> clave.startsWith(prefijo));
+        }
+    }
+
+    private AtomicLong version(String plantilla) {
+        return versiones.computeIfAbsent(plantilla, p -> new AtomicLong());
+    }
+}
@@ -2,12 +2,18 @@ package com.dosideas.controller;
 
 import com.dosideas.domain.Pais;
 import com.dosideas.service.PaisService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
-import java.util.List;
+import java.util.Map;
 
 /**
  * Este es un controlador de presentación (que se define anotándolo con
@@ -17,18 +23,45 @@ import java.util.List;
  * La anotación @RequestMapping en un método indica que ese método se invoca
  * cuando se recibe una petición HTTP con esa dirección. El método en cuestión
  * devuelve un Sring, que representa la vista (página HTML).
+ *
+ * El listado se pagina en el servidor, y la tabla de cada página se guarda ya
+ * renderizada en {@link CacheFragmentos}.
  */
 @Controller
 public class PaisController {
 
+    static final int TAMANIO_MAXIMO = 100;
+
     @Autowired
     private PaisService paisService;
 
+    @Autowired
+    private CacheFragmentos cacheFragmentos;
+
+    @Autowired
+    private VistaEnStreaming vistaEnStreaming;
+
     @RequestMapping("/paises")
-    public String paises(Model model) {
-        List<Pais> paises = paisService.buscarTodos();
-        model.addAttribute("paises", paises);
+    public String paises(@RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "20") int tamanio,
+            Model model, HttpServletRequest request, HttpServletResponse response) {
+        int numero = Math.max(pagina, 0);
+        int cantidad = Math.min(Math.max(tamanio, 1), TAMANIO_MAXIMO);
+        String tabla = cacheFragmentos.obtener(CacheFragmentos.PLANTILLA_PAISES, numero + "|" + cantidad, () -> {
+            Page<Pais> paises = paisService.buscarPagina(PageRequest.of(numero, cantidad, Sort.by("id")));
+            return Map.of("paises", paises.getContent(), "pagina", paises);
+        }, request, response);
+        model.addAttribute("tablaPaises", tabla);
         return "pais";
     }
 
+    /**
+     * Listado completo, sin paginar, enviado al navegador a medida que se lee.
+     */
+    @RequestMapping(value = "/paises", params = "completo")
+    public void paisesEnStreaming(HttpServletRequest request, HttpServletResponse response) {
+        paisService.recorrerTodos(paises -> vistaEnStreaming.renderizar(
+                "pais_completo", Map.of("paises", paises), request, response));
+    }
+
 }
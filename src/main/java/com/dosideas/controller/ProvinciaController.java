@@ -5,15 +5,22 @@
 package com.dosideas.controller;
 
 import com.dosideas.domain.Provincia;
+import com.dosideas.exception.ProvinciaConflictoException;
 import com.dosideas.service.IProvinciaService;
-import java.util.List;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 /**
  * Controller MVC
@@ -22,16 +29,43 @@ import org.springframework.web.bind.annotation.PostMapping;
 @Controller
 public class ProvinciaController {
 
+    static final int TAMANIO_MAXIMO = 100;
+
     @Autowired
     private IProvinciaService provinciaService;
 
+    @Autowired
+    private CacheFragmentos cacheFragmentos;
+
+    @Autowired
+    private VistaEnStreaming vistaEnStreaming;
+
     @GetMapping("/provincias")
-    public String listarTodasLasProvincias(Model model) {
-        List<Provincia> provincias = provinciaService.buscarTodasLasProvincias();
-        model.addAttribute("provincias", provincias);
+    public String listarTodasLasProvincias(@RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "20") int tamanio,
+            Model model, HttpServletRequest request, HttpServletResponse response) {
+        int numero = Math.max(pagina, 0);
+        int cantidad = Math.min(Math.max(tamanio, 1), TAMANIO_MAXIMO);
+        // La tabla de la página se renderiza una sola vez por versión de los datos.
+        String tabla = cacheFragmentos.obtener(CacheFragmentos.PLANTILLA_PROVINCIAS, numero + "|" + cantidad, () -> {
+            Page<Provincia> provincias = provinciaService.buscarPaginaDeProvincias(
+                    PageRequest.of(numero, cantidad, Sort.by("id")));
+            return Map.of("provincias", provincias.getContent(), "pagina", provincias);
+        }, request, response);
+        model.addAttribute("tablaProvincias", tabla);
         return "provincia";
     }
 
+    /**
+     * Listado completo, sin paginar: las filas se leen de un cursor y se envían
+     * al navegador a medida que se renderizan.
+     */
+    @GetMapping(value = "/provincias", params = "completo")
+    public void listarProvinciasEnStreaming(HttpServletRequest request, HttpServletResponse response) {
+        provinciaService.recorrerProvincias(provincias -> vistaEnStreaming.renderizar(
+                "provincia_completo", Map.of("provincias", provincias), request, response));
+    }
+
     @GetMapping("/provincias/crear")
     public String formularioNuevaProvincia(Model model) {
         Provincia provincia = new Provincia();
@@ -52,7 +86,15 @@ public class ProvinciaController {
     }
 
     @PostMapping("/provincias/editar")
-    public String actualizarProvincia(@ModelAttribute("provincia") Provincia provincia, Model model) {
+    public String actualizarProvincia(@ModelAttribute("provincia") Provincia provincia, Model model)
+            throws ProvinciaConflictoException {
+        // El formulario envía la versión leída: se modifica en una sola sentencia.
+        if (provincia.getVersion() != null) {
+            // La respuesta es una redirección: no hace falta el país.
+            provinciaService.modificarNombre(provincia.getId(), provincia.getNombre(), provincia.getVersion(), null);
+            return "redirect:/provincias";
+        }
+
         Provincia provinciaExistente = provinciaService.buscarPorId(provincia.getId());
         provinciaExistente.setNombre(provincia.getNombre());
 
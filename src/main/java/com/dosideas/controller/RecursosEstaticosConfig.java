@@ -0,0 +1,71 @@
+package com.dosideas.controller;
+
+import java.time.Duration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+/**
+ * Recursos estáticos propios (/js) y de terceros (/vendor) con huella de
+ * contenido en la URL y cache de larga duración.
+ *
+ * Las URLs llevan el MD5 del archivo (/js/ui/pais-&lt;md5&gt;.js): Thymeleaf las
+ * arma así en cada @{...} gracias a {@link ResourceUrlEncodingFilter}, y el
+ * paso de build (src/build/java) hace lo mismo con los import entre módulos.
+ * Como una URL con huella nunca cambia de contenido, se sirve con
+ * "Cache-Control: max-age=1 año, public, immutable" y el navegador no vuelve
+ * a pedirla.
+ *
+ * Si el cliente acepta br o gzip se entrega la variante precomprimida en el
+ * build (archivo.js.br, archivo.js.gz), sin comprimir en cada request.
+ *
+ * @author Gabriel Romero
+ */
+@Configuration
+public class RecursosEstaticosConfig implements WebMvcConfigurer {
+
+    private static final Duration UN_ANIO = Duration.ofDays(365);
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        conHuella(registry, "/js/**", "classpath:/static/js/");
+        conHuella(registry, "/vendor/**", "classpath:/static/vendor/");
+    }
+
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+
+    private static void conHuella(ResourceHandlerRegistry registry, String patron, String ubicacion) {
+        registry.addResourceHandler(patron)
+                .addResourceLocations(ubicacion)
+                .setCacheControl(new CacheInmutable(UN_ANIO))
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    /**
+     * Cache-Control público de larga duración con "immutable" (que el
+     * CacheControl de esta versión de Spring no tiene).
+     */
+    private static final class CacheInmutable extends CacheControl {
+
+        private final String valor;
+
+        private CacheInmutable(Duration duracion) {
+            this.valor = "max-age=" + duracion.getSeconds() + ", public, immutable";
+        }
+
+        @Override
+        public String getHeaderValue() {
+            return valor;
+        }
+    }
+}
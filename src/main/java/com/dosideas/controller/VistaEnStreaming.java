@@ -0,0 +1,65 @@
+package com.dosideas.controller;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+/**
+ * Renderiza una plantilla escribiendo directamente en la respuesta, para los
+ * listados completos.
+ *
+ * Las variables pueden ser iteradores que leen de un cursor abierto: Thymeleaf
+ * los recorre con th:each a medida que escribe, y cada vez que se llena el
+ * buffer de la respuesta se envía un bloque (chunked) al navegador. Así el
+ * navegador empieza a mostrar filas mientras la base todavía se está leyendo,
+ * y en memoria solo queda el bloque en curso.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+public class VistaEnStreaming {
+
+    private final ITemplateEngine templateEngine;
+    private final JakartaServletWebApplication aplicacion;
+    private final int tamanioBloque;
+
+    public VistaEnStreaming(ITemplateEngine templateEngine, ServletContext servletContext,
+            @Value("${vistas.streaming.bloque:8192}") int tamanioBloque) {
+        this.templateEngine = templateEngine;
+        this.aplicacion = JakartaServletWebApplication.buildApplication(servletContext);
+        this.tamanioBloque = tamanioBloque;
+    }
+
+    /**
+     * Escribe la plantilla en la respuesta.
+     *
+     * @param plantilla La plantilla a renderizar.
+     * @param variables Las variables de la plantilla.
+     * @param request El request actual.
+     * @param response El response donde se escribe el HTML.
+     */
+    public void renderizar(String plantilla, Map<String, Object> variables,
+            HttpServletRequest request, HttpServletResponse response) {
+        response.setBufferSize(tamanioBloque);
+        response.setContentType("text/html;charset=UTF-8");
+        WebContext contexto = new WebContext(aplicacion.buildExchange(request, response),
+                request.getLocale(), variables);
+        try {
+            Writer salida = response.getWriter();
+            templateEngine.process(plantilla, contexto, salida);
+            salida.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
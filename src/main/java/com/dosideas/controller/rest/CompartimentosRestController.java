@@ -0,0 +1,38 @@
+package com.dosideas.controller.rest;
+
+import com.dosideas.compartimento.Compartimentos;
+import com.dosideas.dto.CompartimentoDTO;
+
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller de administración con el estado de los compartimentos (pools de
+ * hilos por clase de endpoint).
+ * Raiz: localhost:8080/api/admin/compartimentos
+ *
+ * Se atiende en el hilo del request, no en el compartimento de administración:
+ * tiene que responder justamente cuando los compartimentos están llenos.
+ *
+ * @author Gabriel Romero
+ */
+@RestController
+@RequestMapping("/api/admin/compartimentos")
+public class CompartimentosRestController {
+
+    @Autowired
+    private Compartimentos compartimentos;
+
+    /**
+     * Lista hilos, cola, ocupación, rechazos y esperas de cada compartimento.
+     *
+     * @return El estado de los compartimentos.
+     */
+    @GetMapping
+    public List<CompartimentoDTO> estado() {
+        return compartimentos.estado();
+    }
+}
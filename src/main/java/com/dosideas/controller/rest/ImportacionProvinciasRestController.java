@@ -0,0 +1,70 @@
+package com.dosideas.controller.rest;
+
+import com.dosideas.dto.ImportacionDTO;
+import com.dosideas.exception.ImportacionOcupadaException;
+import com.dosideas.service.ImportacionProvinciasService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller para importar provincias desde archivos CSV.
+ * Raiz: localhost:8080/api/provincia/importaciones
+ *
+ * @author Gabriel Romero
+ */
+@RestController
+@RequestMapping("/api/provincia/importaciones")
+public class ImportacionProvinciasRestController {
+
+    @Autowired
+    private ImportacionProvinciasService importacionService;
+
+    /**
+     * Importa las provincias del CSV enviado como cuerpo (text/csv, UTF-8, con
+     * columnas nombre,pais). El cuerpo se procesa a medida que llega, sin
+     * guardarlo entero; mientras tanto el avance se consulta con GET.
+     *
+     * Ejemplo: curl -T provincias.csv -H "Content-Type: text/csv"
+     *      -X POST localhost:8080/api/provincia/importaciones
+     *
+     * @param request El request, para leer el cuerpo como stream.
+     * @return El estado final de la importación, con las filas con error.
+     * @throws ImportacionOcupadaException Si hay demasiadas importaciones en
+     * curso (503).
+     * @throws IOException Si no se puede leer el cuerpo.
+     */
+    @PostMapping(consumes = {"text/csv", "text/plain"})
+    public ImportacionDTO importar(HttpServletRequest request)
+            throws ImportacionOcupadaException, IOException {
+        return importacionService.importar(request.getInputStream(), request.getContentLengthLong());
+    }
+
+    /**
+     * @return Las importaciones en curso y las últimas terminadas.
+     */
+    @GetMapping
+    public List<ImportacionDTO> listar() {
+        return importacionService.buscarTodas();
+    }
+
+    /**
+     * Consulta el avance de una importación.
+     *
+     * @param id El ID de la importación.
+     * @return El estado, o 404 (NOT FOUND) si no existe.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportacionDTO> buscar(@PathVariable long id) {
+        ImportacionDTO importacion = importacionService.buscarPorId(id);
+        return importacion == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(importacion);
+    }
+}
@@ -0,0 +1,47 @@
+package com.dosideas.controller.rest;
+
+import com.dosideas.compartimento.Compartimento;
+import com.dosideas.compartimento.Compartimentos;
+import com.dosideas.dto.ModeloLecturaDTO;
+import com.dosideas.service.ModeloLecturaProvincias;
+
+import java.util.concurrent.CompletableFuture;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller de administración con el estado del modelo de lectura de
+ * provincias.
+ * Raiz: localhost:8080/api/admin/modelo-lectura
+ *
+ * Se atiende en el compartimento de administración (ver {@link Compartimentos}).
+ *
+ * @author Gabriel Romero
+ */
+@RestController
+@RequestMapping("/api/admin/modelo-lectura")
+public class ModeloLecturaRestController {
+
+    @Autowired(required = false)
+    private ModeloLecturaProvincias modeloLectura;
+
+    @Autowired
+    private Compartimentos compartimentos;
+
+    /**
+     * Devuelve cantidades y memoria estimada del modelo.
+     *
+     * @return El estado, o 404 (NOT FOUND) si el modelo no está habilitado.
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<ModeloLecturaDTO>> estado() {
+        if (modeloLectura == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        return compartimentos.ejecutar(Compartimento.ADMIN,
+                () -> ResponseEntity.ok(modeloLectura.estadisticas()));
+    }
+}
@@ -1,11 +1,22 @@
 package com.dosideas.controller.rest;
 
+import com.dosideas.compartimento.Compartimento;
+import com.dosideas.compartimento.Compartimentos;
 import com.dosideas.domain.Pais;
 import com.dosideas.exception.PaisNoEncontradoException;
 import com.dosideas.service.PaisService;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -20,6 +31,9 @@ import org.springframework.web.bind.annotation.RestController;
  * cuando se recibe una petición HTTP con esa dirección. El método en cuestión
  * devuelve un objeto, que será transformado al formato JSON y retornado al
  * invocante.
+ *
+ * Las búsquedas se atienden en el compartimento de lecturas puntuales (ver
+ * {@link Compartimentos}), así no esperan detrás de listados o escrituras.
  */
 @RestController
 @RequestMapping("/api/pais")
@@ -28,12 +42,79 @@ public class PaisRestController {
     @Autowired
     private PaisService paisService;
 
+    @Autowired
+    private Compartimentos compartimentos;
+
+    /**
+     * Busca un país por su ID.
+     *
+     * La respuesta lleva un ETag calculado del contenido y "Cache-Control:
+     * no-cache": el cliente puede guardarla y revalidarla con If-None-Match,
+     * y si no cambió se responde 304 (NOT MODIFIED) sin cuerpo.
+     *
+     * @param id El ID del país.
+     * @param ifNoneMatch Los ETag que el cliente ya tiene (opcional).
+     * @return El país, 304 si el cliente ya tiene esta versión o 404 (NOT
+     * FOUND) si no existe.
+     */
     @GetMapping("/{id}")
-    public Pais buscarPorId(@PathVariable Long id) throws PaisNoEncontradoException {
-        Pais pais = paisService.buscarPorId(id);
-        if (pais == null) {
-            throw new PaisNoEncontradoException("Pais no encontrado");
+    public CompletableFuture<ResponseEntity<Pais>> buscarPorId(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return compartimentos.ejecutar(Compartimento.LECTURA_PUNTUAL, () -> {
+            Pais pais = paisService.buscarPorId(id);
+            if (pais == null) {
+                throw new PaisNoEncontradoException("Pais no encontrado");
+            }
+            String etag = etag(pais);
+            if (ifNoneMatch != null && coincide(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache())
+                        .build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(pais);
+        });
+    }
+
+    /**
+     * Responde not found sin cuerpo cuando no existe el país buscado. Así la
+     * respuesta se escribe acá mismo, sin el segundo despacho a /error que
+     * arma el cuerpo de error estándar de Spring Boot.
+     *
+     * @param e La excepción lanzada por la búsqueda.
+     * @return ResponseEntity not found, sin cuerpo.
+     */
+    @ExceptionHandler(PaisNoEncontradoException.class)
+    public ResponseEntity<Void> paisNoEncontrado(PaisNoEncontradoException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+
+    /**
+     * El ETag de un país: un hash de su ID y su nombre (Pais no tiene
+     * versión), entre comillas.
+     */
+    private static String etag(Pais pais) {
+        String contenido = pais.getId() + ":" + pais.getNombre();
+        return "\"" + DigestUtils.md5DigestAsHex(contenido.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Si alguno de los valores de un header If-None-Match ("a", W/"a", "*" o
+     * una lista separada por comas) corresponde al ETag.
+     */
+    private static boolean coincide(String ifNoneMatch, String etag) {
+        for (String valor : ifNoneMatch.split(",")) {
+            valor = valor.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals("*") || valor.equals(etag)) {
+                return true;
+            }
         }
-        return pais;
+        return false;
     }
 }
@@ -0,0 +1,105 @@
+package com.dosideas.controller.rest;
+
+import com.dosideas.compartimento.Compartimento;
+import com.dosideas.compartimento.Compartimentos;
+import com.dosideas.diagnostico.PerfiladorJfr;
+import com.dosideas.dto.PerfilDTO;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Controller de administración con el perfilado continuo de la JVM (JFR).
+ * Raiz: localhost:8080/api/admin/perfil
+ *
+ * Se atiende en el compartimento de administración (ver {@link Compartimentos}).
+ *
+ * @author Gabriel Romero
+ */
+@RestController
+@RequestMapping("/api/admin/perfil")
+public class PerfilAdminRestController {
+
+    private static final int TOP_MAXIMO = 100;
+    private static final DateTimeFormatter FORMATO_ARCHIVO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Autowired(required = false)
+    private PerfiladorJfr perfilador;
+
+    @Autowired
+    private Compartimentos compartimentos;
+
+    /**
+     * Lista los endpoints más costosos de la ventana reciente: tiempo,
+     * memoria asignada, esperas por locks, pausas de GC y espera de JDBC.
+     *
+     * @param top Cuántos devolver (hasta 100).
+     * @param orden "tiempo", "asignacion", "bloqueo", "gc" o "jdbc".
+     * @return El resumen, 400 (BAD REQUEST) si el orden no es válido o 404 (NOT
+     * FOUND) si el perfilado no está activo.
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<PerfilDTO>> resumen(
+            @RequestParam(defaultValue = "10") int top,
+            @RequestParam(defaultValue = "tiempo") String orden) {
+        if (perfilador == null || !perfilador.isActivo()) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        if (!PerfiladorJfr.ORDENES.contains(orden)) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        int cantidad = Math.min(Math.max(top, 1), TOP_MAXIMO);
+        return compartimentos.ejecutar(Compartimento.ADMIN,
+                () -> ResponseEntity.ok(perfilador.resumen(cantidad, orden)));
+    }
+
+    /**
+     * Descarga lo que conserva la grabación (los últimos minutos) como un
+     * archivo .jfr, para abrirlo con JDK Mission Control o "jfr print".
+     *
+     * @return El archivo, o 404 (NOT FOUND) si el perfilado no está activo.
+     */
+    @GetMapping("/grabacion")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> grabacion() {
+        if (perfilador == null || !perfilador.isActivo()) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        return compartimentos.ejecutar(Compartimento.ADMIN, () -> {
+            Path archivo = Files.createTempFile("perfil-", ".jfr");
+            try {
+                perfilador.volcar(archivo);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(archivo);
+                throw e;
+            }
+            StreamingResponseBody cuerpo = salida -> {
+                try {
+                    Files.copy(archivo, salida);
+                } finally {
+                    Files.deleteIfExists(archivo);
+                }
+            };
+            String nombre = "perfil-" + LocalDateTime.now().format(FORMATO_ARCHIVO) + ".jfr";
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(Files.size(archivo))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(nombre).build().toString())
+                    .body(cuerpo);
+        });
+    }
+}
@@ -0,0 +1,38 @@
+package com.dosideas.controller.rest;
+
+import com.dosideas.service.ProvinciaEventosService;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Controller que expone los cambios de provincias como Server-Sent Events.
+ * Raiz: localhost:8080/api/provincia/eventos
+ *
+ * Los clientes reciben eventos CREADA, MODIFICADA y ELIMINADA con los datos de
+ * la provincia y su número de cambio. Si reciben "resync" deben volver a pedir
+ * /api/provincia/cambios?desde=(último número de cambio recibido).
+ *
+ * @author Gabriel Romero
+ */
+@RestController
+@RequestMapping("/api/provincia/eventos")
+public class ProvinciaEventosRestController {
+
+    @Autowired
+    private ProvinciaEventosService provinciaEventosService;
+
+    /**
+     * Suscribe al cliente al stream de cambios.
+     *
+     * @return El emisor SSE asociado a la conexión.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribir() {
+        return provinciaEventosService.suscribir();
+    }
+}
@@ -1,8 +1,17 @@
 package com.dosideas.controller.rest;
 
+import com.dosideas.compartimento.Compartimento;
+import com.dosideas.compartimento.Compartimentos;
 import com.dosideas.domain.Provincia;
+import com.dosideas.dto.CambiosProvinciaDTO;
+import com.dosideas.dto.CampoProvincia;
+import com.dosideas.dto.FiltroProvincias;
 import com.dosideas.dto.ProvinciaDTO;
-import com.dosideas.dto.ProvinciaPaisDTO;
+import com.dosideas.dto.ProvinciasEliminadasDTO;
+import com.dosideas.dto.SugerenciasDTO;
+import com.dosideas.dto.VistaCamposProvincia;
+import com.dosideas.dto.VistaProvincias;
+import com.dosideas.exception.ProvinciaConflictoException;
 import com.dosideas.service.IProvinciaService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,98 +22,140 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestHeader;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Controller que maneja Requests relacionadas a Provincias
  * Raiz: localhost:8080/api/provincia
  * 
+ * Cada endpoint se atiende en el compartimento de su clase (lecturas
+ * puntuales, listados o escrituras, ver {@link Compartimentos}); si está
+ * lleno, responde 503 (SERVICE UNAVAILABLE).
+ * 
  * @author Gabriel Romero
  */
 @RestController
 @RequestMapping("/api/provincia")
 public class ProvinciaRestController {
 
+    // Máximo de IDs por eliminación masiva: la sentencia lleva un parámetro
+    // por ID.
+    private static final int IDS_MAXIMO = 1000;
+
     @Autowired
     private IProvinciaService provinciaService;
 
+    @Autowired
+    private Compartimentos compartimentos;
+
+    // El de Spring, con SerializadoresJson.
+    @Autowired
+    private ObjectMapper objectMapper;
+
      /**
      * Busca una provincia por su ID.
      *
+     * Con "?fields=id,nombre" (cualquier combinación de id, nombre y pais)
+     * se consultan y devuelven solo esos campos, sin ETag.
+     *
      * @param id El ID de la provincia a buscar.
-     * @return ResponseEntity con la ProvinciaDTO si se encuentra, o not found si no existe.
+     * @param fields Los campos a devolver (opcional; por defecto, todos).
+     * @return ResponseEntity con la ProvinciaDTO si se encuentra (y su versión
+     * como ETag), not found si no existe o bad request si algún campo no
+     * existe.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ProvinciaDTO> buscarProvinciaPorId(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<?>> buscarProvinciaPorId(@PathVariable Long id,
+            @RequestParam(required = false) String fields) {
         //Asegurar que no llegue un valor null de id a service ya que es long.
         if (id == null) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
+        }
+        Set<CampoProvincia> campos;
+        try {
+            campos = CampoProvincia.leer(fields);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
         }
 
-        Optional<Provincia> provincia = Optional.ofNullable(provinciaService.buscarPorId(id));
-        
-        //Metodo de Optional, si esta vacio o no
-        return provincia.map(p -> ResponseEntity.status(HttpStatus.OK).body(ProvinciaDTO.builder()
-                .id(p.getId())
-                .nombre(p.getNombre())
-                .pais(p.getPais().getNombre())
-                .build()))
-                .orElse(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+        if (campos != null) {
+            return compartimentos.ejecutar(Compartimento.LECTURA_PUNTUAL, () -> {
+                Object[] fila = provinciaService.buscarCamposPorId(id, campos);
+                return fila == null
+                        ? ResponseEntity.status(HttpStatus.NOT_FOUND).build()
+                        : ResponseEntity.status(HttpStatus.OK).body(VistaCamposProvincia.una(campos, fila));
+            });
+        }
+        return compartimentos.ejecutar(Compartimento.LECTURA_PUNTUAL, () -> {
+            Provincia provincia = provinciaService.buscarPorId(id);
+            if (provincia == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            return etagDeVersion(ResponseEntity.status(HttpStatus.OK), provincia)
+                    .body(new ProvinciaDTO(provincia.getId(), provincia.getNombre(), provincia.getPais().getNombre()));
+        });
     }
 
      /**
      * Busca provincias por su nombre exacto.
      *
      * @param nombre El nombre exacto de la provincia a buscar. CaseInsesitive
-     * @return ResponseEntity con la lista de ProvinciaDTO si se encuentran, o not found si no hay coincidencias.
+     * @return ResponseEntity con la lista de ProvinciaDTO si se encuentran, o
+     * not found con los nombres parecidos (SugerenciasDTO) si no hay coincidencias.
      */
     @GetMapping()
-    public ResponseEntity<List<ProvinciaDTO>> buscarProvinciasPorNombre(
+    public CompletableFuture<ResponseEntity<?>> buscarProvinciasPorNombre(
             @RequestParam String nombre) {
-        List<Provincia> provincias = provinciaService.buscarProvinciasPorNombreExacto(nombre);
+        return compartimentos.ejecutar(Compartimento.LECTURA_PUNTUAL, () -> {
+            List<Provincia> provincias = provinciaService.buscarProvinciasPorNombreExacto(nombre);
 
-        // Mapear cada Provincia a ProvinciaDTO
-        List<ProvinciaDTO> provinciasDTO = provincias.stream()
-                .map(provincia -> new ProvinciaDTO(
-                        provincia.getId(),
-                        provincia.getNombre(),
-                        provincia.getPais().getNombre()))
-                .collect(Collectors.toList());
+            if (provincias.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new SugerenciasDTO(nombre, provinciaService.sugerirNombres(nombre)));
+            }
 
-        return ResponseEntity.status(provinciasDTO.isEmpty() ? HttpStatus.NOT_FOUND : HttpStatus.OK)
-            .body(provinciasDTO);
+            // Se serializa como ProvinciaDTO, fila por fila (ver SerializadoresJson).
+            return ResponseEntity.status(HttpStatus.OK)
+                    .body(new VistaProvincias(provincias, VistaProvincias.Formato.CON_PAIS));
+        });
     }
 
      /**
      * Obtiene provincias por el nombre del país Completo.
      *
      * @param nombre nombre Pais entero en el que se encuentra la provincia
-     * @return ResponseEntity con la lista de ProvinciaPaisDTO si se encuentran, o not found si no hay coincidencias.
+     * @return ResponseEntity con la lista de provincias (con el formato de
+     * ProvinciaPaisDTO) si se encuentran, o not found si no hay coincidencias.
      */
     @GetMapping("/pais")
-    public ResponseEntity<List<ProvinciaPaisDTO>> obtenerProvinciasPorPais(
+    public CompletableFuture<ResponseEntity<VistaProvincias>> obtenerProvinciasPorPais(
             @RequestParam String nombre) {
+        return compartimentos.ejecutar(Compartimento.LECTURA_LISTADO, () -> {
+            List<Provincia> provincias = provinciaService.obtenerProvinciasPorNombrePais(nombre);
 
-        List<Provincia> provincias = provinciaService.obtenerProvinciasPorNombrePais(nombre);
-
-        // Mapear cada Provincia a ProvinciaPaisDTO
-        List<ProvinciaPaisDTO> provinciasDTO = provincias.stream()
-                .map(provincia -> ProvinciaPaisDTO.builder()
-                        .id(provincia.getId())
-                        .nombre(provincia.getNombre())
-                        .build())
-                .collect(Collectors.toList());
-
-        return ResponseEntity.status(provinciasDTO.isEmpty() ? HttpStatus.NOT_FOUND : HttpStatus.OK)
-            .body(provinciasDTO);
+            // Se serializa como ProvinciaPaisDTO, fila por fila (ver SerializadoresJson).
+            VistaProvincias vista = new VistaProvincias(provincias, VistaProvincias.Formato.SIN_PAIS);
+            return ResponseEntity.status(vista.isEmpty() ? HttpStatus.NOT_FOUND : HttpStatus.OK)
+                .body(vista);
+        });
     }
     
     
@@ -116,28 +167,65 @@ public class ProvinciaRestController {
      * estado HTTP 201 (CREATED).
      */
     @PostMapping("/guardar")
-    public ResponseEntity<Provincia> guardarProvincia(@RequestBody Provincia provincia) {
-        
-        Provincia provinciaGuardada = provinciaService.guardarProvincia(provincia);
+    public CompletableFuture<ResponseEntity<Provincia>> guardarProvincia(@RequestBody Provincia provincia) {
+        return compartimentos.ejecutar(Compartimento.ESCRITURA, () -> {
+            Provincia provinciaGuardada = provinciaService.guardarProvincia(provincia);
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(provinciaGuardada);
+            return ResponseEntity.status(HttpStatus.CREATED).body(provinciaGuardada);
+        });
     }
     
     /**
      * Actualiza una provincia existente.
      *
+     * Si el cliente indica la versión que leyó (header If-Match con el ETag o
+     * campo version en el cuerpo), la modificación se hace con una única
+     * sentencia condicionada a esa versión y devuelve 409 (CONFLICT) si otro
+     * la modificó antes.
+     *
      * @param provinciaAActualizar Provincia con los nuevos datos.
+     * @param ifMatch ETag de la versión leída por el cliente (opcional).
      * @return ResponseEntity con el resultado de la operación.
+     * @throws ProvinciaConflictoException si la versión ya no es la vigente.
      */
     @PutMapping()
-    public ResponseEntity<Provincia> actualizarProvincia(
-            @RequestBody Provincia provinciaAActualizar) {//Spring verifica el id Aut.
-        
+    public CompletableFuture<ResponseEntity<Provincia>> actualizarProvincia(
+            @RequestBody Provincia provinciaAActualizar,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {//Spring verifica el id Aut.
+        return compartimentos.ejecutar(Compartimento.ESCRITURA,
+                () -> actualizar(provinciaAActualizar, ifMatch));
+    }
+
+    private ResponseEntity<Provincia> actualizar(Provincia provinciaAActualizar, String ifMatch)
+            throws ProvinciaConflictoException {
         //Verificamos que no sea null el id, porque buscar por id es long
         if (provinciaAActualizar == null || provinciaAActualizar.getId() == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
 
+        Long version = provinciaAActualizar.getVersion();
+        if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+            // If-Match compara en forma fuerte: una etiqueta débil nunca
+            // coincide (RFC 7232, sección 3.1).
+            if (ifMatch.trim().startsWith("W/")) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            version = leerVersion(ifMatch);
+            if (version == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+        }
+
+        if (version != null) {
+            Provincia provinciaGuardada = provinciaService.modificarNombre(provinciaAActualizar.getId(),
+                    provinciaAActualizar.getNombre(), version, provinciaAActualizar.getPais());
+            if (provinciaGuardada == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            return etagDeVersion(ResponseEntity.status(HttpStatus.OK), provinciaGuardada)
+                    .body(provinciaGuardada);
+        }
+
         Provincia provinciaExistente = provinciaService.buscarPorId(provinciaAActualizar.getId());
         if (provinciaExistente == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -149,7 +237,19 @@ public class ProvinciaRestController {
         // Guardar la provincia actualizada
         Provincia provinciaGuardada = provinciaService.modificarProvincia(provinciaExistente);
 
-        return ResponseEntity.status(HttpStatus.OK).body(provinciaGuardada);
+        return etagDeVersion(ResponseEntity.status(HttpStatus.OK), provinciaGuardada)
+                .body(provinciaGuardada);
+    }
+
+    /**
+     * Si entre la lectura y la escritura sin versión otro usuario modificó la
+     * provincia, Hibernate rechaza la escritura: se informa como conflicto.
+     *
+     * @return HttpStatus 409 (CONFLICT).
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Void> manejarConflicto() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
     }
     
     /**
@@ -157,33 +257,192 @@ public class ProvinciaRestController {
      *
      * @param id Provincia a eliminar
      * @return HttpStatus OK si se logro eliminar la provincia o 
-     * Bad request si el id es null
+     * Not found si no existe
      */
     //si no se pasa parametro por defecto tira 404
-//    @DeleteMapping("/{id}")
-//    public ResponseEntity<String> eliminarEmpleado(@PathVariable Long id) {
-//        provinciaService.eliminarProvincia(id);
-//        return ResponseEntity.status(HttpStatus.OK).body("Provincia Eliminada Correctamente");
-//    }
+    @DeleteMapping("/{id}")
+    public CompletableFuture<ResponseEntity<String>> eliminarProvincia(@PathVariable Long id) {
+        return compartimentos.ejecutar(Compartimento.ESCRITURA, () -> {
+            if (provinciaService.eliminarProvincia(id) == 0) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            return ResponseEntity.status(HttpStatus.OK).body("Provincia Eliminada Correctamente");
+        });
+    }
+
+    /**
+     * Elimina varias provincias por sus IDs con una sentencia masiva.
+     * Ej: DELETE /api/provincia?ids=1,2,3
+     *
+     * @param ids Los IDs de las provincias a eliminar (hasta IDS_MAXIMO).
+     * @return La cantidad de provincias eliminadas, o Bad request si no hay
+     * IDs o son demasiados.
+     */
+    @DeleteMapping()
+    public CompletableFuture<ResponseEntity<ProvinciasEliminadasDTO>> eliminarProvincias(@RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > IDS_MAXIMO) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
+        }
+        return compartimentos.ejecutar(Compartimento.ESCRITURA, () -> {
+            int eliminadas = provinciaService.eliminarProvincias(ids);
+            return ResponseEntity.status(HttpStatus.OK).body(new ProvinciasEliminadasDTO(eliminadas));
+        });
+    }
+
+    /**
+     * Elimina todas las provincias de un país con una sentencia masiva.
+     *
+     * @param idPais El ID del país.
+     * @return La cantidad de provincias eliminadas.
+     */
+    @DeleteMapping("/pais/{idPais}")
+    public CompletableFuture<ResponseEntity<ProvinciasEliminadasDTO>> eliminarProvinciasDePais(@PathVariable Long idPais) {
+        return compartimentos.ejecutar(Compartimento.ESCRITURA, () -> {
+            int eliminadas = provinciaService.eliminarProvinciasDePais(idPais);
+            return ResponseEntity.status(HttpStatus.OK).body(new ProvinciasEliminadasDTO(eliminadas));
+        });
+    }
     
      /**
      * Trae todas las provincias
      * @return una response personalizada con DTO.
-     * Devolviendo solamente id, nombre y nombre pais
+     * Devolviendo solamente id, nombre y nombre pais (formato de ProvinciaDTO,
+     * escrito fila por fila sin armar la lista de DTOs).
      */
     @GetMapping("/todos")
-    public List<ProvinciaDTO> listarLasProvincias() {
-        List<Provincia> provincias = provinciaService.buscarTodasLasProvincias();
+    public CompletableFuture<ResponseEntity<VistaProvincias>> listarLasProvincias() {
+        return compartimentos.ejecutar(Compartimento.LECTURA_LISTADO, () -> ResponseEntity.status(HttpStatus.OK)
+                .body(new VistaProvincias(provinciaService.buscarTodasLasProvincias(),
+                        VistaProvincias.Formato.CON_PAIS)));
+    }
 
-        // Mapear cada Provincia a ProvinciaDTO
-        List<ProvinciaDTO> provinciasDTO = provincias.stream()
-                .map(provincia -> new ProvinciaDTO(
-                provincia.getId(),
-                provincia.getNombre(),
-                provincia.getPais().getNombre()))
-                .collect(Collectors.toList());
+    /**
+     * Trae todas las provincias con solo los campos pedidos, escritos a medida
+     * que se leen de la base. La consulta corre al serializar la respuesta, así
+     * que toda la escritura se hace en un hilo del compartimento de listados:
+     * la conexión que usa cuenta en su presupuesto.
+     *
+     * @param fields Los campos a devolver, por ejemplo "id,nombre" (sin el
+     * país no se lee la tabla pais; vacío, todos).
+     * @return Las provincias, o bad request si algún campo no existe.
+     */
+    @GetMapping(value = "/todos", params = "fields")
+    public ResponseEntity<StreamingResponseBody> listarCamposDeLasProvincias(@RequestParam String fields) {
+        Set<CampoProvincia> campos;
+        try {
+            campos = CampoProvincia.leer(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(escribirEnCompartimento(Compartimento.LECTURA_LISTADO, () -> campos != null
+                        ? VistaCamposProvincia.lista(campos,
+                                consumidor -> provinciaService.recorrerCamposDeTodas(campos, consumidor))
+                        : new VistaProvincias(provinciaService.buscarTodasLasProvincias(),
+                                VistaProvincias.Formato.CON_PAIS)));
+    }
 
-        return provinciasDTO;
+    /**
+     * Lista las provincias que cumplen un filtro, en el orden pedido. Ej:
+     * /api/provincia/buscar?pais=1&prefijo=San&orden=-nombre
+     *
+     * Solo se puede filtrar por columnas indexadas, y al menos por una. Se
+     * devuelven a lo sumo "limite" provincias; para la siguiente tanda, con
+     * orden=id, se pide idDesde con el último ID más uno.
+     *
+     * @param pais El ID del país (opcional).
+     * @param prefijo El comienzo del nombre (opcional).
+     * @param idDesde El menor ID, inclusive (opcional).
+     * @param idHasta El mayor ID, inclusive (opcional).
+     * @param orden id, -id, nombre o -nombre (opcional; por defecto id). Por
+     * nombre, solo junto con pais o prefijo.
+     * @param limite La cantidad máxima de provincias (opcional; por defecto
+     * 100, hasta 1000).
+     * @return Las provincias con el formato de ProvinciaDTO, o bad request si
+     * no hay filtros o alguno no es válido.
+     */
+    @GetMapping("/buscar")
+    public CompletableFuture<ResponseEntity<VistaProvincias>> buscarConFiltro(
+            @RequestParam(required = false) Long pais,
+            @RequestParam(required = false) String prefijo,
+            @RequestParam(required = false) Long idDesde,
+            @RequestParam(required = false) Long idHasta,
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) Integer limite) {
+        FiltroProvincias filtro;
+        try {
+            filtro = FiltroProvincias.de(pais, prefijo, idDesde, idHasta, orden, limite);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
+        }
+        return compartimentos.ejecutar(Compartimento.LECTURA_LISTADO, () -> ResponseEntity.status(HttpStatus.OK)
+                .body(new VistaProvincias(provinciaService.buscarConFiltro(filtro),
+                        VistaProvincias.Formato.CON_PAIS)));
+    }
+
+    /**
+     * Sincronización incremental: devuelve solo las provincias creadas,
+     * modificadas o eliminadas después de la versión indicada.
+     *
+     * @param desde Versión de la última sincronización del cliente (0 para
+     * traer todas las provincias).
+     * @return Los cambios y la nueva versión a usar en la próxima consulta.
+     */
+    @GetMapping("/cambios")
+    public CompletableFuture<CambiosProvinciaDTO> buscarCambios(@RequestParam(defaultValue = "0") long desde) {
+        return compartimentos.ejecutar(Compartimento.LECTURA_LISTADO,
+                () -> provinciaService.buscarCambiosDesde(desde));
+    }
+
+    /**
+     * Agrega la versión de la provincia como ETag, si la tiene.
+     */
+    private ResponseEntity.BodyBuilder etagDeVersion(ResponseEntity.BodyBuilder respuesta, Provincia provincia) {
+        if (provincia != null && provincia.getVersion() != null) {
+            respuesta.eTag(provincia.getVersion().toString());
+        }
+        return respuesta;
+    }
+
+    /**
+     * Obtiene la versión de un header If-Match con una etiqueta fuerte ("3").
+     *
+     * @param ifMatch El valor del header.
+     * @return La versión, o null si el valor no es válido.
+     */
+    private Long leerVersion(String ifMatch) {
+        String valor = ifMatch.trim();
+        if (valor.length() >= 2 && valor.startsWith("\"") && valor.endsWith("\"")) {
+            valor = valor.substring(1, valor.length() - 1);
+        }
+        try {
+            return Long.valueOf(valor);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Un cuerpo que se arma y se serializa en un hilo del compartimento; el
+     * hilo que escribe la respuesta espera a que termine. Si el compartimento
+     * está lleno, todavía no se escribió nada y se responde 503.
+     */
+    private StreamingResponseBody escribirEnCompartimento(Compartimento compartimento, Supplier<Object> cuerpo) {
+        return salida -> {
+            try {
+                compartimentos.ejecutar(compartimento, () -> {
+                    // La salida la cierra quien escribe la respuesta.
+                    objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                            .writeValue(salida, cuerpo.get());
+                    return null;
+                }).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException entradaSalida) {
+                    throw entradaSalida;
+                }
+                throw e;
+            }
+        };
     }
-    
 }
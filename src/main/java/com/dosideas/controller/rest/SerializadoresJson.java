@@ -0,0 +1,215 @@
+package com.dosideas.controller.rest;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.dto.CampoProvincia;
+import com.dosideas.dto.FilasProvincias;
+import com.dosideas.dto.ProvinciaDTO;
+import com.dosideas.dto.ProvinciaPaisDTO;
+import com.dosideas.dto.VistaCamposProvincia;
+import com.dosideas.dto.VistaProvincias;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import org.springframework.boot.jackson.JsonComponent;
+
+/**
+ * Serializadores JSON escritos a mano para los tipos que más se devuelven en
+ * listas. Escriben directo al JsonGenerator, sin la introspección por
+ * reflexión de Jackson, y con los nombres de campo ya codificados. La salida
+ * es la misma que generaría Jackson (mismo orden de campos; Pais omite los
+ * null por su @JsonInclude).
+ *
+ * {@link VistaProvincias} se escribe fila por fila desde las entidades o las
+ * columnas del modelo de lectura, sin DTO intermedio, y
+ * {@link VistaCamposProvincia} solo con los campos pedidos, a medida que se
+ * leen de la base.
+ *
+ * Spring los registra en su ObjectMapper por @JsonComponent; fuera de Spring
+ * se puede usar {@link #modulo()}.
+ *
+ * @author Gabriel Romero
+ */
+@JsonComponent
+public class SerializadoresJson {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NOMBRE = new SerializedString("nombre");
+    private static final SerializableString PAIS = new SerializedString("pais");
+    private static final Map<CampoProvincia, SerializableString> CAMPOS = new EnumMap<>(CampoProvincia.class);
+
+    static {
+        for (CampoProvincia campo : CampoProvincia.values()) {
+            CAMPOS.put(campo, new SerializedString(campo.getNombre()));
+        }
+    }
+
+    /**
+     * @return Un módulo de Jackson con todos los serializadores.
+     */
+    public static SimpleModule modulo() {
+        return new SimpleModule("SerializadoresJson")
+                .addSerializer(new ProvinciaDTOSerializer())
+                .addSerializer(new ProvinciaPaisDTOSerializer())
+                .addSerializer(new PaisSerializer())
+                .addSerializer(new VistaProvinciasSerializer())
+                .addSerializer(new VistaCamposProvinciaSerializer());
+    }
+
+    public static class ProvinciaDTOSerializer extends StdSerializer<ProvinciaDTO> {
+
+        public ProvinciaDTOSerializer() {
+            super(ProvinciaDTO.class);
+        }
+
+        @Override
+        public void serialize(ProvinciaDTO provincia, JsonGenerator json, SerializerProvider proveedor)
+                throws IOException {
+            escribir(json, provincia.getId(), provincia.getNombre(), provincia.getPais());
+        }
+    }
+
+    public static class ProvinciaPaisDTOSerializer extends StdSerializer<ProvinciaPaisDTO> {
+
+        public ProvinciaPaisDTOSerializer() {
+            super(ProvinciaPaisDTO.class);
+        }
+
+        @Override
+        public void serialize(ProvinciaPaisDTO provincia, JsonGenerator json, SerializerProvider proveedor)
+                throws IOException {
+            escribir(json, provincia.getId(), provincia.getNombre());
+        }
+    }
+
+    public static class PaisSerializer extends StdSerializer<Pais> {
+
+        public PaisSerializer() {
+            super(Pais.class);
+        }
+
+        @Override
+        public void serialize(Pais pais, JsonGenerator json, SerializerProvider proveedor) throws IOException {
+            json.writeStartObject();
+            if (pais.getId() != null) {
+                json.writeFieldName(ID);
+                json.writeNumber(pais.getId());
+            }
+            if (pais.getNombre() != null) {
+                json.writeFieldName(NOMBRE);
+                json.writeString(pais.getNombre());
+            }
+            json.writeEndObject();
+        }
+    }
+
+    public static class VistaProvinciasSerializer extends StdSerializer<VistaProvincias> {
+
+        public VistaProvinciasSerializer() {
+            super(VistaProvincias.class);
+        }
+
+        @Override
+        public void serialize(VistaProvincias vista, JsonGenerator json, SerializerProvider proveedor)
+                throws IOException {
+            boolean conPais = vista.getFormato() == VistaProvincias.Formato.CON_PAIS;
+            FilasProvincias filas = vista.getFilas();
+            json.writeStartArray();
+            for (int fila = 0; fila < filas.cantidad(); fila++) {
+                json.writeStartObject();
+                json.writeFieldName(ID);
+                json.writeNumber(filas.id(fila));
+                json.writeFieldName(NOMBRE);
+                json.writeString(filas.nombre(fila));
+                if (conPais) {
+                    json.writeFieldName(PAIS);
+                    json.writeString(filas.nombrePais(fila));
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    public static class VistaCamposProvinciaSerializer extends StdSerializer<VistaCamposProvincia> {
+
+        public VistaCamposProvinciaSerializer() {
+            super(VistaCamposProvincia.class);
+        }
+
+        @Override
+        public void serialize(VistaCamposProvincia vista, JsonGenerator json, SerializerProvider proveedor)
+                throws IOException {
+            if (!vista.isUnica()) {
+                json.writeStartArray();
+            }
+            // Las filas se escriben mientras se recorren (el cursor de la base
+            // sigue abierto); el IOException cruza el consumidor envuelto.
+            try {
+                vista.recorrer(filas -> {
+                    try {
+                        while (filas.hasNext()) {
+                            escribir(json, vista.getCampos(), filas.next());
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (!vista.isUnica()) {
+                json.writeEndArray();
+            }
+        }
+    }
+
+    private static void escribir(JsonGenerator json, Iterable<CampoProvincia> campos, Object[] fila)
+            throws IOException {
+        json.writeStartObject();
+        int i = 0;
+        for (CampoProvincia campo : campos) {
+            json.writeFieldName(CAMPOS.get(campo));
+            Object valor = fila[i++];
+            if (valor == null) {
+                json.writeNull();
+            } else if (valor instanceof Long numero) {
+                json.writeNumber(numero.longValue());
+            } else {
+                json.writeString(valor.toString());
+            }
+        }
+        json.writeEndObject();
+    }
+
+    private static void escribir(JsonGenerator json, Long id, String nombre, String pais) throws IOException {
+        json.writeStartObject();
+        escribirCampos(json, id, nombre);
+        json.writeFieldName(PAIS);
+        json.writeString(pais);
+        json.writeEndObject();
+    }
+
+    private static void escribir(JsonGenerator json, Long id, String nombre) throws IOException {
+        json.writeStartObject();
+        escribirCampos(json, id, nombre);
+        json.writeEndObject();
+    }
+
+    private static void escribirCampos(JsonGenerator json, Long id, String nombre) throws IOException {
+        json.writeFieldName(ID);
+        if (id == null) {
+            json.writeNull();
+        } else {
+            json.writeNumber(id.longValue());
+        }
+        json.writeFieldName(NOMBRE);
+        json.writeString(nombre);
+    }
+}
@@ -0,0 +1,80 @@
+package com.dosideas.controller.rest;
+
+import com.dosideas.compartimento.Compartimento;
+import com.dosideas.compartimento.Compartimentos;
+import com.dosideas.diagnostico.EstadisticasSql;
+import com.dosideas.dto.ConsultaLentaDTO;
+import com.dosideas.dto.EstadisticaSqlDTO;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller de administración con las estadísticas de las sentencias SQL.
+ * Raiz: localhost:8080/api/admin/sql
+ *
+ * Se atiende en el compartimento de administración (ver {@link Compartimentos}).
+ *
+ * @author Gabriel Romero
+ */
+@RestController
+@RequestMapping("/api/admin/sql")
+public class SqlAdminRestController {
+
+    private static final int TOP_MAXIMO = 100;
+
+    @Autowired
+    private EstadisticasSql estadisticasSql;
+
+    @Autowired
+    private Compartimentos compartimentos;
+
+    /**
+     * Lista las formas de sentencia más costosas.
+     *
+     * @param top Cuántas devolver (hasta 100).
+     * @param orden "total" (tiempo acumulado) o "p99".
+     * @return Las estadísticas, de la más costosa a la menos costosa.
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<List<EstadisticaSqlDTO>>> top(
+            @RequestParam(defaultValue = "10") int top,
+            @RequestParam(defaultValue = "total") String orden) {
+        if (!orden.equals("total") && !orden.equals("p99")) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        int cantidad = Math.min(Math.max(top, 1), TOP_MAXIMO);
+        return compartimentos.ejecutar(Compartimento.ADMIN,
+                () -> ResponseEntity.ok(estadisticasSql.top(cantidad, orden.equals("p99"))));
+    }
+
+    /**
+     * Lista las últimas ejecuciones que superaron el umbral de consulta lenta.
+     *
+     * @return Las consultas lentas, de la más reciente a la más antigua.
+     */
+    @GetMapping("/lentas")
+    public CompletableFuture<List<ConsultaLentaDTO>> lentas() {
+        return compartimentos.ejecutar(Compartimento.ADMIN, estadisticasSql::lentas);
+    }
+
+    /**
+     * Descarta las estadísticas acumuladas.
+     *
+     * @return 204 (NO CONTENT).
+     */
+    @DeleteMapping
+    public CompletableFuture<ResponseEntity<Void>> reiniciar() {
+        return compartimentos.ejecutar(Compartimento.ADMIN, () -> {
+            estadisticasSql.reiniciar();
+            return ResponseEntity.noContent().build();
+        });
+    }
+}
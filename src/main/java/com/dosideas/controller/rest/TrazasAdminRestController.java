@@ -0,0 +1,75 @@
+package com.dosideas.controller.rest;
+
+import com.dosideas.compartimento.Compartimento;
+import com.dosideas.compartimento.Compartimentos;
+import com.dosideas.dto.TrazaDTO;
+import com.dosideas.traza.TrazasEnMemoria;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller de administración con las trazas de requests guardadas en
+ * memoria (ver TrazaConfig).
+ * Raiz: localhost:8080/api/admin/trazas
+ *
+ * Se atiende en el compartimento de administración (ver {@link Compartimentos}).
+ *
+ * @author Gabriel Romero
+ */
+@RestController
+@RequestMapping("/api/admin/trazas")
+public class TrazasAdminRestController {
+
+    private static final int CANTIDAD_MAXIMA = 200;
+
+    @Autowired(required = false)
+    private TrazasEnMemoria trazas;
+
+    @Autowired
+    private Compartimentos compartimentos;
+
+    /**
+     * Lista las trazas más recientes, sin sus spans.
+     *
+     * @param cantidad Cuántas devolver (hasta 200).
+     * @param minimoMs Solo las que duraron al menos esto.
+     * @return Las trazas, de la más nueva a la más vieja, o 404 (NOT FOUND) si
+     * el trazado no está configurado.
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<List<TrazaDTO>>> recientes(
+            @RequestParam(defaultValue = "20") int cantidad,
+            @RequestParam(defaultValue = "0") double minimoMs) {
+        if (trazas == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        int limite = Math.min(Math.max(cantidad, 1), CANTIDAD_MAXIMA);
+        return compartimentos.ejecutar(Compartimento.ADMIN,
+                () -> ResponseEntity.ok(trazas.recientes(limite, minimoMs)));
+    }
+
+    /**
+     * Devuelve una traza con todos sus spans, cada uno después de su padre.
+     *
+     * @param id El ID de la traza.
+     * @return La traza, o 404 (NOT FOUND) si ya no está en memoria.
+     */
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<TrazaDTO>> traza(@PathVariable String id) {
+        if (trazas == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        return compartimentos.ejecutar(Compartimento.ADMIN, () -> {
+            TrazaDTO traza = trazas.buscar(id);
+            return traza == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(traza);
+        });
+    }
+}
@@ -0,0 +1,121 @@
+package com.dosideas.diagnostico;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Las sentencias SQL ejecutadas dentro de un ámbito abierto con
+ * {@link ContadorSentencias#abrir(String)}: el total, cuántas veces se
+ * ejecutó cada forma de sentencia y cuántas ejecutó cada llamada a servicio
+ * hecha dentro del ámbito.
+ *
+ * Lo usa un hilo a la vez: el que lo abrió o el que lo continúa
+ * ({@link ContadorSentencias#continuar(AmbitoSentencias)}). Las tareas que
+ * corren en paralelo dentro de un ámbito cuentan cada una en uno
+ * {@link #separado()}, que el hilo dueño suma al terminar
+ * ({@link #sumar(AmbitoSentencias)}).
+ *
+ * @author Gabriel Romero
+ */
+public class AmbitoSentencias implements AutoCloseable {
+
+    private final String nombre;
+    private final AmbitoSentencias padre;
+    private final Map<String, Integer> formas = new LinkedHashMap<>();
+    private final Map<String, Integer> llamadas = new LinkedHashMap<>();
+    private int total;
+    private boolean cerrado;
+
+    AmbitoSentencias(String nombre, AmbitoSentencias padre) {
+        this.nombre = nombre;
+        this.padre = padre;
+    }
+
+    void registrar(String forma) {
+        total++;
+        formas.merge(forma, 1, Integer::sum);
+        if (padre != null) {
+            padre.registrar(forma);
+        }
+    }
+
+    /**
+     * Anota cuántas sentencias ejecutó una llamada hecha dentro de este ámbito.
+     *
+     * @param llamada El nombre de la llamada (Interfaz.metodo).
+     * @param sentencias Las sentencias que ejecutó.
+     */
+    void registrarLlamada(String llamada, int sentencias) {
+        llamadas.merge(llamada, sentencias, Integer::sum);
+    }
+
+    /**
+     * @return Un ámbito vacío y sin padre, para contar lo que ejecuta una
+     * tarea en otro hilo mientras este ámbito sigue en uso. Se continúa en
+     * ese hilo y, cuando la tarea terminó, se suma con
+     * {@link #sumar(AmbitoSentencias)}.
+     */
+    public AmbitoSentencias separado() {
+        return new AmbitoSentencias(nombre, null);
+    }
+
+    /**
+     * Suma lo contado en un ámbito {@link #separado()}, también en los
+     * ámbitos que contienen a este. Se llama desde el hilo que usa este
+     * ámbito, después de que terminó la tarea.
+     *
+     * @param separado El ámbito de la tarea.
+     */
+    public void sumar(AmbitoSentencias separado) {
+        separado.llamadas.forEach((llamada, sentencias) -> llamadas.merge(llamada, sentencias, Integer::sum));
+        for (AmbitoSentencias ambito = this; ambito != null; ambito = ambito.padre) {
+            ambito.total += separado.total;
+            Map<String, Integer> destino = ambito.formas;
+            separado.formas.forEach((forma, veces) -> destino.merge(forma, veces, Integer::sum));
+        }
+    }
+
+    /**
+     * Las consultas (SELECT) de la misma forma ejecutadas al menos
+     * {@code minimo} veces: el síntoma típico de un N+1.
+     *
+     * @param minimo La cantidad de repeticiones a partir de la cual se informa.
+     * @return Forma de la consulta y cantidad de ejecuciones.
+     */
+    public Map<String, Integer> getRepetidas(int minimo) {
+        return formas.entrySet().stream()
+                .filter(e -> e.getValue() >= minimo && e.getKey().startsWith("select"))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
+                        (a, b) -> a, LinkedHashMap::new));
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public Map<String, Integer> getFormas() {
+        return Collections.unmodifiableMap(formas);
+    }
+
+    public Map<String, Integer> getLlamadas() {
+        return Collections.unmodifiableMap(llamadas);
+    }
+
+    AmbitoSentencias getPadre() {
+        return padre;
+    }
+
+    @Override
+    public void close() {
+        if (!cerrado) {
+            cerrado = true;
+            ContadorSentencias.cerrar(this);
+        }
+    }
+}
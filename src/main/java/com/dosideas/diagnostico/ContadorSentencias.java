@@ -0,0 +1,135 @@
+package com.dosideas.diagnostico;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Cuenta las sentencias SQL que ejecuta Hibernate dentro de cada ámbito
+ * abierto en el hilo actual (un request HTTP, una llamada a IProvinciaService,
+ * un bloque de un test).
+ *
+ * Hibernate llama a {@link #inspect(String)} antes de preparar cada sentencia;
+ * si el hilo no tiene un ámbito abierto, no se registra nada. Los ámbitos se
+ * anidan: lo que cuenta un ámbito también lo cuenta el que lo contiene.
+ *
+ * Uso en un test de integración:
+ *
+ * <pre>
+ * try (AmbitoSentencias ambito = ContadorSentencias.abrir("listado")) {
+ *     mockMvc.perform(get("/api/provincia?nombre=Cordoba"));
+ *     assertThat(ambito.getTotal()).isLessThanOrEqualTo(1);
+ * }
+ * </pre>
+ *
+ * @author Gabriel Romero
+ */
+public class ContadorSentencias implements StatementInspector {
+
+    private static final ThreadLocal<AmbitoSentencias> ACTUAL = new ThreadLocal<>();
+
+    private static final Pattern TEXTOS = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMEROS = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern LISTAS = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    // Forma ya calculada de cada texto de sentencia. Hibernate y los
+    // repositorios repiten siempre los mismos; los que llevan literales
+    // distintos no entran una vez lleno.
+    private static final int MAXIMO_FORMAS = 4096;
+    private static final ConcurrentHashMap<String, String> FORMAS = new ConcurrentHashMap<>();
+
+    @Override
+    public String inspect(String sql) {
+        AmbitoSentencias ambito = ACTUAL.get();
+        if (ambito != null) {
+            ambito.registrar(normalizar(sql));
+        }
+        return sql;
+    }
+
+    /**
+     * Abre un ámbito en el hilo actual. Debe cerrarse (try-with-resources) en
+     * el mismo hilo.
+     *
+     * @param nombre Qué se está midiendo, para los logs.
+     * @return El ámbito abierto.
+     */
+    public static AmbitoSentencias abrir(String nombre) {
+        AmbitoSentencias ambito = new AmbitoSentencias(nombre, ACTUAL.get());
+        ACTUAL.set(ambito);
+        return ambito;
+    }
+
+    /**
+     * @return El ámbito abierto más interno del hilo actual, o null.
+     */
+    public static AmbitoSentencias actual() {
+        return ACTUAL.get();
+    }
+
+    /**
+     * Sigue contando en el hilo actual dentro de un ámbito abierto en otro
+     * hilo, por ejemplo al pasar el trabajo de un request a un pool. El hilo
+     * que lo abrió no debe usarlo mientras tanto.
+     *
+     * @param ambito El ámbito a continuar (puede ser null).
+     * @return El ámbito que tenía el hilo, para devolverlo con
+     * {@link #restaurar(AmbitoSentencias)}.
+     */
+    public static AmbitoSentencias continuar(AmbitoSentencias ambito) {
+        AmbitoSentencias anterior = ACTUAL.get();
+        restaurar(ambito);
+        return anterior;
+    }
+
+    /**
+     * Deja al hilo actual con el ámbito que tenía antes de
+     * {@link #continuar(AmbitoSentencias)}.
+     *
+     * @param anterior El ámbito devuelto por continuar (puede ser null).
+     */
+    public static void restaurar(AmbitoSentencias anterior) {
+        if (anterior == null) {
+            ACTUAL.remove();
+        } else {
+            ACTUAL.set(anterior);
+        }
+    }
+
+    static void cerrar(AmbitoSentencias ambito) {
+        if (ambito.getPadre() == null) {
+            ACTUAL.remove();
+        } else {
+            ACTUAL.set(ambito.getPadre());
+        }
+    }
+
+    /**
+     * Reduce una sentencia a su "forma": sin literales y con las listas IN de
+     * cualquier largo unificadas, así dos consultas que solo difieren en los
+     * parámetros cuentan como la misma. La forma de cada texto se calcula una
+     * sola vez.
+     *
+     * @param sql La sentencia.
+     * @return La forma normalizada.
+     */
+    public static String normalizar(String sql) {
+        String forma = FORMAS.get(sql);
+        if (forma == null) {
+            forma = calcularForma(sql);
+            if (FORMAS.size() < MAXIMO_FORMAS) {
+                FORMAS.put(sql, forma);
+            }
+        }
+        return forma;
+    }
+
+    private static String calcularForma(String sql) {
+        String forma = TEXTOS.matcher(sql).replaceAll("?");
+        forma = NUMEROS.matcher(forma).replaceAll("?");
+        forma = LISTAS.matcher(forma).replaceAll("(?...)");
+        return ESPACIOS.matcher(forma).replaceAll(" ").trim().toLowerCase();
+    }
+}
@@ -0,0 +1,170 @@
+package com.dosideas.diagnostico;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Abre un ámbito de {@link ContadorSentencias} por cada request HTTP.
+ *
+ * Al terminar el request, si alguna consulta de la misma forma se repitió al
+ * menos "sql.contador.repeticiones" veces, se registra un WARN con la consulta
+ * y las llamadas a servicio que la originaron (posible N+1).
+ *
+ * Con "sql.contador.header=true" (perfil "dev") la respuesta lleva
+ * el header X-Sql-Sentencias con la cantidad de sentencias ejecutadas. El
+ * header se agrega justo antes de escribir el cuerpo, por lo que no cuenta lo
+ * que se ejecute después (por ejemplo, cargas lazy durante la serialización);
+ * esas sentencias sí entran en el WARN.
+ *
+ * En los requests asincrónicos el ámbito queda guardado en el request mientras
+ * el trabajo corre en otro hilo, y se cierra en el despacho final.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+public class ContadorSentenciasFilter extends OncePerRequestFilter {
+
+    public static final String HEADER_SENTENCIAS = "X-Sql-Sentencias";
+
+    private static final String ATRIBUTO_AMBITO = ContadorSentenciasFilter.class.getName() + ".AMBITO";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContadorSentenciasFilter.class);
+
+    private final boolean agregarHeader;
+    private final int repeticiones;
+
+    public ContadorSentenciasFilter(
+            @Value("${sql.contador.header:false}") boolean agregarHeader,
+            @Value("${sql.contador.repeticiones:3}") int repeticiones) {
+        this.agregarHeader = agregarHeader;
+        this.repeticiones = repeticiones;
+    }
+
+    /**
+     * Los requests asincrónicos (controllers que devuelven CompletableFuture)
+     * terminan en un segundo despacho: ahí se cierra el ámbito.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        AmbitoSentencias anterior = ContadorSentencias.actual();
+        AmbitoSentencias ambito;
+        if (isAsyncDispatch(request)) {
+            ambito = (AmbitoSentencias) request.getAttribute(ATRIBUTO_AMBITO);
+            if (ambito == null) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            ContadorSentencias.continuar(ambito);
+        } else {
+            ambito = ContadorSentencias.abrir(request.getMethod() + " " + request.getRequestURI());
+        }
+
+        try {
+            if (agregarHeader) {
+                RespuestaConContador respuesta = response instanceof RespuestaConContador contador
+                        ? contador : new RespuestaConContador(response, ambito);
+                filterChain.doFilter(request, respuesta);
+                if (!isAsyncStarted(request)) {
+                    respuesta.agregarHeader();
+                }
+            } else {
+                filterChain.doFilter(request, response);
+            }
+        } finally {
+            if (isAsyncStarted(request)) {
+                // El trabajo sigue en otro hilo, que continúa el ámbito.
+                request.setAttribute(ATRIBUTO_AMBITO, ambito);
+            } else {
+                informarRepetidas(ambito);
+                ambito.close();
+            }
+            ContadorSentencias.restaurar(anterior);
+        }
+    }
+
+    private void informarRepetidas(AmbitoSentencias ambito) {
+        Map<String, Integer> repetidas = ambito.getRepetidas(repeticiones);
+        if (!repetidas.isEmpty() && LOG.isWarnEnabled()) {
+            repetidas.forEach((forma, veces) -> LOG.warn(
+                    "Posible N+1 en {}: {} sentencias en total (llamadas: {}); se repitió {} veces: {}",
+                    ambito.getNombre(), ambito.getTotal(), ambito.getLlamadas(), veces, forma));
+        }
+    }
+
+    /**
+     * Agrega el header con el conteo la primera vez que se empieza a escribir
+     * la respuesta, que es el último momento en que todavía se puede.
+     */
+    private static final class RespuestaConContador extends HttpServletResponseWrapper {
+
+        private final AmbitoSentencias ambito;
+        private boolean agregado;
+
+        private RespuestaConContador(HttpServletResponse response, AmbitoSentencias ambito) {
+            super(response);
+            this.ambito = ambito;
+        }
+
+        private void agregarHeader() {
+            if (!agregado && !isCommitted()) {
+                agregado = true;
+                setHeader(HEADER_SENTENCIAS, Integer.toString(ambito.getTotal()));
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            agregarHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            agregarHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            agregarHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            agregarHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            agregarHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            agregarHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.dosideas.diagnostico;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Envuelve un DataSource para medir cada sentencia SQL: cuánto tarda su
+ * ejecución, cuántas filas devuelve o modifica y qué método de repositorio la
+ * originó. Las mediciones se registran en {@link EstadisticasSql}, y cada
+ * ejecución emite además un {@link EventoSentencia} de JFR.
+ *
+ * Las conexiones, sentencias y ResultSets se envuelven con clases que delegan
+ * directamente (ver {@link ConexionDelegada}), no con proxies: solo se
+ * redefinen las ejecuciones y el recorrido de las filas. Las llamadas a
+ * procedimientos (prepareCall) no se miden.
+ *
+ * Las filas de una consulta se cuentan a medida que se leen del ResultSet, así
+ * que la medición se registra recién cuando se cierra el ResultSet o la
+ * sentencia (o cuando la sentencia se vuelve a ejecutar).
+ *
+ * Al cerrarse cierra el DataSource envuelto (el pool de conexiones), como lo
+ * haría el contenedor si no estuviera envuelto.
+ *
+ * @author Gabriel Romero
+ */
+public class DataSourceCronometrado extends DelegatingDataSource implements Closeable {
+
+    private static final ThreadLocal<String> LLAMADOR = new ThreadLocal<>();
+
+    private final EstadisticasSql estadisticas;
+
+    public DataSourceCronometrado(DataSource dataSource, EstadisticasSql estadisticas) {
+        super(dataSource);
+        this.estadisticas = estadisticas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new ConexionCronometrada(obtainTargetDataSource().getConnection(), estadisticas);
+    }
+
+    @Override
+    public Connection getConnection(String usuario, String clave) throws SQLException {
+        return new ConexionCronometrada(obtainTargetDataSource().getConnection(usuario, clave), estadisticas);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof AutoCloseable cerrable) {
+            try {
+                cerrable.close();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Indica qué método de repositorio está ejecutando el hilo actual.
+     *
+     * @param llamador El nombre (Repositorio.metodo), o null al terminar.
+     * @return El llamador anterior, para restaurarlo.
+     */
+    static String cambiarLlamador(String llamador) {
+        String anterior = LLAMADOR.get();
+        if (llamador == null) {
+            LLAMADOR.remove();
+        } else {
+            LLAMADOR.set(llamador);
+        }
+        return anterior;
+    }
+
+    @FunctionalInterface
+    private interface Ejecucion<T> {
+
+        T ejecutar() throws SQLException;
+    }
+
+    private static final class ConexionCronometrada extends ConexionDelegada {
+
+        private final EstadisticasSql estadisticas;
+
+        private ConexionCronometrada(Connection conexion, EstadisticasSql estadisticas) {
+            super(conexion);
+            this.estadisticas = estadisticas;
+        }
+
+        @Override
+        public Statement createStatement() throws SQLException {
+            return new SentenciaCronometrada(conexion.createStatement(), estadisticas);
+        }
+
+        @Override
+        public Statement createStatement(int tipo, int concurrencia) throws SQLException {
+            return new SentenciaCronometrada(conexion.createStatement(tipo, concurrencia), estadisticas);
+        }
+
+        @Override
+        public Statement createStatement(int tipo, int concurrencia, int retencion) throws SQLException {
+            return new SentenciaCronometrada(conexion.createStatement(tipo, concurrencia, retencion), estadisticas);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            return preparada(conexion.prepareStatement(sql), sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int clavesGeneradas) throws SQLException {
+            return preparada(conexion.prepareStatement(sql, clavesGeneradas), sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int[] columnas) throws SQLException {
+            return preparada(conexion.prepareStatement(sql, columnas), sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, String[] columnas) throws SQLException {
+            return preparada(conexion.prepareStatement(sql, columnas), sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int tipo, int concurrencia) throws SQLException {
+            return preparada(conexion.prepareStatement(sql, tipo, concurrencia), sql);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql, int tipo, int concurrencia, int retencion)
+                throws SQLException {
+            return preparada(conexion.prepareStatement(sql, tipo, concurrencia, retencion), sql);
+        }
+
+        private PreparedStatement preparada(PreparedStatement sentencia, String sql) {
+            return new SentenciaPreparadaCronometrada(sentencia, new Cronometro(sql, estadisticas));
+        }
+    }
+
+    /**
+     * Sentencia sin preparar: el SQL llega en cada ejecución.
+     */
+    private static final class SentenciaCronometrada extends SentenciaDelegada<Statement> {
+
+        private final Cronometro cronometro;
+
+        private SentenciaCronometrada(Statement sentencia, EstadisticasSql estadisticas) {
+            super(sentencia);
+            this.cronometro = new Cronometro(null, estadisticas);
+        }
+
+        @Override
+        public ResultSet executeQuery(String sql) throws SQLException {
+            return cronometro.filas(sql, () -> sentencia.executeQuery(sql));
+        }
+
+        @Override
+        public int executeUpdate(String sql) throws SQLException {
+            return cronometro.cantidad(sql, () -> sentencia.executeUpdate(sql));
+        }
+
+        @Override
+        public int executeUpdate(String sql, int clavesGeneradas) throws SQLException {
+            return cronometro.cantidad(sql, () -> sentencia.executeUpdate(sql, clavesGeneradas));
+        }
+
+        @Override
+        public int executeUpdate(String sql, int[] columnas) throws SQLException {
+            return cronometro.cantidad(sql, () -> sentencia.executeUpdate(sql, columnas));
+        }
+
+        @Override
+        public int executeUpdate(String sql, String[] columnas) throws SQLException {
+            return cronometro.cantidad(sql, () -> sentencia.executeUpdate(sql, columnas));
+        }
+
+        @Override
+        public long executeLargeUpdate(String sql) throws SQLException {
+            return cronometro.cantidad(sql, () -> sentencia.executeLargeUpdate(sql));
+        }
+
+        @Override
+        public long executeLargeUpdate(String sql, int clavesGeneradas) throws SQLException {
+            return cronometro.cantidad(sql, () -> sentencia.executeLargeUpdate(sql, clavesGeneradas));
+        }
+
+        @Override
+        public long executeLargeUpdate(String sql, int[] columnas) throws SQLException {
+            return cronometro.cantidad(sql, () -> sentencia.executeLargeUpdate(sql, columnas));
+        }
+
+        @Override
+        public long executeLargeUpdate(String sql, String[] columnas) throws SQLException {
+            return cronometro.cantidad(sql, () -> sentencia.executeLargeUpdate(sql, columnas));
+        }
+
+        @Override
+        public boolean execute(String sql) throws SQLException {
+            return cronometro.ejecucion(sql, () -> sentencia.execute(sql));
+        }
+
+        @Override
+        public boolean execute(String sql, int clavesGeneradas) throws SQLException {
+            return cronometro.ejecucion(sql, () -> sentencia.execute(sql, clavesGeneradas));
+        }
+
+        @Override
+        public boolean execute(String sql, int[] columnas) throws SQLException {
+            return cronometro.ejecucion(sql, () -> sentencia.execute(sql, columnas));
+        }
+
+        @Override
+        public boolean execute(String sql, String[] columnas) throws SQLException {
+            return cronometro.ejecucion(sql, () -> sentencia.execute(sql, columnas));
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+            return cronometro.lote(sentencia::executeBatch);
+        }
+
+        @Override
+        public long[] executeLargeBatch() throws SQLException {
+            return cronometro.loteGrande(sentencia::executeLargeBatch);
+        }
+
+        @Override
+        public ResultSet getResultSet() throws SQLException {
+            return cronometro.resultado(sentencia.getResultSet());
+        }
+
+        @Override
+        public void close() throws SQLException {
+            cronometro.cerrarPendiente();
+            sentencia.close();
+        }
+    }
+
+    private static final class SentenciaPreparadaCronometrada extends SentenciaPreparadaDelegada {
+
+        private final Cronometro cronometro;
+
+        private SentenciaPreparadaCronometrada(PreparedStatement sentencia, Cronometro cronometro) {
+            super(sentencia);
+            this.cronometro = cronometro;
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            return cronometro.filas(null, sentencia::executeQuery);
+        }
+
+        @Override
+        public int executeUpdate() throws SQLException {
+            return cronometro.cantidad(null, sentencia::executeUpdate);
+        }
+
+        @Override
+        public long executeLargeUpdate() throws SQLException {
+            return cronometro.cantidad(null, sentencia::executeLargeUpdate);
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            return cronometro.ejecucion(null, sentencia::execute);
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+            return cronometro.lote(sentencia::executeBatch);
+        }
+
+        @Override
+        public long[] executeLargeBatch() throws SQLException {
+            return cronometro.loteGrande(sentencia::executeLargeBatch);
+        }
+
+        @Override
+        public ResultSet getResultSet() throws SQLException {
+            return cronometro.resultado(sentencia.getResultSet());
+        }
+
+        @Override
+        public void close() throws SQLException {
+            cronometro.cerrarPendiente();
+            sentencia.close();
+        }
+    }
+
+    /**
+     * Mide las ejecuciones de una sentencia. Una consulta queda pendiente hasta
+     * que se cierran sus filas, la sentencia o se vuelve a ejecutar.
+     */
+    private static final class Cronometro {
+
+        private final String sqlPreparado;
+        private final EstadisticasSql estadisticas;
+        private Medicion pendiente;
+
+        private Cronometro(String sqlPreparado, EstadisticasSql estadisticas) {
+            this.sqlPreparado = sqlPreparado;
+            this.estadisticas = estadisticas;
+        }
+
+        private ResultSet filas(String sql, Ejecucion<ResultSet> ejecucion) throws SQLException {
+            Medicion medicion = nueva(sql);
+            ResultSet filas = medir(medicion, ejecucion);
+            pendiente = medicion;
+            return filas == null ? null : new FilasContadas(filas, medicion, estadisticas);
+        }
+
+        private <T extends Number> T cantidad(String sql, Ejecucion<T> ejecucion) throws SQLException {
+            Medicion medicion = nueva(sql);
+            T cantidad = medir(medicion, ejecucion);
+            medicion.filas = cantidad.longValue();
+            medicion.registrar(estadisticas);
+            return cantidad;
+        }
+
+        private int[] lote(Ejecucion<int[]> ejecucion) throws SQLException {
+            Medicion medicion = nueva(null);
+            int[] cantidades = medir(medicion, ejecucion);
+            for (int cantidad : cantidades) {
+                medicion.filas += Math.max(cantidad, 0);
+            }
+            medicion.registrar(estadisticas);
+            return cantidades;
+        }
+
+        private long[] loteGrande(Ejecucion<long[]> ejecucion) throws SQLException {
+            Medicion medicion = nueva(null);
+            long[] cantidades = medir(medicion, ejecucion);
+            for (long cantidad : cantidades) {
+                medicion.filas += Math.max(cantidad, 0);
+            }
+            medicion.registrar(estadisticas);
+            return cantidades;
+        }
+
+        private boolean ejecucion(String sql, Ejecucion<Boolean> ejecucion) throws SQLException {
+            Medicion medicion = nueva(sql);
+            boolean hayFilas = medir(medicion, ejecucion);
+            if (hayFilas) {
+                // El ResultSet se pide después con getResultSet().
+                pendiente = medicion;
+            } else {
+                medicion.registrar(estadisticas);
+            }
+            return hayFilas;
+        }
+
+        private ResultSet resultado(ResultSet filas) {
+            return filas == null || pendiente == null ? filas : new FilasContadas(filas, pendiente, estadisticas);
+        }
+
+        private Medicion nueva(String sql) {
+            cerrarPendiente();
+            String texto = sql != null ? sql : sqlPreparado;
+            return new Medicion(texto == null ? "?" : texto, LLAMADOR.get());
+        }
+
+        private <T> T medir(Medicion medicion, Ejecucion<T> ejecucion) throws SQLException {
+            EventoSentencia evento = new EventoSentencia();
+            evento.begin();
+            long inicio = System.nanoTime();
+            try {
+                return ejecucion.ejecutar();
+            } finally {
+                medicion.nanos = System.nanoTime() - inicio;
+                evento.end();
+                if (evento.shouldCommit()) {
+                    evento.endpoint = EtiquetasPerfil.endpoint();
+                    evento.servicio = EtiquetasPerfil.servicio();
+                    evento.llamador = medicion.llamador;
+                    evento.sql = medicion.sql;
+                    evento.commit();
+                }
+            }
+        }
+
+        private void cerrarPendiente() {
+            if (pendiente != null) {
+                pendiente.registrar(estadisticas);
+                pendiente = null;
+            }
+        }
+    }
+
+    private static final class FilasContadas extends FilasDelegadas {
+
+        private final Medicion medicion;
+        private final EstadisticasSql estadisticas;
+
+        private FilasContadas(ResultSet filas, Medicion medicion, EstadisticasSql estadisticas) {
+            super(filas);
+            this.medicion = medicion;
+            this.estadisticas = estadisticas;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            boolean hay = filas.next();
+            if (hay) {
+                medicion.filas++;
+            }
+            return hay;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            medicion.registrar(estadisticas);
+            filas.close();
+        }
+    }
+
+    private static final class Medicion {
+
+        private final String sql;
+        private final String llamador;
+        private long nanos;
+        private long filas;
+        private boolean registrada;
+
+        private Medicion(String sql, String llamador) {
+            this.sql = sql;
+            this.llamador = llamador;
+        }
+
+        private void registrar(EstadisticasSql estadisticas) {
+            if (!registrada) {
+                registrada = true;
+                estadisticas.registrar(sql, nanos, filas, llamador);
+            }
+        }
+    }
+}
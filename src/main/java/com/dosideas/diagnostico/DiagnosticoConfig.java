@@ -0,0 +1,131 @@
+package com.dosideas.diagnostico;
+
+import com.dosideas.service.IProvinciaService;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuración de las herramientas de diagnóstico.
+ *
+ * Registra {@link ContadorSentencias} en Hibernate y envuelve el bean de
+ * {@link IProvinciaService} para que cada llamada abra su propio ámbito: así
+ * el WARN de un posible N+1 indica qué método del servicio ejecutó cada
+ * cantidad de sentencias.
+ *
+ * También envuelve el DataSource con {@link DataSourceCronometrado} y los
+ * repositorios de Spring Data, para que cada sentencia medida sepa qué método
+ * de repositorio la ejecutó. Los interceptores se agregan con
+ * {@link InterceptoresLlamadas}, igual que los del trazado.
+ *
+ * @author Gabriel Romero
+ */
+@Configuration
+public class DiagnosticoConfig {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DiagnosticoConfig.class);
+
+    @Bean
+    public HibernatePropertiesCustomizer contadorSentenciasCustomizer() {
+        return propiedades -> propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorSentencias());
+    }
+
+    /**
+     * Por fuera del proxy transaccional del servicio, así también se cuentan
+     * las sentencias del commit.
+     */
+    @Bean
+    public static BeanPostProcessor contadorPorLlamadaPostProcessor() {
+        return new InterceptoresLlamadas()
+                .servicio(IProvinciaService.class, ContadorPorLlamada::new)
+                .repositorios(LlamadorRepositorio::new);
+    }
+
+    @Bean
+    public static BeanPostProcessor sqlCronometradoPostProcessor(ObjectProvider<EstadisticasSql> estadisticas) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nombre) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof DataSourceCronometrado)) {
+                    return new DataSourceCronometrado(dataSource, estadisticas.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Marca el método de repositorio en curso, para asociarlo a las sentencias
+     * que ejecuta.
+     */
+    private static final class LlamadorRepositorio implements MethodInterceptor {
+
+        private final String repositorio;
+
+        private LlamadorRepositorio(String repositorio) {
+            this.repositorio = repositorio;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocacion) throws Throwable {
+            String anterior = DataSourceCronometrado.cambiarLlamador(
+                    repositorio + "." + invocacion.getMethod().getName());
+            try {
+                return invocacion.proceed();
+            } finally {
+                DataSourceCronometrado.cambiarLlamador(anterior);
+            }
+        }
+    }
+
+    /**
+     * Cuenta las sentencias de cada llamada al servicio y las anota en el
+     * ámbito que la contiene (normalmente, el del request). También emite un
+     * {@link EventoServicio} de JFR y etiqueta las sentencias de la llamada.
+     */
+    private static final class ContadorPorLlamada implements MethodInterceptor {
+
+        private final String servicio;
+
+        private ContadorPorLlamada(String servicio) {
+            this.servicio = servicio;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocacion) throws Throwable {
+            AmbitoSentencias contenedor = ContadorSentencias.actual();
+            String nombre = servicio + "." + invocacion.getMethod().getName();
+            AmbitoSentencias llamada = ContadorSentencias.abrir(nombre);
+            String servicioAnterior = EtiquetasPerfil.cambiarServicio(nombre);
+            EventoServicio evento = new EventoServicio();
+            evento.begin();
+            try {
+                return invocacion.proceed();
+            } finally {
+                llamada.close();
+                EtiquetasPerfil.cambiarServicio(servicioAnterior);
+                evento.end();
+                if (evento.shouldCommit()) {
+                    evento.endpoint = EtiquetasPerfil.endpoint();
+                    evento.servicio = nombre;
+                    evento.sentencias = llamada.getTotal();
+                    evento.commit();
+                }
+                if (contenedor != null) {
+                    contenedor.registrarLlamada(nombre, llamada.getTotal());
+                }
+                LOG.debug("{}: {} sentencias", nombre, llamada.getTotal());
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.dosideas.diagnostico;
+
+import com.dosideas.dto.ConsultaLentaDTO;
+import com.dosideas.dto.EstadisticaSqlDTO;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tiempos de las sentencias SQL que mide {@link DataSourceCronometrado}.
+ *
+ * Por cada forma de sentencia (ver {@link ContadorSentencias#normalizar})
+ * acumula ejecuciones, tiempo total, máximo, filas y un histograma para el
+ * p99. Además guarda las últimas ejecuciones que superaron
+ * "sql.lentas.umbral-ms" en un buffer circular de tamaño fijo.
+ *
+ * Todo se registra sin locks, desde el hilo que ejecutó la sentencia. La
+ * cantidad de formas distintas está acotada: pasado el máximo, las nuevas se
+ * acumulan todas juntas bajo {@link #OTRAS}.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+public class EstadisticasSql {
+
+    public static final String OTRAS = "(otras)";
+
+    private static final int MAXIMO_LLAMADORES = 5;
+    private static final int MAXIMO_LARGO_SQL = 2000;
+
+    private final ConcurrentHashMap<String, Forma> formas = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<ConsultaLentaDTO> lentas;
+    private final AtomicLong proximaLenta = new AtomicLong();
+    private final long umbralNanos;
+    private final int maximoFormas;
+
+    public EstadisticasSql(@Value("${sql.lentas.umbral-ms:100}") long umbralMs,
+            @Value("${sql.lentas.capacidad:256}") int capacidad,
+            @Value("${sql.formas.maximo:1000}") int maximoFormas) {
+        this.umbralNanos = TimeUnit.MILLISECONDS.toNanos(umbralMs);
+        this.lentas = new AtomicReferenceArray<>(capacidad);
+        this.maximoFormas = maximoFormas;
+    }
+
+    /**
+     * Registra una ejecución.
+     *
+     * @param sql La sentencia, tal como se preparó.
+     * @param nanos Lo que tardó la ejecución.
+     * @param filas Filas leídas o modificadas.
+     * @param llamador El método de repositorio que la originó, o null.
+     */
+    public void registrar(String sql, long nanos, long filas, String llamador) {
+        String forma = ContadorSentencias.normalizar(sql);
+        Forma estadistica = formas.get(forma);
+        if (estadistica == null) {
+            estadistica = formas.size() < maximoFormas
+                    ? formas.computeIfAbsent(forma, f -> new Forma())
+                    : formas.computeIfAbsent(OTRAS, f -> new Forma());
+        }
+        estadistica.registrar(nanos, filas, llamador);
+
+        if (nanos >= umbralNanos) {
+            ConsultaLentaDTO lenta = ConsultaLentaDTO.builder()
+                    .instante(Instant.now())
+                    .sql(sql.length() > MAXIMO_LARGO_SQL ? sql.substring(0, MAXIMO_LARGO_SQL) : sql)
+                    .duracionMs(nanos / 1_000_000.0)
+                    .filas(filas)
+                    .llamador(llamador)
+                    .build();
+            int posicion = (int) (proximaLenta.getAndIncrement() % lentas.length());
+            lentas.set(posicion, lenta);
+        }
+    }
+
+    /**
+     * @param cantidad Cuántas formas devolver.
+     * @param porP99 true para ordenar por p99, false por tiempo total.
+     * @return Las formas de sentencia más costosas.
+     */
+    public List<EstadisticaSqlDTO> top(int cantidad, boolean porP99) {
+        Comparator<EstadisticaSqlDTO> orden = porP99
+                ? Comparator.comparingDouble(EstadisticaSqlDTO::getP99Ms)
+                : Comparator.comparingDouble(EstadisticaSqlDTO::getTotalMs);
+        return formas.entrySet().stream()
+                .map(e -> e.getValue().aDTO(e.getKey()))
+                .sorted(orden.reversed())
+                .limit(cantidad)
+                .toList();
+    }
+
+    /**
+     * @return Las consultas lentas guardadas en el buffer, de la más reciente a
+     * la más antigua.
+     */
+    public List<ConsultaLentaDTO> lentas() {
+        List<ConsultaLentaDTO> resultado = new ArrayList<>(lentas.length());
+        for (int i = 0; i < lentas.length(); i++) {
+            ConsultaLentaDTO lenta = lentas.get(i);
+            if (lenta != null) {
+                resultado.add(lenta);
+            }
+        }
+        resultado.sort(Comparator.comparing(ConsultaLentaDTO::getInstante).reversed());
+        return resultado;
+    }
+
+    /**
+     * Descarta todo lo acumulado.
+     */
+    public void reiniciar() {
+        formas.clear();
+        for (int i = 0; i < lentas.length(); i++) {
+            lentas.set(i, null);
+        }
+    }
+
+    private static final class Forma {
+
+        private final LongAdder ejecuciones = new LongAdder();
+        private final LongAdder nanosTotales = new LongAdder();
+        private final LongAdder filas = new LongAdder();
+        private final AtomicLong maximoNanos = new AtomicLong();
+        private final HistogramaLatencias histograma = new HistogramaLatencias();
+        private final Set<String> llamadores = ConcurrentHashMap.newKeySet();
+
+        private void registrar(long nanos, long cantidadFilas, String llamador) {
+            ejecuciones.increment();
+            nanosTotales.add(nanos);
+            filas.add(cantidadFilas);
+            maximoNanos.accumulateAndGet(nanos, Math::max);
+            histograma.registrar(nanos / 1000);
+            if (llamador != null && llamadores.size() < MAXIMO_LLAMADORES) {
+                llamadores.add(llamador);
+            }
+        }
+
+        private EstadisticaSqlDTO aDTO(String forma) {
+            long cantidad = ejecuciones.sum();
+            double totalMs = nanosTotales.sum() / 1_000_000.0;
+            double maximoMs = maximoNanos.get() / 1_000_000.0;
+            return EstadisticaSqlDTO.builder()
+                    .sql(forma)
+                    .ejecuciones(cantidad)
+                    .totalMs(totalMs)
+                    .promedioMs(cantidad == 0 ? 0 : totalMs / cantidad)
+                    // El bucket puede pasarse del máximo real.
+                    .p99Ms(Math.min(histograma.percentil(99) / 1000.0, maximoMs))
+                    .maximoMs(maximoMs)
+                    .filas(filas.sum())
+                    .llamadores(Set.copyOf(llamadores))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.dosideas.diagnostico;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * El endpoint y la llamada a servicio que está atendiendo el hilo actual, para
+ * etiquetar los eventos de JFR propios ({@link EventoServicio},
+ * {@link EventoSentencia}) y marcar los tramos de cada request
+ * ({@link EventoEndpoint}).
+ *
+ * Los tramos se abren en el hilo de Tomcat
+ * ({@link PerfilEndpointInterceptor}) y en el pool del compartimento que hace
+ * el trabajo (Compartimentos continúa el endpoint del request).
+ *
+ * @author Gabriel Romero
+ */
+public final class EtiquetasPerfil {
+
+    private static final ThreadLocal<Tramo> TRAMO = new ThreadLocal<>();
+    private static final ThreadLocal<String> SERVICIO = new ThreadLocal<>();
+    private static final Set<Long> HILOS_EN_ENDPOINT = ConcurrentHashMap.newKeySet();
+
+    private static final Tramo NINGUNO = new Tramo(null, false, null);
+
+    private EtiquetasPerfil() {
+    }
+
+    /**
+     * @return El endpoint que atiende el hilo actual (Controller.metodo), o
+     * null.
+     */
+    public static String endpoint() {
+        Tramo tramo = TRAMO.get();
+        return tramo == null ? null : tramo.endpoint;
+    }
+
+    /**
+     * Abre un tramo del endpoint en el hilo actual. Debe cerrarse
+     * (try-with-resources) en el mismo hilo.
+     *
+     * @param endpoint El endpoint (Controller.metodo). Con null no se abre
+     * nada.
+     * @param inicio Si es el primer tramo del request.
+     * @return El tramo abierto.
+     */
+    public static Tramo abrir(String endpoint, boolean inicio) {
+        if (endpoint == null) {
+            return NINGUNO;
+        }
+        Tramo anterior = TRAMO.get();
+        Tramo tramo = new Tramo(endpoint, inicio, anterior);
+        TRAMO.set(tramo);
+        if (anterior == null) {
+            HILOS_EN_ENDPOINT.add(Thread.currentThread().getId());
+        }
+        tramo.evento.begin();
+        return tramo;
+    }
+
+    /**
+     * Sigue en el hilo actual el trabajo de un endpoint empezado en otro hilo,
+     * por ejemplo al repartir una consulta entre fragmentos. Abre un tramo que
+     * no es el inicio del request.
+     *
+     * @param endpoint El endpoint del hilo original (puede ser null).
+     * @param servicio La llamada a servicio del hilo original (puede ser null).
+     * @return El tramo abierto; al cerrarlo se restaura la llamada a servicio
+     * que tenía el hilo.
+     */
+    public static Tramo continuar(String endpoint, String servicio) {
+        Tramo tramo = abrir(endpoint, false);
+        if (tramo != NINGUNO) {
+            tramo.servicioAnterior = cambiarServicio(servicio);
+            tramo.restaurarServicio = true;
+        }
+        return tramo;
+    }
+
+    /**
+     * @param idHilo El ID de un hilo.
+     * @return Si el hilo está atendiendo un endpoint en este momento.
+     */
+    static boolean enEndpoint(long idHilo) {
+        return HILOS_EN_ENDPOINT.contains(idHilo);
+    }
+
+    /**
+     * @return La llamada a IProvinciaService en curso en el hilo actual, o null.
+     */
+    public static String servicio() {
+        return SERVICIO.get();
+    }
+
+    /**
+     * Indica qué llamada a servicio está ejecutando el hilo actual.
+     *
+     * @param servicio El nombre (Interfaz.metodo), o null al terminar.
+     * @return La llamada anterior, para restaurarla.
+     */
+    static String cambiarServicio(String servicio) {
+        String anterior = SERVICIO.get();
+        if (servicio == null) {
+            SERVICIO.remove();
+        } else {
+            SERVICIO.set(servicio);
+        }
+        return anterior;
+    }
+
+    /**
+     * Un tramo abierto: al cerrarlo se emite el {@link EventoEndpoint} y el
+     * hilo vuelve al tramo que tenía antes.
+     */
+    public static final class Tramo implements AutoCloseable {
+
+        private final String endpoint;
+        private final boolean inicio;
+        private final Tramo anterior;
+        private final EventoEndpoint evento = new EventoEndpoint();
+        private String servicioAnterior;
+        private boolean restaurarServicio;
+        private boolean cerrado;
+
+        private Tramo(String endpoint, boolean inicio, Tramo anterior) {
+            this.endpoint = endpoint;
+            this.inicio = inicio;
+            this.anterior = anterior;
+        }
+
+        @Override
+        public void close() {
+            if (endpoint == null || cerrado) {
+                return;
+            }
+            cerrado = true;
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.endpoint = endpoint;
+                evento.inicio = inicio;
+                evento.commit();
+            }
+            if (restaurarServicio) {
+                cambiarServicio(servicioAnterior);
+            }
+            if (anterior == null) {
+                TRAMO.remove();
+                HILOS_EN_ENDPOINT.remove(Thread.currentThread().getId());
+            } else {
+                TRAMO.set(anterior);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.dosideas.diagnostico;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de JFR por cada tramo de un request atendido en un hilo: el despacho
+ * en el hilo de Tomcat, el trabajo en el pool de un compartimento y, en los
+ * requests asincrónicos, el despacho final que escribe la respuesta.
+ *
+ * {@link PerfiladorJfr} atribuye al endpoint los eventos de la JVM
+ * (asignaciones, bloqueos) que ocurrieron en el mismo hilo durante el tramo.
+ *
+ * @author Gabriel Romero
+ */
+@Name("com.dosideas.Endpoint")
+@Label("Endpoint")
+@Category({"Escuelita", "Perfil"})
+@Description("Tramo de un request atendido en un hilo")
+@StackTrace(false)
+class EventoEndpoint extends Event {
+
+    @Label("Endpoint")
+    @Description("Controller.metodo que atiende el request")
+    String endpoint;
+
+    @Label("Inicio del request")
+    @Description("true solo en el primer tramo de cada request")
+    boolean inicio;
+}
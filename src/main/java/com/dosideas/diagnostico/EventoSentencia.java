@@ -0,0 +1,35 @@
+package com.dosideas.diagnostico;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de JFR por cada ejecución de una sentencia SQL: su duración es el
+ * tiempo que el hilo esperó a la base. Lo emite {@link DataSourceCronometrado}.
+ *
+ * @author Gabriel Romero
+ */
+@Name("com.dosideas.Sentencia")
+@Label("Sentencia SQL")
+@Category({"Escuelita", "Perfil"})
+@StackTrace(false)
+class EventoSentencia extends Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Servicio")
+    @Description("Llamada a IProvinciaService en curso")
+    String servicio;
+
+    @Label("Repositorio")
+    @Description("Repositorio.metodo que ejecutó la sentencia")
+    String llamador;
+
+    @Label("SQL")
+    String sql;
+}
@@ -0,0 +1,31 @@
+package com.dosideas.diagnostico;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de JFR por cada llamada a IProvinciaService, con el endpoint que la
+ * hizo y las sentencias SQL que ejecutó.
+ *
+ * @author Gabriel Romero
+ */
+@Name("com.dosideas.Servicio")
+@Label("Llamada a servicio")
+@Category({"Escuelita", "Perfil"})
+@StackTrace(false)
+class EventoServicio extends Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Servicio")
+    @Description("Interfaz.metodo")
+    String servicio;
+
+    @Label("Sentencias SQL")
+    int sentencias;
+}
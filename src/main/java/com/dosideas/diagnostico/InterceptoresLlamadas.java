@@ -0,0 +1,78 @@
+package com.dosideas.diagnostico;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Agrega interceptores a las llamadas a servicios y a repositorios de Spring
+ * Data, cada uno con el nombre con el que se lo reporta (IProvinciaService,
+ * ProvinciaRepository, etc.). Lo usan el diagnóstico de sentencias y el
+ * trazado, para instrumentar los mismos beans de la misma forma.
+ *
+ * En un servicio que ya es un proxy (transaccional) el interceptor se agrega
+ * por fuera, así también abarca el commit; si no lo es, se crea un proxy. En
+ * los repositorios se agrega al proxy que crea Spring Data.
+ *
+ * @author Gabriel Romero
+ */
+public class InterceptoresLlamadas implements BeanPostProcessor {
+
+    private final Map<Class<?>, Function<String, MethodInterceptor>> servicios = new LinkedHashMap<>();
+    private Function<String, MethodInterceptor> repositorios;
+
+    /**
+     * @param tipo La interfaz del servicio.
+     * @param interceptor Crea el interceptor a partir del nombre del servicio.
+     * @return Este post-processor.
+     */
+    public InterceptoresLlamadas servicio(Class<?> tipo, Function<String, MethodInterceptor> interceptor) {
+        servicios.put(tipo, interceptor);
+        return this;
+    }
+
+    /**
+     * @param interceptor Crea el interceptor de cada repositorio a partir de
+     * su nombre.
+     * @return Este post-processor.
+     */
+    public InterceptoresLlamadas repositorios(Function<String, MethodInterceptor> interceptor) {
+        repositorios = interceptor;
+        return this;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String nombre) {
+        for (Map.Entry<Class<?>, Function<String, MethodInterceptor>> servicio : servicios.entrySet()) {
+            if (servicio.getKey().isInstance(bean)) {
+                return agregar(bean, servicio.getValue().apply(servicio.getKey().getSimpleName()));
+            }
+        }
+        if (repositorios != null && bean instanceof Repository<?, ?>
+                && bean instanceof Advised advised && !advised.isFrozen()) {
+            String repositorio = Arrays.stream(advised.getProxiedInterfaces())
+                    .filter(Repository.class::isAssignableFrom)
+                    .findFirst()
+                    .map(Class::getSimpleName)
+                    .orElse(nombre);
+            advised.addAdvice(0, repositorios.apply(repositorio));
+        }
+        return bean;
+    }
+
+    private static Object agregar(Object bean, MethodInterceptor interceptor) {
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        ProxyFactory proxy = new ProxyFactory(bean);
+        proxy.addAdvice(interceptor);
+        return proxy.getProxy();
+    }
+}
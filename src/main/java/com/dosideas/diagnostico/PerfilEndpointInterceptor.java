@@ -0,0 +1,49 @@
+package com.dosideas.diagnostico;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Abre un tramo de {@link EtiquetasPerfil} mientras el hilo de Tomcat atiende
+ * un endpoint (ProvinciaRestController.buscarPorId, etc.), tanto en el
+ * despacho inicial como en el despacho asincrónico que escribe la respuesta.
+ *
+ * @author Gabriel Romero
+ */
+class PerfilEndpointInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ATRIBUTO_TRAMO = PerfilEndpointInterceptor.class.getName() + ".TRAMO";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod metodo) {
+            String endpoint = metodo.getBeanType().getSimpleName() + "." + metodo.getMethod().getName();
+            request.setAttribute(ATRIBUTO_TRAMO,
+                    EtiquetasPerfil.abrir(endpoint, request.getDispatcherType() != DispatcherType.ASYNC));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        cerrar(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        cerrar(request);
+    }
+
+    private static void cerrar(HttpServletRequest request) {
+        if (request.getAttribute(ATRIBUTO_TRAMO) instanceof EtiquetasPerfil.Tramo tramo) {
+            request.removeAttribute(ATRIBUTO_TRAMO);
+            tramo.close();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.dosideas.diagnostico;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registra {@link PerfilEndpointInterceptor}, que etiqueta con el endpoint los
+ * eventos de JFR de cada request.
+ *
+ * @author Gabriel Romero
+ */
+@Configuration
+public class PerfilWebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new PerfilEndpointInterceptor());
+    }
+}
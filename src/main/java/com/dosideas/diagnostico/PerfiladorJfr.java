@@ -0,0 +1,340 @@
+package com.dosideas.diagnostico;
+
+import com.dosideas.dto.PerfilDTO;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Perfilado continuo con JDK Flight Recorder.
+ *
+ * Mantiene una grabación siempre activa y consume sus eventos en streaming:
+ * muestras de asignación de memoria, esperas por locks (monitores y park) por
+ * encima de "perfil.jfr.umbral-bloqueo-ms", pausas de GC y los eventos propios
+ * de endpoints, llamadas a servicio y sentencias SQL (ver
+ * {@link EtiquetasPerfil}). Todo se acumula por endpoint en una
+ * {@link VentanaPerfil}.
+ *
+ * Los eventos de la JVM no saben qué endpoint se estaba atendiendo: se guardan
+ * por hilo hasta que llega el {@link EventoEndpoint} de ese hilo (que se emite
+ * al terminar el tramo) y se atribuyen a él si ocurrieron durante el tramo.
+ * Los de hilos que no están atendiendo un endpoint van a
+ * {@link VentanaPerfil#FUERA_DE_ENDPOINTS}. Una pausa de GC se atribuye a
+ * todos los tramos durante los cuales terminó.
+ *
+ * La grabación conserva los últimos "perfil.jfr.retencion-minutos", que se
+ * pueden volcar a un archivo .jfr para abrirlo con JDK Mission Control.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+@ConditionalOnProperty(name = "perfil.jfr.habilitado", havingValue = "true", matchIfMissing = true)
+public class PerfiladorJfr {
+
+    public static final Set<String> ORDENES = VentanaPerfil.ORDENES;
+
+    private static final Logger LOG = LoggerFactory.getLogger(PerfiladorJfr.class);
+
+    private static final Duration ESPERA_FUERA_DE_ENDPOINT = Duration.ofSeconds(5);
+    private static final int MAXIMO_PENDIENTES_POR_HILO = 10_000;
+    private static final String PAQUETE_APLICACION = "com.dosideas.";
+    private static final List<String> PAQUETES_INFRAESTRUCTURA = List.of(
+            "com.dosideas.diagnostico.", "com.dosideas.compartimento.");
+
+    private final VentanaPerfil ventana;
+    private final Duration duracionVentana;
+    private final Duration retencion;
+    private final Duration umbralBloqueo;
+    private final int asignacionesPorSegundo;
+    private volatile RecordingStream grabacion;
+
+    // Solo los usa el hilo que consume la grabación.
+    private final Map<Long, ArrayDeque<Pendiente>> pendientes = new HashMap<>();
+    private final ArrayDeque<PausaGc> pausas = new ArrayDeque<>();
+
+    public PerfiladorJfr(@Value("${perfil.jfr.ventana-segundos:300}") long ventanaSegundos,
+            @Value("${perfil.jfr.intervalos:10}") int intervalos,
+            @Value("${perfil.jfr.retencion-minutos:10}") long retencionMinutos,
+            @Value("${perfil.jfr.umbral-bloqueo-ms:10}") long umbralBloqueoMs,
+            @Value("${perfil.jfr.asignaciones-por-segundo:150}") int asignacionesPorSegundo) {
+        this.duracionVentana = Duration.ofSeconds(ventanaSegundos);
+        this.ventana = new VentanaPerfil(duracionVentana, intervalos);
+        this.retencion = Duration.ofMinutes(retencionMinutos);
+        this.umbralBloqueo = Duration.ofMillis(umbralBloqueoMs);
+        this.asignacionesPorSegundo = asignacionesPorSegundo;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        RecordingStream nueva;
+        try {
+            nueva = new RecordingStream();
+        } catch (IllegalStateException | SecurityException e) {
+            LOG.warn("No se pudo iniciar el perfilado con JFR: {}", e.getMessage());
+            return;
+        }
+        nueva.enable("jdk.ObjectAllocationSample")
+                .with("throttle", asignacionesPorSegundo + "/s")
+                .withStackTrace();
+        nueva.enable("jdk.JavaMonitorEnter").withThreshold(umbralBloqueo).withStackTrace();
+        nueva.enable("jdk.ThreadPark").withThreshold(umbralBloqueo).withStackTrace();
+        nueva.enable("jdk.GarbageCollection");
+        nueva.enable(EventoEndpoint.class);
+        nueva.enable(EventoServicio.class);
+        nueva.enable(EventoSentencia.class);
+        nueva.setMaxAge(retencion);
+
+        nueva.onEvent("jdk.ObjectAllocationSample", this::asignacion);
+        nueva.onEvent("jdk.JavaMonitorEnter", this::bloqueo);
+        nueva.onEvent("jdk.ThreadPark", this::bloqueo);
+        nueva.onEvent("jdk.GarbageCollection", this::pausaGc);
+        nueva.onEvent("com.dosideas.Endpoint", this::tramo);
+        nueva.onEvent("com.dosideas.Servicio", this::servicio);
+        nueva.onEvent("com.dosideas.Sentencia", this::sentencia);
+        nueva.onFlush(this::descartarPendientes);
+        nueva.onError(e -> LOG.warn("Error procesando eventos de JFR", e));
+        nueva.startAsync();
+        grabacion = nueva;
+        LOG.info("Perfilado con JFR habilitado (ventana de {} s, retención de {} min)",
+                duracionVentana.toSeconds(), retencion.toMinutes());
+    }
+
+    @PreDestroy
+    public void detener() {
+        RecordingStream actual = grabacion;
+        if (actual != null) {
+            grabacion = null;
+            actual.close();
+        }
+    }
+
+    /**
+     * @return Si la grabación está corriendo.
+     */
+    public boolean isActivo() {
+        return grabacion != null;
+    }
+
+    /**
+     * @param cantidad Cuántos endpoints devolver.
+     * @param orden Uno de {@link #ORDENES}: tiempo, asignacion, bloqueo, gc o
+     * jdbc.
+     * @return Lo acumulado en la ventana reciente, con los endpoints de mayor a
+     * menor según el orden.
+     */
+    public PerfilDTO resumen(int cantidad, String orden) {
+        return ventana.resumen(System.currentTimeMillis(), cantidad, orden);
+    }
+
+    /**
+     * Escribe lo que conserva la grabación (los últimos minutos) en un archivo
+     * .jfr.
+     *
+     * @param destino El archivo.
+     * @throws IOException Si no se pudo escribir.
+     * @throws IllegalStateException Si la grabación no está corriendo.
+     */
+    public void volcar(Path destino) throws IOException {
+        RecordingStream actual = grabacion;
+        if (actual == null) {
+            throw new IllegalStateException("El perfilado con JFR no está activo.");
+        }
+        actual.dump(destino);
+    }
+
+    private void asignacion(RecordedEvent evento) {
+        RecordedClass clase = evento.getClass("objectClass");
+        String sitio = (clase == null ? "?" : clase.getName()) + " en " + sitio(evento.getStackTrace());
+        pendiente(evento, new Pendiente(evento.getStartTime(), true, sitio, evento.getLong("weight")));
+    }
+
+    private void bloqueo(RecordedEvent evento) {
+        RecordedClass clase = evento.getEventType().getName().equals("jdk.JavaMonitorEnter")
+                ? evento.getClass("monitorClass")
+                : evento.getClass("parkedClass");
+        String monitor = (clase == null ? "park" : clase.getName()) + " en " + sitio(evento.getStackTrace());
+        pendiente(evento, new Pendiente(evento.getStartTime(), false, monitor, evento.getDuration().toNanos()));
+    }
+
+    private void pausaGc(RecordedEvent evento) {
+        long nanos = evento.getDuration("sumOfPauses").toNanos();
+        ventana.pausaGc(evento.getEndTime().toEpochMilli(), nanos);
+        pausas.addLast(new PausaGc(evento.getEndTime(), nanos));
+        Instant limite = evento.getEndTime().minus(duracionVentana);
+        while (pausas.peekFirst().fin.isBefore(limite)) {
+            pausas.removeFirst();
+        }
+    }
+
+    private void servicio(RecordedEvent evento) {
+        ventana.servicio(evento.getEndTime().toEpochMilli(), evento.getString("endpoint"),
+                evento.getString("servicio"), evento.getDuration().toNanos());
+    }
+
+    private void sentencia(RecordedEvent evento) {
+        ventana.sentencia(evento.getEndTime().toEpochMilli(), evento.getString("endpoint"),
+                evento.getDuration().toNanos());
+    }
+
+    /**
+     * Terminó un tramo: se le atribuyen los eventos pendientes de su hilo que
+     * ocurrieron durante el tramo, y las pausas de GC que terminaron mientras
+     * tanto.
+     */
+    private void tramo(RecordedEvent evento) {
+        String endpoint = evento.getString("endpoint");
+        Instant inicio = evento.getStartTime();
+        Instant fin = evento.getEndTime();
+        ArrayDeque<Pendiente> cola = pendientes.get(idHilo(evento));
+        if (cola != null) {
+            while (!cola.isEmpty() && !cola.peekFirst().instante.isAfter(fin)) {
+                Pendiente pendiente = cola.removeFirst();
+                aplicar(pendiente, pendiente.instante.isBefore(inicio) ? null : endpoint);
+            }
+            if (cola.isEmpty()) {
+                pendientes.remove(idHilo(evento));
+            }
+        }
+        long pausaGcNanos = 0;
+        for (PausaGc pausa : pausas) {
+            if (!pausa.fin.isBefore(inicio) && !pausa.fin.isAfter(fin)) {
+                pausaGcNanos += pausa.nanos;
+            }
+        }
+        ventana.tramo(fin.toEpochMilli(), endpoint, evento.getBoolean("inicio"),
+                evento.getDuration().toNanos(), pausaGcNanos);
+    }
+
+    private void pendiente(RecordedEvent evento, Pendiente pendiente) {
+        long hilo = idHilo(evento);
+        if (hilo < 0) {
+            aplicar(pendiente, null);
+            return;
+        }
+        ArrayDeque<Pendiente> cola = pendientes.computeIfAbsent(hilo, h -> new ArrayDeque<>());
+        if (cola.size() >= MAXIMO_PENDIENTES_POR_HILO) {
+            aplicar(cola.removeFirst(), null);
+        }
+        cola.addLast(pendiente);
+    }
+
+    /**
+     * Después de cada lectura: lo pendiente de hilos que no están en un
+     * endpoint, con algo de margen para que llegue su último tramo, ocurrió
+     * fuera de los endpoints.
+     */
+    private void descartarPendientes() {
+        Instant limite = Instant.now().minus(ESPERA_FUERA_DE_ENDPOINT);
+        Iterator<Map.Entry<Long, ArrayDeque<Pendiente>>> entradas = pendientes.entrySet().iterator();
+        while (entradas.hasNext()) {
+            Map.Entry<Long, ArrayDeque<Pendiente>> entrada = entradas.next();
+            if (EtiquetasPerfil.enEndpoint(entrada.getKey())) {
+                continue;
+            }
+            ArrayDeque<Pendiente> cola = entrada.getValue();
+            while (!cola.isEmpty() && cola.peekFirst().instante.isBefore(limite)) {
+                aplicar(cola.removeFirst(), null);
+            }
+            if (cola.isEmpty()) {
+                entradas.remove();
+            }
+        }
+    }
+
+    private void aplicar(Pendiente pendiente, String endpoint) {
+        long instanteMs = pendiente.instante.toEpochMilli();
+        if (pendiente.asignacion) {
+            ventana.asignacion(instanteMs, endpoint, pendiente.clave, pendiente.valor);
+        } else {
+            ventana.bloqueo(instanteMs, endpoint, pendiente.clave, pendiente.valor);
+        }
+    }
+
+    private static long idHilo(RecordedEvent evento) {
+        RecordedThread hilo = evento.getThread();
+        return hilo == null ? -1 : hilo.getJavaThreadId();
+    }
+
+    /**
+     * El método de más arriba en la pila y, si no es de la aplicación, el
+     * primero de la aplicación desde el que se llegó (sin contar la
+     * infraestructura de diagnóstico y compartimentos).
+     */
+    private static String sitio(RecordedStackTrace pila) {
+        if (pila == null || pila.getFrames().isEmpty()) {
+            return "?";
+        }
+        RecordedFrame arriba = pila.getFrames().get(0);
+        if (esDeLaAplicacion(arriba)) {
+            return nombre(arriba);
+        }
+        for (RecordedFrame frame : pila.getFrames()) {
+            if (esDeLaAplicacion(frame)) {
+                return nombre(arriba) + " desde " + nombre(frame);
+            }
+        }
+        return nombre(arriba);
+    }
+
+    private static boolean esDeLaAplicacion(RecordedFrame frame) {
+        String tipo = frame.getMethod().getType().getName();
+        return tipo.startsWith(PAQUETE_APLICACION)
+                && PAQUETES_INFRAESTRUCTURA.stream().noneMatch(tipo::startsWith);
+    }
+
+    private static String nombre(RecordedFrame frame) {
+        String tipo = frame.getMethod().getType().getName();
+        return tipo.substring(tipo.lastIndexOf('.') + 1) + "." + frame.getMethod().getName();
+    }
+
+    /**
+     * Un evento de la JVM que espera el tramo de su hilo: una asignación (en
+     * bytes estimados) o un bloqueo (en nanosegundos).
+     */
+    private static final class Pendiente {
+
+        private final Instant instante;
+        private final boolean asignacion;
+        private final String clave;
+        private final long valor;
+
+        private Pendiente(Instant instante, boolean asignacion, String clave, long valor) {
+            this.instante = instante;
+            this.asignacion = asignacion;
+            this.clave = clave;
+            this.valor = valor;
+        }
+    }
+
+    private static final class PausaGc {
+
+        private final Instant fin;
+        private final long nanos;
+
+        private PausaGc(Instant fin, long nanos) {
+            this.fin = fin;
+            this.nanos = nanos;
+        }
+    }
+}
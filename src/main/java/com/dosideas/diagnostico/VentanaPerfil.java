@@ -0,0 +1,253 @@
+package com.dosideas.diagnostico;
+
+import com.dosideas.dto.PerfilDTO;
+import com.dosideas.dto.PerfilEndpointDTO;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Acumula por endpoint lo que informa JFR, en una ventana móvil dividida en
+ * intervalos: al empezar un intervalo nuevo se descarta el más viejo, así el
+ * resumen cubre siempre los últimos minutos y la memoria queda acotada.
+ *
+ * La escribe el hilo que consume los eventos y la leen los requests de
+ * administración; alcanza con sincronizar cada método.
+ *
+ * @author Gabriel Romero
+ */
+final class VentanaPerfil {
+
+    static final String FUERA_DE_ENDPOINTS = "(fuera de endpoints)";
+    static final String OTROS = "(otros)";
+
+    static final Set<String> ORDENES = Set.of("tiempo", "asignacion", "bloqueo", "gc", "jdbc");
+
+    private static final int MAXIMO_ENDPOINTS = 200;
+    private static final int MAXIMO_CLAVES = 50;
+    private static final int TOP_CLAVES = 5;
+
+    private final Intervalo[] intervalos;
+    private final long duracionIntervaloMs;
+
+    VentanaPerfil(Duration ventana, int cantidadIntervalos) {
+        this.intervalos = new Intervalo[cantidadIntervalos];
+        for (int i = 0; i < cantidadIntervalos; i++) {
+            intervalos[i] = new Intervalo();
+        }
+        this.duracionIntervaloMs = Math.max(ventana.toMillis() / cantidadIntervalos, 1);
+    }
+
+    /**
+     * Un tramo de request terminado.
+     *
+     * @param pausaGcNanos Las pausas de GC que terminaron durante el tramo.
+     */
+    synchronized void tramo(long instanteMs, String endpoint, boolean inicio, long nanos, long pausaGcNanos) {
+        Acumulado acumulado = acumulado(instanteMs, endpoint);
+        if (acumulado != null) {
+            acumulado.requests += inicio ? 1 : 0;
+            acumulado.nanos += nanos;
+            acumulado.pausaGcNanos += pausaGcNanos;
+        }
+    }
+
+    synchronized void asignacion(long instanteMs, String endpoint, String sitio, long bytes) {
+        Acumulado acumulado = acumulado(instanteMs, endpoint);
+        if (acumulado != null) {
+            acumulado.bytes += bytes;
+            sumar(acumulado.asignaciones, sitio, bytes);
+        }
+    }
+
+    synchronized void bloqueo(long instanteMs, String endpoint, String monitor, long nanos) {
+        Acumulado acumulado = acumulado(instanteMs, endpoint);
+        if (acumulado != null) {
+            acumulado.bloqueos++;
+            acumulado.bloqueoNanos += nanos;
+            sumar(acumulado.bloqueosPorMonitor, monitor, nanos);
+        }
+    }
+
+    synchronized void sentencia(long instanteMs, String endpoint, long nanos) {
+        Acumulado acumulado = acumulado(instanteMs, endpoint);
+        if (acumulado != null) {
+            acumulado.sentencias++;
+            acumulado.jdbcNanos += nanos;
+        }
+    }
+
+    synchronized void servicio(long instanteMs, String endpoint, String servicio, long nanos) {
+        Acumulado acumulado = acumulado(instanteMs, endpoint);
+        if (acumulado != null) {
+            sumar(acumulado.servicios, servicio, nanos);
+        }
+    }
+
+    synchronized void pausaGc(long instanteMs, long nanos) {
+        Intervalo intervalo = intervalo(instanteMs);
+        if (intervalo != null) {
+            intervalo.pausasGc++;
+            intervalo.pausaGcNanos += nanos;
+            intervalo.pausaGcMaximaNanos = Math.max(intervalo.pausaGcMaximaNanos, nanos);
+        }
+    }
+
+    /**
+     * @param ahoraMs El instante actual (epoch en milisegundos).
+     * @param cantidad Cuántos endpoints devolver.
+     * @param orden Uno de {@link #ORDENES}.
+     * @return Lo acumulado en la ventana que termina ahora.
+     */
+    synchronized PerfilDTO resumen(long ahoraMs, int cantidad, String orden) {
+        long actual = ahoraMs / duracionIntervaloMs;
+        Map<String, Acumulado> endpoints = new HashMap<>();
+        long pausasGc = 0;
+        long pausaGcNanos = 0;
+        long pausaGcMaximaNanos = 0;
+        for (Intervalo intervalo : intervalos) {
+            if (intervalo.numero <= actual - intervalos.length || intervalo.numero > actual) {
+                continue;
+            }
+            intervalo.endpoints.forEach((endpoint, acumulado) ->
+                    endpoints.computeIfAbsent(endpoint, e -> new Acumulado()).sumar(acumulado));
+            pausasGc += intervalo.pausasGc;
+            pausaGcNanos += intervalo.pausaGcNanos;
+            pausaGcMaximaNanos = Math.max(pausaGcMaximaNanos, intervalo.pausaGcMaximaNanos);
+        }
+        return PerfilDTO.builder()
+                .ventanaSegundos(duracionIntervaloMs * intervalos.length / 1000)
+                .pausasGc(pausasGc)
+                .pausaGcTotalMs(pausaGcNanos / 1_000_000.0)
+                .pausaGcMaximaMs(pausaGcMaximaNanos / 1_000_000.0)
+                .endpoints(endpoints.entrySet().stream()
+                        .map(e -> e.getValue().aDTO(e.getKey()))
+                        .sorted(comparador(orden).reversed())
+                        .limit(cantidad)
+                        .toList())
+                .build();
+    }
+
+    private static Comparator<PerfilEndpointDTO> comparador(String orden) {
+        return switch (orden) {
+            case "tiempo" -> Comparator.comparingDouble(PerfilEndpointDTO::getTiempoMs);
+            case "asignacion" -> Comparator.comparingLong(PerfilEndpointDTO::getBytesAsignados);
+            case "bloqueo" -> Comparator.comparingDouble(PerfilEndpointDTO::getBloqueoMs);
+            case "gc" -> Comparator.comparingDouble(PerfilEndpointDTO::getPausaGcMs);
+            case "jdbc" -> Comparator.comparingDouble(PerfilEndpointDTO::getJdbcMs);
+            default -> throw new IllegalArgumentException("Orden desconocido: " + orden);
+        };
+    }
+
+    /**
+     * @return El intervalo del instante, o null si ya salió de la ventana.
+     */
+    private Intervalo intervalo(long instanteMs) {
+        long numero = instanteMs / duracionIntervaloMs;
+        Intervalo intervalo = intervalos[(int) (numero % intervalos.length)];
+        if (intervalo.numero < numero) {
+            intervalo.reiniciar(numero);
+        }
+        return intervalo.numero == numero ? intervalo : null;
+    }
+
+    private Acumulado acumulado(long instanteMs, String endpoint) {
+        Intervalo intervalo = intervalo(instanteMs);
+        if (intervalo == null) {
+            return null;
+        }
+        String clave = endpoint == null ? FUERA_DE_ENDPOINTS : endpoint;
+        Acumulado acumulado = intervalo.endpoints.get(clave);
+        if (acumulado == null) {
+            if (intervalo.endpoints.size() >= MAXIMO_ENDPOINTS) {
+                clave = OTROS;
+            }
+            acumulado = intervalo.endpoints.computeIfAbsent(clave, e -> new Acumulado());
+        }
+        return acumulado;
+    }
+
+    private static void sumar(Map<String, Long> mapa, String clave, long valor) {
+        if (!mapa.containsKey(clave) && mapa.size() >= MAXIMO_CLAVES) {
+            clave = OTROS;
+        }
+        mapa.merge(clave, valor, Long::sum);
+    }
+
+    private static <T> Map<String, T> top(Map<String, Long> mapa, Function<Long, T> convertir) {
+        Map<String, T> top = new LinkedHashMap<>();
+        mapa.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_CLAVES)
+                .forEach(e -> top.put(e.getKey(), convertir.apply(e.getValue())));
+        return top;
+    }
+
+    private static final class Intervalo {
+
+        private long numero = -1;
+        private final Map<String, Acumulado> endpoints = new HashMap<>();
+        private long pausasGc;
+        private long pausaGcNanos;
+        private long pausaGcMaximaNanos;
+
+        private void reiniciar(long nuevoNumero) {
+            numero = nuevoNumero;
+            endpoints.clear();
+            pausasGc = 0;
+            pausaGcNanos = 0;
+            pausaGcMaximaNanos = 0;
+        }
+    }
+
+    private static final class Acumulado {
+
+        private long requests;
+        private long nanos;
+        private long bytes;
+        private long bloqueos;
+        private long bloqueoNanos;
+        private long pausaGcNanos;
+        private long sentencias;
+        private long jdbcNanos;
+        private final Map<String, Long> asignaciones = new HashMap<>();
+        private final Map<String, Long> bloqueosPorMonitor = new HashMap<>();
+        private final Map<String, Long> servicios = new HashMap<>();
+
+        private void sumar(Acumulado otro) {
+            requests += otro.requests;
+            nanos += otro.nanos;
+            bytes += otro.bytes;
+            bloqueos += otro.bloqueos;
+            bloqueoNanos += otro.bloqueoNanos;
+            pausaGcNanos += otro.pausaGcNanos;
+            sentencias += otro.sentencias;
+            jdbcNanos += otro.jdbcNanos;
+            otro.asignaciones.forEach((clave, valor) -> asignaciones.merge(clave, valor, Long::sum));
+            otro.bloqueosPorMonitor.forEach((clave, valor) -> bloqueosPorMonitor.merge(clave, valor, Long::sum));
+            otro.servicios.forEach((clave, valor) -> servicios.merge(clave, valor, Long::sum));
+        }
+
+        private PerfilEndpointDTO aDTO(String endpoint) {
+            return PerfilEndpointDTO.builder()
+                    .endpoint(endpoint)
+                    .requests(requests)
+                    .tiempoMs(nanos / 1_000_000.0)
+                    .bytesAsignados(bytes)
+                    .topAsignaciones(top(asignaciones, Function.identity()))
+                    .bloqueos(bloqueos)
+                    .bloqueoMs(bloqueoNanos / 1_000_000.0)
+                    .topBloqueos(top(bloqueosPorMonitor, valor -> valor / 1_000_000.0))
+                    .pausaGcMs(pausaGcNanos / 1_000_000.0)
+                    .sentencias(sentencias)
+                    .jdbcMs(jdbcNanos / 1_000_000.0)
+                    .servicios(top(servicios, valor -> valor / 1_000_000.0))
+                    .build();
+        }
+    }
+}
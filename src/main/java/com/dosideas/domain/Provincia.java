@@ -1,11 +1,16 @@
 package com.dosideas.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.io.Serializable;
 
 import lombok.Builder;
@@ -19,8 +24,13 @@ import lombok.Setter;
  */
 @Getter
 @Setter
-@Builder
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_provincia_cambio", columnList = "cambio"),
+    // Para los filtros de /api/provincia/buscar (ver FiltroProvincias).
+    @Index(name = "idx_provincia_nombre", columnList = "nombre"),
+    @Index(name = "idx_provincia_pais", columnList = "id_pais")
+})
 public class Provincia implements Serializable {
 /**
  * Serializable para almacenar o transmitir objetos de manera eficiente.
@@ -37,11 +47,29 @@ public class Provincia implements Serializable {
     @ManyToOne
     @JoinColumn(name = "id_pais")
     private Pais pais;
+
+    /**
+     * Número de cambio global asignado en la última alta o modificación.
+     * Permite a los clientes pedir solo lo que cambió desde su última
+     * sincronización (ver /api/provincia/cambios).
+     */
+    @JsonIgnore
+    private Long cambio;
+
+    /**
+     * Versión para el bloqueo optimista. Hibernate la incrementa en cada
+     * modificación y rechaza la escritura si otro la cambió antes. Se expone
+     * como ETag en la API REST.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
     
     // Constructores
     public Provincia() {
     }
 
+    @Builder
     public Provincia(Long id, String nombre, Pais pais) {
         this.id = id;
         this.nombre = nombre;
@@ -0,0 +1,37 @@
+package com.dosideas.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Marca ("tombstone") de una provincia eliminada. Se conserva el ID y el
+ * número de cambio de la baja, para que la sincronización incremental pueda
+ * informar a los clientes qué provincias deben borrar de su copia local.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "provincia_eliminada",
+        indexes = @Index(name = "idx_provincia_eliminada_cambio", columnList = "cambio"))
+public class ProvinciaEliminada implements Serializable {
+
+    @Id
+    private Long id;
+
+    private Long cambio;
+
+    public ProvinciaEliminada() {
+    }
+
+    public ProvinciaEliminada(Long id, Long cambio) {
+        this.id = id;
+        this.cambio = cambio;
+    }
+}
@@ -0,0 +1,37 @@
+package com.dosideas.dto;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Respuesta de la sincronización incremental de provincias: las provincias
+ * creadas o modificadas, los IDs eliminados y la nueva marca de agua que el
+ * cliente debe enviar en su próxima consulta.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+public class CambiosProvinciaDTO {
+
+    private List<ProvinciaDTO> provincias;
+    private List<Long> eliminadas;
+    private long version;
+
+    public CambiosProvinciaDTO() {
+    }
+
+    /**
+     * Construye una instancia de CambiosProvinciaDTO con los atributos especificados.
+     *
+     * @param provincias Las provincias creadas o modificadas.
+     * @param eliminadas Los IDs de las provincias eliminadas.
+     * @param version La marca de agua a usar en la próxima consulta.
+     */
+    public CambiosProvinciaDTO(List<ProvinciaDTO> provincias, List<Long> eliminadas, long version) {
+        this.provincias = provincias;
+        this.eliminadas = eliminadas;
+        this.version = version;
+    }
+}
@@ -0,0 +1,61 @@
+package com.dosideas.dto;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Los campos de {@link ProvinciaDTO} que un cliente puede pedir con
+ * "?fields=id,nombre,pais". Se devuelven siempre en este orden, sin importar
+ * el orden en que se pidieron.
+ *
+ * @author Gabriel Romero
+ */
+public enum CampoProvincia {
+
+    ID("id"),
+    NOMBRE("nombre"),
+    /** El nombre del país: es el único que necesita leer la tabla pais. */
+    PAIS("pais");
+
+    private final String nombre;
+
+    CampoProvincia(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /**
+     * @return El nombre del campo en el parámetro y en el JSON.
+     */
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Interpreta el parámetro "fields".
+     *
+     * @param campos Los nombres separados por comas (sin distinguir
+     * mayúsculas).
+     * @return Los campos pedidos, o null si el parámetro no tiene ninguno (se
+     * devuelven todos, como siempre).
+     * @throws IllegalArgumentException Si algún nombre no es un campo.
+     */
+    public static Set<CampoProvincia> leer(String campos) {
+        if (campos == null || campos.isBlank()) {
+            return null;
+        }
+        EnumSet<CampoProvincia> pedidos = EnumSet.noneOf(CampoProvincia.class);
+        for (String nombre : campos.split(",")) {
+            String buscado = nombre.trim().toLowerCase(Locale.ROOT);
+            if (buscado.isEmpty()) {
+                continue;
+            }
+            CampoProvincia campo = EnumSet.allOf(CampoProvincia.class).stream()
+                    .filter(candidato -> candidato.nombre.equals(buscado))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Campo desconocido: " + nombre.trim()));
+            pedidos.add(campo);
+        }
+        return pedidos.isEmpty() ? null : pedidos;
+    }
+}
@@ -0,0 +1,29 @@
+package com.dosideas.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Estado de un compartimento (pool de hilos de una clase de endpoints):
+ * tamaño, ocupación actual y contadores desde el arranque. Las esperas son el
+ * tiempo que pasaron las tareas en la cola antes de empezar.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+@Builder
+public class CompartimentoDTO {
+
+    private String nombre;
+    private int hilos;
+    private int cola;
+    private int activos;
+    private int enCola;
+    private long completadas;
+    private long fallidas;
+    private long rechazadas;
+    private double esperaPromedioMs;
+    private double esperaMaximaMs;
+}
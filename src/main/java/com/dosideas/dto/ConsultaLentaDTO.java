@@ -0,0 +1,23 @@
+package com.dosideas.dto;
+
+import java.time.Instant;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Una ejecución de una sentencia SQL que superó el umbral de consulta lenta.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+@Builder
+public class ConsultaLentaDTO {
+
+    private Instant instante;
+    private String sql;
+    private double duracionMs;
+    private long filas;
+    private String llamador;
+}
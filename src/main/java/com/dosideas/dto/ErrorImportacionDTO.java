@@ -0,0 +1,29 @@
+package com.dosideas.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Una fila de una importación de provincias que no se pudo importar.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+public class ErrorImportacionDTO {
+
+    private long linea;
+    private String mensaje;
+
+    public ErrorImportacionDTO() {
+    }
+
+    /**
+     * @param linea La línea del archivo donde empieza la fila.
+     * @param mensaje Por qué no se importó.
+     */
+    public ErrorImportacionDTO(long linea, String mensaje) {
+        this.linea = linea;
+        this.mensaje = mensaje;
+    }
+}
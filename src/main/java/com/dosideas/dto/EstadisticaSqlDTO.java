@@ -0,0 +1,27 @@
+package com.dosideas.dto;
+
+import java.util.Set;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Estadísticas acumuladas de una forma de sentencia SQL (la sentencia sin
+ * literales), para el reporte de consultas más costosas.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+@Builder
+public class EstadisticaSqlDTO {
+
+    private String sql;
+    private long ejecuciones;
+    private double totalMs;
+    private double promedioMs;
+    private double p99Ms;
+    private double maximoMs;
+    private long filas;
+    private Set<String> llamadores;
+}
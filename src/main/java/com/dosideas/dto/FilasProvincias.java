@@ -0,0 +1,56 @@
+package com.dosideas.dto;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import java.util.List;
+
+/**
+ * Provincias a responder, recorridas por posición: pueden venir de entidades
+ * leídas con JPA o directamente de las columnas del modelo de lectura, sin
+ * armar una Provincia por fila (ver {@link VistaProvincias}).
+ *
+ * @author Gabriel Romero
+ */
+public interface FilasProvincias {
+
+    int cantidad();
+
+    long id(int fila);
+
+    String nombre(int fila);
+
+    /**
+     * @param fila La posición de la provincia.
+     * @return El nombre de su país, o null si no tiene.
+     */
+    String nombrePais(int fila);
+
+    /**
+     * @param provincias Provincias ya leídas, con su país.
+     * @return Las mismas provincias, recorridas por posición.
+     */
+    static FilasProvincias de(List<Provincia> provincias) {
+        return new FilasProvincias() {
+            @Override
+            public int cantidad() {
+                return provincias.size();
+            }
+
+            @Override
+            public long id(int fila) {
+                return provincias.get(fila).getId();
+            }
+
+            @Override
+            public String nombre(int fila) {
+                return provincias.get(fila).getNombre();
+            }
+
+            @Override
+            public String nombrePais(int fila) {
+                Pais pais = provincias.get(fila).getPais();
+                return pais != null ? pais.getNombre() : null;
+            }
+        };
+    }
+}
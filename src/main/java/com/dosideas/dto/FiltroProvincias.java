@@ -0,0 +1,194 @@
+package com.dosideas.dto;
+
+import com.dosideas.domain.Provincia;
+import java.util.Comparator;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.ToLongFunction;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Filtro y orden de un listado de provincias (/api/provincia/buscar).
+ *
+ * Solo admite condiciones que se resuelven con un índice: el país
+ * (idx_provincia_pais), el comienzo del nombre (idx_provincia_nombre) y un
+ * rango de IDs (la clave primaria). Se exige al menos una, para que ningún
+ * filtro termine recorriendo la tabla entera; para eso está
+ * /api/provincia/todos. Un rango de IDs puede abarcar toda la tabla
+ * (idDesde=0): solo se lee en orden de la clave, cortando en el límite, así
+ * que para ordenar por nombre hace falta además el país o el prefijo.
+ *
+ * Siempre se devuelven a lo sumo {@link #getLimite()} provincias. Para
+ * seguir, con el orden por ID, se vuelve a pedir con idDesde igual al último
+ * ID recibido más uno (se pagina por la clave, sin OFFSET).
+ *
+ * Los nulos se ordenan como el menor valor: primero en orden ascendente y al
+ * final en descendente, como en MySQL y HSQLDB. Es la misma regla en la base,
+ * en el modelo de lectura y al unir fragmentos.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+public class FiltroProvincias {
+
+    public static final int LIMITE_POR_DEFECTO = 100;
+    public static final int LIMITE_MAXIMO = 1000;
+
+    private final Long idPais;
+    private final String prefijo;
+    private final Long idDesde;
+    private final Long idHasta;
+    private final Sort orden;
+    private final int limite;
+
+    private FiltroProvincias(Long idPais, String prefijo, Long idDesde, Long idHasta, Sort orden, int limite) {
+        this.idPais = idPais;
+        this.prefijo = prefijo;
+        this.idDesde = idDesde;
+        this.idHasta = idHasta;
+        this.orden = orden;
+        this.limite = limite;
+    }
+
+    /**
+     * Arma el filtro a partir de los parámetros del request.
+     *
+     * @param idPais El ID del país (opcional).
+     * @param prefijo El comienzo del nombre (opcional). Se distinguen las
+     * mayúsculas según la intercalación de la base (MySQL, por defecto, no
+     * las distingue).
+     * @param idDesde El menor ID, inclusive (opcional).
+     * @param idHasta El mayor ID, inclusive (opcional).
+     * @param orden "id" o "nombre", con "-" adelante para orden descendente
+     * (opcional; por defecto "id").
+     * @param limite La cantidad máxima de provincias, hasta
+     * {@link #LIMITE_MAXIMO} (opcional; por defecto
+     * {@link #LIMITE_POR_DEFECTO}).
+     * @return El filtro.
+     * @throws IllegalArgumentException Si no hay ninguna condición, el rango
+     * está invertido, se ordena por nombre sin país ni prefijo, o el orden o
+     * el límite no son válidos.
+     */
+    public static FiltroProvincias de(Long idPais, String prefijo, Long idDesde, Long idHasta, String orden,
+            Integer limite) {
+        String prefijoLimpio = prefijo == null || prefijo.isBlank() ? null : prefijo.trim();
+        if (idPais == null && prefijoLimpio == null && idDesde == null && idHasta == null) {
+            throw new IllegalArgumentException(
+                    "Se debe indicar al menos un filtro: pais, prefijo, idDesde o idHasta.");
+        }
+        if (idDesde != null && idHasta != null && idDesde > idHasta) {
+            throw new IllegalArgumentException("idDesde no puede ser mayor que idHasta.");
+        }
+        if (limite != null && (limite < 1 || limite > LIMITE_MAXIMO)) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + LIMITE_MAXIMO + ".");
+        }
+        Sort sort = leerOrden(orden);
+        if (sort.getOrderFor("nombre") != null && idPais == null && prefijoLimpio == null) {
+            throw new IllegalArgumentException(
+                    "Para ordenar por nombre se debe filtrar por pais o prefijo.");
+        }
+        return new FiltroProvincias(idPais, prefijoLimpio, idDesde, idHasta, sort,
+                limite != null ? limite : LIMITE_POR_DEFECTO);
+    }
+
+    private static Sort leerOrden(String orden) {
+        if (orden == null || orden.isBlank()) {
+            return Sort.by("id");
+        }
+        String propiedad = orden.trim();
+        boolean descendente = propiedad.startsWith("-");
+        if (descendente) {
+            propiedad = propiedad.substring(1);
+        }
+        if (!propiedad.equals("id") && !propiedad.equals("nombre")) {
+            throw new IllegalArgumentException("Solo se puede ordenar por id o nombre.");
+        }
+        Sort sort = Sort.by(propiedad);
+        // Con nombres repetidos, el ID desempata.
+        if (propiedad.equals("nombre")) {
+            sort = sort.and(Sort.by("id"));
+        }
+        return descendente ? sort.descending() : sort;
+    }
+
+    /**
+     * @param provincia Una provincia, con su país.
+     * @return Si cumple el filtro (el prefijo sin distinguir mayúsculas, como
+     * en MySQL).
+     */
+    public boolean acepta(Provincia provincia) {
+        return acepta(provincia.getId(), provincia.getNombre(),
+                provincia.getPais() != null ? provincia.getPais().getId() : null);
+    }
+
+    /**
+     * @param id El ID de la provincia.
+     * @param nombre Su nombre.
+     * @param idPaisProvincia El ID de su país, o null si no tiene.
+     * @return Si cumple el filtro (el prefijo sin distinguir mayúsculas, como
+     * en MySQL).
+     */
+    public boolean acepta(long id, String nombre, Long idPaisProvincia) {
+        return (idPais == null || idPais.equals(idPaisProvincia))
+                && (prefijo == null || nombre != null
+                        && nombre.regionMatches(true, 0, prefijo, 0, prefijo.length()))
+                && (idDesde == null || id >= idDesde)
+                && (idHasta == null || id <= idHasta);
+    }
+
+    /**
+     * @return El orden pedido, para ordenar provincias ya leídas.
+     */
+    public Comparator<Provincia> comparador() {
+        return comparador(Provincia::getId, Provincia::getNombre);
+    }
+
+    /**
+     * @param id Cómo obtener el ID de cada elemento.
+     * @param nombre Cómo obtener el nombre de cada elemento.
+     * @return El orden pedido, para ordenar elementos que representan
+     * provincias (por ejemplo, filas del modelo de lectura). Los nombres
+     * nulos van como el menor valor.
+     */
+    public <T> Comparator<T> comparador(ToLongFunction<T> id, Function<T, String> nombre) {
+        Comparator<T> comparador = orden.getOrderFor("nombre") != null
+                ? Comparator.comparing(nombre, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                        .thenComparingLong(id)
+                : Comparator.comparingLong(id);
+        return orden.iterator().next().isDescending() ? comparador.reversed() : comparador;
+    }
+
+    /**
+     * El mismo orden que {@link #comparador(ToLongFunction, Function)}, para
+     * elementos identificados por un int (las filas del modelo de lectura),
+     * sin convertirlos en Integer en cada comparación.
+     *
+     * @param id Cómo obtener el ID de cada fila.
+     * @param nombre Cómo obtener el nombre de cada fila.
+     * @return Negativo, cero o positivo, como {@link Comparator#compare}.
+     */
+    public IntBinaryOperator comparadorDeFilas(IntToLongFunction id, IntFunction<String> nombre) {
+        Comparator<String> porNombre = orden.getOrderFor("nombre") != null
+                ? Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)
+                : null;
+        int signo = orden.iterator().next().isDescending() ? -1 : 1;
+        return (a, b) -> {
+            int resultado = porNombre != null ? porNombre.compare(nombre.apply(a), nombre.apply(b)) : 0;
+            if (resultado == 0) {
+                resultado = Long.compare(id.applyAsLong(a), id.applyAsLong(b));
+            }
+            return signo * resultado;
+        };
+    }
+
+    /**
+     * @return Si el orden pedido es por ID ascendente.
+     */
+    public boolean ordenPorIdAscendente() {
+        Sort.Order porId = orden.getOrderFor("id");
+        return orden.toList().size() == 1 && porId != null && porId.isAscending();
+    }
+}
@@ -0,0 +1,34 @@
+package com.dosideas.dto;
+
+import java.time.Instant;
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Estado de una importación de provincias desde CSV: avance, filas
+ * importadas y filas con error.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+@Builder
+public class ImportacionDTO {
+
+    private long id;
+    private String estado;
+    private Instant inicio;
+    private Instant fin;
+    private long bytesLeidos;
+    /** -1 si el cliente no informó el tamaño. */
+    private long bytesTotales;
+    private long filasLeidas;
+    private long filasImportadas;
+    private long filasConError;
+    /** Las primeras filas con error (hasta "importacion.errores.maximo"). */
+    private List<ErrorImportacionDTO> errores;
+    /** Si la importación falló, el motivo. */
+    private String mensaje;
+}
@@ -0,0 +1,25 @@
+package com.dosideas.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Estado del modelo de lectura de provincias en memoria: cantidad de filas y
+ * memoria estimada, total y por millón de provincias.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+@Builder
+public class ModeloLecturaDTO {
+
+    private boolean listo;
+    private int provincias;
+    private int paises;
+    private int nombresDistintos;
+    private int filasSinCompactar;
+    private long bytes;
+    private long bytesPorMillonDeProvincias;
+}
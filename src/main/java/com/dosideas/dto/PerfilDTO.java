@@ -0,0 +1,24 @@
+package com.dosideas.dto;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Resumen del perfilado continuo con JFR en la ventana reciente: las pausas de
+ * GC de toda la JVM y los endpoints más costosos.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+@Builder
+public class PerfilDTO {
+
+    private long ventanaSegundos;
+    private long pausasGc;
+    private double pausaGcTotalMs;
+    private double pausaGcMaximaMs;
+    private List<PerfilEndpointDTO> endpoints;
+}
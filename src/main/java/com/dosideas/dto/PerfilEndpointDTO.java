@@ -0,0 +1,33 @@
+package com.dosideas.dto;
+
+import java.util.Map;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Lo que hizo la JVM mientras atendía un endpoint, según JFR, en la ventana
+ * reciente: tiempo en sus hilos, memoria asignada (estimada a partir de las
+ * muestras), esperas por locks, pausas de GC que lo alcanzaron y espera de
+ * JDBC. Los mapas "top" tienen los mayores aportes, de mayor a menor.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+@Builder
+public class PerfilEndpointDTO {
+
+    private String endpoint;
+    private long requests;
+    private double tiempoMs;
+    private long bytesAsignados;
+    private Map<String, Long> topAsignaciones;
+    private long bloqueos;
+    private double bloqueoMs;
+    private Map<String, Double> topBloqueos;
+    private double pausaGcMs;
+    private long sentencias;
+    private double jdbcMs;
+    private Map<String, Double> servicios;
+}
@@ -0,0 +1,28 @@
+package com.dosideas.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Resultado de una eliminación masiva de provincias.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+public class ProvinciasEliminadasDTO {
+
+    private int eliminadas;
+
+    public ProvinciasEliminadasDTO() {
+    }
+
+    /**
+     * Construye una instancia de ProvinciasEliminadasDTO.
+     *
+     * @param eliminadas La cantidad de provincias eliminadas.
+     */
+    public ProvinciasEliminadasDTO(int eliminadas) {
+        this.eliminadas = eliminadas;
+    }
+}
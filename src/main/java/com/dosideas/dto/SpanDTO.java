@@ -0,0 +1,28 @@
+package com.dosideas.dto;
+
+import java.util.Map;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Un tramo (span) de una traza: el request, una llamada a servicio o a
+ * repositorio, o la escritura del JSON. Los tiempos son relativos al inicio
+ * de la traza.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+@Builder
+public class SpanDTO {
+
+    private String id;
+    private String padre;
+    private String nombre;
+    private int profundidad;
+    private double inicioMs;
+    private double duracionMs;
+    private boolean error;
+    private Map<String, String> atributos;
+}
@@ -0,0 +1,33 @@
+package com.dosideas.dto;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Respuesta de una búsqueda por nombre sin resultados: el nombre buscado y
+ * los nombres de provincias más parecidos ("¿quisiste decir...?").
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+public class SugerenciasDTO {
+
+    private String nombre;
+    private List<String> sugerencias;
+
+    public SugerenciasDTO() {
+    }
+
+    /**
+     * Construye una instancia de SugerenciasDTO con los atributos especificados.
+     *
+     * @param nombre El nombre buscado.
+     * @param sugerencias Los nombres sugeridos.
+     */
+    public SugerenciasDTO(String nombre, List<String> sugerencias) {
+        this.nombre = nombre;
+        this.sugerencias = sugerencias;
+    }
+}
@@ -0,0 +1,31 @@
+package com.dosideas.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.Instant;
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Una traza de un request guardada en memoria. En el listado se devuelve sin
+ * los spans; al pedirla por su ID, con los spans en orden de inicio (cada uno
+ * después de su padre).
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+@Setter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TrazaDTO {
+
+    private String id;
+    private String nombre;
+    private Instant inicio;
+    private double duracionMs;
+    private boolean completa;
+    private boolean error;
+    private int cantidadSpans;
+    private List<SpanDTO> spans;
+}
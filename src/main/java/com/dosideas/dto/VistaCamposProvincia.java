@@ -0,0 +1,61 @@
+package com.dosideas.dto;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import lombok.Getter;
+
+/**
+ * Provincias con solo los campos pedidos ("?fields="): se serializan con
+ * únicamente esos campos, en el orden de {@link CampoProvincia} (ver
+ * SerializadoresJson).
+ *
+ * Las filas de una lista no se leen antes: el serializador las recorre
+ * ({@link #recorrer}) y las escribe a medida que llegan de la base.
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+public class VistaCamposProvincia {
+
+    private final Set<CampoProvincia> campos;
+    private final Consumer<Consumer<Iterator<Object[]>>> recorrido;
+    private final boolean unica;
+
+    private VistaCamposProvincia(Set<CampoProvincia> campos, Consumer<Consumer<Iterator<Object[]>>> recorrido,
+            boolean unica) {
+        this.campos = campos;
+        this.recorrido = recorrido;
+        this.unica = unica;
+    }
+
+    /**
+     * @param campos Los campos de cada fila.
+     * @param recorrido Entrega las filas a quien las escribe, por ejemplo
+     * {@code consumidor -> provinciaService.recorrerCamposDeTodas(campos, consumidor)}.
+     * @return Una vista que se serializa como arreglo.
+     */
+    public static VistaCamposProvincia lista(Set<CampoProvincia> campos,
+            Consumer<Consumer<Iterator<Object[]>>> recorrido) {
+        return new VistaCamposProvincia(campos, recorrido, false);
+    }
+
+    /**
+     * @param campos Los campos de la fila.
+     * @param fila Los valores, en el orden de los campos.
+     * @return Una vista que se serializa como un único objeto.
+     */
+    public static VistaCamposProvincia una(Set<CampoProvincia> campos, Object[] fila) {
+        return new VistaCamposProvincia(campos, consumidor -> consumidor.accept(List.<Object[]>of(fila).iterator()),
+                true);
+    }
+
+    /**
+     * @param consumidor Recorre las filas, con los valores en el orden de los
+     * campos.
+     */
+    public void recorrer(Consumer<Iterator<Object[]>> consumidor) {
+        recorrido.accept(consumidor);
+    }
+}
@@ -0,0 +1,40 @@
+package com.dosideas.dto;
+
+import com.dosideas.domain.Provincia;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Lista de provincias para responder tal cual: se serializa fila por fila
+ * desde las entidades o las columnas del modelo de lectura, con el formato
+ * de {@link ProvinciaDTO} o de {@link ProvinciaPaisDTO}, sin armar antes una
+ * lista de DTOs (ver SerializadoresJson).
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+public class VistaProvincias {
+
+    public enum Formato {
+        /** id, nombre y nombre del país, como {@link ProvinciaDTO}. */
+        CON_PAIS,
+        /** id y nombre, como {@link ProvinciaPaisDTO}. */
+        SIN_PAIS
+    }
+
+    private final FilasProvincias filas;
+    private final Formato formato;
+
+    public VistaProvincias(FilasProvincias filas, Formato formato) {
+        this.filas = filas;
+        this.formato = formato;
+    }
+
+    public VistaProvincias(List<Provincia> provincias, Formato formato) {
+        this(FilasProvincias.de(provincias), formato);
+    }
+
+    public boolean isEmpty() {
+        return filas.cantidad() == 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.dosideas.event;
+
+import com.dosideas.domain.Provincia;
+import lombok.Getter;
+
+/**
+ * Evento de dominio que describe un cambio sobre una provincia (alta,
+ * modificación o baja). Lo publica {@code ProvinciaService} y los interesados
+ * lo reciben una vez confirmada la transacción.
+ *
+ * Contiene solamente datos planos (no la entidad), de manera que pueda
+ * serializarse y enviarse a clientes sin disparar cargas perezosas. El
+ * nombre del país lo resuelve quien publica, dentro de la transacción: los
+ * listeners no consultan la base. En una modificación el país puede venir en
+ * null, lo que indica que no cambió. La
+ * versión es la que quedó confirmada (la que usa el ETag).
+ *
+ * @author Gabriel Romero
+ */
+@Getter
+public class ProvinciaEvento {
+
+    public enum Tipo {
+        CREADA, MODIFICADA, ELIMINADA
+    }
+
+    private final Tipo tipo;
+    private final Long id;
+    private final String nombre;
+    private final String pais;
+    private final Long idPais;
+    private final Long cambio;
+    private final Long version;
+
+    public ProvinciaEvento(Tipo tipo, Long id, String nombre, String pais, Long cambio) {
+        this(tipo, id, nombre, pais, null, cambio, null);
+    }
+
+    public ProvinciaEvento(Tipo tipo, Long id, String nombre, String pais, Long idPais,
+            Long cambio, Long version) {
+        this.tipo = tipo;
+        this.id = id;
+        this.nombre = nombre;
+        this.pais = pais;
+        this.idPais = idPais;
+        this.cambio = cambio;
+        this.version = version;
+    }
+
+    /**
+     * Construye el evento a partir de una provincia ya persistida.
+     *
+     * @param tipo El tipo de cambio.
+     * @param provincia La provincia afectada.
+     * @return El evento con los datos de la provincia.
+     */
+    public static ProvinciaEvento de(Tipo tipo, Provincia provincia) {
+        String nombrePais = provincia.getPais() != null ? provincia.getPais().getNombre() : null;
+        Long idPais = provincia.getPais() != null ? provincia.getPais().getId() : null;
+        return new ProvinciaEvento(tipo, provincia.getId(), provincia.getNombre(), nombrePais, idPais,
+                provincia.getCambio(), provincia.getVersion());
+    }
+
+    /**
+     * Construye el evento de baja, del cual solo se conoce el ID.
+     *
+     * @param id El ID de la provincia eliminada.
+     * @param cambio El número de cambio de la baja.
+     * @return El evento de baja.
+     */
+    public static ProvinciaEvento eliminada(Long id, Long cambio) {
+        return new ProvinciaEvento(Tipo.ELIMINADA, id, null, null, cambio);
+    }
+}
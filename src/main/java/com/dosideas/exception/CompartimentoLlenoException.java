@@ -0,0 +1,20 @@
+package com.dosideas.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando el compartimento que atiende un request tiene todos
+ * sus hilos ocupados y la cola llena.
+ *
+ * Se asocia al código de error SERVICE UNAVAILABLE (503): el cliente puede
+ * reintentar más tarde.
+ *
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class CompartimentoLlenoException extends Exception {
+
+    public CompartimentoLlenoException(String mensaje) {
+        super(mensaje);
+    }
+}
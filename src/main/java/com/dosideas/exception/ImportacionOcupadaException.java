@@ -0,0 +1,20 @@
+package com.dosideas.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando se pide una importación y ya hay tantas en curso
+ * como el máximo permitido.
+ *
+ * Se asocia al código de error SERVICE UNAVAILABLE (503): el cliente puede
+ * reintentar más tarde.
+ *
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ImportacionOcupadaException extends Exception {
+
+    public ImportacionOcupadaException(String mensaje) {
+        super(mensaje);
+    }
+}
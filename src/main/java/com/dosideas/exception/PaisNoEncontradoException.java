@@ -10,11 +10,15 @@ import org.springframework.web.bind.annotation.ResponseStatus;
  * excepción sea lanzada, se le asociará el código de error NOT_FOUND (404). De
  * esta forma el cliente verá dicho error.
  *
+ * Es un resultado esperado de la búsqueda, no una falla: no guarda la pila de
+ * llamadas (que nadie mira y es lo más caro de crear la excepción) ni admite
+ * excepciones suprimidas.
+ *
  */
 @ResponseStatus(HttpStatus.NOT_FOUND)
 public class PaisNoEncontradoException extends Exception {
 
     public PaisNoEncontradoException(String mensaje) {
-        super(mensaje);
+        super(mensaje, null, false, false);
     }
 }
@@ -0,0 +1,20 @@
+package com.dosideas.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Excepción lanzada cuando se intenta modificar una provincia con una versión
+ * que ya no es la vigente (otro usuario la modificó antes).
+ *
+ * Por medio de la anotación @ResponseStatus indicamos que, en caso de que esta
+ * excepción sea lanzada, se le asociará el código de error CONFLICT (409).
+ *
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ProvinciaConflictoException extends Exception {
+
+    public ProvinciaConflictoException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,255 @@
+package com.dosideas.fragmentacion;
+
+import com.dosideas.diagnostico.DataSourceCronometrado;
+import com.dosideas.diagnostico.EstadisticasSql;
+import com.dosideas.domain.Provincia;
+import com.dosideas.repository.PaisRepository;
+import com.dosideas.repository.ProvinciaEliminadaRepository;
+import com.dosideas.repository.ProvinciaFiltroRepositoryImpl;
+import com.dosideas.repository.ProvinciaProyeccionRepositoryImpl;
+import com.dosideas.repository.ProvinciaRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.sql.DataSource;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.PersistenceExceptionTranslationRepositoryProxyPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Configuración de la fragmentación de provincias por país. Se activa al
+ * configurar al menos un fragmento además de la base principal:
+ *
+ * <pre>
+ * fragmentacion.fragmento1.url=jdbc:mysql://otro-servidor:3306/escuelita_pnt
+ * fragmentacion.fragmento1.username=root
+ * fragmentacion.fragmento1.password=
+ * </pre>
+ *
+ * Cada fragmento tiene su pool de conexiones, su EntityManagerFactory (con
+ * las mismas propiedades de JPA que la principal) y sus repositorios, que no
+ * son beans: los beans de ProvinciaRepository y ProvinciaEliminadaRepository
+ * siguen siendo los de la base principal, envueltos para repartir cada
+ * llamada (ver {@link RepositoriosFragmentados}).
+ *
+ * Al arrancar se aplican en cada fragmento las migraciones del esquema que
+ * falten (con la configuración de Flyway de la principal, pero sin los datos
+ * iniciales), se reserva su rango de IDs y se copian los países de la base
+ * principal. Los datos iniciales quedan en la principal: como cualquier
+ * provincia cargada antes de fragmentar, están en el fragmento 0 y se
+ * encuentran por ID, no por país.
+ *
+ * @author Gabriel Romero
+ */
+@Configuration
+@ConditionalOnProperty("fragmentacion.fragmento1.url")
+public class FragmentacionConfig {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FragmentacionConfig.class);
+
+    /**
+     * Migraciones del esquema. Los datos iniciales (db/datos) no se aplican en
+     * los fragmentos.
+     */
+    private static final String MIGRACIONES_ESQUEMA = "classpath:db/migration/{vendor}";
+
+    @Bean
+    @ConditionalOnMissingBean(MapaFragmentos.class)
+    public MapaFragmentos mapaFragmentos(Environment environment) {
+        return new MapaFragmentosPorPais(environment);
+    }
+
+    // El EntityManagerFactory principal se recibe para que su esquema ya
+    // exista (migrado) al copiar los países.
+    @Bean(destroyMethod = "cerrar")
+    public Fragmentos fragmentos(Environment environment,
+            EntityManagerFactory principal,
+            JdbcTemplate jdbcTemplate,
+            EntityManagerFactoryBuilder fabricaEntityManagers,
+            JpaProperties jpaProperties,
+            HibernateProperties hibernateProperties,
+            ObjectProvider<HibernatePropertiesCustomizer> customizers,
+            ObjectProvider<EstadisticasSql> estadisticas,
+            ObjectProvider<FlywayProperties> flyway,
+            ListableBeanFactory beanFactory,
+            PaisRepository paisRepository,
+            MapaFragmentos mapa,
+            @Value("${fragmentacion.hilos:0}") int hilos) {
+        Map<String, Object> propiedades = hibernateProperties.determineHibernateProperties(
+                jpaProperties.getProperties(), new HibernateSettings()
+                        .ddlAuto(() -> "none")
+                        .hibernatePropertiesCustomizers(customizers.orderedStream().toList()));
+        List<Fragmento> adicionales = new ArrayList<>();
+        try {
+            for (int numero = 1; environment.containsProperty(prefijo(numero) + ".url"); numero++) {
+                Fragmento fragmento = crear(numero, environment, fabricaEntityManagers, propiedades,
+                        estadisticas.getObject(), flyway.getIfAvailable(), beanFactory);
+                adicionales.add(fragmento);
+                reservarIds(fragmento, environment.getProperty(prefijo(numero) + ".url"));
+                copiarPaises(jdbcTemplate, fragmento);
+            }
+        } catch (RuntimeException e) {
+            adicionales.forEach(Fragmento::cerrar);
+            throw e;
+        }
+        int cantidadHilos = hilos > 0 ? hilos : 2 * (adicionales.size() + 1);
+        LOG.info("Fragmentación habilitada: {} fragmentos", adicionales.size() + 1);
+        return new Fragmentos(adicionales, mapa, paisRepository, jdbcTemplate, cantidadHilos);
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoriosFragmentadosPostProcessor(ObjectProvider<Fragmentos> fragmentos) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nombre) {
+                MethodInterceptor enrutador = RepositoriosFragmentados.para(bean, fragmentos);
+                if (enrutador == null) {
+                    return bean;
+                }
+                // Por fuera del proxy de Spring Data: el fragmento 0 es el
+                // repositorio original, con sus transacciones y traducción
+                // de excepciones.
+                ProxyFactory proxy = new ProxyFactory(bean);
+                proxy.addAdvice(enrutador);
+                return proxy.getProxy();
+            }
+        };
+    }
+
+    private static String prefijo(int numero) {
+        return "fragmentacion.fragmento" + numero;
+    }
+
+    private static Fragmento crear(int numero, Environment environment,
+            EntityManagerFactoryBuilder fabricaEntityManagers, Map<String, Object> propiedades,
+            EstadisticasSql estadisticas, FlywayProperties flyway, ListableBeanFactory beanFactory) {
+        String prefijo = prefijo(numero);
+        HikariDataSource pool = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(environment.getRequiredProperty(prefijo + ".url"))
+                .username(environment.getProperty(prefijo + ".username"))
+                .password(environment.getProperty(prefijo + ".password"))
+                .build();
+        pool.setPoolName("fragmento-" + numero);
+        pool.setMaximumPoolSize(environment.getProperty(prefijo + ".maximo-conexiones", Integer.class, 10));
+        DataSource dataSource = new DataSourceCronometrado(pool, estadisticas);
+        try {
+            if (flyway != null) {
+                migrar(pool, pool.getJdbcUrl(), flyway);
+            }
+            LocalContainerEntityManagerFactoryBean fabrica = fabricaEntityManagers
+                    .dataSource(dataSource)
+                    .packages(Provincia.class)
+                    .persistenceUnit("fragmento" + numero)
+                    .properties(propiedades)
+                    .build();
+            fabrica.afterPropertiesSet();
+            EntityManagerFactory entityManagerFactory = fabrica.getObject();
+
+            JpaTransactionManager transacciones = new JpaTransactionManager(entityManagerFactory);
+            transacciones.afterPropertiesSet();
+
+            EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+            JpaRepositoryFactory repositorios = new JpaRepositoryFactory(entityManager);
+            repositorios.addRepositoryProxyPostProcessor(
+                    new PersistenceExceptionTranslationRepositoryProxyPostProcessor(beanFactory));
+
+            return new Fragmento(numero, dataSource, pool, fabrica, new TransactionTemplate(transacciones),
+                    repositorios.getRepository(ProvinciaRepository.class, RepositoryFragments.just(
+                            new ProvinciaProyeccionRepositoryImpl(entityManager),
+                            new ProvinciaFiltroRepositoryImpl(entityManager))),
+                    repositorios.getRepository(ProvinciaEliminadaRepository.class));
+        } catch (RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Aplica las migraciones del esquema que le falten al fragmento. Sin Flyway
+     * (spring.flyway.enabled=false) el esquema queda a cargo de ddl-auto.
+     */
+    private static void migrar(DataSource dataSource, String url, FlywayProperties flyway) {
+        String vendor = DatabaseDriver.fromJdbcUrl(url).getId();
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations(MIGRACIONES_ESQUEMA.replace("{vendor}", vendor))
+                .table(flyway.getTable())
+                .baselineOnMigrate(flyway.isBaselineOnMigrate())
+                .baselineVersion(flyway.getBaselineVersion())
+                .load()
+                .migrate();
+    }
+
+    /**
+     * Lleva el contador de IDs de provincia del fragmento al comienzo de su
+     * rango, si todavía no llegó.
+     */
+    private static void reservarIds(Fragmento fragmento, String url) {
+        JdbcTemplate jdbc = fragmento.getJdbcTemplate();
+        long inicio = ((long) fragmento.getNumero() << Fragmentos.BITS_POR_FRAGMENTO) + 1;
+        Long maximo = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM provincia", Long.class);
+        if (maximo != null && maximo >= inicio) {
+            return;
+        }
+        DatabaseDriver driver = DatabaseDriver.fromJdbcUrl(url);
+        if (driver == DatabaseDriver.MYSQL || driver == DatabaseDriver.MARIADB) {
+            jdbc.execute("ALTER TABLE provincia AUTO_INCREMENT = " + inicio);
+        } else {
+            jdbc.execute("ALTER TABLE provincia ALTER COLUMN id RESTART WITH " + inicio);
+        }
+    }
+
+    private static void copiarPaises(JdbcTemplate principal, Fragmento fragmento) {
+        List<Object[]> paises = principal.query("SELECT id, nombre FROM pais",
+                (fila, numero) -> new Object[] {fila.getLong(1), fila.getString(2)});
+        JdbcTemplate jdbc = fragmento.getJdbcTemplate();
+        Set<Long> existentes = new HashSet<>(jdbc.queryForList("SELECT id FROM pais", Long.class));
+        List<Object[]> modificados = new ArrayList<>();
+        List<Object[]> nuevos = new ArrayList<>();
+        for (Object[] pais : paises) {
+            if (existentes.contains((Long) pais[0])) {
+                modificados.add(new Object[] {pais[1], pais[0]});
+            } else {
+                nuevos.add(pais);
+            }
+        }
+        fragmento.getTransacciones().executeWithoutResult(estado -> {
+            jdbc.batchUpdate("UPDATE pais SET nombre = ? WHERE id = ?", modificados);
+            jdbc.batchUpdate("INSERT INTO pais (id, nombre) VALUES (?, ?)", nuevos);
+        });
+    }
+}
@@ -0,0 +1,155 @@
+package com.dosideas.fragmentacion;
+
+import com.dosideas.repository.ProvinciaEliminadaRepository;
+import com.dosideas.repository.ProvinciaRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.sql.SQLException;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.ConnectionHandle;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Un fragmento adicional (el 1 en adelante; el 0 es la base principal de la
+ * aplicación): su DataSource, su EntityManagerFactory y sus repositorios.
+ *
+ * @author Gabriel Romero
+ */
+class Fragmento {
+
+    private static final HibernateJpaDialect DIALECTO = new HibernateJpaDialect();
+
+    private final int numero;
+    private final DataSource dataSource;
+    private final AutoCloseable pool;
+    private final LocalContainerEntityManagerFactoryBean fabrica;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transacciones;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Class<?>, Object> repositorios;
+
+    Fragmento(int numero, DataSource dataSource, AutoCloseable pool, LocalContainerEntityManagerFactoryBean fabrica,
+            TransactionTemplate transacciones, ProvinciaRepository provincias,
+            ProvinciaEliminadaRepository eliminadas) {
+        this.numero = numero;
+        this.dataSource = dataSource;
+        this.pool = pool;
+        this.fabrica = fabrica;
+        this.entityManagerFactory = fabrica.getObject();
+        this.transacciones = transacciones;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.repositorios = Map.of(
+                ProvinciaRepository.class, provincias,
+                ProvinciaEliminadaRepository.class, eliminadas);
+    }
+
+    int getNumero() {
+        return numero;
+    }
+
+    JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    TransactionTemplate getTransacciones() {
+        return transacciones;
+    }
+
+    Object repositorio(Class<?> tipo) {
+        Object repositorio = repositorios.get(tipo);
+        if (repositorio == null) {
+            throw new IllegalArgumentException(tipo.getSimpleName() + " no está fragmentado.");
+        }
+        return repositorio;
+    }
+
+    /**
+     * Abre una transacción en este fragmento y la deja asociada al hilo, igual
+     * que JpaTransactionManager (los repositorios y el JdbcTemplate del
+     * fragmento la usan), pero sin tocar la sincronización de la transacción
+     * principal: quien la abre decide cuándo confirmarla.
+     *
+     * @param soloLectura Si la transacción principal es de solo lectura.
+     * @return La transacción abierta.
+     */
+    Transaccion abrirTransaccion(boolean soloLectura) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            ConnectionHandle conexion = DIALECTO.getJdbcConnection(entityManager, soloLectura);
+            EntityManagerHolder holder = new EntityManagerHolder(entityManager);
+            holder.setSynchronizedWithTransaction(true);
+            TransactionSynchronizationManager.bindResource(entityManagerFactory, holder);
+            TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(conexion));
+            return new Transaccion(entityManager, conexion);
+        } catch (SQLException e) {
+            entityManager.close();
+            throw new CannotCreateTransactionException(
+                    "No se pudo abrir una transacción en el fragmento " + numero, e);
+        } catch (RuntimeException e) {
+            entityManager.close();
+            throw e;
+        }
+    }
+
+    void cerrar() {
+        fabrica.destroy();
+        try {
+            pool.close();
+        } catch (Exception e) {
+            // Se está cerrando la aplicación: no hay nada más que hacer.
+        }
+    }
+
+    /**
+     * Una transacción de este fragmento abierta dentro de la transacción
+     * principal del hilo.
+     */
+    final class Transaccion {
+
+        private final EntityManager entityManager;
+        private final ConnectionHandle conexion;
+
+        private Transaccion(EntityManager entityManager, ConnectionHandle conexion) {
+            this.entityManager = entityManager;
+            this.conexion = conexion;
+        }
+
+        void flush() {
+            entityManager.flush();
+        }
+
+        void confirmar() {
+            entityManager.getTransaction().commit();
+        }
+
+        /**
+         * Descarta lo que no se haya confirmado y libera el hilo.
+         */
+        void terminar() {
+            try {
+                if (entityManager.getTransaction().isActive()) {
+                    entityManager.getTransaction().rollback();
+                }
+            } finally {
+                TransactionSynchronizationManager.unbindResourceIfPossible(dataSource);
+                TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+                try {
+                    DIALECTO.releaseJdbcConnection(conexion, entityManager);
+                } catch (SQLException e) {
+                    // La conexión se devuelve al pool al cerrar el EntityManager.
+                }
+                entityManager.close();
+            }
+        }
+    }
+}
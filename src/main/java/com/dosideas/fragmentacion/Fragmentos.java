@@ -0,0 +1,373 @@
+package com.dosideas.fragmentacion;
+
+import com.dosideas.diagnostico.AmbitoSentencias;
+import com.dosideas.diagnostico.ContadorSentencias;
+import com.dosideas.diagnostico.EtiquetasPerfil;
+import com.dosideas.repository.PaisRepository;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Las bases de datos entre las que se reparten las provincias, según el país
+ * ({@link MapaFragmentos}). El fragmento 0 es la base principal de la
+ * aplicación; los demás se configuran con "fragmentacion.fragmento&lt;n&gt;.*".
+ *
+ * Cada fragmento genera los IDs de provincia en su propio rango
+ * ([n * 2^40 + 1, (n + 1) * 2^40)), así que son únicos entre fragmentos y el
+ * ID alcanza para saber dónde está la provincia. El orden por ID es además el
+ * orden de los fragmentos.
+ *
+ * Transacciones: lo que se hace en el fragmento 0 participa de la transacción
+ * del hilo como siempre. La primera vez que una transacción usa otro
+ * fragmento, se abre en él una transacción que se confirma justo antes que la
+ * principal (o se descarta con ella). No hay commit en dos fases: si la
+ * principal falla al confirmar después de que otro fragmento confirmó, ese
+ * fragmento queda confirmado.
+ *
+ * Las consultas que abarcan varios fragmentos se ejecutan en paralelo en un
+ * pool propio, salvo en los fragmentos que la transacción actual ya modificó,
+ * que se consultan en el mismo hilo para ver esos cambios.
+ *
+ * @author Gabriel Romero
+ */
+public class Fragmentos {
+
+    public static final int BITS_POR_FRAGMENTO = 40;
+
+    private final List<Fragmento> adicionales;
+    private final MapaFragmentos mapa;
+    private final PaisRepository paisRepository;
+    private final JdbcTemplate jdbcPrincipal;
+    private final ThreadPoolExecutor hilos;
+
+    Fragmentos(List<Fragmento> adicionales, MapaFragmentos mapa, PaisRepository paisRepository,
+            JdbcTemplate jdbcPrincipal, int cantidadHilos) {
+        this.adicionales = List.copyOf(adicionales);
+        this.mapa = mapa;
+        this.paisRepository = paisRepository;
+        this.jdbcPrincipal = jdbcPrincipal;
+        AtomicInteger numero = new AtomicInteger();
+        this.hilos = new ThreadPoolExecutor(cantidadHilos, cantidadHilos, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), tarea -> {
+                    Thread hilo = new Thread(tarea, "fragmentos-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        this.hilos.allowCoreThreadTimeOut(true);
+    }
+
+    void cerrar() {
+        hilos.shutdownNow();
+        adicionales.forEach(Fragmento::cerrar);
+    }
+
+    /**
+     * @return La cantidad de fragmentos, contando la base principal.
+     */
+    public int cantidad() {
+        return adicionales.size() + 1;
+    }
+
+    /**
+     * @return Los números de todos los fragmentos, en orden.
+     */
+    public List<Integer> todos() {
+        return IntStream.range(0, cantidad()).boxed().toList();
+    }
+
+    /**
+     * @param idPais El ID del país.
+     * @return El fragmento donde se guardan las provincias del país.
+     */
+    public int dePais(long idPais) {
+        return mapa.fragmentoDe(idPais, cantidad());
+    }
+
+    /**
+     * @param id El ID de una provincia.
+     * @return El fragmento donde está. Un ID fuera de todos los rangos se
+     * busca en el principal (donde no va a estar).
+     */
+    public int deId(long id) {
+        long numero = id >>> BITS_POR_FRAGMENTO;
+        return numero < cantidad() ? (int) numero : 0;
+    }
+
+    /**
+     * @param desde El menor ID, inclusive (null: sin límite).
+     * @param hasta El mayor ID, inclusive (null: sin límite).
+     * @return Los fragmentos cuyo rango de IDs se superpone con el pedido.
+     */
+    public List<Integer> deRango(Long desde, Long hasta) {
+        List<Integer> numeros = new ArrayList<>();
+        for (int numero = 0; numero < cantidad(); numero++) {
+            long inicio = (long) numero << BITS_POR_FRAGMENTO;
+            long fin = ((long) (numero + 1) << BITS_POR_FRAGMENTO) - 1;
+            if ((desde == null || desde <= fin) && (hasta == null || hasta >= inicio)) {
+                numeros.add(numero);
+            }
+        }
+        return numeros;
+    }
+
+    /**
+     * @param nombrePais El nombre exacto de un país.
+     * @return Los fragmentos de los países con ese nombre (ninguno si no
+     * existe).
+     */
+    public List<Integer> dePaisLlamado(String nombrePais) {
+        TreeSet<Integer> numeros = new TreeSet<>();
+        for (Long idPais : paisRepository.buscarIdsPorNombre(nombrePais)) {
+            numeros.add(dePais(idPais));
+        }
+        return new ArrayList<>(numeros);
+    }
+
+    /**
+     * @param numero El número de fragmento.
+     * @return El JdbcTemplate del fragmento. Participa de la transacción del
+     * fragmento si ya se abrió con {@link #ejecutar(int, boolean, Supplier)}.
+     */
+    public JdbcTemplate jdbc(int numero) {
+        return numero == 0 ? jdbcPrincipal : fragmento(numero).getJdbcTemplate();
+    }
+
+    Object repositorio(int numero, Class<?> tipo, Object principal) {
+        return numero == 0 ? principal : fragmento(numero).repositorio(tipo);
+    }
+
+    /**
+     * Ejecuta la tarea contra un fragmento en el hilo actual. Si el hilo
+     * tiene una transacción (o un ámbito transaccional), la tarea corre en la
+     * transacción del fragmento asociada a ella; si no, las lecturas se hacen
+     * sin transacción y las escrituras en una propia.
+     *
+     * @param numero El número de fragmento.
+     * @param escritura Si la tarea modifica datos.
+     * @param tarea La tarea, que usa los repositorios o el JdbcTemplate del
+     * fragmento.
+     * @return El resultado de la tarea.
+     */
+    public <T> T ejecutar(int numero, boolean escritura, Supplier<T> tarea) {
+        if (numero == 0) {
+            return tarea.get();
+        }
+        Fragmento fragmento = fragmento(numero);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            unir(fragmento);
+            return tarea.get();
+        }
+        if (!escritura) {
+            return tarea.get();
+        }
+        return fragmento.getTransacciones().execute(estado -> tarea.get());
+    }
+
+    /**
+     * Ejecuta una lectura en cada fragmento indicado y devuelve los resultados
+     * en el mismo orden. Con un solo fragmento se ejecuta en el hilo actual.
+     *
+     * @param numeros Los fragmentos.
+     * @param tarea La lectura, según el número de fragmento.
+     * @return Un resultado por fragmento.
+     */
+    <T> List<T> enTodos(List<Integer> numeros, IntFunction<T> tarea) {
+        if (numeros.size() == 1) {
+            int numero = numeros.get(0);
+            return List.of(ejecutar(numero, false, () -> tarea.apply(numero)));
+        }
+        boolean enTransaccion = TransactionSynchronizationManager.isActualTransactionActive();
+        Map<Integer, Fragmento.Transaccion> unidas = transaccionesUnidas();
+        AmbitoSentencias ambito = ContadorSentencias.actual();
+        String endpoint = EtiquetasPerfil.endpoint();
+        String servicio = EtiquetasPerfil.servicio();
+        Context contexto = Context.current();
+
+        List<Future<T>> enParalelo = new ArrayList<>();
+        // Cada tarea cuenta sus sentencias aparte (el ámbito lo usa un hilo a
+        // la vez); se suman en este hilo cuando terminan.
+        List<AmbitoSentencias> separados = new ArrayList<>();
+        for (int numero : numeros) {
+            boolean enEsteHilo = numero == 0 ? enTransaccion : unidas != null && unidas.containsKey(numero);
+            AmbitoSentencias separado = enEsteHilo || ambito == null ? null : ambito.separado();
+            separados.add(separado);
+            enParalelo.add(enEsteHilo ? null : hilos.submit(() -> {
+                AmbitoSentencias anterior = ContadorSentencias.continuar(separado);
+                try (Scope scope = contexto.makeCurrent();
+                        EtiquetasPerfil.Tramo tramo = EtiquetasPerfil.continuar(endpoint, servicio)) {
+                    return ejecutar(numero, false, () -> tarea.apply(numero));
+                } finally {
+                    ContadorSentencias.restaurar(anterior);
+                }
+            }));
+        }
+
+        List<T> resultados = new ArrayList<>(numeros.size());
+        for (int i = 0; i < numeros.size(); i++) {
+            int numero = numeros.get(i);
+            resultados.add(enParalelo.get(i) == null
+                    ? ejecutar(numero, false, () -> tarea.apply(numero))
+                    : esperar(enParalelo.get(i)));
+            if (separados.get(i) != null) {
+                ambito.sumar(separados.get(i));
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Une los streams de cada fragmento en orden, abriendo cada uno recién
+     * cuando se terminó de leer el anterior. Como los rangos de IDs siguen el
+     * orden de los fragmentos, si cada stream viene ordenado por ID el
+     * resultado también.
+     *
+     * @param numeros Los fragmentos.
+     * @param tarea La consulta, según el número de fragmento.
+     * @return El stream unido; al cerrarlo se cierran los abiertos.
+     */
+    <T> Stream<T> concatenar(List<Integer> numeros, IntFunction<Stream<T>> tarea) {
+        List<Stream<T>> abiertos = new ArrayList<>();
+        Iterator<T> iterador = new Iterator<>() {
+
+            private int siguiente;
+            private Iterator<T> actual;
+
+            @Override
+            public boolean hasNext() {
+                while (actual == null || !actual.hasNext()) {
+                    if (siguiente == numeros.size()) {
+                        return false;
+                    }
+                    int numero = numeros.get(siguiente++);
+                    Stream<T> stream = ejecutar(numero, false, () -> tarea.apply(numero));
+                    abiertos.add(stream);
+                    actual = stream.iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return actual.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterador, Spliterator.ORDERED), false)
+                .onClose(() -> abiertos.forEach(Stream::close));
+    }
+
+    /**
+     * Baja a la base los cambios pendientes de los fragmentos adicionales que
+     * usa la transacción actual.
+     */
+    void flush() {
+        Map<Integer, Fragmento.Transaccion> unidas = transaccionesUnidas();
+        if (unidas != null) {
+            unidas.values().forEach(Fragmento.Transaccion::flush);
+        }
+    }
+
+    /**
+     * Copia (o actualiza) un país en los fragmentos adicionales, con el mismo
+     * ID: las provincias de cada fragmento lo referencian.
+     *
+     * @param id El ID del país.
+     * @param nombre Su nombre.
+     */
+    public void replicarPais(long id, String nombre) {
+        for (Fragmento fragmento : adicionales) {
+            ejecutar(fragmento.getNumero(), true, () -> {
+                JdbcTemplate jdbc = fragmento.getJdbcTemplate();
+                if (jdbc.update("UPDATE pais SET nombre = ? WHERE id = ?", nombre, id) == 0) {
+                    jdbc.update("INSERT INTO pais (id, nombre) VALUES (?, ?)", id, nombre);
+                }
+                return null;
+            });
+        }
+    }
+
+    private Fragmento fragmento(int numero) {
+        if (numero < 1 || numero > adicionales.size()) {
+            throw new IllegalArgumentException("No existe el fragmento " + numero);
+        }
+        return adicionales.get(numero - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Integer, Fragmento.Transaccion> transaccionesUnidas() {
+        return (Map<Integer, Fragmento.Transaccion>) TransactionSynchronizationManager.getResource(this);
+    }
+
+    /**
+     * Abre la transacción del fragmento asociada a la del hilo, si todavía no
+     * la tiene.
+     */
+    private void unir(Fragmento fragmento) {
+        Map<Integer, Fragmento.Transaccion> unidas = transaccionesUnidas();
+        if (unidas == null) {
+            Map<Integer, Fragmento.Transaccion> nuevas = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(this, nuevas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    nuevas.values().forEach(Fragmento.Transaccion::confirmar);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(Fragmentos.this);
+                    nuevas.values().forEach(Fragmento.Transaccion::terminar);
+                }
+            });
+            unidas = nuevas;
+        }
+        if (!unidas.containsKey(fragmento.getNumero())) {
+            unidas.put(fragmento.getNumero(),
+                    fragmento.abrirTransaccion(TransactionSynchronizationManager.isCurrentTransactionReadOnly()));
+        }
+    }
+
+    private static <T> T esperar(Future<T> resultado) {
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultado.cancel(true);
+            throw new IllegalStateException("Consulta a los fragmentos interrumpida.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.dosideas.fragmentacion;
+
+/**
+ * Decide en qué fragmento (base de datos) viven las provincias de cada país.
+ *
+ * Para usar otro criterio basta con declarar un bean que implemente esta
+ * interfaz; si no hay ninguno se usa {@link MapaFragmentosPorPais}. Cambiar
+ * el mapa no mueve las provincias existentes: siguen en el fragmento que
+ * indica su ID (ver {@link Fragmentos#deId(long)}).
+ *
+ * @author Gabriel Romero
+ */
+public interface MapaFragmentos {
+
+    /**
+     * @param idPais El ID del país.
+     * @param cantidad La cantidad de fragmentos configurados.
+     * @return El número de fragmento, entre 0 y cantidad - 1.
+     */
+    int fragmentoDe(long idPais, int cantidad);
+}
@@ -0,0 +1,32 @@
+package com.dosideas.fragmentacion;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.core.env.Environment;
+
+/**
+ * Mapa por defecto: el fragmento indicado en "fragmentacion.paises.&lt;id&gt;"
+ * si el país tiene uno asignado (por ejemplo, para dejar solo un país muy
+ * grande), o el ID del país módulo la cantidad de fragmentos.
+ *
+ * @author Gabriel Romero
+ */
+public class MapaFragmentosPorPais implements MapaFragmentos {
+
+    private final Environment environment;
+    private final Map<Long, Integer> asignados = new ConcurrentHashMap<>();
+
+    public MapaFragmentosPorPais(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public int fragmentoDe(long idPais, int cantidad) {
+        int asignado = asignados.computeIfAbsent(idPais,
+                id -> environment.getProperty("fragmentacion.paises." + id, Integer.class, -1));
+        if (asignado >= 0 && asignado < cantidad) {
+            return asignado;
+        }
+        return (int) Math.floorMod(idPais, (long) cantidad);
+    }
+}
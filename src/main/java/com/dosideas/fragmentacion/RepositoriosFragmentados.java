@@ -0,0 +1,384 @@
+package com.dosideas.fragmentacion;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.FiltroProvincias;
+import com.dosideas.repository.PaisRepository;
+import com.dosideas.repository.ProvinciaEliminadaRepository;
+import com.dosideas.repository.ProvinciaRepository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Los interceptores que reparten las llamadas a los repositorios de
+ * provincias entre los {@link Fragmentos}, y el que copia los países a todos.
+ *
+ * Las operaciones sobre una provincia van al fragmento de su ID (o de su
+ * país, si es nueva); las búsquedas generales se hacen en todos los
+ * fragmentos y se unen; los conteos y máximos se combinan. Un método que no
+ * sabe enrutar lanza UnsupportedOperationException en lugar de consultar
+ * solo la base principal.
+ *
+ * @author Gabriel Romero
+ */
+final class RepositoriosFragmentados {
+
+    private RepositoriosFragmentados() {
+    }
+
+    /**
+     * @param bean Un bean cualquiera.
+     * @param fragmentos Los fragmentos (se resuelven en la primera llamada).
+     * @return El interceptor para el bean, o null si no es un repositorio
+     * afectado por la fragmentación.
+     */
+    static MethodInterceptor para(Object bean, ObjectProvider<Fragmentos> fragmentos) {
+        if (bean instanceof ProvinciaRepository) {
+            return new Provincias(fragmentos);
+        }
+        if (bean instanceof ProvinciaEliminadaRepository) {
+            return new Eliminadas(fragmentos);
+        }
+        if (bean instanceof PaisRepository) {
+            return new ReplicadorPaises(fragmentos);
+        }
+        return null;
+    }
+
+    /**
+     * Base de los interceptores de repositorios fragmentados. El bean
+     * interceptado (el repositorio de Spring Data de la base principal) es el
+     * fragmento 0.
+     */
+    private abstract static class Enrutador implements MethodInterceptor {
+
+        private final Class<?> tipo;
+        private final ObjectProvider<Fragmentos> fragmentos;
+
+        private Enrutador(Class<?> tipo, ObjectProvider<Fragmentos> fragmentos) {
+            this.tipo = tipo;
+            this.fragmentos = fragmentos;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocacion) throws Throwable {
+            if (invocacion.getMethod().getDeclaringClass() == Object.class) {
+                return invocacion.proceed();
+            }
+            return enrutar(new Llamada(fragmentos.getObject(), tipo, invocacion));
+        }
+
+        abstract Object enrutar(Llamada llamada);
+
+        UnsupportedOperationException noSoportado(Llamada llamada) {
+            return new UnsupportedOperationException(tipo.getSimpleName() + "." + llamada.metodo.getName()
+                    + " no está soportado con la fragmentación habilitada.");
+        }
+    }
+
+    private static final class Provincias extends Enrutador {
+
+        private Provincias(ObjectProvider<Fragmentos> fragmentos) {
+            super(ProvinciaRepository.class, fragmentos);
+        }
+
+        @Override
+        Object enrutar(Llamada llamada) {
+            Fragmentos fragmentos = llamada.fragmentos;
+            Object[] argumentos = llamada.argumentos;
+            switch (llamada.metodo.getName()) {
+                case "save":
+                    Provincia provincia = (Provincia) argumentos[0];
+                    return llamada.en(provincia.getId() == null
+                            ? dePais(fragmentos, provincia.getPais())
+                            : fragmentos.deId(provincia.getId()), true);
+                case "findById":
+                case "existsById":
+                case "buscarCamposPorId":
+                case "getReferenceById":
+                    return llamada.en(fragmentos.deId((Long) argumentos[0]), false);
+                case "deleteById":
+                case "actualizarNombreSiVersion":
+                    return llamada.en(fragmentos.deId((Long) argumentos[0]), true);
+                case "eliminarPorPais":
+                    return llamada.en(fragmentos.dePais((Long) argumentos[0]), true);
+                case "eliminarPorIds":
+                    return llamada.porIds();
+                case "flush":
+                    llamada.en(0, false);
+                    fragmentos.flush();
+                    return null;
+                case "count":
+                    return llamada.<Long>enTodos().stream().mapToLong(Long::longValue).sum();
+                case "buscarUltimoCambio":
+                    return llamada.<Long>enTodos().stream().mapToLong(Long::longValue).max().orElse(0);
+                case "findByNombrePais":
+                    return llamada.unir(fragmentos.dePaisLlamado((String) argumentos[0]));
+                case "findAll":
+                    if (argumentos.length > 0) {
+                        throw noSoportado(llamada);
+                    }
+                    return llamada.unir(fragmentos.todos());
+                case "findByNombreIgnoreCase":
+                case "buscarProvinciasPorNombreILike":
+                case "buscarTodasConPais":
+                    return llamada.unir(fragmentos.todos());
+                case "buscarConFiltro":
+                    FiltroProvincias filtro = (FiltroProvincias) argumentos[0];
+                    List<Integer> numeros = filtro.getIdPais() != null
+                            ? List.of(fragmentos.dePais(filtro.getIdPais()))
+                            : fragmentos.deRango(filtro.getIdDesde(), filtro.getIdHasta());
+                    List<Provincia> filtradas = llamada.unir(numeros);
+                    if (numeros.size() > 1) {
+                        filtradas.sort(filtro.comparador());
+                        // Cada fragmento trajo hasta el límite: quedan las primeras.
+                        if (filtradas.size() > filtro.getLimite()) {
+                            filtradas.subList(filtro.getLimite(), filtradas.size()).clear();
+                        }
+                    }
+                    return filtradas;
+                case "buscarCambiosEntre":
+                    List<Provincia> cambios = llamada.unir(fragmentos.todos());
+                    cambios.sort(Comparator.comparing(Provincia::getCambio));
+                    return cambios;
+                case "buscarPaginaConPais":
+                    return pagina(llamada, (Pageable) argumentos[0]);
+                case "buscarTodasComoDTO":
+                case "buscarIdsYNombres":
+                case "buscarFilasPlanas":
+                case "buscarCampos":
+                    return fragmentos.concatenar(fragmentos.todos(), llamada::<Stream<?>>invocar);
+                default:
+                    throw noSoportado(llamada);
+            }
+        }
+
+        private static int dePais(Fragmentos fragmentos, Pais pais) {
+            return pais == null || pais.getId() == null ? 0 : fragmentos.dePais(pais.getId());
+        }
+
+        /**
+         * Pide a cada fragmento las primeras offset + size provincias en el
+         * orden pedido, las ordena juntas y corta la página. El costo crece con
+         * el número de página: las páginas profundas conviene recorrerlas con
+         * /api/provincia/todos.
+         */
+        private static Page<Provincia> pagina(Llamada llamada, Pageable pageable) {
+            if (pageable.isUnpaged()) {
+                return new PageImpl<>(llamada.unir(llamada.fragmentos.todos()));
+            }
+            Pageable primeras = PageRequest.of(0, (int) pageable.getOffset() + pageable.getPageSize(),
+                    pageable.getSort());
+            List<Page<Provincia>> paginas = llamada.enTodos(new Object[] {primeras});
+            List<Provincia> todas = new ArrayList<>();
+            long total = 0;
+            for (Page<Provincia> pagina : paginas) {
+                todas.addAll(pagina.getContent());
+                total += pagina.getTotalElements();
+            }
+            todas.sort(comparador(pageable.getSort()));
+            int desde = (int) Math.min(pageable.getOffset(), todas.size());
+            int hasta = Math.min(desde + pageable.getPageSize(), todas.size());
+            return new PageImpl<>(new ArrayList<>(todas.subList(desde, hasta)), pageable, total);
+        }
+
+        private static Comparator<Object> comparador(Sort orden) {
+            Comparator<Object> comparador = (a, b) -> 0;
+            for (Sort.Order propiedad : orden) {
+                comparador = comparador.thenComparing((a, b) -> comparar(a, b, propiedad));
+            }
+            return comparador;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static int comparar(Object a, Object b, Sort.Order orden) {
+            Object valorA = valor(a, orden.getProperty());
+            Object valorB = valor(b, orden.getProperty());
+            int resultado;
+            if (valorA == null || valorB == null) {
+                // Los nulos como el menor valor, como en la base (ver FiltroProvincias).
+                resultado = valorA == valorB ? 0 : valorA == null ? -1 : 1;
+            } else if (orden.isIgnoreCase() && valorA instanceof String textoA) {
+                resultado = textoA.compareToIgnoreCase((String) valorB);
+            } else {
+                resultado = ((Comparable) valorA).compareTo(valorB);
+            }
+            return orden.isAscending() ? resultado : -resultado;
+        }
+
+        private static Object valor(Object objeto, String propiedad) {
+            try {
+                return new BeanWrapperImpl(objeto).getPropertyValue(propiedad);
+            } catch (NullValueInNestedPathException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class Eliminadas extends Enrutador {
+
+        private Eliminadas(ObjectProvider<Fragmentos> fragmentos) {
+            super(ProvinciaEliminadaRepository.class, fragmentos);
+        }
+
+        @Override
+        Object enrutar(Llamada llamada) {
+            Fragmentos fragmentos = llamada.fragmentos;
+            switch (llamada.metodo.getName()) {
+                case "registrarPorIds":
+                    return llamada.porIds();
+                case "registrarPorPais":
+                    return llamada.en(fragmentos.dePais((Long) llamada.argumentos[0]), true);
+                case "buscarIdsPorCambio":
+                case "buscarIdsEntre":
+                case "buscarEntre":
+                    // Ordenados por cambio dentro de cada fragmento.
+                    return llamada.unir(fragmentos.todos());
+                case "buscarUltimoCambio":
+                    return llamada.<Long>enTodos().stream().mapToLong(Long::longValue).max().orElse(0);
+                default:
+                    throw noSoportado(llamada);
+            }
+        }
+    }
+
+    /**
+     * Los países son datos de referencia: viven en la base principal y cada
+     * alta o modificación se copia, con el mismo ID, a los demás fragmentos.
+     * Las bajas no se copian (las provincias de otros fragmentos pueden
+     * seguir referenciándolos).
+     */
+    private static final class ReplicadorPaises implements MethodInterceptor {
+
+        private final ObjectProvider<Fragmentos> fragmentos;
+
+        private ReplicadorPaises(ObjectProvider<Fragmentos> fragmentos) {
+            this.fragmentos = fragmentos;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocacion) throws Throwable {
+            Object resultado = invocacion.proceed();
+            if (invocacion.getMethod().getName().startsWith("save")) {
+                if (resultado instanceof Pais pais) {
+                    replicar(pais);
+                } else if (resultado instanceof Collection<?> paises) {
+                    paises.forEach(pais -> replicar((Pais) pais));
+                }
+            }
+            return resultado;
+        }
+
+        private void replicar(Pais pais) {
+            fragmentos.getObject().replicarPais(pais.getId(), pais.getNombre());
+        }
+    }
+
+    /**
+     * Una llamada a un repositorio fragmentado, para repetirla en uno o más
+     * fragmentos.
+     */
+    private static final class Llamada {
+
+        private final Fragmentos fragmentos;
+        private final Class<?> tipo;
+        private final Object primario;
+        private final Method metodo;
+        private final Object[] argumentos;
+
+        private Llamada(Fragmentos fragmentos, Class<?> tipo, MethodInvocation invocacion) {
+            this.fragmentos = fragmentos;
+            this.tipo = tipo;
+            this.primario = invocacion.getThis();
+            this.metodo = invocacion.getMethod();
+            this.argumentos = invocacion.getArguments();
+        }
+
+        private Object en(int numero, boolean escritura) {
+            return en(numero, escritura, argumentos);
+        }
+
+        private Object en(int numero, boolean escritura, Object[] conArgumentos) {
+            return fragmentos.ejecutar(numero, escritura, () -> invocar(numero, conArgumentos));
+        }
+
+        private <T> List<T> enTodos() {
+            return enTodos(argumentos);
+        }
+
+        private <T> List<T> enTodos(Object[] conArgumentos) {
+            return fragmentos.enTodos(fragmentos.todos(), numero -> invocar(numero, conArgumentos));
+        }
+
+        /**
+         * Ejecuta la consulta en los fragmentos indicados y une las listas en
+         * orden de fragmento.
+         */
+        private <T> List<T> unir(List<Integer> numeros) {
+            List<T> resultado = new ArrayList<>();
+            for (List<T> parte : fragmentos.<List<T>>enTodos(numeros, this::invocar)) {
+                resultado.addAll(parte);
+            }
+            return resultado;
+        }
+
+        /**
+         * Reparte la colección de IDs del primer argumento según su fragmento
+         * y suma las filas afectadas.
+         */
+        private int porIds() {
+            Map<Integer, List<Long>> porFragmento = new TreeMap<>();
+            for (Object id : (Collection<?>) argumentos[0]) {
+                porFragmento.computeIfAbsent(fragmentos.deId((Long) id), numero -> new ArrayList<>())
+                        .add((Long) id);
+            }
+            int total = 0;
+            for (Map.Entry<Integer, List<Long>> parte : porFragmento.entrySet()) {
+                Object[] conArgumentos = argumentos.clone();
+                conArgumentos[0] = parte.getValue();
+                total += (Integer) en(parte.getKey(), true, conArgumentos);
+            }
+            return total;
+        }
+
+        private <T> T invocar(int numero) {
+            return invocar(numero, argumentos);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T invocar(int numero, Object[] conArgumentos) {
+            try {
+                return (T) metodo.invoke(fragmentos.repositorio(numero, tipo, primario), conArgumentos);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException causa) {
+                    throw causa;
+                }
+                if (e.getCause() instanceof Error causa) {
+                    throw causa;
+                }
+                throw new UndeclaredThrowableException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.dosideas.repository;
+
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.FiltroProvincias;
+
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Las condiciones de {@link FiltroProvincias} como Specifications de Spring
+ * Data, una por columna indexada.
+ *
+ * Los valores se pasan como parámetros (nunca como literales en el SQL), así
+ * que cada combinación de condiciones genera siempre la misma sentencia: el
+ * driver reutiliza la sentencia preparada y la base su plan de ejecución.
+ *
+ * @author Gabriel Romero
+ */
+public final class EspecificacionesProvincia {
+
+    private EspecificacionesProvincia() {
+    }
+
+    /**
+     * @param filtro El filtro.
+     * @return La conjunción de las condiciones presentes, trayendo el país en
+     * la misma consulta.
+     */
+    public static Specification<Provincia> de(FiltroProvincias filtro) {
+        Specification<Provincia> especificacion = conPais();
+        if (filtro.getIdPais() != null) {
+            especificacion = especificacion.and(dePais(filtro.getIdPais()));
+        }
+        if (filtro.getPrefijo() != null) {
+            especificacion = especificacion.and(nombreEmpiezaCon(filtro.getPrefijo()));
+        }
+        if (filtro.getIdDesde() != null) {
+            especificacion = especificacion.and(idDesde(filtro.getIdDesde()));
+        }
+        if (filtro.getIdHasta() != null) {
+            especificacion = especificacion.and(idHasta(filtro.getIdHasta()));
+        }
+        return especificacion;
+    }
+
+    /**
+     * Trae el país con un JOIN, para no hacer una consulta por país.
+     */
+    static Specification<Provincia> conPais() {
+        return (provincia, consulta, criterios) -> {
+            if (consulta.getResultType() == Provincia.class) {
+                provincia.fetch("pais", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
+    static Specification<Provincia> dePais(Long idPais) {
+        return (provincia, consulta, criterios) -> criterios.equal(provincia.get("pais").get("id"), idPais);
+    }
+
+    /**
+     * LIKE 'prefijo%': usa el índice del nombre (un comodín al principio no
+     * podría). Los comodines del prefijo se escapan.
+     */
+    static Specification<Provincia> nombreEmpiezaCon(String prefijo) {
+        String patron = prefijo.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (provincia, consulta, criterios) -> criterios.like(provincia.get("nombre"), patron, '\\');
+    }
+
+    static Specification<Provincia> idDesde(Long id) {
+        return (provincia, consulta, criterios) -> criterios.greaterThanOrEqualTo(provincia.get("id"), id);
+    }
+
+    static Specification<Provincia> idHasta(Long id) {
+        return (provincia, consulta, criterios) -> criterios.lessThanOrEqualTo(provincia.get("id"), id);
+    }
+}
@@ -1,7 +1,13 @@
 package com.dosideas.repository;
 
 import com.dosideas.domain.Pais;
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /** Este es una interfaz de acceso a datos, que utiliza Spring Data para
@@ -12,4 +18,21 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface PaisRepository extends JpaRepository<Pais, Long> {
 
+    /**
+     * Recorre todos los países en orden de ID leyendo del cursor de a poco. Los
+     * países se construyen con "new", así que no quedan en el contexto de
+     * persistencia. Debe consumirse dentro de una transacción y cerrarse.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT new com.dosideas.domain.Pais(p.id, p.nombre) FROM Pais p ORDER BY p.id")
+    Stream<Pais> buscarTodosEnStream();
+
+    /**
+     * Busca los IDs de los países con el nombre exacto indicado.
+     *
+     * @param nombre El nombre del país.
+     * @return Los IDs encontrados (normalmente uno).
+     */
+    @Query("SELECT p.id FROM Pais p WHERE p.nombre = :nombre")
+    List<Long> buscarIdsPorNombre(@Param("nombre") String nombre);
 }
@@ -0,0 +1,85 @@
+package com.dosideas.repository;
+
+import com.dosideas.domain.ProvinciaEliminada;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio de las marcas de provincias eliminadas.
+ *
+ * @author Gabriel Romero
+ */
+@Repository
+public interface ProvinciaEliminadaRepository extends JpaRepository<ProvinciaEliminada, Long> {
+
+    /**
+     * Registra la baja de las provincias indicadas que existan, con un único
+     * INSERT ... SELECT. Debe ejecutarse antes de borrarlas.
+     *
+     * @param ids Los IDs de las provincias a eliminar.
+     * @param cambio El número de cambio de la baja.
+     * @return La cantidad de marcas registradas.
+     */
+    @Modifying
+    @Query("INSERT INTO ProvinciaEliminada (id, cambio) "
+            + "SELECT p.id, :cambio FROM Provincia p WHERE p.id IN :ids")
+    int registrarPorIds(@Param("ids") Collection<Long> ids, @Param("cambio") Long cambio);
+
+    /**
+     * Registra la baja de todas las provincias de un país, con un único
+     * INSERT ... SELECT. Debe ejecutarse antes de borrarlas.
+     *
+     * @param idPais El ID del país.
+     * @param cambio El número de cambio de la baja.
+     * @return La cantidad de marcas registradas.
+     */
+    @Modifying
+    @Query("INSERT INTO ProvinciaEliminada (id, cambio) "
+            + "SELECT p.id, :cambio FROM Provincia p WHERE p.pais.id = :idPais")
+    int registrarPorPais(@Param("idPais") Long idPais, @Param("cambio") Long cambio);
+
+    /**
+     * Busca los IDs dados de baja con un número de cambio dado (una misma
+     * baja masiva comparte el número).
+     *
+     * @param cambio El número de cambio de la baja.
+     * @return Los IDs de las provincias eliminadas.
+     */
+    @Query("SELECT e.id FROM ProvinciaEliminada e WHERE e.cambio = :cambio")
+    List<Long> buscarIdsPorCambio(@Param("cambio") long cambio);
+
+    /**
+     * Busca los IDs eliminados en el rango de cambios (desde, hasta]. Usa el
+     * índice sobre la columna cambio.
+     *
+     * @param desde Número de cambio exclusivo desde el cual buscar.
+     * @param hasta Número de cambio inclusivo hasta el cual buscar.
+     * @return Los IDs de las provincias eliminadas en el rango.
+     */
+    @Query("SELECT e.id FROM ProvinciaEliminada e WHERE e.cambio > :desde AND e.cambio <= :hasta ORDER BY e.cambio")
+    List<Long> buscarIdsEntre(@Param("desde") long desde, @Param("hasta") long hasta);
+
+    /**
+     * Busca las marcas de baja en el rango de cambios (desde, hasta], con su
+     * número de cambio.
+     *
+     * @param desde Número de cambio exclusivo desde el cual buscar.
+     * @param hasta Número de cambio inclusivo hasta el cual buscar.
+     * @return Las marcas de baja en el rango.
+     */
+    @Query("SELECT e FROM ProvinciaEliminada e WHERE e.cambio > :desde AND e.cambio <= :hasta ORDER BY e.cambio")
+    List<ProvinciaEliminada> buscarEntre(@Param("desde") long desde, @Param("hasta") long hasta);
+
+    /**
+     * @return El mayor número de cambio registrado, o 0 si no hay bajas.
+     */
+    @Query("SELECT COALESCE(MAX(e.cambio), 0) FROM ProvinciaEliminada e")
+    long buscarUltimoCambio();
+}
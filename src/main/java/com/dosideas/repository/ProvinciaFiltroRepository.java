@@ -0,0 +1,29 @@
+package com.dosideas.repository;
+
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.FiltroProvincias;
+
+import java.util.List;
+
+/**
+ * Búsqueda de provincias por {@link FiltroProvincias}. Es un fragmento de
+ * {@link ProvinciaRepository} implementado a mano para pedir solo las filas
+ * del límite, sin la consulta COUNT que agrega Spring Data a una página.
+ *
+ * @author Gabriel Romero
+ */
+public interface ProvinciaFiltroRepository {
+
+    /**
+     * Busca las provincias que cumplen el filtro, en el orden pedido, junto
+     * con su país. Todas las condiciones usan un índice (ver
+     * {@link EspecificacionesProvincia}).
+     *
+     * Se traen a lo sumo las del límite del filtro (LIMIT en el SQL), en una
+     * sola consulta.
+     *
+     * @param filtro El filtro, el orden y el límite.
+     * @return Las provincias encontradas.
+     */
+    List<Provincia> buscarConFiltro(FiltroProvincias filtro);
+}
@@ -0,0 +1,43 @@
+package com.dosideas.repository;
+
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.FiltroProvincias;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.util.List;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+/**
+ * Arma la consulta con las Specifications del filtro y el orden pedido, y le
+ * pone el límite con setMaxResults: a diferencia de findAll(Specification,
+ * Pageable), no cuenta el total, que nadie lee.
+ *
+ * @author Gabriel Romero
+ */
+public class ProvinciaFiltroRepositoryImpl implements ProvinciaFiltroRepository {
+
+    private final EntityManager entityManager;
+
+    public ProvinciaFiltroRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Provincia> buscarConFiltro(FiltroProvincias filtro) {
+        CriteriaBuilder criterios = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Provincia> consulta = criterios.createQuery(Provincia.class);
+        Root<Provincia> provincia = consulta.from(Provincia.class);
+        Predicate condicion = EspecificacionesProvincia.de(filtro).toPredicate(provincia, consulta, criterios);
+        if (condicion != null) {
+            consulta.where(condicion);
+        }
+        consulta.select(provincia).orderBy(QueryUtils.toOrders(filtro.getOrden(), provincia, criterios));
+        return entityManager.createQuery(consulta)
+                .setMaxResults(filtro.getLimite())
+                .getResultList();
+    }
+}
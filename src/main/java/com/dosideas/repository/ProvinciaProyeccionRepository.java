@@ -0,0 +1,34 @@
+package com.dosideas.repository;
+
+import com.dosideas.dto.CampoProvincia;
+
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Consultas de provincias que traen solo algunos campos (ver
+ * {@link CampoProvincia}). Es un fragmento de {@link ProvinciaRepository}
+ * implementado a mano, porque la consulta depende de los campos pedidos.
+ *
+ * Cada fila es un arreglo con los valores de los campos en el orden de
+ * {@link CampoProvincia}.
+ *
+ * @author Gabriel Romero
+ */
+public interface ProvinciaProyeccionRepository {
+
+    /**
+     * @param campos Los campos a traer (al menos uno).
+     * @return Las filas de todas las provincias, en orden de ID, a medida que
+     * se leen de la base. Hay que recorrerlo dentro de una transacción y
+     * cerrarlo.
+     */
+    Stream<Object[]> buscarCampos(Set<CampoProvincia> campos);
+
+    /**
+     * @param id El ID de la provincia.
+     * @param campos Los campos a traer (al menos uno).
+     * @return La fila de la provincia, o null si no existe.
+     */
+    Object[] buscarCamposPorId(Long id, Set<CampoProvincia> campos);
+}
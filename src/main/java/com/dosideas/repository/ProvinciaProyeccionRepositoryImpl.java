@@ -0,0 +1,73 @@
+package com.dosideas.repository;
+
+import com.dosideas.dto.CampoProvincia;
+
+import jakarta.persistence.EntityManager;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Arma la consulta JPQL de cada combinación de campos con solo las columnas
+ * pedidas, y sin el JOIN a pais si no se pidió el país. El texto de cada
+ * combinación se arma una sola vez y se guarda; como siempre es el mismo
+ * String, Hibernate también reutiliza la consulta ya interpretada (su caché
+ * de planes se indexa por el texto).
+ *
+ * @author Gabriel Romero
+ */
+public class ProvinciaProyeccionRepositoryImpl implements ProvinciaProyeccionRepository {
+
+    private final EntityManager entityManager;
+    private final Map<Set<CampoProvincia>, String> listados = new ConcurrentHashMap<>();
+    private final Map<Set<CampoProvincia>, String> porId = new ConcurrentHashMap<>();
+
+    public ProvinciaProyeccionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Stream<Object[]> buscarCampos(Set<CampoProvincia> campos) {
+        String consulta = listados.computeIfAbsent(EnumSet.copyOf(campos),
+                pedidos -> jpql(pedidos) + " ORDER BY p.id");
+        Stream<?> resultado = entityManager.createQuery(consulta)
+                .setHint("org.hibernate.fetchSize", 500)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream();
+        return resultado.map(ProvinciaProyeccionRepositoryImpl::aFila);
+    }
+
+    @Override
+    public Object[] buscarCamposPorId(Long id, Set<CampoProvincia> campos) {
+        String consulta = porId.computeIfAbsent(EnumSet.copyOf(campos),
+                pedidos -> jpql(pedidos) + " WHERE p.id = :id");
+        List<?> resultado = entityManager.createQuery(consulta)
+                .setParameter("id", id)
+                .getResultList();
+        return resultado.isEmpty() ? null : aFila(resultado.get(0));
+    }
+
+    private static String jpql(Set<CampoProvincia> campos) {
+        StringJoiner columnas = new StringJoiner(", ", "SELECT ", " FROM Provincia p");
+        for (CampoProvincia campo : campos) {
+            columnas.add(switch (campo) {
+                case ID -> "p.id";
+                case NOMBRE -> "p.nombre";
+                case PAIS -> "pa.nombre";
+            });
+        }
+        String consulta = columnas.toString();
+        return campos.contains(CampoProvincia.PAIS) ? consulta + " LEFT JOIN p.pais pa" : consulta;
+    }
+
+    /**
+     * Con un solo campo, Hibernate devuelve el valor en lugar de un arreglo.
+     */
+    private static Object[] aFila(Object fila) {
+        return fila instanceof Object[] valores ? valores : new Object[] {fila};
+    }
+}
@@ -1,13 +1,23 @@
 package com.dosideas.repository;
 
 import com.dosideas.domain.Provincia;
+import com.dosideas.dto.ProvinciaDTO;
+import jakarta.persistence.QueryHint;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repositorio para la entidad Provincia.
@@ -16,14 +26,19 @@ import java.util.List;
  */
 //Introspeccion //a
 @Repository
-public interface ProvinciaRepository extends JpaRepository<Provincia, Long> {
+public interface ProvinciaRepository extends JpaRepository<Provincia, Long>, JpaSpecificationExecutor<Provincia>,
+        ProvinciaProyeccionRepository, ProvinciaFiltroRepository {
     /**
      * Busca provincias por el nombre completo utilizando Query Method.
      * CaseInsensitive
      *
+     * Trae el país en la misma consulta, para no hacer una consulta más por
+     * cada país distinto.
+     *
      * @param nombre El nombre de la provincia.
      * @return La lista de provincias encontradas.
      */
+    @EntityGraph(attributePaths = "pais")
     List<Provincia> findByNombreIgnoreCase(String nombre);
 
     /**
@@ -32,7 +47,7 @@ public interface ProvinciaRepository extends JpaRepository<Provincia, Long> {
      * @param nombrePais El nombre del país.
      * @return La lista de provincias encontradas.
      */
-    @Query("SELECT p FROM Provincia p WHERE p.pais.nombre = :nombrePais")
+    @Query("SELECT p FROM Provincia p JOIN FETCH p.pais pa WHERE pa.nombre = :nombrePais")
     List<Provincia> findByNombrePais(@Param("nombrePais") String nombrePais);
 
     /**
@@ -41,6 +56,122 @@ public interface ProvinciaRepository extends JpaRepository<Provincia, Long> {
      * @param nombre El nombre de la provincia.
      * @return La lista de provincias encontradas.
      */
-    @Query("SELECT p FROM Provincia p WHERE p.nombre ILIKE %:nombre%")
+    @Query("SELECT p FROM Provincia p LEFT JOIN FETCH p.pais WHERE p.nombre ILIKE %:nombre%")
     List<Provincia> buscarProvinciasPorNombreILike(@Param("nombre") String nombre);
+
+    /**
+     * Busca las provincias dadas de alta o modificadas en el rango de cambios
+     * (desde, hasta]. Es un recorrido por rango sobre el índice de la columna
+     * cambio, por lo que el costo depende de la cantidad de cambios y no del
+     * tamaño de la tabla. Trae el país en la misma consulta.
+     *
+     * @param desde Número de cambio exclusivo desde el cual buscar.
+     * @param hasta Número de cambio inclusivo hasta el cual buscar.
+     * @return Las provincias cambiadas, ordenadas por número de cambio.
+     */
+    @Query("SELECT p FROM Provincia p LEFT JOIN FETCH p.pais "
+            + "WHERE p.cambio > :desde AND p.cambio <= :hasta ORDER BY p.cambio")
+    List<Provincia> buscarCambiosEntre(@Param("desde") long desde, @Param("hasta") long hasta);
+
+    /**
+     * Trae todas las provincias junto con su país en una sola consulta.
+     *
+     * @return La lista completa de provincias.
+     */
+    @Query("SELECT p FROM Provincia p LEFT JOIN FETCH p.pais")
+    List<Provincia> buscarTodasConPais();
+
+    /**
+     * @return El mayor número de cambio registrado, o 0 si no hay ninguno.
+     */
+    @Query("SELECT COALESCE(MAX(p.cambio), 0) FROM Provincia p")
+    long buscarUltimoCambio();
+
+    /**
+     * Modifica el nombre de una provincia solo si su versión sigue siendo la
+     * indicada, en una única sentencia UPDATE (sin leer la fila antes).
+     *
+     * @param id El ID de la provincia.
+     * @param nombre El nuevo nombre.
+     * @param version La versión que el cliente leyó.
+     * @param cambio El número de cambio a registrar.
+     * @return 1 si se modificó, 0 si no existe o la versión no coincide.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Provincia p SET p.nombre = :nombre, p.cambio = :cambio, p.version = p.version + 1 "
+            + "WHERE p.id = :id AND p.version = :version")
+    int actualizarNombreSiVersion(@Param("id") Long id, @Param("nombre") String nombre,
+            @Param("version") Long version, @Param("cambio") Long cambio);
+
+    /**
+     * Elimina las provincias indicadas con un único DELETE, sin cargarlas.
+     *
+     * @param ids Los IDs de las provincias a eliminar.
+     * @return La cantidad de provincias eliminadas.
+     */
+    @Modifying
+    @Query("DELETE FROM Provincia p WHERE p.id IN :ids")
+    int eliminarPorIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Elimina todas las provincias de un país con un único DELETE, sin
+     * cargarlas.
+     *
+     * @param idPais El ID del país.
+     * @return La cantidad de provincias eliminadas.
+     */
+    @Modifying
+    @Query("DELETE FROM Provincia p WHERE p.pais.id = :idPais")
+    int eliminarPorPais(@Param("idPais") Long idPais);
+
+    /**
+     * Trae una página de provincias junto con su país en una sola consulta
+     * (más la consulta de conteo).
+     *
+     * @param pageable La página y el orden pedidos.
+     * @return La página de provincias.
+     */
+    @Query(value = "SELECT p FROM Provincia p LEFT JOIN FETCH p.pais",
+            countQuery = "SELECT COUNT(p) FROM Provincia p")
+    Page<Provincia> buscarPaginaConPais(Pageable pageable);
+
+    /**
+     * Recorre todas las provincias con el nombre de su país, en orden de ID,
+     * leyendo del cursor de a poco. Las filas se proyectan a DTOs, que no
+     * quedan en el contexto de persistencia, así que la memoria usada no crece
+     * con la cantidad de provincias.
+     *
+     * Debe consumirse dentro de una transacción y cerrarse al terminar.
+     *
+     * @return El stream de provincias.
+     */
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT new com.dosideas.dto.ProvinciaDTO(p.id, p.nombre, pa.nombre) "
+            + "FROM Provincia p LEFT JOIN p.pais pa ORDER BY p.id")
+    Stream<ProvinciaDTO> buscarTodasComoDTO();
+
+    /**
+     * Recorre el ID y el nombre de todas las provincias, sin construir
+     * entidades. Debe consumirse dentro de una transacción y cerrarse.
+     *
+     * @return El stream de pares [id, nombre].
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT p.id, p.nombre FROM Provincia p")
+    Stream<Object[]> buscarIdsYNombres();
+
+    /**
+     * Recorre todas las provincias como filas planas [id, nombre, version,
+     * id del país, nombre del país], en orden de ID y sin construir entidades.
+     * Debe consumirse dentro de una transacción y cerrarse.
+     *
+     * @return El stream de filas.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT p.id, p.nombre, p.version, pa.id, pa.nombre "
+            + "FROM Provincia p LEFT JOIN p.pais pa ORDER BY p.id")
+    Stream<Object[]> buscarFilasPlanas();
 }
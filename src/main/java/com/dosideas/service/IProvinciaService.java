@@ -1,7 +1,19 @@
 package com.dosideas.service;
 
+import com.dosideas.domain.Pais;
 import com.dosideas.domain.Provincia;
+import com.dosideas.dto.CambiosProvinciaDTO;
+import com.dosideas.dto.CampoProvincia;
+import com.dosideas.dto.FilasProvincias;
+import com.dosideas.dto.FiltroProvincias;
+import com.dosideas.dto.ProvinciaDTO;
+import com.dosideas.exception.ProvinciaConflictoException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 /**
  * Interfaz que define los servicios relacionados con la entidad Provincia.
@@ -18,6 +30,17 @@ public interface IProvinciaService {
      */
     Provincia buscarPorId(long id);
 
+    /**
+     * Busca solo algunos campos de una provincia. Si no se pide el país, no
+     * se lee la tabla pais.
+     *
+     * @param id El ID de la provincia a buscar.
+     * @param campos Los campos a traer.
+     * @return Los valores, en el orden de {@link CampoProvincia}, o null si no
+     * se encuentra.
+     */
+    Object[] buscarCamposPorId(long id, Set<CampoProvincia> campos);
+
     /**
      * Guarda una provincia.
      *
@@ -41,6 +64,15 @@ public interface IProvinciaService {
      * @return La lista de provincias encontradas.
      */
     List<Provincia> buscarProvinciasPorNombreExacto(String nombre);
+
+    /**
+     * Sugiere nombres de provincias parecidos al dado, para cuando la búsqueda
+     * exacta no encuentra nada. Se resuelve en memoria, sin consultar la base.
+     *
+     * @param nombre El nombre buscado (posiblemente mal escrito).
+     * @return Los nombres más parecidos, del más al menos parecido.
+     */
+    List<String> sugerirNombres(String nombre);
     
     /**
      * Busca provincias por su nombre exacto.
@@ -49,18 +81,100 @@ public interface IProvinciaService {
      * @return La lista de provincias encontradas.
      */
     Provincia modificarProvincia(Provincia provincia);
+
+    /**
+     * Modifica el nombre de una provincia con bloqueo optimista, en una sola
+     * sentencia condicionada a la versión. La provincia no se vuelve a leer.
+     *
+     * @param id El ID de la provincia a modificar.
+     * @param nombre El nuevo nombre.
+     * @param version La versión que el cliente leyó.
+     * @param pais El país que informó el cliente, para la respuesta (no se
+     * modifica); puede ser null.
+     * @return La provincia con el nombre y la versión nuevos, o null si no
+     * existe. El país es el informado o, si no hay, el del modelo de lectura.
+     * @throws ProvinciaConflictoException si la versión ya no es la vigente.
+     */
+    Provincia modificarNombre(long id, String nombre, long version, Pais pais)
+            throws ProvinciaConflictoException;
     
     /**
-     * Busca provincias por su nombre exacto.
+     * Elimina una provincia por su ID.
      *
      * @param id provincia a eliminar en la BD
+     * @return 1 si se eliminó, 0 si no existía.
+     */
+    int eliminarProvincia(long id);
+
+    /**
+     * Elimina varias provincias con sentencias masivas, sin cargarlas.
+     *
+     * @param ids Los IDs de las provincias a eliminar.
+     * @return La cantidad de provincias eliminadas.
+     */
+    int eliminarProvincias(List<Long> ids);
+
+    /**
+     * Elimina todas las provincias de un país con sentencias masivas, sin
+     * cargarlas.
+     *
+     * @param idPais El ID del país.
+     * @return La cantidad de provincias eliminadas.
      */
-    void eliminarProvincia(long id);
+    int eliminarProvinciasDePais(long idPais);
     
     /**
      * Devuelve Todas las provincias.
      *
-     * @return La lista de provincias creadas.
+     * @return Las provincias creadas, con el nombre de su país.
+     */
+    FilasProvincias buscarTodasLasProvincias();
+
+    /**
+     * Entrega al consumidor solo algunos campos de todas las provincias, a
+     * medida que se leen de la base (o del modelo de lectura). Si no se pide
+     * el país, no se lee la tabla pais. El cursor queda abierto mientras el
+     * consumidor recorre el iterador.
+     *
+     * @param campos Los campos a traer.
+     * @param consumidor Recorre una fila por provincia, con los valores en el
+     * orden de {@link CampoProvincia}.
+     */
+    void recorrerCamposDeTodas(Set<CampoProvincia> campos, Consumer<Iterator<Object[]>> consumidor);
+
+    /**
+     * Busca las provincias que cumplen un filtro, en el orden pedido.
+     *
+     * @param filtro El filtro (solo condiciones que usan un índice), el orden
+     * y el límite.
+     * @return Las primeras provincias encontradas, hasta el límite, con el
+     * nombre de su país.
+     */
+    FilasProvincias buscarConFiltro(FiltroProvincias filtro);
+
+    /**
+     * Devuelve una página de provincias, con su país ya cargado.
+     *
+     * @param pageable La página, su tamaño y el orden.
+     * @return La página de provincias.
+     */
+    Page<Provincia> buscarPaginaDeProvincias(Pageable pageable);
+
+    /**
+     * Entrega al consumidor todas las provincias, con el nombre de su país, a
+     * medida que se leen de la base. El cursor queda abierto mientras el
+     * consumidor recorre el iterador.
+     *
+     * @param consumidor Recorre las provincias, por ejemplo para renderizarlas.
+     */
+    void recorrerProvincias(Consumer<Iterator<ProvinciaDTO>> consumidor);
+
+    /**
+     * Devuelve los cambios de provincias posteriores a una versión dada. Con
+     * desde = 0 devuelve todas las provincias.
+     *
+     * @param desde La versión (número de cambio) de la última sincronización.
+     * @return Las provincias cambiadas, los IDs eliminados y la nueva versión.
      */
-    List<Provincia> buscarTodasLasProvincias();
+    CambiosProvinciaDTO buscarCambiosDesde(long desde);
 }
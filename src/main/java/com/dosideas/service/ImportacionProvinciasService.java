@@ -0,0 +1,440 @@
+package com.dosideas.service;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.ErrorImportacionDTO;
+import com.dosideas.dto.ImportacionDTO;
+import com.dosideas.event.ProvinciaEvento;
+import com.dosideas.exception.ImportacionOcupadaException;
+import com.dosideas.fragmentacion.Fragmentos;
+import com.dosideas.repository.PaisRepository;
+import com.dosideas.repository.ProvinciaRepository;
+
+import jakarta.annotation.PreDestroy;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Importa provincias desde un CSV (nombre,pais) sin cargar el archivo en
+ * memoria.
+ *
+ * El hilo del request lee y valida las filas (con las mismas reglas que
+ * {@link ProvinciaService}) y arma lotes; un hilo consumidor los inserta, cada
+ * lote en su propia transacción con un INSERT por lotes de JDBC. Entre ambos
+ * hay una cola acotada: si la base va más lenta que el upload, el hilo del
+ * request se frena y deja de leer el cuerpo. Los países se resuelven con un
+ * mapa armado con una sola consulta al empezar (sin distinguir mayúsculas);
+ * una fila sin país o con un país desconocido se informa como error.
+ *
+ * Cada lote usa un único número de cambio y publica un {@link ProvinciaEvento}
+ * por provincia creada, igual que un alta individual. Si un lote falla, la
+ * importación termina como FALLIDA y los lotes ya confirmados quedan.
+ *
+ * Con la fragmentación habilitada cada lote se reparte según el fragmento del
+ * país de cada provincia.
+ *
+ * El estado de cada importación (en curso o de las últimas terminadas) se
+ * consulta por su ID mientras avanza.
+ *
+ * @author Gabriel Romero
+ */
+@Service
+public class ImportacionProvinciasService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportacionProvinciasService.class);
+
+    private static final String INSERT =
+            "INSERT INTO provincia (nombre, id_pais, cambio, version) VALUES (?, ?, ?, 0)";
+    private static final int IMPORTACIONES_GUARDADAS = 50;
+
+    // Marca el fin de la entrada en la cola (se compara por identidad).
+    private static final List<Provincia> FIN = new ArrayList<>(0);
+
+    private final PaisRepository paisRepository;
+    private final ProvinciaRepository provinciaRepository;
+    private final RelojCambios relojCambios;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Fragmentos fragmentos;
+    private final int tamanioLote;
+    private final int lotesEnCola;
+    private final int maximoErrores;
+    private final ThreadPoolExecutor consumidores;
+
+    private final AtomicLong secuencia = new AtomicLong();
+    private final Map<Long, Importacion> importaciones = Collections.synchronizedMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Importacion> mayor) {
+                    return size() > IMPORTACIONES_GUARDADAS;
+                }
+            });
+
+    public ImportacionProvinciasService(PaisRepository paisRepository,
+            ProvinciaRepository provinciaRepository,
+            RelojCambios relojCambios,
+            ApplicationEventPublisher eventPublisher,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectProvider<Fragmentos> fragmentos,
+            @Value("${importacion.lote:500}") int tamanioLote,
+            @Value("${importacion.cola:4}") int lotesEnCola,
+            @Value("${importacion.errores.maximo:100}") int maximoErrores,
+            @Value("${importacion.concurrentes:2}") int concurrentes) {
+        this.paisRepository = paisRepository;
+        this.provinciaRepository = provinciaRepository;
+        this.relojCambios = relojCambios;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fragmentos = fragmentos.getIfAvailable();
+        this.tamanioLote = tamanioLote;
+        this.lotesEnCola = lotesEnCola;
+        this.maximoErrores = maximoErrores;
+        AtomicInteger hilos = new AtomicInteger();
+        // Sin cola: si ya hay "concurrentes" importaciones, se rechaza.
+        this.consumidores = new ThreadPoolExecutor(0, concurrentes, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), tarea -> {
+                    Thread hilo = new Thread(tarea, "importacion-provincias-" + hilos.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        consumidores.shutdownNow();
+    }
+
+    /**
+     * Importa las provincias del CSV a medida que se lee. Vuelve cuando se
+     * terminó de leer y de insertar.
+     *
+     * @param csv El contenido, en UTF-8. Puede empezar con el encabezado
+     * "nombre,pais".
+     * @param bytesTotales El tamaño del contenido, o -1 si no se conoce (solo
+     * para informar el avance).
+     * @return El estado final de la importación (FALLIDA si no se pudo leer
+     * el CSV o insertar un lote).
+     * @throws ImportacionOcupadaException Si ya hay demasiadas importaciones en
+     * curso.
+     */
+    public ImportacionDTO importar(InputStream csv, long bytesTotales) throws ImportacionOcupadaException {
+        Importacion importacion = new Importacion(secuencia.incrementAndGet(), bytesTotales);
+        BlockingQueue<List<Provincia>> cola = new ArrayBlockingQueue<>(lotesEnCola);
+        Future<?> consumidor;
+        try {
+            consumidor = consumidores.submit(() -> consumir(cola, importacion));
+        } catch (RejectedExecutionException e) {
+            throw new ImportacionOcupadaException("Hay demasiadas importaciones en curso; reintente más tarde.");
+        }
+        importaciones.put(importacion.id, importacion);
+        LOG.info("Importación {} iniciada", importacion.id);
+        try {
+            producir(new Contador(csv, importacion.bytesLeidos), cola, importacion);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Importación {}: falló la lectura del CSV", importacion.id, e);
+            importacion.fallar("Error leyendo el CSV: " + e.getMessage());
+        } finally {
+            poner(cola, FIN, importacion);
+            esperar(consumidor, importacion);
+        }
+        LOG.info("Importación {} terminada: {} filas importadas, {} con error", importacion.id,
+                importacion.importadas.get(), importacion.conError.get());
+        return importacion.aDTO();
+    }
+
+    /**
+     * @param id El ID de la importación.
+     * @return Su estado, o null si no existe (o ya se descartó).
+     */
+    public ImportacionDTO buscarPorId(long id) {
+        Importacion importacion = importaciones.get(id);
+        return importacion == null ? null : importacion.aDTO();
+    }
+
+    /**
+     * @return Las importaciones en curso y las últimas terminadas, de la más
+     * nueva a la más vieja.
+     */
+    public List<ImportacionDTO> buscarTodas() {
+        List<ImportacionDTO> resultado = new ArrayList<>();
+        synchronized (importaciones) {
+            importaciones.values().forEach(importacion -> resultado.add(importacion.aDTO()));
+        }
+        Collections.reverse(resultado);
+        return resultado;
+    }
+
+    private void producir(InputStream csv, BlockingQueue<List<Provincia>> cola, Importacion importacion)
+            throws IOException {
+        Map<String, Pais> paises = new HashMap<>();
+        for (Pais pais : paisRepository.findAll()) {
+            paises.putIfAbsent(clave(pais.getNombre()), pais);
+        }
+        LectorCsv lector = new LectorCsv(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        List<Provincia> lote = new ArrayList<>(tamanioLote);
+        List<String> campos;
+        boolean primera = true;
+        while ((campos = lector.siguiente()) != null && !importacion.fallo()) {
+            boolean encabezado = primera && campos.get(0).trim().equalsIgnoreCase("nombre");
+            primera = false;
+            if (encabezado || (campos.size() == 1 && campos.get(0).isBlank())) {
+                continue;
+            }
+            importacion.leidas.incrementAndGet();
+            try {
+                lote.add(aProvincia(campos, paises));
+            } catch (IllegalArgumentException e) {
+                importacion.error(lector.getLinea(), e.getMessage());
+                continue;
+            }
+            if (lote.size() == tamanioLote) {
+                if (!poner(cola, lote, importacion)) {
+                    return;
+                }
+                lote = new ArrayList<>(tamanioLote);
+            }
+        }
+        if (!lote.isEmpty()) {
+            poner(cola, lote, importacion);
+        }
+    }
+
+    private Provincia aProvincia(List<String> campos, Map<String, Pais> paises) {
+        if (campos.size() > 2) {
+            throw new IllegalArgumentException("Se esperaban 2 columnas (nombre,pais) y hay " + campos.size() + ".");
+        }
+        Provincia provincia = new Provincia(null, campos.get(0).trim(), null);
+        ProvinciaService.validarProvincia(provincia);
+        String nombrePais = campos.size() > 1 ? campos.get(1).trim() : "";
+        if (nombrePais.isEmpty()) {
+            throw new IllegalArgumentException("Falta el país.");
+        }
+        Pais pais = paises.get(clave(nombrePais));
+        if (pais == null) {
+            throw new IllegalArgumentException("No existe el país \"" + nombrePais + "\".");
+        }
+        provincia.setPais(pais);
+        return provincia;
+    }
+
+    /**
+     * Encola un lote, esperando si la cola está llena.
+     *
+     * @return false si la importación falló mientras esperaba.
+     */
+    private boolean poner(BlockingQueue<List<Provincia>> cola, List<Provincia> lote, Importacion importacion) {
+        try {
+            while (!cola.offer(lote, 100, TimeUnit.MILLISECONDS)) {
+                if (importacion.fallo()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            importacion.fallar("Importación interrumpida.");
+            return false;
+        }
+    }
+
+    private void consumir(BlockingQueue<List<Provincia>> cola, Importacion importacion) {
+        try {
+            // Si la lectura falló, el fin puede no llegar: se deja de esperar.
+            while (!importacion.fallo()) {
+                List<Provincia> lote = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (lote == FIN) {
+                    return;
+                }
+                if (lote != null) {
+                    insertar(lote);
+                    importacion.importadas.addAndGet(lote.size());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            importacion.fallar("Importación interrumpida.");
+        } catch (RuntimeException e) {
+            LOG.warn("Importación {}: falló la inserción de un lote", importacion.id, e);
+            importacion.fallar("Error insertando un lote: " + e.getMessage());
+        }
+    }
+
+    private void insertar(List<Provincia> lote) {
+        transactionTemplate.executeWithoutResult(estado -> {
+            long cambio = relojCambios.siguiente();
+            if (fragmentos == null) {
+                insertar(jdbcTemplate, lote, cambio);
+            } else {
+                Map<Integer, List<Provincia>> porFragmento = new TreeMap<>();
+                for (Provincia provincia : lote) {
+                    porFragmento.computeIfAbsent(fragmentos.dePais(provincia.getPais().getId()),
+                            numero -> new ArrayList<>()).add(provincia);
+                }
+                porFragmento.forEach((numero, parte) -> fragmentos.ejecutar(numero, true, () -> {
+                    insertar(fragmentos.jdbc(numero), parte, cambio);
+                    return null;
+                }));
+            }
+            // Los IDs los genera la base: se leen por el número de cambio del lote.
+            for (Provincia creada : provinciaRepository.buscarCambiosEntre(cambio - 1, cambio)) {
+                eventPublisher.publishEvent(ProvinciaEvento.de(ProvinciaEvento.Tipo.CREADA, creada));
+            }
+        });
+    }
+
+    private static void insertar(JdbcTemplate jdbc, List<Provincia> lote, long cambio) {
+        jdbc.batchUpdate(INSERT, lote, lote.size(), (sentencia, provincia) -> {
+            sentencia.setString(1, provincia.getNombre());
+            sentencia.setLong(2, provincia.getPais().getId());
+            sentencia.setLong(3, cambio);
+        });
+    }
+
+    private void esperar(Future<?> consumidor, Importacion importacion) {
+        try {
+            consumidor.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            consumidor.cancel(true);
+            importacion.fallar("Importación interrumpida.");
+        } catch (ExecutionException e) {
+            importacion.fallar(e.getCause().getMessage());
+        } finally {
+            importacion.terminar();
+        }
+    }
+
+    private static String clave(String nombre) {
+        return nombre == null ? "" : nombre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Estado de una importación. Lo actualizan el hilo del request y el
+     * consumidor, y lo leen los que consultan el avance.
+     */
+    private final class Importacion {
+
+        private final long id;
+        private final long bytesTotales;
+        private final Instant inicio = Instant.now();
+        private final AtomicLong bytesLeidos = new AtomicLong();
+        private final AtomicLong leidas = new AtomicLong();
+        private final AtomicLong importadas = new AtomicLong();
+        private final AtomicLong conError = new AtomicLong();
+        private final List<ErrorImportacionDTO> errores = Collections.synchronizedList(new ArrayList<>());
+        private volatile String mensajeFalla;
+        private volatile Instant fin;
+
+        private Importacion(long id, long bytesTotales) {
+            this.id = id;
+            this.bytesTotales = bytesTotales;
+        }
+
+        private void error(long linea, String mensaje) {
+            if (conError.incrementAndGet() <= maximoErrores) {
+                errores.add(new ErrorImportacionDTO(linea, mensaje));
+            }
+        }
+
+        private synchronized void fallar(String mensaje) {
+            if (mensajeFalla == null) {
+                mensajeFalla = mensaje;
+            }
+        }
+
+        private boolean fallo() {
+            return mensajeFalla != null;
+        }
+
+        private void terminar() {
+            fin = Instant.now();
+        }
+
+        private ImportacionDTO aDTO() {
+            String estado = fin == null ? "EN_CURSO" : fallo() ? "FALLIDA" : "TERMINADA";
+            List<ErrorImportacionDTO> copia;
+            synchronized (errores) {
+                copia = new ArrayList<>(errores);
+            }
+            return ImportacionDTO.builder()
+                    .id(id)
+                    .estado(estado)
+                    .inicio(inicio)
+                    .fin(fin)
+                    .bytesLeidos(bytesLeidos.get())
+                    .bytesTotales(bytesTotales)
+                    .filasLeidas(leidas.get())
+                    .filasImportadas(importadas.get())
+                    .filasConError(conError.get())
+                    .errores(copia)
+                    .mensaje(mensajeFalla)
+                    .build();
+        }
+    }
+
+    /**
+     * Cuenta los bytes leídos del cuerpo, para informar el avance.
+     */
+    private static final class Contador extends FilterInputStream {
+
+        private final AtomicLong bytes;
+
+        private Contador(InputStream entrada, AtomicLong bytes) {
+            super(entrada);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int leido = super.read();
+            if (leido >= 0) {
+                bytes.incrementAndGet();
+            }
+            return leido;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int largo) throws IOException {
+            int leidos = super.read(destino, desde, largo);
+            if (leidos > 0) {
+                bytes.addAndGet(leidos);
+            }
+            return leidos;
+        }
+    }
+}
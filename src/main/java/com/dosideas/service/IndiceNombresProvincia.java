@@ -0,0 +1,355 @@
+package com.dosideas.service;
+
+import com.dosideas.event.ProvinciaEvento;
+import com.dosideas.repository.ProvinciaRepository;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Índice en memoria de los nombres de provincias, para sugerir nombres
+ * parecidos cuando una búsqueda por nombre no encuentra nada ("¿quisiste
+ * decir...?").
+ *
+ * Los nombres se normalizan (minúsculas, sin tildes ni espacios de más) y se
+ * guardan en un BK-tree por distancia de Levenshtein, que permite encontrar
+ * los nombres a distancia k o menos sin comparar contra todos. Por cada nombre
+ * se lleva la cantidad de provincias que lo usan, y por cada provincia el
+ * nombre que tiene, para aplicar modificaciones y bajas que solo traen el ID.
+ *
+ * Se carga de la base una vez que la aplicación está lista y después se
+ * mantiene con los {@link ProvinciaEvento} confirmados, sin volver a consultar.
+ * Hasta que termina la carga, {@link #estaCargado()} devuelve false.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+public class IndiceNombresProvincia {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndiceNombresProvincia.class);
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    private final ProvinciaRepository provinciaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int distanciaMaxima;
+    private final int maximoSugerencias;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Los nombres se identifican por su posición en estas listas.
+    private final List<String> normalizados = new ArrayList<>();
+    private final List<String> visibles = new ArrayList<>();
+    private int[] usos = new int[64];
+    private final Map<String, Integer> posiciones = new HashMap<>();
+    private final MapaLongInt nombrePorProvincia = new MapaLongInt(1024);
+
+    private Nodo raiz;
+    private int sinUso;
+    private volatile boolean cargado;
+    // Provincias cambiadas por eventos mientras se cargaba: la carga no las pisa.
+    private Set<Long> cambiadasDuranteLaCarga = new HashSet<>();
+
+    public IndiceNombresProvincia(ProvinciaRepository provinciaRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${provincia.sugerencias.distancia:2}") int distanciaMaxima,
+            @Value("${provincia.sugerencias.maximo:5}") int maximoSugerencias) {
+        this.provinciaRepository = provinciaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.distanciaMaxima = distanciaMaxima;
+        this.maximoSugerencias = maximoSugerencias;
+    }
+
+    /**
+     * Carga el índice cuando la aplicación terminó de arrancar (y de correr sus
+     * ApplicationRunner, que pueden insertar datos).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        long inicio = System.nanoTime();
+        transactionTemplate.executeWithoutResult(estado -> {
+            try (Stream<Object[]> filas = provinciaRepository.buscarIdsYNombres()) {
+                filas.forEach(fila -> {
+                    lock.writeLock().lock();
+                    try {
+                        long id = ((Number) fila[0]).longValue();
+                        if (!cambiadasDuranteLaCarga.contains(id)) {
+                            asignar(id, (String) fila[1]);
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                });
+            }
+        });
+        lock.writeLock().lock();
+        try {
+            cambiadasDuranteLaCarga = null;
+            cargado = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOG.info("Índice de nombres de provincias cargado: {} provincias, {} nombres distintos en {} ms",
+                nombrePorProvincia.cantidad(), normalizados.size() - sinUso,
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Aplica un cambio confirmado.
+     *
+     * @param evento El cambio.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aplicar(ProvinciaEvento evento) {
+        lock.writeLock().lock();
+        try {
+            if (cambiadasDuranteLaCarga != null) {
+                cambiadasDuranteLaCarga.add(evento.getId());
+            }
+            if (evento.getTipo() == ProvinciaEvento.Tipo.ELIMINADA) {
+                liberar(nombrePorProvincia.quitar(evento.getId()));
+            } else if (evento.getNombre() != null) {
+                asignar(evento.getId(), evento.getNombre());
+            }
+            if (sinUso > 1024 && sinUso > normalizados.size() / 2) {
+                reconstruirArbol();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true si el índice ya refleja todas las provincias de la base.
+     */
+    public boolean estaCargado() {
+        return cargado;
+    }
+
+    /**
+     * Indica si alguna provincia tiene este nombre, sin distinguir mayúsculas
+     * ni tildes. Solo es confiable si {@link #estaCargado()}.
+     *
+     * @param nombre El nombre buscado.
+     * @return true si el nombre existe.
+     */
+    public boolean contiene(String nombre) {
+        lock.readLock().lock();
+        try {
+            Integer posicion = posiciones.get(normalizar(nombre));
+            return posicion != null && usos[posicion] > 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los nombres más parecidos al dado, a una distancia de edición
+     * pequeña (proporcional al largo, hasta "provincia.sugerencias.distancia").
+     *
+     * @param nombre El nombre buscado.
+     * @return Los nombres sugeridos, del más parecido al menos parecido (y a
+     * igual distancia, el más usado primero).
+     */
+    public List<String> sugerir(String nombre) {
+        String buscado = normalizar(nombre);
+        int limite = Math.min(distanciaMaxima, Math.max(1, buscado.length() / 4));
+        List<int[]> encontrados = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (raiz == null) {
+                return List.of();
+            }
+            int[] fila = new int[buscado.length() + 1];
+            int[] anterior = new int[buscado.length() + 1];
+            List<Nodo> pendientes = new ArrayList<>();
+            pendientes.add(raiz);
+            while (!pendientes.isEmpty()) {
+                Nodo nodo = pendientes.remove(pendientes.size() - 1);
+                int distancia = levenshtein(buscado, normalizados.get(nodo.nombre), anterior, fila);
+                if (distancia <= limite && usos[nodo.nombre] > 0) {
+                    encontrados.add(new int[]{nodo.nombre, distancia, usos[nodo.nombre]});
+                }
+                // Desigualdad triangular: solo pueden servir los hijos a
+                // distancia entre (d - k) y (d + k) del nodo.
+                for (int i = 0; i < nodo.cantidadHijos; i++) {
+                    if (Math.abs(nodo.distancias[i] - distancia) <= limite) {
+                        pendientes.add(nodo.hijos[i]);
+                    }
+                }
+            }
+            encontrados.sort(Comparator.<int[]>comparingInt(e -> e[1])
+                    .thenComparing(e -> -e[2])
+                    .thenComparing(e -> normalizados.get(e[0])));
+            return encontrados.stream()
+                    .limit(maximoSugerencias)
+                    .map(e -> visibles.get(e[0]))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalizar(String nombre) {
+        String sinMarcas = MARCAS.matcher(Normalizer.normalize(nombre, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinMarcas.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private void asignar(long id, String nombre) {
+        int posicion = posicion(nombre);
+        if (++usos[posicion] == 1) {
+            sinUso--;
+        }
+        liberar(nombrePorProvincia.poner(id, posicion));
+    }
+
+    private void liberar(int posicion) {
+        if (posicion != MapaLongInt.AUSENTE && --usos[posicion] == 0) {
+            sinUso++;
+        }
+    }
+
+    private int posicion(String nombre) {
+        String normalizado = normalizar(nombre);
+        Integer existente = posiciones.get(normalizado);
+        if (existente != null) {
+            if (usos[existente] == 0) {
+                visibles.set(existente, nombre);
+            }
+            return existente;
+        }
+        int posicion = normalizados.size();
+        normalizados.add(normalizado);
+        visibles.add(nombre);
+        posiciones.put(normalizado, posicion);
+        if (posicion == usos.length) {
+            usos = Arrays.copyOf(usos, usos.length * 2);
+        }
+        sinUso++;
+        insertarEnArbol(posicion);
+        return posicion;
+    }
+
+    private void insertarEnArbol(int posicion) {
+        if (raiz == null) {
+            raiz = new Nodo(posicion);
+            return;
+        }
+        String nombre = normalizados.get(posicion);
+        Nodo nodo = raiz;
+        while (true) {
+            int distancia = levenshtein(nombre, normalizados.get(nodo.nombre));
+            Nodo hijo = nodo.hijo(distancia);
+            if (hijo == null) {
+                nodo.agregar(distancia, new Nodo(posicion));
+                return;
+            }
+            nodo = hijo;
+        }
+    }
+
+    /**
+     * Descarta del árbol los nombres que ya no usa ninguna provincia.
+     */
+    private void reconstruirArbol() {
+        List<String> normalizadosViejos = new ArrayList<>(normalizados);
+        List<String> visiblesViejos = new ArrayList<>(visibles);
+        int[] usosViejos = usos;
+        normalizados.clear();
+        visibles.clear();
+        posiciones.clear();
+        usos = new int[Math.max(64, usosViejos.length / 2)];
+        raiz = null;
+        int[] nuevaPosicion = new int[normalizadosViejos.size()];
+        for (int i = 0; i < normalizadosViejos.size(); i++) {
+            nuevaPosicion[i] = MapaLongInt.AUSENTE;
+            if (usosViejos[i] > 0) {
+                nuevaPosicion[i] = posicion(visiblesViejos.get(i));
+                usos[nuevaPosicion[i]] = usosViejos[i];
+            }
+        }
+        sinUso = 0;
+        nombrePorProvincia.reasignar(vieja -> nuevaPosicion[vieja]);
+    }
+
+    private static int levenshtein(String a, String b) {
+        return levenshtein(a, b, new int[a.length() + 1], new int[a.length() + 1]);
+    }
+
+    /**
+     * Distancia de edición entre a y b, usando dos filas de largo a.length()+1
+     * que provee el llamador (para no reservar memoria en cada comparación).
+     */
+    private static int levenshtein(String a, String b, int[] anterior, int[] fila) {
+        for (int i = 0; i <= a.length(); i++) {
+            anterior[i] = i;
+        }
+        for (int j = 1; j <= b.length(); j++) {
+            fila[0] = j;
+            char c = b.charAt(j - 1);
+            for (int i = 1; i <= a.length(); i++) {
+                int costo = a.charAt(i - 1) == c ? 0 : 1;
+                fila[i] = Math.min(Math.min(fila[i - 1] + 1, anterior[i] + 1), anterior[i - 1] + costo);
+            }
+            int[] auxiliar = anterior;
+            anterior = fila;
+            fila = auxiliar;
+        }
+        return anterior[a.length()];
+    }
+
+    private static final class Nodo {
+
+        private final int nombre;
+        private int[] distancias = new int[2];
+        private Nodo[] hijos = new Nodo[2];
+        private int cantidadHijos;
+
+        private Nodo(int nombre) {
+            this.nombre = nombre;
+        }
+
+        private Nodo hijo(int distancia) {
+            for (int i = 0; i < cantidadHijos; i++) {
+                if (distancias[i] == distancia) {
+                    return hijos[i];
+                }
+            }
+            return null;
+        }
+
+        private void agregar(int distancia, Nodo hijo) {
+            if (cantidadHijos == hijos.length) {
+                distancias = Arrays.copyOf(distancias, cantidadHijos * 2);
+                hijos = Arrays.copyOf(hijos, cantidadHijos * 2);
+            }
+            distancias[cantidadHijos] = distancia;
+            hijos[cantidadHijos] = hijo;
+            cantidadHijos++;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.dosideas.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lee registros CSV (RFC 4180) de a uno, sin cargar el archivo en memoria.
+ * Acepta campos entre comillas (con comas, saltos de línea y comillas
+ * duplicadas adentro) y fines de línea \n o \r\n.
+ *
+ * @author Gabriel Romero
+ */
+class LectorCsv {
+
+    private static final int BUFFER = 8192;
+
+    private final Reader lector;
+    private final char[] buffer = new char[BUFFER];
+    private int posicion;
+    private int cantidad;
+    private int linea = 1;
+    private int lineaDelRegistro;
+
+    LectorCsv(Reader lector) {
+        this.lector = lector;
+    }
+
+    /**
+     * @return Los campos del siguiente registro, o null si no hay más.
+     * @throws IOException Si falla la lectura o un campo entre comillas no se
+     * cierra.
+     */
+    List<String> siguiente() throws IOException {
+        int c = leer();
+        if (c < 0) {
+            return null;
+        }
+        lineaDelRegistro = linea;
+        List<String> campos = new ArrayList<>(4);
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        while (true) {
+            if (entreComillas) {
+                if (c < 0) {
+                    throw new IOException("Comillas sin cerrar en el registro de la línea " + lineaDelRegistro);
+                }
+                if (c == '"') {
+                    int siguiente = leer();
+                    if (siguiente == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        c = siguiente;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        linea++;
+                    }
+                    campo.append((char) c);
+                }
+            } else if (c < 0 || c == '\n') {
+                if (c == '\n') {
+                    linea++;
+                }
+                campos.add(campo.toString());
+                return campos;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '"' && campo.length() == 0) {
+                entreComillas = true;
+            } else if (c != '\r') {
+                campo.append((char) c);
+            }
+            c = leer();
+        }
+    }
+
+    /**
+     * @return La línea donde empieza el último registro leído.
+     */
+    int getLinea() {
+        return lineaDelRegistro;
+    }
+
+    private int leer() throws IOException {
+        if (posicion == cantidad) {
+            cantidad = lector.read(buffer, 0, BUFFER);
+            posicion = 0;
+            if (cantidad <= 0) {
+                cantidad = 0;
+                return -1;
+            }
+        }
+        return buffer[posicion++];
+    }
+}
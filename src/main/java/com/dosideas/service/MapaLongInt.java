@@ -0,0 +1,132 @@
+package com.dosideas.service;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Mapa de long a int con direccionamiento abierto, sin objetos por entrada.
+ * Ocupa unos 12 bytes por clave (con factor de carga 0,5, unos 24), contra
+ * los ~60 de un HashMap&lt;Long, Integer&gt;.
+ *
+ * No es thread-safe. No admite la clave {@link Long#MIN_VALUE}.
+ *
+ * @author Gabriel Romero
+ */
+class MapaLongInt {
+
+    static final int AUSENTE = -1;
+
+    private static final long LIBRE = Long.MIN_VALUE;
+
+    private long[] claves;
+    private int[] valores;
+    private int cantidad;
+    private int borradas;
+
+    MapaLongInt(int capacidadInicial) {
+        int capacidad = Integer.highestOneBit(Math.max(capacidadInicial, 8) * 2 - 1) * 2;
+        claves = new long[capacidad];
+        valores = new int[capacidad];
+        Arrays.fill(claves, LIBRE);
+    }
+
+    int obtener(long clave) {
+        int mascara = claves.length - 1;
+        for (int i = dispersar(clave) & mascara; ; i = (i + 1) & mascara) {
+            if (claves[i] == clave) {
+                return valores[i];
+            }
+            if (claves[i] == LIBRE) {
+                return AUSENTE;
+            }
+        }
+    }
+
+    /**
+     * @return El valor anterior, o {@link #AUSENTE}.
+     */
+    int poner(long clave, int valor) {
+        if ((cantidad + borradas + 1) * 2 > claves.length) {
+            redimensionar(cantidad * 4 > claves.length ? claves.length * 2 : claves.length);
+        }
+        int mascara = claves.length - 1;
+        int i = dispersar(clave) & mascara;
+        while (claves[i] != LIBRE && claves[i] != clave) {
+            i = (i + 1) & mascara;
+        }
+        if (claves[i] == clave) {
+            int anterior = valores[i];
+            valores[i] = valor;
+            if (anterior == AUSENTE) {
+                cantidad++;
+                borradas--;
+            }
+            return anterior;
+        }
+        claves[i] = clave;
+        valores[i] = valor;
+        cantidad++;
+        return AUSENTE;
+    }
+
+    /**
+     * Quita la clave. El lugar queda marcado con {@link #AUSENTE} para no
+     * cortar las secuencias de búsqueda; se recupera al redimensionar.
+     *
+     * @return El valor que tenía, o {@link #AUSENTE}.
+     */
+    int quitar(long clave) {
+        int mascara = claves.length - 1;
+        for (int i = dispersar(clave) & mascara; claves[i] != LIBRE; i = (i + 1) & mascara) {
+            if (claves[i] == clave) {
+                int anterior = valores[i];
+                if (anterior != AUSENTE) {
+                    valores[i] = AUSENTE;
+                    cantidad--;
+                    borradas++;
+                }
+                return anterior;
+            }
+        }
+        return AUSENTE;
+    }
+
+    /**
+     * Reemplaza cada valor presente por el resultado de la función.
+     */
+    void reasignar(IntUnaryOperator funcion) {
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != LIBRE && valores[i] != AUSENTE) {
+                valores[i] = funcion.applyAsInt(valores[i]);
+            }
+        }
+    }
+
+    int cantidad() {
+        return cantidad;
+    }
+
+    long bytes() {
+        return claves.length * (long) (Long.BYTES + Integer.BYTES);
+    }
+
+    private void redimensionar(int capacidad) {
+        long[] clavesViejas = claves;
+        int[] valoresViejos = valores;
+        claves = new long[capacidad];
+        valores = new int[capacidad];
+        Arrays.fill(claves, LIBRE);
+        cantidad = 0;
+        borradas = 0;
+        for (int i = 0; i < clavesViejas.length; i++) {
+            if (clavesViejas[i] != LIBRE && valoresViejos[i] != AUSENTE) {
+                poner(clavesViejas[i], valoresViejos[i]);
+            }
+        }
+    }
+
+    private static int dispersar(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
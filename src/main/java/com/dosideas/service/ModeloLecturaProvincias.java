@@ -0,0 +1,779 @@
+package com.dosideas.service;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.FilasProvincias;
+import com.dosideas.dto.FiltroProvincias;
+import com.dosideas.dto.ModeloLecturaDTO;
+import com.dosideas.event.ProvinciaEvento;
+import com.dosideas.repository.ProvinciaRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Modelo de lectura de provincias en memoria, por columnas (CQRS): las
+ * consultas de ProvinciaService se responden desde acá sin pasar por JPA.
+ *
+ * Cada provincia es una fila en arreglos primitivos (ID, versión, posición de
+ * su nombre en un pool de nombres sin repetir, posición de su país). Hay
+ * índices por ID (un {@link MapaLongInt}), por nombre sin distinguir
+ * mayúsculas y por país; los dos últimos son listas doblemente enlazadas
+ * guardadas en arreglos, para poder quitar una fila sin recorrer la lista. En
+ * total, alrededor de 70 bytes por provincia más el pool de nombres.
+ *
+ * Se carga una vez que la aplicación está lista y después se actualiza con
+ * los {@link ProvinciaEvento} confirmados. Los eventos que llegan durante la
+ * carga se aplican al terminarla; un evento con una versión anterior a la que
+ * ya se tiene se ignora. Las filas eliminadas se descartan al compactar. Si
+ * hay un {@link SnapshotCatalogo}, el modelo arranca desde el archivo y no
+ * desde la base.
+ *
+ * Es opcional: solo existe con "provincia.modelo-lectura.habilitado=true". Las
+ * provincias que devuelve son objetos nuevos y separados de JPA; los países se
+ * comparten entre provincias y no deben modificarse. Los listados completos y
+ * filtrados no arman provincias: devuelven una copia de las columnas
+ * ({@link FilasProvincias}), que se serializa sin el lock tomado. Los nombres
+ * de país se comparan en forma exacta.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+@ConditionalOnProperty(name = "provincia.modelo-lectura.habilitado", havingValue = "true")
+public class ModeloLecturaProvincias {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModeloLecturaProvincias.class);
+    private static final int NINGUNA = -1;
+
+    private final ProvinciaRepository provinciaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Columnas: la fila i es la provincia ids[i]. Una fila eliminada queda con
+    // nombres[i] == NINGUNA hasta la próxima compactación.
+    private long[] ids;
+    private long[] versiones;
+    private int[] nombres;
+    private int[] paises;
+    private int[] siguientePorNombre;
+    private int[] anteriorPorNombre;
+    private int[] siguientePorPais;
+    private int[] anteriorPorPais;
+    private int filas;
+    private int vivas;
+    // false si se agregó un ID menor al último (la paginación lo necesita).
+    private boolean ordenadas = true;
+
+    private final List<String> pool = new ArrayList<>();
+    private final Map<String, Integer> posicionEnPool = new HashMap<>();
+    private final Map<String, Integer> primeraPorNombre = new HashMap<>();
+    private MapaLongInt filaPorId;
+
+    private final List<Pais> paisesCompartidos = new ArrayList<>();
+    private final MapaLongInt paisPorId = new MapaLongInt(256);
+    private final Map<String, Integer> paisPorNombre = new HashMap<>();
+    private int[] primeraPorPais = new int[0];
+
+    private List<ProvinciaEvento> pendientes = new ArrayList<>();
+    private volatile boolean listo;
+
+    public ModeloLecturaProvincias(ProvinciaRepository provinciaRepository,
+            PlatformTransactionManager transactionManager) {
+        this.provinciaRepository = provinciaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        inicializar(16);
+    }
+
+    /**
+     * Carga el modelo cuando la aplicación terminó de arrancar, salvo que ya
+     * se haya cargado desde un {@link SnapshotCatalogo}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        if (!listo) {
+            recargar();
+        }
+    }
+
+    /**
+     * Descarta el contenido y lo vuelve a leer de la base. Mientras tanto
+     * {@link #estaListo()} devuelve false y los cambios recibidos se aplican al
+     * terminar.
+     */
+    public void recargar() {
+        long inicio = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            listo = false;
+            if (pendientes == null) {
+                pendientes = new ArrayList<>();
+            }
+            inicializar(16);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        transactionTemplate.executeWithoutResult(estado -> {
+            try (Stream<Object[]> filasPlanas = provinciaRepository.buscarFilasPlanas()) {
+                filasPlanas.forEach(fila -> {
+                    lock.writeLock().lock();
+                    try {
+                        insertar(fila);
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                });
+            }
+        });
+        lock.writeLock().lock();
+        try {
+            List<ProvinciaEvento> llegadosDuranteLaCarga = pendientes;
+            pendientes = null;
+            llegadosDuranteLaCarga.forEach(this::aplicarSinLock);
+            listo = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        informarCarga("la base", inicio);
+    }
+
+    /**
+     * Reemplaza el contenido por las filas dadas (con el formato de
+     * {@link ProvinciaRepository#buscarFilasPlanas()}) y deja el modelo listo.
+     *
+     * @param filasPlanas Las filas, en orden de ID.
+     * @param origen De dónde vienen, para el log.
+     */
+    void cargarFilas(Iterator<Object[]> filasPlanas, String origen) {
+        long inicio = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            inicializar(16);
+            filasPlanas.forEachRemaining(this::insertar);
+            if (pendientes != null) {
+                pendientes.forEach(this::aplicarSinLock);
+                pendientes = null;
+            }
+            listo = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        informarCarga(origen, inicio);
+    }
+
+    /**
+     * Recorre el contenido con el lock de lectura tomado: primero todos los
+     * países (en orden de posición) y después las provincias vivas.
+     *
+     * @param exportador Recibe los países y las provincias.
+     */
+    void exportar(Exportador exportador) throws IOException {
+        lock.readLock().lock();
+        try {
+            exportador.inicio(paisesCompartidos.size(), vivas);
+            for (Pais pais : paisesCompartidos) {
+                exportador.pais(pais.getId(), pais.getNombre());
+            }
+            for (int fila = 0; fila < filas; fila++) {
+                if (nombres[fila] != NINGUNA) {
+                    exportador.provincia(ids[fila], pool.get(nombres[fila]), versiones[fila], paises[fila]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Aplica un cambio confirmado.
+     *
+     * @param evento El cambio.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aplicar(ProvinciaEvento evento) {
+        lock.writeLock().lock();
+        try {
+            if (pendientes != null) {
+                pendientes.add(evento);
+            } else {
+                aplicarSinLock(evento);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true si el modelo ya está cargado y puede responder consultas.
+     */
+    public boolean estaListo() {
+        return listo;
+    }
+
+    public Provincia buscarPorId(long id) {
+        lock.readLock().lock();
+        try {
+            int fila = filaPorId.obtener(id);
+            return fila == MapaLongInt.AUSENTE ? null : aProvincia(fila);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Provincia> buscarPorNombre(String nombre) {
+        lock.readLock().lock();
+        try {
+            Integer primera = primeraPorNombre.get(clave(nombre));
+            return recorrer(primera == null ? NINGUNA : primera, siguientePorNombre);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param idPais El ID de un país.
+     * @return Su nombre, o null si el modelo no lo conoce.
+     */
+    public String nombrePais(long idPais) {
+        lock.readLock().lock();
+        try {
+            int posicion = paisPorId.obtener(idPais);
+            return posicion == MapaLongInt.AUSENTE ? null : paisesCompartidos.get(posicion).getNombre();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Provincia> buscarPorNombrePais(String nombrePais) {
+        lock.readLock().lock();
+        try {
+            Integer pais = paisPorNombre.get(nombrePais);
+            return recorrer(pais == null ? NINGUNA : primeraPorPais[pais], siguientePorPais);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Todas las provincias, como copia de las columnas (sin armar una
+     * Provincia por fila), para recorrerlas sin el lock tomado.
+     */
+    public FilasProvincias todas() {
+        lock.readLock().lock();
+        try {
+            Columnas columnas = new Columnas(vivas);
+            for (int fila = 0; fila < filas; fila++) {
+                if (nombres[fila] != NINGUNA) {
+                    columnas.agregar(ids[fila], pool.get(nombres[fila]), pais(fila));
+                }
+            }
+            return columnas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve las provincias que cumplen un filtro, en el orden pedido, como
+     * copia de sus columnas. Con un país se recorren solo sus provincias (el
+     * índice por país); si hay que ordenar, se guardan las primeras en un
+     * montículo del tamaño del límite, sin ordenar todas las aceptadas.
+     *
+     * @param filtro El filtro, el orden y el límite.
+     * @return Las primeras provincias que lo cumplen, hasta el límite.
+     */
+    public FilasProvincias filtrar(FiltroProvincias filtro) {
+        lock.readLock().lock();
+        try {
+            IntStream aceptadas = candidatas(filtro).filter(fila -> nombres[fila] != NINGUNA
+                    && filtro.acepta(ids[fila], pool.get(nombres[fila]), idPais(fila)));
+            // Las filas ya están en orden de ID salvo que se haya agregado un ID
+            // menor; las de un país, no (la lista se arma al revés).
+            int[] orden = ordenadas && filtro.ordenPorIdAscendente() && filtro.getIdPais() == null
+                    ? aceptadas.limit(filtro.getLimite()).toArray()
+                    : primeras(aceptadas.iterator(), filtro.getLimite(),
+                            filtro.comparadorDeFilas(fila -> ids[fila], fila -> pool.get(nombres[fila])));
+            Columnas columnas = new Columnas(orden.length);
+            for (int fila : orden) {
+                columnas.agregar(ids[fila], pool.get(nombres[fila]), pais(fila));
+            }
+            return columnas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve una página ordenada por ID.
+     *
+     * @param pageable La página pedida.
+     * @return La página, o null si el orden pedido no es por ID ascendente (o
+     * las filas no están en orden): en ese caso hay que ir a la base.
+     */
+    public Page<Provincia> pagina(Pageable pageable) {
+        Sort orden = pageable.getSort();
+        Sort.Order porId = orden.getOrderFor("id");
+        if (orden.isSorted() && (porId == null || !porId.isAscending() || orden.toList().size() > 1)) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (!ordenadas) {
+                return null;
+            }
+            List<Provincia> contenido = new ArrayList<>(pageable.getPageSize());
+            long salteadas = 0;
+            for (int fila = 0; fila < filas && contenido.size() < pageable.getPageSize(); fila++) {
+                if (nombres[fila] == NINGUNA) {
+                    continue;
+                }
+                if (salteadas < pageable.getOffset()) {
+                    salteadas++;
+                } else {
+                    contenido.add(aProvincia(fila));
+                }
+            }
+            return new PageImpl<>(contenido, pageable, vivas);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Cantidades y memoria estimada del modelo.
+     */
+    public ModeloLecturaDTO estadisticas() {
+        lock.readLock().lock();
+        try {
+            long bytes = ids.length * (long) (2 * Long.BYTES + 6 * Integer.BYTES)
+                    + filaPorId.bytes()
+                    + paisPorId.bytes()
+                    + primeraPorPais.length * (long) Integer.BYTES;
+            for (String nombre : pool) {
+                // String + byte[] (Latin-1) y dos entradas de HashMap (pool e índice por nombre).
+                bytes += 40 + nombre.length() + 2 * 48;
+            }
+            bytes += paisesCompartidos.size() * 120L;
+            return ModeloLecturaDTO.builder()
+                    .listo(listo)
+                    .provincias(vivas)
+                    .paises(paisesCompartidos.size())
+                    .nombresDistintos(primeraPorNombre.size())
+                    .filasSinCompactar(filas - vivas)
+                    .bytes(bytes)
+                    .bytesPorMillonDeProvincias(vivas == 0 ? 0 : bytes * 1_000_000 / vivas)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insertar(Object[] fila) {
+        int pais = fila[3] == null ? NINGUNA
+                : registrarPais(((Number) fila[3]).longValue(), (String) fila[4]);
+        insertar(((Number) fila[0]).longValue(), (String) fila[1],
+                fila[2] == null ? 0 : ((Number) fila[2]).longValue(), pais);
+    }
+
+    private void informarCarga(String origen, long inicio) {
+        ModeloLecturaDTO estado = estadisticas();
+        LOG.info("Modelo de lectura de provincias cargado desde {} en {} ms: {} provincias, {} KB ({} KB por millón)",
+                origen, (System.nanoTime() - inicio) / 1_000_000, estado.getProvincias(),
+                estado.getBytes() / 1024, estado.getBytesPorMillonDeProvincias() / 1024);
+    }
+
+    private void aplicarSinLock(ProvinciaEvento evento) {
+        if (evento.getTipo() == ProvinciaEvento.Tipo.ELIMINADA) {
+            eliminar(evento.getId());
+            return;
+        }
+        int fila = filaPorId.obtener(evento.getId());
+        if (fila != MapaLongInt.AUSENTE && evento.getVersion() != null && evento.getVersion() < versiones[fila]) {
+            return;
+        }
+        // El nombre del país viene en el evento (lo resuelve quien lo publica):
+        // si cambió, se actualiza para todas sus provincias.
+        int pais = evento.getIdPais() == null ? NINGUNA : registrarPais(evento.getIdPais(), evento.getPais());
+        if (fila == MapaLongInt.AUSENTE) {
+            insertar(evento.getId(), evento.getNombre(),
+                    evento.getVersion() == null ? 0 : evento.getVersion(), pais);
+            return;
+        }
+        if (evento.getNombre() != null && !evento.getNombre().equals(pool.get(nombres[fila]))) {
+            desenlazarNombre(fila);
+            nombres[fila] = internar(evento.getNombre());
+            enlazarNombre(fila);
+        }
+        if (pais != NINGUNA && pais != paises[fila]) {
+            desenlazarPais(fila);
+            paises[fila] = pais;
+            enlazarPais(fila);
+        }
+        if (evento.getVersion() != null) {
+            versiones[fila] = evento.getVersion();
+        }
+    }
+
+    private void insertar(long id, String nombre, long version, int pais) {
+        if (filas == ids.length) {
+            crecer(filas + (filas >> 1) + 1);
+        }
+        int fila = filas++;
+        if (fila > 0 && id < ids[fila - 1]) {
+            ordenadas = false;
+        }
+        ids[fila] = id;
+        versiones[fila] = version;
+        nombres[fila] = internar(nombre);
+        paises[fila] = pais;
+        enlazarNombre(fila);
+        enlazarPais(fila);
+        filaPorId.poner(id, fila);
+        vivas++;
+    }
+
+    private void eliminar(long id) {
+        int fila = filaPorId.quitar(id);
+        if (fila == MapaLongInt.AUSENTE) {
+            return;
+        }
+        desenlazarNombre(fila);
+        desenlazarPais(fila);
+        nombres[fila] = NINGUNA;
+        vivas--;
+        int muertas = filas - vivas;
+        if (muertas > 1024 && muertas > filas / 2) {
+            compactar();
+        }
+    }
+
+    /**
+     * Reconstruye las columnas solo con las filas vivas, en orden de ID, y
+     * descarta del pool los nombres que ya no se usan.
+     */
+    private void compactar() {
+        long[] idsViejos = ids;
+        long[] versionesViejas = versiones;
+        int[] nombresViejos = nombres;
+        int[] paisesViejos = paises;
+        List<String> poolViejo = new ArrayList<>(pool);
+        int[] orden = IntStream.range(0, filas)
+                .filter(fila -> nombresViejos[fila] != NINGUNA)
+                .boxed()
+                .sorted(Comparator.comparingLong(fila -> idsViejos[fila]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        inicializar(Math.max(16, orden.length + (orden.length >> 2)));
+        for (int fila : orden) {
+            insertar(idsViejos[fila], poolViejo.get(nombresViejos[fila]), versionesViejas[fila], paisesViejos[fila]);
+        }
+        ordenadas = true;
+    }
+
+    private void inicializar(int capacidad) {
+        ids = new long[capacidad];
+        versiones = new long[capacidad];
+        nombres = new int[capacidad];
+        paises = new int[capacidad];
+        siguientePorNombre = new int[capacidad];
+        anteriorPorNombre = new int[capacidad];
+        siguientePorPais = new int[capacidad];
+        anteriorPorPais = new int[capacidad];
+        filas = 0;
+        vivas = 0;
+        pool.clear();
+        posicionEnPool.clear();
+        primeraPorNombre.clear();
+        filaPorId = new MapaLongInt(capacidad);
+        Arrays.fill(primeraPorPais, NINGUNA);
+    }
+
+    private void crecer(int capacidad) {
+        ids = Arrays.copyOf(ids, capacidad);
+        versiones = Arrays.copyOf(versiones, capacidad);
+        nombres = Arrays.copyOf(nombres, capacidad);
+        paises = Arrays.copyOf(paises, capacidad);
+        siguientePorNombre = Arrays.copyOf(siguientePorNombre, capacidad);
+        anteriorPorNombre = Arrays.copyOf(anteriorPorNombre, capacidad);
+        siguientePorPais = Arrays.copyOf(siguientePorPais, capacidad);
+        anteriorPorPais = Arrays.copyOf(anteriorPorPais, capacidad);
+    }
+
+    private int internar(String nombre) {
+        Integer posicion = posicionEnPool.get(nombre);
+        if (posicion == null) {
+            posicion = pool.size();
+            pool.add(nombre);
+            posicionEnPool.put(nombre, posicion);
+        }
+        return posicion;
+    }
+
+    private int registrarPais(long idPais, String nombre) {
+        int posicion = paisPorId.obtener(idPais);
+        if (posicion != MapaLongInt.AUSENTE) {
+            String anterior = paisesCompartidos.get(posicion).getNombre();
+            if (nombre != null && !nombre.equals(anterior)) {
+                // Un objeto nuevo: las copias ya entregadas conservan el anterior.
+                paisesCompartidos.set(posicion, new Pais(idPais, nombre));
+                if (anterior != null) {
+                    paisPorNombre.remove(anterior, posicion);
+                }
+                paisPorNombre.putIfAbsent(nombre, posicion);
+            }
+            return posicion;
+        }
+        posicion = paisesCompartidos.size();
+        paisesCompartidos.add(new Pais(idPais, nombre));
+        paisPorId.poner(idPais, posicion);
+        if (nombre != null) {
+            paisPorNombre.putIfAbsent(nombre, posicion);
+        }
+        if (posicion == primeraPorPais.length) {
+            int anterior = primeraPorPais.length;
+            primeraPorPais = Arrays.copyOf(primeraPorPais, Math.max(64, anterior * 2));
+            Arrays.fill(primeraPorPais, anterior, primeraPorPais.length, NINGUNA);
+        }
+        return posicion;
+    }
+
+    private void enlazarNombre(int fila) {
+        String clave = clave(pool.get(nombres[fila]));
+        Integer primera = primeraPorNombre.put(clave, fila);
+        siguientePorNombre[fila] = primera == null ? NINGUNA : primera;
+        anteriorPorNombre[fila] = NINGUNA;
+        if (primera != null) {
+            anteriorPorNombre[primera] = fila;
+        }
+    }
+
+    private void desenlazarNombre(int fila) {
+        int anterior = anteriorPorNombre[fila];
+        int siguiente = siguientePorNombre[fila];
+        if (anterior != NINGUNA) {
+            siguientePorNombre[anterior] = siguiente;
+        } else if (siguiente == NINGUNA) {
+            primeraPorNombre.remove(clave(pool.get(nombres[fila])));
+        } else {
+            primeraPorNombre.put(clave(pool.get(nombres[fila])), siguiente);
+        }
+        if (siguiente != NINGUNA) {
+            anteriorPorNombre[siguiente] = anterior;
+        }
+    }
+
+    private void enlazarPais(int fila) {
+        int pais = paises[fila];
+        if (pais == NINGUNA) {
+            return;
+        }
+        int primera = primeraPorPais[pais];
+        siguientePorPais[fila] = primera;
+        anteriorPorPais[fila] = NINGUNA;
+        if (primera != NINGUNA) {
+            anteriorPorPais[primera] = fila;
+        }
+        primeraPorPais[pais] = fila;
+    }
+
+    private void desenlazarPais(int fila) {
+        int pais = paises[fila];
+        if (pais == NINGUNA) {
+            return;
+        }
+        int anterior = anteriorPorPais[fila];
+        int siguiente = siguientePorPais[fila];
+        if (anterior != NINGUNA) {
+            siguientePorPais[anterior] = siguiente;
+        } else {
+            primeraPorPais[pais] = siguiente;
+        }
+        if (siguiente != NINGUNA) {
+            anteriorPorPais[siguiente] = anterior;
+        }
+    }
+
+    private List<Provincia> recorrer(int primera, int[] siguientes) {
+        List<Provincia> resultado = new ArrayList<>();
+        for (int fila = primera; fila != NINGUNA; fila = siguientes[fila]) {
+            resultado.add(aProvincia(fila));
+        }
+        resultado.sort(Comparator.comparing(Provincia::getId));
+        return resultado;
+    }
+
+    private IntStream candidatas(FiltroProvincias filtro) {
+        if (filtro.getIdPais() == null) {
+            return IntStream.range(0, filas);
+        }
+        int pais = paisPorId.obtener(filtro.getIdPais());
+        return pais == MapaLongInt.AUSENTE ? IntStream.empty()
+                : IntStream.iterate(primeraPorPais[pais], fila -> fila != NINGUNA, fila -> siguientePorPais[fila]);
+    }
+
+    /**
+     * Las primeras filas según un orden, hasta el límite. Se mantiene un
+     * montículo con la peor de las elegidas arriba, que se reemplaza cuando
+     * llega una mejor; al final se vacía de atrás para adelante.
+     */
+    private static int[] primeras(PrimitiveIterator.OfInt filas, int limite, IntBinaryOperator orden) {
+        int[] monticulo = new int[limite];
+        int cantidad = 0;
+        while (filas.hasNext()) {
+            int fila = filas.nextInt();
+            if (cantidad < limite) {
+                monticulo[cantidad] = fila;
+                subir(monticulo, cantidad++, orden);
+            } else if (orden.applyAsInt(fila, monticulo[0]) < 0) {
+                monticulo[0] = fila;
+                bajar(monticulo, cantidad, orden);
+            }
+        }
+        int[] resultado = new int[cantidad];
+        for (int ultima = cantidad - 1; ultima >= 0; ultima--) {
+            resultado[ultima] = monticulo[0];
+            monticulo[0] = monticulo[ultima];
+            bajar(monticulo, ultima, orden);
+        }
+        return resultado;
+    }
+
+    private static void subir(int[] monticulo, int posicion, IntBinaryOperator orden) {
+        while (posicion > 0) {
+            int padre = (posicion - 1) / 2;
+            if (orden.applyAsInt(monticulo[posicion], monticulo[padre]) <= 0) {
+                return;
+            }
+            intercambiar(monticulo, posicion, padre);
+            posicion = padre;
+        }
+    }
+
+    private static void bajar(int[] monticulo, int cantidad, IntBinaryOperator orden) {
+        int posicion = 0;
+        while (2 * posicion + 1 < cantidad) {
+            int hijo = 2 * posicion + 1;
+            if (hijo + 1 < cantidad && orden.applyAsInt(monticulo[hijo + 1], monticulo[hijo]) > 0) {
+                hijo++;
+            }
+            if (orden.applyAsInt(monticulo[hijo], monticulo[posicion]) <= 0) {
+                return;
+            }
+            intercambiar(monticulo, posicion, hijo);
+            posicion = hijo;
+        }
+    }
+
+    private static void intercambiar(int[] arreglo, int a, int b) {
+        int auxiliar = arreglo[a];
+        arreglo[a] = arreglo[b];
+        arreglo[b] = auxiliar;
+    }
+
+    private Pais pais(int fila) {
+        return paises[fila] == NINGUNA ? null : paisesCompartidos.get(paises[fila]);
+    }
+
+    private Long idPais(int fila) {
+        return paises[fila] == NINGUNA ? null : paisesCompartidos.get(paises[fila]).getId();
+    }
+
+    private Provincia aProvincia(int fila) {
+        Provincia provincia = new Provincia(ids[fila], pool.get(nombres[fila]), pais(fila));
+        provincia.setVersion(versiones[fila]);
+        return provincia;
+    }
+
+    private static String clave(String nombre) {
+        return nombre.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Copia de las columnas de algunas filas: los nombres y países son los
+     * mismos objetos del modelo, sin copiar.
+     */
+    private static final class Columnas implements FilasProvincias {
+
+        private final long[] ids;
+        private final String[] nombres;
+        private final Pais[] paises;
+        private int cantidad;
+
+        Columnas(int capacidad) {
+            ids = new long[capacidad];
+            nombres = new String[capacidad];
+            paises = new Pais[capacidad];
+        }
+
+        void agregar(long id, String nombre, Pais pais) {
+            ids[cantidad] = id;
+            nombres[cantidad] = nombre;
+            paises[cantidad] = pais;
+            cantidad++;
+        }
+
+        @Override
+        public int cantidad() {
+            return cantidad;
+        }
+
+        @Override
+        public long id(int fila) {
+            return ids[fila];
+        }
+
+        @Override
+        public String nombre(int fila) {
+            return nombres[fila];
+        }
+
+        @Override
+        public String nombrePais(int fila) {
+            return paises[fila] != null ? paises[fila].getNombre() : null;
+        }
+    }
+
+    /**
+     * Recibe el contenido del modelo (ver {@link #exportar(Exportador)}).
+     */
+    interface Exportador {
+
+        void inicio(int paises, int provincias) throws IOException;
+
+        void pais(long id, String nombre) throws IOException;
+
+        /**
+         * @param pais La posición del país en el orden recibido, o -1 si no
+         * tiene.
+         */
+        void provincia(long id, String nombre, long version, int pais) throws IOException;
+    }
+}
@@ -2,10 +2,15 @@ package com.dosideas.service;
 
 import com.dosideas.domain.Pais;
 import com.dosideas.repository.PaisRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Esta es la clase de negocio que expone operaciones relacionadas con el objeto
@@ -43,4 +48,22 @@ public class PaisService {
         return paisRepository.findAll();
     }
 
+    public Page<Pais> buscarPagina(Pageable pageable) {
+        return paisRepository.findAll(pageable);
+    }
+
+    /**
+     * Entrega al consumidor todos los países a medida que se leen de la base.
+     * La transacción (y el cursor) quedan abiertos mientras el consumidor
+     * recorre el iterador.
+     *
+     * @param consumidor Recorre los países, por ejemplo para renderizarlos.
+     */
+    @Transactional(readOnly = true)
+    public void recorrerTodos(Consumer<Iterator<Pais>> consumidor) {
+        try (Stream<Pais> paises = paisRepository.buscarTodosEnStream()) {
+            consumidor.accept(paises.iterator());
+        }
+    }
+
 }
@@ -0,0 +1,215 @@
+package com.dosideas.service;
+
+import com.dosideas.event.ProvinciaEvento;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Difunde los cambios de provincias a los clientes suscriptos por
+ * Server-Sent Events.
+ *
+ * Cada suscriptor tiene su propio buffer acotado. El envío se hace desde un
+ * pool propio, nunca desde el hilo que confirmó la transacción, de manera que
+ * un cliente lento no demora las escrituras. Si el buffer de un suscriptor se
+ * llena, se descartan sus eventos pendientes y se le envía un evento "resync",
+ * indicando que debe ponerse al día con /api/provincia/cambios.
+ *
+ * Como los cambios son poco frecuentes, cada tanto se envía a todos un
+ * comentario SSE (":"), que el navegador ignora, para que los proxies y
+ * balanceadores no corten la conexión por inactividad.
+ *
+ * @author Gabriel Romero
+ */
+@Service
+public class ProvinciaEventosService {
+
+    static final String EVENTO_CONECTADO = "conectado";
+    static final String EVENTO_RESYNC = "resync";
+
+    private final CopyOnWriteArrayList<Suscriptor> suscriptores = new CopyOnWriteArrayList<>();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final ExecutorService envios;
+    private final ScheduledExecutorService latidos;
+    private final int capacidadBuffer;
+    private final long timeoutMs;
+
+    public ProvinciaEventosService(
+            @Value("${provincia.eventos.buffer:256}") int capacidadBuffer,
+            @Value("${provincia.eventos.timeout-ms:1800000}") long timeoutMs,
+            @Value("${provincia.eventos.hilos:2}") int hilos,
+            @Value("${provincia.eventos.latido-segundos:15}") long latidoSegundos) {
+        this.capacidadBuffer = capacidadBuffer;
+        this.timeoutMs = timeoutMs;
+        this.envios = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "provincia-sse");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.latidos = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "provincia-sse-latido");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        latidos.scheduleAtFixedRate(this::latir, latidoSegundos, latidoSegundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Registra un nuevo suscriptor.
+     *
+     * @return El emisor SSE a devolver al cliente.
+     */
+    public SseEmitter suscribir() {
+        SseEmitter emisor = new SseEmitter(timeoutMs);
+        Suscriptor suscriptor = new Suscriptor(emisor, capacidadBuffer);
+        suscriptores.add(suscriptor);
+        emisor.onCompletion(() -> suscriptores.remove(suscriptor));
+        emisor.onTimeout(() -> suscriptores.remove(suscriptor));
+        emisor.onError(e -> suscriptores.remove(suscriptor));
+        try {
+            // Sin un primer evento el contenedor no envía los headers y el
+            // cliente queda esperando la respuesta.
+            emisor.send(SseEmitter.event()
+                    .id(Long.toString(secuencia.get()))
+                    .name(EVENTO_CONECTADO)
+                    .data(""));
+        } catch (IOException e) {
+            suscriptores.remove(suscriptor);
+            emisor.completeWithError(e);
+        }
+        return emisor;
+    }
+
+    /**
+     * Recibe los eventos publicados por ProvinciaService una vez confirmada la
+     * transacción y los encola en cada suscriptor.
+     *
+     * @param evento El cambio confirmado.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void publicar(ProvinciaEvento evento) {
+        if (suscriptores.isEmpty()) {
+            return;
+        }
+        EventoNumerado numerado = new EventoNumerado(secuencia.incrementAndGet(), evento);
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.encolar(numerado);
+            programarEnvio(suscriptor);
+        }
+    }
+
+    /**
+     * @return La cantidad de suscriptores activos.
+     */
+    public int cantidadSuscriptores() {
+        return suscriptores.size();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        latidos.shutdownNow();
+        envios.shutdownNow();
+        suscriptores.forEach(s -> s.emisor.complete());
+        suscriptores.clear();
+    }
+
+    /**
+     * Marca un latido pendiente en cada suscriptor; lo envía el pool de envíos,
+     * en orden con los eventos.
+     */
+    private void latir() {
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.latido.set(true);
+            programarEnvio(suscriptor);
+        }
+    }
+
+    private void programarEnvio(Suscriptor suscriptor) {
+        // Un solo hilo a la vez vacía el buffer de cada suscriptor, así se
+        // respeta el orden de los eventos.
+        if (suscriptor.enviando.compareAndSet(false, true)) {
+            envios.execute(() -> vaciar(suscriptor));
+        }
+    }
+
+    private void vaciar(Suscriptor suscriptor) {
+        try {
+            while (true) {
+                if (suscriptor.desbordado.getAndSet(false)) {
+                    suscriptor.emisor.send(SseEmitter.event().name(EVENTO_RESYNC).data(""));
+                }
+                EventoNumerado numerado = suscriptor.buffer.poll();
+                if (numerado == null) {
+                    if (suscriptor.latido.getAndSet(false)) {
+                        suscriptor.emisor.send(SseEmitter.event().comment(""));
+                    }
+                    break;
+                }
+                // Un evento ya mantiene viva la conexión.
+                suscriptor.latido.set(false);
+                suscriptor.emisor.send(SseEmitter.event()
+                        .id(Long.toString(numerado.numero))
+                        .name(numerado.evento.getTipo().name())
+                        .data(numerado.evento));
+            }
+        } catch (IOException | IllegalStateException e) {
+            suscriptores.remove(suscriptor);
+            suscriptor.emisor.completeWithError(e);
+            return;
+        } finally {
+            suscriptor.enviando.set(false);
+        }
+        // Pudo llegar un evento entre el último poll y la liberación del flag.
+        if (!suscriptor.buffer.isEmpty() || suscriptor.desbordado.get() || suscriptor.latido.get()) {
+            programarEnvio(suscriptor);
+        }
+    }
+
+    private static final class EventoNumerado {
+
+        private final long numero;
+        private final ProvinciaEvento evento;
+
+        private EventoNumerado(long numero, ProvinciaEvento evento) {
+            this.numero = numero;
+            this.evento = evento;
+        }
+    }
+
+    private static final class Suscriptor {
+
+        private final SseEmitter emisor;
+        private final BlockingQueue<EventoNumerado> buffer;
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private final AtomicBoolean desbordado = new AtomicBoolean();
+        private final AtomicBoolean latido = new AtomicBoolean();
+
+        private Suscriptor(SseEmitter emisor, int capacidad) {
+            this.emisor = emisor;
+            this.buffer = new ArrayBlockingQueue<>(capacidad);
+        }
+
+        private void encolar(EventoNumerado evento) {
+            if (!buffer.offer(evento)) {
+                // Consumidor lento: lo pendiente ya no sirve, debe resincronizar.
+                buffer.clear();
+                desbordado.set(true);
+            }
+        }
+    }
+}
@@ -1,16 +1,43 @@
 package com.dosideas.service;
 
+import com.dosideas.domain.Pais;
 import com.dosideas.domain.Provincia;
+import com.dosideas.dto.CambiosProvinciaDTO;
+import com.dosideas.dto.CampoProvincia;
+import com.dosideas.dto.FilasProvincias;
+import com.dosideas.dto.FiltroProvincias;
+import com.dosideas.dto.ProvinciaDTO;
+import com.dosideas.event.ProvinciaEvento;
+import com.dosideas.exception.ProvinciaConflictoException;
+import com.dosideas.repository.PaisRepository;
+import com.dosideas.repository.ProvinciaEliminadaRepository;
 import com.dosideas.repository.ProvinciaRepository;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 /**
  * Servicio que maneja operaciones relacionadas con la entidad Provincia.
+ *
+ * Cada alta, modificación o baja publica un {@link ProvinciaEvento}; los
+ * interesados lo reciben recién cuando la transacción se confirma.
+ *
+ * Si está habilitado el {@link ModeloLecturaProvincias}, las consultas se
+ * responden desde memoria y no abren transacción (ni toman una conexión).
  * 
  * @author Gabriel Romero
  */
@@ -20,47 +47,301 @@ public class ProvinciaService implements IProvinciaService {
 //REFLECTION, BUSCAR. Implementacion en tiempo de ejecucion de metodos de interfaz
     @Autowired
     private ProvinciaRepository provinciaRepository;
+
+    @Autowired
+    private ProvinciaEliminadaRepository provinciaEliminadaRepository;
+
+    @Autowired
+    private PaisRepository paisRepository;
+
+    @Autowired
+    private RelojCambios relojCambios;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private IndiceNombresProvincia indiceNombres;
+
+    @Autowired(required = false)
+    private ModeloLecturaProvincias modeloLectura;
     
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Provincia buscarPorId(long id) {
+        if (usarModeloLectura()) {
+            return modeloLectura.buscarPorId(id);
+        }
         return provinciaRepository.findById(id).orElse(null);
     }
 
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Object[] buscarCamposPorId(long id, Set<CampoProvincia> campos) {
+        if (usarModeloLectura()) {
+            Provincia provincia = modeloLectura.buscarPorId(id);
+            return provincia == null ? null : aFila(provincia, campos);
+        }
+        return provinciaRepository.buscarCamposPorId(id, campos);
+    }
+
     @Override
     public Provincia guardarProvincia(Provincia provincia) {
         validarProvincia(provincia);
         // Aseguramos que el ID sea null antes de intentar guardar
         provincia.setId(null);
-        return provinciaRepository.save(provincia);
+        provincia.setVersion(null);
+        provincia.setCambio(relojCambios.siguiente());
+        completarPais(provincia);
+        Provincia provinciaGuardada = provinciaRepository.save(provincia);
+        eventPublisher.publishEvent(ProvinciaEvento.de(ProvinciaEvento.Tipo.CREADA, provinciaGuardada));
+        return provinciaGuardada;
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<Provincia> obtenerProvinciasPorNombrePais(String nombrePais) {
         validarNombre(nombrePais);
+        if (usarModeloLectura()) {
+            return modeloLectura.buscarPorNombrePais(nombrePais);
+        }
         return provinciaRepository.findByNombrePais(nombrePais);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<Provincia> buscarProvinciasPorNombreExacto(String nombre) {
         validarNombre(nombre);
+        // El índice de nombres solo se consulta si la base no encuentra nada
+        // (sugerirNombres): puede estar atrasado respecto de la base.
+        if (usarModeloLectura()) {
+            return modeloLectura.buscarPorNombre(nombre);
+        }
         return provinciaRepository.findByNombreIgnoreCase(nombre);
     }
+
+    @Override
+    public List<String> sugerirNombres(String nombre) {
+        validarNombre(nombre);
+        return indiceNombres.sugerir(nombre);
+    }
     
     @Override
     public Provincia modificarProvincia(Provincia provincia) {
         validarProvincia(provincia);
 
-        return provinciaRepository.save(provincia);
+        provincia.setCambio(relojCambios.siguiente());
+        completarPais(provincia);
+        Provincia provinciaModificada = provinciaRepository.save(provincia);
+        // El flush incrementa la versión ahora, para que el evento lleve la
+        // versión que queda confirmada.
+        provinciaRepository.flush();
+        eventPublisher.publishEvent(ProvinciaEvento.de(ProvinciaEvento.Tipo.MODIFICADA, provinciaModificada));
+        return provinciaModificada;
+    }
+    
+    @Override
+    public Provincia modificarNombre(long id, String nombre, long version, Pais pais)
+            throws ProvinciaConflictoException {
+        validarNombre(nombre);
+
+        long cambio = relojCambios.siguiente();
+        if (provinciaRepository.actualizarNombreSiVersion(id, nombre, version, cambio) == 0) {
+            // Solo en el caso de falla se consulta si la fila existe.
+            if (!provinciaRepository.existsById(id)) {
+                return null;
+            }
+            throw new ProvinciaConflictoException(
+                    "La provincia " + id + " fue modificada por otro usuario.");
+        }
+
+        // La fila no se vuelve a leer: la respuesta se arma con lo que ya se
+        // sabe. El país no cambia; se toma del pedido o del modelo de lectura.
+        if (pais == null && usarModeloLectura()) {
+            Provincia conocida = modeloLectura.buscarPorId(id);
+            pais = conocida != null ? conocida.getPais() : null;
+        }
+        Provincia provinciaModificada = new Provincia(id, nombre, pais);
+        provinciaModificada.setVersion(version + 1);
+        provinciaModificada.setCambio(cambio);
+        // Sin país en el evento: en una modificación indica que no cambió.
+        eventPublisher.publishEvent(new ProvinciaEvento(ProvinciaEvento.Tipo.MODIFICADA, id, nombre,
+                null, null, cambio, version + 1));
+        return provinciaModificada;
+    }
+    
+    @Override
+    public int eliminarProvincia(long id) {
+        return eliminarProvincias(List.of(id));
+    }
+
+    @Override
+    public int eliminarProvincias(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Se debe indicar al menos un ID de provincia.");
+        }
+        long cambio = relojCambios.siguiente();
+        // Primero las marcas (INSERT ... SELECT) y después el DELETE, ambos
+        // con el mismo criterio: dos sentencias sin importar la cantidad.
+        provinciaEliminadaRepository.registrarPorIds(ids, cambio);
+        int eliminadas = provinciaRepository.eliminarPorIds(ids);
+        publicarEliminaciones(eliminadas, cambio);
+        return eliminadas;
+    }
+
+    @Override
+    public int eliminarProvinciasDePais(long idPais) {
+        long cambio = relojCambios.siguiente();
+        provinciaEliminadaRepository.registrarPorPais(idPais, cambio);
+        int eliminadas = provinciaRepository.eliminarPorPais(idPais);
+        publicarEliminaciones(eliminadas, cambio);
+        return eliminadas;
+    }
+
+    /**
+     * Una provincia dada con solo el ID de su país ({"pais":{"id":1}}) no trae
+     * su nombre, y el evento lo tiene que llevar: los listeners posteriores al
+     * commit no van a la base. Se toma del modelo de lectura si lo conoce y si
+     * no se lee el país, dentro de esta transacción.
+     */
+    private void completarPais(Provincia provincia) {
+        Pais pais = provincia.getPais();
+        if (pais == null || pais.getId() == null || pais.getNombre() != null) {
+            return;
+        }
+        String nombre = usarModeloLectura() ? modeloLectura.nombrePais(pais.getId()) : null;
+        if (nombre != null) {
+            provincia.setPais(new Pais(pais.getId(), nombre));
+        } else {
+            paisRepository.findById(pais.getId()).ifPresent(provincia::setPais);
+        }
+    }
+
+    /**
+     * Publica un evento de baja por cada provincia eliminada, para que los
+     * suscriptores y las cachés se actualicen tras el commit.
+     */
+    private void publicarEliminaciones(int eliminadas, long cambio) {
+        if (eliminadas == 0) {
+            return;
+        }
+        for (Long id : provinciaEliminadaRepository.buscarIdsPorCambio(cambio)) {
+            eventPublisher.publishEvent(ProvinciaEvento.eliminada(id, cambio));
+        }
     }
     
     @Override
-    public void eliminarProvincia(long id) {
-        provinciaRepository.deleteById(id);
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public FilasProvincias buscarTodasLasProvincias() {
+        if (usarModeloLectura()) {
+            return modeloLectura.todas();
+        }
+        // Con el país en el mismo JOIN: findAll() lo traería con una consulta
+        // más por cada país distinto.
+        return FilasProvincias.de(provinciaRepository.buscarTodasConPais());
     }
     
     @Override
-    public List<Provincia> buscarTodasLasProvincias() {
-        return provinciaRepository.findAll();
+    @Transactional(readOnly = true)
+    public void recorrerCamposDeTodas(Set<CampoProvincia> campos, Consumer<Iterator<Object[]>> consumidor) {
+        if (usarModeloLectura()) {
+            FilasProvincias todas = modeloLectura.todas();
+            consumidor.accept(IntStream.range(0, todas.cantidad())
+                    .mapToObj(fila -> aFila(todas, fila, campos))
+                    .iterator());
+            return;
+        }
+        try (Stream<Object[]> filas = provinciaRepository.buscarCampos(campos)) {
+            consumidor.accept(filas.iterator());
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public FilasProvincias buscarConFiltro(FiltroProvincias filtro) {
+        if (usarModeloLectura()) {
+            return modeloLectura.filtrar(filtro);
+        }
+        return FilasProvincias.de(provinciaRepository.buscarConFiltro(filtro));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Page<Provincia> buscarPaginaDeProvincias(Pageable pageable) {
+        if (usarModeloLectura()) {
+            // null si el orden pedido no se puede resolver en memoria.
+            Page<Provincia> pagina = modeloLectura.pagina(pageable);
+            if (pagina != null) {
+                return pagina;
+            }
+        }
+        return provinciaRepository.buscarPaginaConPais(pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void recorrerProvincias(Consumer<Iterator<ProvinciaDTO>> consumidor) {
+        try (Stream<ProvinciaDTO> provincias = provinciaRepository.buscarTodasComoDTO()) {
+            consumidor.accept(provincias.iterator());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CambiosProvinciaDTO buscarCambiosDesde(long desde) {
+        // Se fija la marca antes de consultar: lo que se confirme después
+        // queda para la próxima sincronización.
+        long hasta = relojCambios.marcaSegura();
+        if (desde <= 0) {
+            return new CambiosProvinciaDTO(aDTO(provinciaRepository.buscarTodasConPais()),
+                    Collections.emptyList(), hasta);
+        }
+        if (desde >= hasta) {
+            return new CambiosProvinciaDTO(Collections.emptyList(), Collections.emptyList(), desde);
+        }
+        return new CambiosProvinciaDTO(
+                aDTO(provinciaRepository.buscarCambiosEntre(desde, hasta)),
+                provinciaEliminadaRepository.buscarIdsEntre(desde, hasta),
+                hasta);
+    }
+
+    private List<ProvinciaDTO> aDTO(List<Provincia> provincias) {
+        return provincias.stream()
+                .map(provincia -> new ProvinciaDTO(
+                        provincia.getId(),
+                        provincia.getNombre(),
+                        provincia.getPais() != null ? provincia.getPais().getNombre() : null))
+                .collect(Collectors.toList());
+    }
+    
+    private static Object[] aFila(FilasProvincias filas, int posicion, Set<CampoProvincia> campos) {
+        Object[] fila = new Object[campos.size()];
+        int i = 0;
+        for (CampoProvincia campo : campos) {
+            fila[i++] = switch (campo) {
+                case ID -> filas.id(posicion);
+                case NOMBRE -> filas.nombre(posicion);
+                case PAIS -> filas.nombrePais(posicion);
+            };
+        }
+        return fila;
+    }
+
+    private static Object[] aFila(Provincia provincia, Set<CampoProvincia> campos) {
+        Object[] fila = new Object[campos.size()];
+        int i = 0;
+        for (CampoProvincia campo : campos) {
+            fila[i++] = switch (campo) {
+                case ID -> provincia.getId();
+                case NOMBRE -> provincia.getNombre();
+                case PAIS -> provincia.getPais() != null ? provincia.getPais().getNombre() : null;
+            };
+        }
+        return fila;
+    }
+
+    private boolean usarModeloLectura() {
+        return modeloLectura != null && modeloLectura.estaListo();
     }
     
     //FUNCIONES VALIDADORAS.
@@ -71,7 +352,7 @@ public class ProvinciaService implements IProvinciaService {
         }
     }
 
-    private void validarProvincia(Provincia nombreProvincia) {
+    static void validarProvincia(Provincia nombreProvincia) {
         if (nombreProvincia == null || nombreProvincia.getNombre() == null
                 || nombreProvincia.getNombre().length() < 3) {
             throw new IllegalArgumentException("Se debe ingresar una provincia, "
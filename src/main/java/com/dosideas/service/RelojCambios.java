@@ -0,0 +1,223 @@
+package com.dosideas.service;
+
+import com.dosideas.repository.ProvinciaEliminadaRepository;
+import com.dosideas.repository.ProvinciaRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Asigna los números de cambio de provincias: un contador global y creciente
+ * que se guarda en cada alta, modificación o baja.
+ *
+ * Los números salen de una secuencia de la base principal (en MySQL, una
+ * tabla con AUTO_INCREMENT), en la misma ida y vuelta que pide el número y
+ * sin bloquear nada hasta el commit: las escrituras de distintos nodos no se
+ * esperan entre sí. A cambio, los números se confirman en cualquier orden, y
+ * uno más alto puede verse antes que otro más bajo todavía en curso. Por eso
+ * los consumidores no leen "hasta el último número", sino hasta la marca
+ * segura ({@link #marcaSegura()}): el mayor número hasta el cual todos los
+ * cambios ya están confirmados (o descartados, que quedan como huecos).
+ *
+ * Cada nodo conoce los números que tiene en curso. Con una sola instancia
+ * ("cambios.seguimiento.intervalo-ms" en 0) eso alcanza para calcular la
+ * marca. Con varias, cada nodo publica en la tabla nodo_cambio el menor
+ * número que todavía podría confirmar ({@link #avanzar()}, que llama
+ * periódicamente {@link SeguidorCambios}) y la marca es el mínimo de todos,
+ * menos uno. Un nodo que deja de publicar se descarta después de
+ * {@value #LATIDOS_PERDIDOS} intervalos.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+public class RelojCambios {
+
+    private static final int LATIDOS_PERDIDOS = 10;
+
+    // En MySQL, cada cuántos números se borran de secuencia_cambio las filas
+    // ya alcanzadas por la marca.
+    private static final int PURGA = 1000;
+
+    private final ProvinciaRepository provinciaRepository;
+    private final ProvinciaEliminadaRepository provinciaEliminadaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final long intervaloMs;
+    private final String nodo = UUID.randomUUID().toString();
+
+    // Números asignados en este nodo cuya transacción no terminó. La
+    // asignación y el alta en curso se hacen con el lock de lectura; el
+    // cálculo de la marca, con el de escritura, así no ve un número ya
+    // asignado que todavía no está en curso.
+    private final NavigableSet<Long> enCurso = new ConcurrentSkipListSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong ultimo = new AtomicLong();
+
+    // Con varios nodos, la última marca calculada por avanzar(). Otro nodo
+    // puede tener en curso números menores al último usado: arranca en 0.
+    private volatile long marcaGlobal;
+
+    private boolean mysql;
+
+    public RelojCambios(ProvinciaRepository provinciaRepository,
+            ProvinciaEliminadaRepository provinciaEliminadaRepository,
+            JdbcTemplate jdbcTemplate,
+            @Value("${cambios.seguimiento.intervalo-ms:2000}") long intervaloMs) {
+        this.provinciaRepository = provinciaRepository;
+        this.provinciaEliminadaRepository = provinciaEliminadaRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.intervaloMs = intervaloMs;
+    }
+
+    /**
+     * Lleva la secuencia al mayor número ya usado, si está atrás (la base no
+     * la puede crear en ese valor y la principal no ve los fragmentos), y con
+     * varios nodos registra a este antes de que asigne el primer número.
+     */
+    @PostConstruct
+    public void inicializar() {
+        mysql = jdbcTemplate.execute((ConnectionCallback<Boolean>) conexion ->
+                "MySQL".equals(conexion.getMetaData().getDatabaseProductName()));
+        long usado = Math.max(provinciaRepository.buscarUltimoCambio(),
+                provinciaEliminadaRepository.buscarUltimoCambio());
+        if (mysql) {
+            // Un valor explícito mayor adelanta el AUTO_INCREMENT.
+            jdbcTemplate.update("INSERT IGNORE INTO secuencia_cambio (cambio) VALUES (?)", usado);
+        } else if (asignar() <= usado) {
+            jdbcTemplate.execute("ALTER SEQUENCE secuencia_cambio RESTART WITH " + (usado + 1));
+        }
+        ultimo.set(usado);
+        if (intervaloMs > 0) {
+            avanzar();
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (intervaloMs > 0) {
+            jdbcTemplate.update("DELETE FROM nodo_cambio WHERE nodo = ?", nodo);
+        }
+    }
+
+    /**
+     * Asigna el siguiente número de cambio, que queda en curso hasta que
+     * termina la transacción actual (obligatoria).
+     *
+     * @return El número de cambio asignado.
+     */
+    public long siguiente() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("El número de cambio se asigna dentro de una transacción.");
+        }
+        long cambio;
+        lock.readLock().lock();
+        try {
+            cambio = asignar();
+            enCurso.add(cambio);
+            ultimo.accumulateAndGet(cambio, Math::max);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Sale de curso recién después de los listeners AFTER_COMMIT del
+        // cambio: la marca no lo pasa hasta que todos lo recibieron. Como esos
+        // se registran al publicar el evento, después que esta, la que lo saca
+        // se registra al terminar la transacción y queda última.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCompletion() {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        enCurso.remove(cambio);
+                    }
+
+                    @Override
+                    public int getOrder() {
+                        return Ordered.LOWEST_PRECEDENCE;
+                    }
+                });
+            }
+        });
+        if (mysql && cambio % PURGA == 0) {
+            // Debajo de la marca no hay filas de transacciones en curso: el
+            // borrado no espera ningún lock.
+            jdbcTemplate.update("DELETE FROM secuencia_cambio WHERE cambio < ?", marcaSegura());
+        }
+        return cambio;
+    }
+
+    /**
+     * @return El mayor número de cambio hasta el cual todos los cambios ya
+     * están confirmados (o descartados).
+     */
+    public long marcaSegura() {
+        if (intervaloMs > 0) {
+            return marcaGlobal;
+        }
+        lock.writeLock().lock();
+        try {
+            return enCurso.isEmpty() ? ultimo.get() : enCurso.first() - 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Con varios nodos, publica el menor número que este nodo todavía podría
+     * confirmar y recalcula la marca segura con lo que publicaron todos. Cada
+     * paso es una sentencia corta, fuera de toda transacción.
+     *
+     * @return La nueva marca segura.
+     */
+    long avanzar() {
+        // Todo número que este nodo asigne después será mayor.
+        long pendiente = asignar();
+        lock.writeLock().lock();
+        try {
+            if (!enCurso.isEmpty()) {
+                pendiente = Math.min(pendiente, enCurso.first());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        long ahora = System.currentTimeMillis();
+        if (jdbcTemplate.update("UPDATE nodo_cambio SET pendiente = ?, latido = ? WHERE nodo = ?",
+                pendiente, new Timestamp(ahora), nodo) == 0) {
+            jdbcTemplate.update("INSERT INTO nodo_cambio (nodo, pendiente, latido) VALUES (?, ?, ?)",
+                    nodo, pendiente, new Timestamp(ahora));
+        }
+        jdbcTemplate.update("DELETE FROM nodo_cambio WHERE latido < ?",
+                new Timestamp(ahora - LATIDOS_PERDIDOS * intervaloMs));
+        Long minimo = jdbcTemplate.queryForObject("SELECT MIN(pendiente) FROM nodo_cambio", Long.class);
+        if (minimo != null && minimo - 1 > marcaGlobal) {
+            marcaGlobal = minimo - 1;
+        }
+        return marcaGlobal;
+    }
+
+    private long asignar() {
+        if (!mysql) {
+            return jdbcTemplate.queryForObject("CALL NEXT VALUE FOR secuencia_cambio", Long.class);
+        }
+        KeyHolder clave = new GeneratedKeyHolder();
+        jdbcTemplate.update(conexion -> conexion.prepareStatement(
+                "INSERT INTO secuencia_cambio () VALUES ()", Statement.RETURN_GENERATED_KEYS), clave);
+        return clave.getKey().longValue();
+    }
+}
@@ -0,0 +1,169 @@
+package com.dosideas.service;
+
+import com.dosideas.domain.Provincia;
+import com.dosideas.domain.ProvinciaEliminada;
+import com.dosideas.event.ProvinciaEvento;
+import com.dosideas.repository.ProvinciaEliminadaRepository;
+import com.dosideas.repository.ProvinciaRepository;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Aplica en este nodo los cambios de provincias que confirmaron otros nodos.
+ *
+ * Los {@link ProvinciaEvento} se publican solo en el nodo que escribe: el
+ * modelo de lectura, el índice de nombres, la caché de fragmentos y los
+ * suscriptores SSE de los demás nodos no se enteran. Cada
+ * "cambios.seguimiento.intervalo-ms" se avanza la marca segura de
+ * {@link RelojCambios} y, si avanzó, se buscan las provincias cambiadas y las
+ * bajas en el rango y se publica un evento por cada una que no se haya
+ * escrito en este nodo (las propias se reconocen por su número de cambio).
+ * Hasta la marca no quedan cambios en curso, así que el rango está completo:
+ * los números que faltan son de transacciones descartadas.
+ *
+ * También lleva la marca hasta la cual este nodo ya aplicó todos los cambios
+ * ({@link #marcaAplicada()}), que es la que guarda el snapshot del catálogo.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+public class SeguidorCambios {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeguidorCambios.class);
+
+    private final RelojCambios relojCambios;
+    private final ProvinciaRepository provinciaRepository;
+    private final ProvinciaEliminadaRepository provinciaEliminadaRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final long intervaloMs;
+
+    private final ScheduledExecutorService ejecutor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "seguidor-cambios");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Números de cambio escritos en este nodo todavía no alcanzados por el
+    // seguimiento.
+    private final NavigableSet<Long> propios = new ConcurrentSkipListSet<>();
+
+    // Hasta dónde llegó el seguimiento (-1: la aplicación no terminó de
+    // arrancar). Solo lo escribe el hilo del seguimiento.
+    private volatile long marca = -1;
+
+    public SeguidorCambios(RelojCambios relojCambios,
+            ProvinciaRepository provinciaRepository,
+            ProvinciaEliminadaRepository provinciaEliminadaRepository,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            @Value("${cambios.seguimiento.intervalo-ms:2000}") long intervaloMs) {
+        this.relojCambios = relojCambios;
+        this.provinciaRepository = provinciaRepository;
+        this.provinciaEliminadaRepository = provinciaEliminadaRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.intervaloMs = intervaloMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void arrancar() {
+        marca = relojCambios.marcaSegura();
+        if (intervaloMs <= 0) {
+            return;
+        }
+        ejecutor.scheduleWithFixedDelay(this::seguirSinFallar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Anota el número de cambio de una escritura de este nodo antes de que se
+     * confirme (después ya la podría ver el seguimiento).
+     *
+     * @param evento El cambio que se está por confirmar.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void anotarPropio(ProvinciaEvento evento) {
+        if (intervaloMs > 0 && evento.getCambio() != null) {
+            propios.add(evento.getCambio());
+        }
+    }
+
+    /**
+     * @return El mayor número de cambio hasta el cual este nodo ya aplicó (y
+     * notificó a sus listeners) todos los cambios, propios y de otros nodos.
+     */
+    public long marcaAplicada() {
+        // Los cambios propios salen de curso después de sus listeners: hasta
+        // la marca segura este nodo ya los notificó.
+        return intervaloMs > 0 && marca >= 0 ? marca : relojCambios.marcaSegura();
+    }
+
+    private void seguirSinFallar() {
+        try {
+            seguir();
+        } catch (RuntimeException e) {
+            LOG.warn("No se pudieron leer los cambios de otros nodos desde {}; se reintenta", marca, e);
+        }
+    }
+
+    /**
+     * Publica los cambios de otros nodos confirmados desde la última vez.
+     *
+     * @return La cantidad de eventos publicados.
+     */
+    int seguir() {
+        long desde = marca;
+        long hasta = relojCambios.avanzar();
+        if (hasta <= desde) {
+            return 0;
+        }
+        List<ProvinciaEvento> eventos = transactionTemplate.execute(estado -> {
+            List<ProvinciaEvento> ajenos = new ArrayList<>();
+            for (Provincia provincia : provinciaRepository.buscarCambiosEntre(desde, hasta)) {
+                if (!propios.contains(provincia.getCambio())) {
+                    ajenos.add(ProvinciaEvento.de(Long.valueOf(0).equals(provincia.getVersion())
+                            ? ProvinciaEvento.Tipo.CREADA : ProvinciaEvento.Tipo.MODIFICADA, provincia));
+                }
+            }
+            for (ProvinciaEliminada eliminada : provinciaEliminadaRepository.buscarEntre(desde, hasta)) {
+                if (!propios.contains(eliminada.getCambio())) {
+                    ajenos.add(ProvinciaEvento.eliminada(eliminada.getId(), eliminada.getCambio()));
+                }
+            }
+            return ajenos;
+        });
+        // Fuera de una transacción: los listeners AFTER_COMMIT los reciben en
+        // el acto (fallbackExecution).
+        eventos.forEach(eventPublisher::publishEvent);
+        propios.headSet(hasta, true).clear();
+        marca = hasta;
+        if (!eventos.isEmpty()) {
+            LOG.debug("{} cambios de otros nodos aplicados ({}, {}]", eventos.size(), desde, hasta);
+        }
+        return eventos.size();
+    }
+}
@@ -0,0 +1,343 @@
+package com.dosideas.service;
+
+import com.dosideas.domain.Provincia;
+import com.dosideas.event.ProvinciaEvento;
+import com.dosideas.repository.ProvinciaEliminadaRepository;
+import com.dosideas.repository.ProvinciaRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Snapshot binario del {@link ModeloLecturaProvincias}, para que un nodo que
+ * arranca responda enseguida en lugar de reconstruir el catálogo desde la
+ * base (lo que, con todos los nodos arrancando a la vez, la satura).
+ *
+ * Formato, versión 1 (big-endian):
+ * <pre>
+ * int   0x43415450 ("CATP")
+ * int   versión del formato
+ * long  marca: número de cambio hasta el cual el snapshot está al día
+ * long  fecha de escritura (milisegundos desde epoch)
+ * int   cantidad de países
+ * int   cantidad de provincias
+ * por país:      long id, texto nombre
+ * por provincia: long id, long versión, int posición del país (-1: sin país), texto nombre
+ * long  CRC32 de todo lo anterior
+ * </pre>
+ * Un texto es un unsigned short con la cantidad de bytes (0xFFFF: null)
+ * seguido del UTF-8.
+ *
+ * Al crearse abre el archivo con FileChannel.map y carga el modelo desde la
+ * memoria mapeada, antes de que la aplicación empiece a atender. Una vez
+ * arrancada, en segundo plano, aplica los cambios confirmados después de la
+ * marca (provincias cambiadas y bajas registradas) y compara la cantidad de
+ * provincias con la base; si no coincide, o si la marca es posterior a la de
+ * la base (por ejemplo, otra base), recarga el modelo desde la base.
+ *
+ * Se escribe cada "catalogo.snapshot.intervalo-segundos" si hubo cambios y al
+ * cerrar la aplicación, en un archivo temporal que después reemplaza al
+ * anterior, así un corte a mitad de escritura no deja un snapshot roto.
+ *
+ * @author Gabriel Romero
+ */
+@Component
+@ConditionalOnProperty(name = {"provincia.modelo-lectura.habilitado", "catalogo.snapshot.habilitado"},
+        havingValue = "true")
+public class SnapshotCatalogo {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotCatalogo.class);
+
+    static final int MAGICO = 0x43415450;
+    static final int FORMATO = 1;
+
+    private static final int CABECERA = 2 * Integer.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES;
+    private static final int TEXTO_NULL = 0xFFFF;
+
+    private final ModeloLecturaProvincias modelo;
+    private final ProvinciaRepository provinciaRepository;
+    private final ProvinciaEliminadaRepository provinciaEliminadaRepository;
+    private final RelojCambios relojCambios;
+    private final SeguidorCambios seguidorCambios;
+    private final TransactionTemplate transactionTemplate;
+    private final Path archivo;
+    private final long intervaloSegundos;
+
+    private final ScheduledExecutorService ejecutor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "snapshot-catalogo");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Marca del snapshot con el que arrancó el modelo (-1: arrancó desde la base).
+    private long marcaLeida = -1;
+    private long marcaEscrita = -1;
+
+    public SnapshotCatalogo(ModeloLecturaProvincias modelo,
+            ProvinciaRepository provinciaRepository,
+            ProvinciaEliminadaRepository provinciaEliminadaRepository,
+            RelojCambios relojCambios,
+            SeguidorCambios seguidorCambios,
+            PlatformTransactionManager transactionManager,
+            @Value("${catalogo.snapshot.archivo:catalogo.snapshot}") String archivo,
+            @Value("${catalogo.snapshot.intervalo-segundos:300}") long intervaloSegundos) {
+        this.modelo = modelo;
+        this.provinciaRepository = provinciaRepository;
+        this.provinciaEliminadaRepository = provinciaEliminadaRepository;
+        this.relojCambios = relojCambios;
+        this.seguidorCambios = seguidorCambios;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.archivo = Path.of(archivo).toAbsolutePath();
+        this.intervaloSegundos = intervaloSegundos;
+    }
+
+    /**
+     * Carga el modelo desde el snapshot, si hay uno válido.
+     */
+    @PostConstruct
+    public void abrir() {
+        if (!Files.exists(archivo)) {
+            LOG.info("No hay snapshot del catálogo en {}; el modelo se carga desde la base", archivo);
+            return;
+        }
+        try {
+            marcaLeida = leer(archivo, filas -> modelo.cargarFilas(filas, "el snapshot " + archivo));
+            marcaEscrita = marcaLeida;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("No se pudo usar el snapshot del catálogo {}; el modelo se carga desde la base", archivo, e);
+        }
+    }
+
+    /**
+     * Valida el snapshot en segundo plano y programa las escrituras
+     * periódicas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void arrancar() {
+        if (marcaLeida >= 0) {
+            ejecutor.execute(this::validar);
+        }
+        ejecutor.scheduleWithFixedDelay(this::escribirSinFallar, intervaloSegundos, intervaloSegundos,
+                TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        ejecutor.shutdownNow();
+        escribirSinFallar();
+    }
+
+    /**
+     * Escribe el snapshot si el modelo cambió desde la última escritura.
+     *
+     * @return true si se escribió.
+     */
+    public synchronized boolean escribir() throws IOException {
+        // La marca se toma antes de copiar: todo cambio hasta ella ya se
+        // aplicó al modelo.
+        long marca = seguidorCambios.marcaAplicada();
+        if (!modelo.estaListo() || marca == marcaEscrita) {
+            return false;
+        }
+        long inicio = System.nanoTime();
+        Files.createDirectories(archivo.getParent());
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream salida = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporal), 1 << 16), crc))) {
+            salida.writeInt(MAGICO);
+            salida.writeInt(FORMATO);
+            salida.writeLong(marca);
+            salida.writeLong(System.currentTimeMillis());
+            modelo.exportar(new ModeloLecturaProvincias.Exportador() {
+                @Override
+                public void inicio(int paises, int provincias) throws IOException {
+                    salida.writeInt(paises);
+                    salida.writeInt(provincias);
+                }
+
+                @Override
+                public void pais(long id, String nombre) throws IOException {
+                    salida.writeLong(id);
+                    escribirTexto(salida, nombre);
+                }
+
+                @Override
+                public void provincia(long id, String nombre, long version, int pais) throws IOException {
+                    salida.writeLong(id);
+                    salida.writeLong(version);
+                    salida.writeInt(pais);
+                    escribirTexto(salida, nombre);
+                }
+            });
+            salida.writeLong(crc.getValue());
+        }
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        marcaEscrita = marca;
+        LOG.info("Snapshot del catálogo escrito en {} ms: {} KB, marca {}",
+                (System.nanoTime() - inicio) / 1_000_000, Files.size(archivo) / 1024, marca);
+        return true;
+    }
+
+    /**
+     * Lee y verifica un snapshot mapeándolo en memoria, y entrega sus
+     * provincias al consumidor con el formato de
+     * {@link ProvinciaRepository#buscarFilasPlanas()}. El iterador solo es
+     * válido durante la llamada.
+     *
+     * @param archivo El snapshot.
+     * @param consumidor Recibe las provincias, en orden de ID.
+     * @return La marca del snapshot.
+     * @throws IOException Si no se puede leer, no es un snapshot, tiene otro
+     * formato o está dañado.
+     */
+    static long leer(Path archivo, Consumer<Iterator<Object[]>> consumidor) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (buffer.limit() < CABECERA + Long.BYTES || buffer.getInt(0) != MAGICO) {
+                throw new IOException(archivo + " no es un snapshot del catálogo");
+            }
+            int formato = buffer.getInt(Integer.BYTES);
+            if (formato != FORMATO) {
+                throw new IOException("Formato de snapshot " + formato + " no soportado (se esperaba "
+                        + FORMATO + ")");
+            }
+            int fin = buffer.limit() - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, fin));
+            if (crc.getValue() != buffer.getLong(fin)) {
+                throw new IOException("El snapshot " + archivo + " está dañado (CRC inválido)");
+            }
+            buffer.position(2 * Integer.BYTES);
+            long marca = buffer.getLong();
+            buffer.getLong();
+            int cantidadPaises = buffer.getInt();
+            int cantidadProvincias = buffer.getInt();
+            Long[] idsPais = new Long[cantidadPaises];
+            String[] nombresPais = new String[cantidadPaises];
+            for (int i = 0; i < cantidadPaises; i++) {
+                idsPais[i] = buffer.getLong();
+                nombresPais[i] = leerTexto(buffer);
+            }
+            consumidor.accept(new Iterator<>() {
+                private int leidas;
+
+                @Override
+                public boolean hasNext() {
+                    return leidas < cantidadProvincias;
+                }
+
+                @Override
+                public Object[] next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    leidas++;
+                    long id = buffer.getLong();
+                    long version = buffer.getLong();
+                    int pais = buffer.getInt();
+                    String nombre = leerTexto(buffer);
+                    return pais < 0
+                            ? new Object[]{id, nombre, version, null, null}
+                            : new Object[]{id, nombre, version, idsPais[pais], nombresPais[pais]};
+                }
+            });
+            return marca;
+        }
+    }
+
+    /**
+     * Pone al día el modelo cargado desde el snapshot con lo que cambió en la
+     * base después de escribirlo; si no se puede, lo recarga desde la base.
+     */
+    void validar() {
+        long inicio = System.nanoTime();
+        long hasta = relojCambios.marcaSegura();
+        boolean valido;
+        try {
+            valido = marcaLeida <= hasta && transactionTemplate.execute(estado -> {
+                List<Provincia> cambiadas = provinciaRepository.buscarCambiosEntre(marcaLeida, hasta);
+                List<Long> eliminadas = provinciaEliminadaRepository.buscarIdsEntre(marcaLeida, hasta);
+                cambiadas.forEach(provincia ->
+                        modelo.aplicar(ProvinciaEvento.de(ProvinciaEvento.Tipo.MODIFICADA, provincia)));
+                eliminadas.forEach(id -> modelo.aplicar(ProvinciaEvento.eliminada(id, null)));
+                LOG.info("Snapshot del catálogo: {} provincias cambiadas y {} eliminadas desde la marca {}",
+                        cambiadas.size(), eliminadas.size(), marcaLeida);
+                return provinciaRepository.count() == modelo.estadisticas().getProvincias();
+            });
+        } catch (RuntimeException e) {
+            LOG.warn("No se pudo validar el snapshot del catálogo", e);
+            valido = false;
+        }
+        if (!valido) {
+            LOG.warn("El snapshot del catálogo (marca {}) no coincide con la base (marca {}); "
+                    + "se recarga el modelo desde la base", marcaLeida, hasta);
+            modelo.recargar();
+        } else {
+            LOG.info("Snapshot del catálogo validado en {} ms", (System.nanoTime() - inicio) / 1_000_000);
+        }
+        escribirSinFallar();
+    }
+
+    private void escribirSinFallar() {
+        try {
+            escribir();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("No se pudo escribir el snapshot del catálogo {}", archivo, e);
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        if (texto == null) {
+            salida.writeShort(TEXTO_NULL);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= TEXTO_NULL) {
+            throw new IOException("Texto demasiado largo para el snapshot: " + bytes.length + " bytes");
+        }
+        salida.writeShort(bytes.length);
+        salida.write(bytes);
+    }
+
+    private static String leerTexto(ByteBuffer buffer) {
+        int largo = Short.toUnsignedInt(buffer.getShort());
+        if (largo == TEXTO_NULL) {
+            return null;
+        }
+        String texto = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), largo)).toString();
+        buffer.position(buffer.position() + largo);
+        return texto;
+    }
+}
@@ -0,0 +1,54 @@
+package com.dosideas.traza;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * El convertidor JSON de Spring, con un span ("json.escribir") alrededor de
+ * cada escritura dentro de un request trazado.
+ *
+ * @author Gabriel Romero
+ */
+class ConvertidorJsonTrazado extends MappingJackson2HttpMessageConverter {
+
+    private static final AttributeKey<String> TIPO = AttributeKey.stringKey("tipo");
+
+    private final ObjectProvider<Tracer> trazador;
+
+    ConvertidorJsonTrazado(ObjectMapper objectMapper, ObjectProvider<Tracer> trazador) {
+        super(objectMapper);
+        this.trazador = trazador;
+    }
+
+    @Override
+    protected void writeInternal(Object objeto, Type tipo, HttpOutputMessage salida)
+            throws IOException, HttpMessageNotWritableException {
+        if (!Span.current().getSpanContext().isSampled()) {
+            super.writeInternal(objeto, tipo, salida);
+            return;
+        }
+        Span span = trazador.getObject().spanBuilder("json.escribir")
+                .setAttribute(TIPO, objeto == null ? "null" : objeto.getClass().getSimpleName())
+                .setAttribute(TrazaConfig.HILO, Thread.currentThread().getName())
+                .startSpan();
+        try (Scope scope = span.makeCurrent()) {
+            super.writeInternal(objeto, tipo, salida);
+        } catch (IOException | RuntimeException e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
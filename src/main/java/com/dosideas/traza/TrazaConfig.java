@@ -0,0 +1,72 @@
+package com.dosideas.traza;
+
+import com.dosideas.diagnostico.InterceptoresLlamadas;
+import com.dosideas.service.IProvinciaService;
+import com.dosideas.service.PaisService;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración del trazado de requests con OpenTelemetry.
+ *
+ * Cada request a /api/provincia y /api/pais abre un span
+ * ({@link TrazaRequestInterceptor}) del que cuelgan las llamadas a
+ * IProvinciaService y PaisService, las de los repositorios y la escritura del
+ * JSON. Así se ve si el tiempo de un endpoint se fue en la espera del
+ * compartimento, en la transacción, en las consultas o en la serialización.
+ *
+ * El muestreo es en la cabecera del request: se traza la fracción
+ * "traza.muestreo" de los requests (por el ID de la traza), o los que llegan
+ * con un header traceparent muestreado. Las trazas terminadas quedan en
+ * {@link TrazasEnMemoria} (las últimas "traza.capacidad") y se ven en
+ * /api/admin/trazas, sin colector externo.
+ *
+ * @author Gabriel Romero
+ */
+@Configuration
+public class TrazaConfig {
+
+    static final String INSTRUMENTACION = "com.dosideas";
+    static final AttributeKey<String> CAPA = AttributeKey.stringKey("capa");
+    static final AttributeKey<String> HILO = AttributeKey.stringKey("hilo");
+
+    @Bean
+    public TrazasEnMemoria trazasEnMemoria(@Value("${traza.capacidad:200}") int capacidad) {
+        return new TrazasEnMemoria(capacidad);
+    }
+
+    @Bean(destroyMethod = "close")
+    public SdkTracerProvider proveedorTrazas(TrazasEnMemoria trazas,
+            @Value("${traza.muestreo:0.1}") double muestreo) {
+        return SdkTracerProvider.builder()
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(muestreo)))
+                .addSpanProcessor(SimpleSpanProcessor.create(trazas))
+                .build();
+    }
+
+    @Bean
+    public Tracer trazador(SdkTracerProvider proveedorTrazas) {
+        return proveedorTrazas.get(INSTRUMENTACION);
+    }
+
+    /**
+     * Por fuera del proxy transaccional de los servicios, así el span de la
+     * llamada incluye el commit.
+     */
+    @Bean
+    public static BeanPostProcessor trazaLlamadasPostProcessor(ObjectProvider<Tracer> trazador) {
+        return new InterceptoresLlamadas()
+                .servicio(IProvinciaService.class, nombre -> new TrazaLlamada(nombre, "servicio", trazador))
+                .servicio(PaisService.class, nombre -> new TrazaLlamada(nombre, "servicio", trazador))
+                .repositorios(nombre -> new TrazaLlamada(nombre, "repositorio", trazador));
+    }
+}
@@ -0,0 +1,55 @@
+package com.dosideas.traza;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Abre un span por cada llamada a un servicio o repositorio
+ * (IProvinciaService.buscarPorId, ProvinciaRepository.findById, etc.).
+ *
+ * Solo dentro de un request muestreado: fuera de una traza (tareas de fondo,
+ * requests que no se muestrearon) la llamada sigue sin crear nada.
+ *
+ * @author Gabriel Romero
+ */
+final class TrazaLlamada implements MethodInterceptor {
+
+    private final String nombre;
+    private final String capa;
+    private final ObjectProvider<Tracer> trazador;
+
+    /**
+     * @param nombre El nombre del bean en los spans (ProvinciaRepository, etc.).
+     * @param capa "servicio" o "repositorio".
+     */
+    TrazaLlamada(String nombre, String capa, ObjectProvider<Tracer> trazador) {
+        this.nombre = nombre;
+        this.capa = capa;
+        this.trazador = trazador;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocacion) throws Throwable {
+        if (!Span.current().getSpanContext().isSampled()) {
+            return invocacion.proceed();
+        }
+        Span span = trazador.getObject().spanBuilder(nombre + "." + invocacion.getMethod().getName())
+                .setAttribute(TrazaConfig.CAPA, capa)
+                .setAttribute(TrazaConfig.HILO, Thread.currentThread().getName())
+                .startSpan();
+        try (Scope scope = span.makeCurrent()) {
+            return invocacion.proceed();
+        } catch (Throwable e) {
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.dosideas.traza;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Abre el span de cada request (SERVER) y lo hace el span actual del hilo de
+ * Tomcat, tanto en el despacho inicial como en el asincrónico que escribe la
+ * respuesta. El trabajo que los controllers pasan a los compartimentos sigue
+ * la traza (ver Compartimentos).
+ *
+ * El span se termina al completar el request, con el código de respuesta.
+ * Si el request trae un header traceparent (W3C) el span continúa esa traza.
+ *
+ * @author Gabriel Romero
+ */
+class TrazaRequestInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ATRIBUTO_SPAN = TrazaRequestInterceptor.class.getName() + ".SPAN";
+    private static final String ATRIBUTO_SCOPE = TrazaRequestInterceptor.class.getName() + ".SCOPE";
+
+    private static final AttributeKey<String> METODO = AttributeKey.stringKey("http.method");
+    private static final AttributeKey<String> RUTA = AttributeKey.stringKey("http.route");
+    private static final AttributeKey<String> DESTINO = AttributeKey.stringKey("http.target");
+    private static final AttributeKey<Long> CODIGO = AttributeKey.longKey("http.status_code");
+    private static final AttributeKey<String> CONTROLADOR = AttributeKey.stringKey("controlador");
+
+    private static final TextMapGetter<HttpServletRequest> HEADERS = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(HttpServletRequest request) {
+            return Collections.list(request.getHeaderNames());
+        }
+
+        @Override
+        public String get(HttpServletRequest request, String nombre) {
+            return request == null ? null : request.getHeader(nombre);
+        }
+    };
+
+    private final ObjectProvider<Tracer> trazador;
+
+    TrazaRequestInterceptor(ObjectProvider<Tracer> trazador) {
+        this.trazador = trazador;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod metodo)) {
+            return true;
+        }
+        Span span = (Span) request.getAttribute(ATRIBUTO_SPAN);
+        if (span == null) {
+            Tracer tracer = trazador.getIfAvailable();
+            if (tracer == null) {
+                return true;
+            }
+            Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String ruta = patron == null ? request.getRequestURI() : patron.toString();
+            Context padre = W3CTraceContextPropagator.getInstance()
+                    .extract(Context.root(), request, HEADERS);
+            span = tracer.spanBuilder(request.getMethod() + " " + ruta)
+                    .setParent(padre)
+                    .setSpanKind(SpanKind.SERVER)
+                    .setAttribute(METODO, request.getMethod())
+                    .setAttribute(RUTA, ruta)
+                    .setAttribute(DESTINO, request.getQueryString() == null ? request.getRequestURI()
+                            : request.getRequestURI() + "?" + request.getQueryString())
+                    .setAttribute(CONTROLADOR,
+                            metodo.getBeanType().getSimpleName() + "." + metodo.getMethod().getName())
+                    .setAttribute(TrazaConfig.HILO, Thread.currentThread().getName())
+                    .startSpan();
+            request.setAttribute(ATRIBUTO_SPAN, span);
+        }
+        request.setAttribute(ATRIBUTO_SCOPE, span.makeCurrent());
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+            Object handler) {
+        cerrarScope(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        cerrarScope(request);
+        if (request.getAttribute(ATRIBUTO_SPAN) instanceof Span span) {
+            request.removeAttribute(ATRIBUTO_SPAN);
+            int codigo = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+            span.setAttribute(CODIGO, codigo);
+            if (ex != null) {
+                span.recordException(ex);
+            }
+            if (codigo >= 500) {
+                span.setStatus(StatusCode.ERROR);
+            }
+            span.end();
+        }
+    }
+
+    private static void cerrarScope(HttpServletRequest request) {
+        if (request.getAttribute(ATRIBUTO_SCOPE) instanceof Scope scope) {
+            request.removeAttribute(ATRIBUTO_SCOPE);
+            scope.close();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.dosideas.traza;
+
+import io.opentelemetry.api.trace.Tracer;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registra {@link TrazaRequestInterceptor} para los endpoints de provincias y
+ * países, y reemplaza el convertidor JSON por {@link ConvertidorJsonTrazado}
+ * (con el mismo ObjectMapper).
+ *
+ * @author Gabriel Romero
+ */
+@Configuration
+public class TrazaWebConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Tracer> trazador;
+
+    public TrazaWebConfig(ObjectProvider<Tracer> trazador) {
+        this.trazador = trazador;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new TrazaRequestInterceptor(trazador))
+                .addPathPatterns("/api/provincia/**", "/api/pais/**");
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> convertidores) {
+        for (int i = 0; i < convertidores.size(); i++) {
+            if (convertidores.get(i) instanceof MappingJackson2HttpMessageConverter json
+                    && !(json instanceof ConvertidorJsonTrazado)) {
+                convertidores.set(i, new ConvertidorJsonTrazado(json.getObjectMapper(), trazador));
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.dosideas.traza;
+
+import com.dosideas.dto.SpanDTO;
+import com.dosideas.dto.TrazaDTO;
+
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exportador de OpenTelemetry que guarda en memoria las últimas trazas, para
+ * verlas en /api/admin/trazas sin un colector externo.
+ *
+ * Los spans llegan de a uno a medida que terminan (el del request es el
+ * último) y se agrupan por traza. Se conservan las "capacidad" trazas más
+ * recientes, y de cada una a lo sumo {@link #MAXIMO_SPANS} spans: lo que
+ * excede se descarta.
+ *
+ * @author Gabriel Romero
+ */
+public final class TrazasEnMemoria implements SpanExporter {
+
+    static final int MAXIMO_SPANS = 500;
+
+    private final Map<String, List<SpanData>> trazas;
+
+    /**
+     * @param capacidad Cuántas trazas conservar.
+     */
+    public TrazasEnMemoria(int capacidad) {
+        this.trazas = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<SpanData>> masVieja) {
+                return size() > capacidad;
+            }
+        };
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        for (SpanData span : spans) {
+            List<SpanData> traza = trazas.computeIfAbsent(span.getTraceId(), id -> new ArrayList<>());
+            if (traza.size() < MAXIMO_SPANS) {
+                traza.add(span);
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        trazas.clear();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * @param cantidad Cuántas trazas devolver.
+     * @param minimoMs La duración mínima de las trazas a devolver.
+     * @return Las trazas más recientes (sin sus spans), de la más nueva a la
+     * más vieja.
+     */
+    public List<TrazaDTO> recientes(int cantidad, double minimoMs) {
+        List<List<SpanData>> copia;
+        synchronized (this) {
+            copia = new ArrayList<>(trazas.size());
+            trazas.values().forEach(traza -> copia.add(List.copyOf(traza)));
+        }
+        List<TrazaDTO> recientes = new ArrayList<>();
+        for (int i = copia.size() - 1; i >= 0 && recientes.size() < cantidad; i--) {
+            TrazaDTO traza = resumir(copia.get(i));
+            if (traza.getDuracionMs() >= minimoMs) {
+                recientes.add(traza);
+            }
+        }
+        return recientes;
+    }
+
+    /**
+     * @param id El ID de la traza (32 dígitos hexadecimales).
+     * @return La traza con todos sus spans, o null si no está en memoria.
+     */
+    public TrazaDTO buscar(String id) {
+        List<SpanData> spans;
+        synchronized (this) {
+            List<SpanData> traza = trazas.get(id);
+            if (traza == null) {
+                return null;
+            }
+            spans = new ArrayList<>(traza);
+        }
+        TrazaDTO traza = resumir(spans);
+        traza.setSpans(ordenar(spans, traza.getInicio()));
+        return traza;
+    }
+
+    private static TrazaDTO resumir(List<SpanData> spans) {
+        SpanData raiz = null;
+        long inicio = Long.MAX_VALUE;
+        long fin = Long.MIN_VALUE;
+        boolean error = false;
+        for (SpanData span : spans) {
+            if (esRaiz(span)) {
+                raiz = span;
+            }
+            inicio = Math.min(inicio, span.getStartEpochNanos());
+            fin = Math.max(fin, span.getEndEpochNanos());
+            error |= span.getStatus().getStatusCode() == StatusCode.ERROR;
+        }
+        return TrazaDTO.builder()
+                .id(spans.get(0).getTraceId())
+                .nombre(raiz == null ? spans.get(spans.size() - 1).getName() : raiz.getName())
+                .inicio(Instant.ofEpochSecond(0, inicio))
+                .duracionMs((fin - inicio) / 1_000_000.0)
+                .completa(raiz != null)
+                .error(error)
+                .cantidadSpans(spans.size())
+                .build();
+    }
+
+    /**
+     * Ordena los spans como un árbol: cada uno después de su padre, y los
+     * hermanos por inicio. Los que no tienen su padre en la traza (se perdió o
+     * todavía no terminó) quedan como raíces.
+     */
+    private static List<SpanDTO> ordenar(List<SpanData> spans, Instant inicioTraza) {
+        long inicio = inicioTraza.getEpochSecond() * 1_000_000_000L + inicioTraza.getNano();
+        Map<String, SpanData> porId = new HashMap<>();
+        spans.forEach(span -> porId.put(span.getSpanId(), span));
+        Map<String, List<SpanData>> hijos = new HashMap<>();
+        List<SpanData> raices = new ArrayList<>();
+        for (SpanData span : spans) {
+            if (esRaiz(span) || !porId.containsKey(span.getParentSpanId())) {
+                raices.add(span);
+            } else {
+                hijos.computeIfAbsent(span.getParentSpanId(), id -> new ArrayList<>()).add(span);
+            }
+        }
+        List<SpanDTO> ordenados = new ArrayList<>(spans.size());
+        agregar(raices, 0, hijos, inicio, ordenados);
+        return ordenados;
+    }
+
+    private static void agregar(List<SpanData> spans, int profundidad, Map<String, List<SpanData>> hijos,
+            long inicioTraza, List<SpanDTO> ordenados) {
+        spans.sort(Comparator.comparingLong(SpanData::getStartEpochNanos));
+        for (SpanData span : spans) {
+            Map<String, String> atributos = new LinkedHashMap<>();
+            span.getAttributes().forEach((clave, valor) -> atributos.put(clave.getKey(), String.valueOf(valor)));
+            ordenados.add(SpanDTO.builder()
+                    .id(span.getSpanId())
+                    .padre(span.getParentSpanContext().isValid() ? span.getParentSpanId() : null)
+                    .nombre(span.getName())
+                    .profundidad(profundidad)
+                    .inicioMs((span.getStartEpochNanos() - inicioTraza) / 1_000_000.0)
+                    .duracionMs((span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000.0)
+                    .error(span.getStatus().getStatusCode() == StatusCode.ERROR)
+                    .atributos(atributos)
+                    .build());
+            List<SpanData> deEste = hijos.get(span.getSpanId());
+            if (deEste != null) {
+                agregar(deEste, profundidad + 1, hijos, inicioTraza, ordenados);
+            }
+        }
+    }
+
+    /**
+     * @return Si el span empezó la traza en esta aplicación (no tiene padre,
+     * o el padre vino en el header traceparent).
+     */
+    private static boolean esRaiz(SpanData span) {
+        return !span.getParentSpanContext().isValid() || span.getParentSpanContext().isRemote();
+    }
+}
@@ -0,0 +1,33 @@
+-- Datos iniciales: los países y las provincias de ejemplo que antes estaban
+-- (comentados) en schema.sql. Solo se cargan en la base principal: los
+-- fragmentos reciben las migraciones del esquema y los países se les copian
+-- al arrancar (ver FragmentacionConfig).
+--
+-- Solo usa las columnas del esquema inicial (V1): las que agrega V3 quedan
+-- con su valor por defecto, igual que en una base que ya existía.
+
+INSERT INTO pais (id, nombre) VALUES
+    (1, 'Argentina'),
+    (2, 'Brasil');
+
+INSERT INTO provincia (id, id_pais, nombre) VALUES
+    (1, 1, 'Buenos Aires'),
+    (2, 1, 'Capital Federal'),
+    (3, 1, 'Catamarca'),
+    (4, 1, 'Chaco'),
+    (5, 1, 'Chubut'),
+    (6, 1, 'Cordoba'),
+    (7, 1, 'Corrientes'),
+    (8, 1, 'Entre Rios'),
+    (9, 1, 'Formosa'),
+    (10, 1, 'Jujuy'),
+    (11, 1, 'La Pampa'),
+    (12, 1, 'La Rioja'),
+    (13, 1, 'Mendoza'),
+    (14, 1, 'Misiones'),
+    (15, 1, 'Neuquen'),
+    (16, 1, 'Rio Negro'),
+    (17, 1, 'Salta'),
+    (18, 1, 'San Juan'),
+    (19, 1, 'San Luis'),
+    (20, 1, 'Santa Cruz');
@@ -0,0 +1,17 @@
+-- Esquema inicial para HSQLDB (perfil "generador" y pruebas). Debe quedar
+-- igual al de db/migration/mysql: MigracionesTest lo valida contra las
+-- entidades.
+
+CREATE TABLE pais (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    nombre VARCHAR(255)
+);
+
+CREATE TABLE provincia (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    nombre VARCHAR(255),
+    id_pais BIGINT,
+    CONSTRAINT fk_provincia_pais FOREIGN KEY (id_pais) REFERENCES pais (id)
+);
+
+CREATE INDEX idx_provincia_pais ON provincia (id_pais);
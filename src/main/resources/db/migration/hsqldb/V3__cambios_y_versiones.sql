@@ -0,0 +1,17 @@
+-- Igual a db/migration/mysql/V3__cambios_y_versiones.sql. HSQLDB no tiene
+-- ALGORITHM ni LOCK: acá solo importa que el esquema resultante coincida.
+
+ALTER TABLE provincia ADD COLUMN cambio BIGINT;
+
+ALTER TABLE provincia ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+
+CREATE INDEX idx_provincia_cambio ON provincia (cambio);
+
+CREATE INDEX idx_provincia_nombre ON provincia (nombre);
+
+CREATE TABLE provincia_eliminada (
+    id BIGINT NOT NULL PRIMARY KEY,
+    cambio BIGINT
+);
+
+CREATE INDEX idx_provincia_eliminada_cambio ON provincia_eliminada (cambio);
@@ -0,0 +1,10 @@
+-- Igual a db/migration/mysql/V4__secuencia_cambio.sql, pero con una
+-- secuencia: HSQLDB las tiene y no guardan filas.
+
+CREATE SEQUENCE secuencia_cambio AS BIGINT START WITH 1;
+
+CREATE TABLE nodo_cambio (
+    nodo VARCHAR(36) NOT NULL PRIMARY KEY,
+    pendiente BIGINT NOT NULL,
+    latido TIMESTAMP NOT NULL
+);
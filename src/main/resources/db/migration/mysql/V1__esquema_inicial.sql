@@ -0,0 +1,28 @@
+-- Esquema inicial: el mismo que generaba Hibernate con ddl-auto=update antes
+-- de las migraciones. Las bases que ya existían no ejecutan este script:
+-- Flyway las toma como versión 2 (spring.flyway.baseline-version) y reciben
+-- desde V3 en adelante, así que lo que se agregue al esquema va en una
+-- versión nueva y no acá.
+--
+-- Se ejecuta en la base principal y en cada fragmento (ver
+-- FragmentacionConfig). El índice se crea junto con la tabla, todavía vacía;
+-- para agregar uno a una tabla con datos ver "Migraciones del esquema" en el
+-- README.
+
+CREATE TABLE pais (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    nombre VARCHAR(255),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+-- idx_provincia_pais se declara antes que la clave foránea para que MySQL la
+-- use como índice de la FK en lugar de crear otro. En las bases creadas por
+-- Hibernate ese índice existe con el nombre de la FK.
+CREATE TABLE provincia (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    nombre VARCHAR(255),
+    id_pais BIGINT,
+    PRIMARY KEY (id),
+    INDEX idx_provincia_pais (id_pais),
+    CONSTRAINT fk_provincia_pais FOREIGN KEY (id_pais) REFERENCES pais (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,29 @@
+-- Columnas e índices para la sincronización incremental (cambio), el bloqueo
+-- optimista (version) y los filtros de /api/provincia/buscar, más la tabla de
+-- bajas. Es la primera migración que reciben las bases creadas con
+-- ddl-auto=update, así que sigue las reglas de "Migraciones del esquema" en
+-- el README: no debe bloquear la tabla mientras se aplica.
+--
+-- Las provincias que ya existían quedan con cambio en NULL: no aparecen en
+-- /api/provincia/cambios hasta que se modifican, pero sí en el listado
+-- completo con el que arranca todo cliente.
+
+SET SESSION lock_wait_timeout = 5;
+
+-- version es NOT NULL, pero con DEFAULT MySQL 8.0.29+ la agrega también con
+-- INSTANT: las filas existentes leen el valor por defecto sin reescribirse.
+ALTER TABLE provincia
+    ADD COLUMN cambio BIGINT,
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+    ALGORITHM = INSTANT;
+
+ALTER TABLE provincia ADD INDEX idx_provincia_cambio (cambio), ALGORITHM = INPLACE, LOCK = NONE;
+
+ALTER TABLE provincia ADD INDEX idx_provincia_nombre (nombre), ALGORITHM = INPLACE, LOCK = NONE;
+
+CREATE TABLE provincia_eliminada (
+    id BIGINT NOT NULL,
+    cambio BIGINT,
+    PRIMARY KEY (id),
+    INDEX idx_provincia_eliminada_cambio (cambio)
+) ENGINE = InnoDB;
@@ -0,0 +1,21 @@
+-- Números de cambio de provincias (ver RelojCambios). MySQL no tiene
+-- secuencias: cada número es una fila nueva de secuencia_cambio, que toma el
+-- AUTO_INCREMENT sin bloquear a las demás transacciones que escriben.
+-- RelojCambios lo adelanta al arrancar al mayor número ya usado y borra las
+-- filas viejas. Se usa el de la base principal; en los fragmentos las tablas
+-- existen pero no se usan.
+--
+-- nodo_cambio guarda, por cada nodo, el menor número que todavía podría
+-- confirmar: la marca segura con varios nodos es el mínimo, menos uno.
+
+CREATE TABLE secuencia_cambio (
+    cambio BIGINT NOT NULL AUTO_INCREMENT,
+    PRIMARY KEY (cambio)
+) ENGINE = InnoDB;
+
+CREATE TABLE nodo_cambio (
+    nodo VARCHAR(36) NOT NULL,
+    pendiente BIGINT NOT NULL,
+    latido TIMESTAMP(3) NOT NULL,
+    PRIMARY KEY (nodo)
+) ENGINE = InnoDB;
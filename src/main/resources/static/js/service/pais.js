@@ -1,6 +1,199 @@
+// Capa de datos de países para el navegador.
+//
+// - Cache en memoria y en IndexedDB (sobrevive a recargar la página), con el
+//   ETag de cada país. Durante FRESCURA_MS un país cacheado se devuelve sin ir
+//   al servidor; después se revalida con If-None-Match (304 si no cambió).
+// - Los "no encontrado" se recuerdan solo en memoria, el mismo tiempo.
+// - Dos pedidos del mismo ID en curso comparten el mismo fetch.
+// - Una búsqueda nueva cancela (AbortController) la búsqueda anterior que
+//   todavía no terminó; esa promesa se rechaza con un AbortError.
+// - Al encontrar un país se precargan los IDs vecinos cuando el navegador está
+//   libre, así "anterior/siguiente" ya están en cache.
+
+const URL_SERVICE = "/api/pais/";
+const FRESCURA_MS = 5 * 60 * 1000;
+const BASE = "dosideas";
+const ALMACEN = "paises";
+
+const enMemoria = new Map();
+const enCurso = new Map();
+let busquedaAnterior = null;
+let baseAbierta = null;
+
+export class ErrorHttp extends Error {
+    constructor(status) {
+        super("HTTP " + status);
+        this.name = "ErrorHttp";
+        this.status = status;
+    }
+}
+
+export function esNoEncontrado(error) {
+    return error instanceof ErrorHttp && error.status === 404;
+}
+
+export function esCancelado(error) {
+    return error?.name === "AbortError";
+}
+
 export async function buscarPorId(idPais) {
-    const urlService = "/api/pais/";
-    const urlServiceBuscarPorId = urlService + idPais;
-    const data = await fetch(urlServiceBuscarPorId);
-    return data.ok ? await data.json() : Promise.reject(response);
-}
\ No newline at end of file
+    const id = String(idPais).trim();
+    if (busquedaAnterior && busquedaAnterior.id !== id) {
+        busquedaAnterior.controlador.abort();
+    }
+    const busqueda = { id, controlador: new AbortController() };
+    busquedaAnterior = busqueda;
+    try {
+        const pais = await obtener(id, busqueda.controlador.signal);
+        precargarVecinos(id);
+        return pais;
+    } finally {
+        if (busquedaAnterior === busqueda) {
+            busquedaAnterior = null;
+        }
+    }
+}
+
+async function obtener(id, senal) {
+    let entrada = enMemoria.get(id);
+    if (!entrada) {
+        entrada = await leerDeBase(id);
+        if (entrada) {
+            enMemoria.set(id, entrada);
+        }
+    }
+    if (entrada && Date.now() - entrada.guardado < FRESCURA_MS) {
+        return entrada.pais ?? Promise.reject(new ErrorHttp(404));
+    }
+    return esperar(pedir(id, entrada), senal);
+}
+
+// Un solo fetch por ID; cada interesado espera con su propia señal, y el fetch
+// se cancela recién cuando todos los que lo esperan se fueron.
+function pedir(id, entrada) {
+    let pedido = enCurso.get(id);
+    if (!pedido) {
+        const controlador = new AbortController();
+        pedido = { controlador, interesados: 0 };
+        pedido.promesa = revalidar(id, entrada, controlador.signal)
+            .finally(() => enCurso.delete(id));
+        // Si todos los interesados cancelaron, nadie más escucha el rechazo.
+        pedido.promesa.catch(() => {});
+        enCurso.set(id, pedido);
+    }
+    return pedido;
+}
+
+function esperar(pedido, senal) {
+    pedido.interesados++;
+    return new Promise((resolver, rechazar) => {
+        let esperando = true;
+        const dejarDeEsperar = () => {
+            if (esperando) {
+                esperando = false;
+                senal.removeEventListener("abort", alCancelar);
+                pedido.interesados--;
+            }
+        };
+        const alCancelar = () => {
+            dejarDeEsperar();
+            if (pedido.interesados === 0) {
+                pedido.controlador.abort();
+            }
+            rechazar(new DOMException("Busqueda reemplazada", "AbortError"));
+        };
+        if (senal.aborted) {
+            alCancelar();
+            return;
+        }
+        senal.addEventListener("abort", alCancelar, { once: true });
+        pedido.promesa.then(
+            pais => { dejarDeEsperar(); resolver(pais); },
+            error => { dejarDeEsperar(); rechazar(error); });
+    });
+}
+
+async function revalidar(id, entrada, senal) {
+    const headers = entrada?.etag ? { "If-None-Match": entrada.etag } : {};
+    const respuesta = await fetch(URL_SERVICE + encodeURIComponent(id),
+        { headers, signal: senal, cache: "no-store" });
+    if (respuesta.status === 304 && entrada?.pais) {
+        guardar(id, { ...entrada, guardado: Date.now() });
+        return entrada.pais;
+    }
+    if (respuesta.status === 404) {
+        enMemoria.set(id, { pais: null, etag: null, guardado: Date.now() });
+        borrarDeBase(id);
+        throw new ErrorHttp(404);
+    }
+    if (!respuesta.ok) {
+        throw new ErrorHttp(respuesta.status);
+    }
+    const pais = await respuesta.json();
+    guardar(id, { pais, etag: respuesta.headers.get("ETag"), guardado: Date.now() });
+    return pais;
+}
+
+function guardar(id, entrada) {
+    enMemoria.set(id, entrada);
+    escribirEnBase(id, entrada);
+}
+
+function precargarVecinos(id) {
+    const numero = Number(id);
+    if (!Number.isInteger(numero)) {
+        return;
+    }
+    const cuandoEsteLibre = window.requestIdleCallback ?? (tarea => setTimeout(tarea, 200));
+    cuandoEsteLibre(() => {
+        for (const vecino of [numero - 1, numero + 1]) {
+            const clave = String(vecino);
+            if (vecino > 0 && !enMemoria.has(clave) && !enCurso.has(clave)) {
+                obtener(clave, new AbortController().signal).catch(() => {});
+            }
+        }
+    });
+}
+
+// IndexedDB: si no está disponible (modo privado, etc.) queda solo la cache
+// en memoria.
+
+function abrirBase() {
+    if (!baseAbierta) {
+        baseAbierta = new Promise(resolver => {
+            if (!window.indexedDB) {
+                resolver(null);
+                return;
+            }
+            const pedido = indexedDB.open(BASE, 1);
+            pedido.onupgradeneeded = () => pedido.result.createObjectStore(ALMACEN);
+            pedido.onsuccess = () => resolver(pedido.result);
+            pedido.onerror = () => resolver(null);
+        });
+    }
+    return baseAbierta;
+}
+
+async function enAlmacen(modo, operacion) {
+    const base = await abrirBase();
+    if (!base) {
+        return undefined;
+    }
+    return new Promise(resolver => {
+        const pedido = operacion(base.transaction(ALMACEN, modo).objectStore(ALMACEN));
+        pedido.onsuccess = () => resolver(pedido.result);
+        pedido.onerror = () => resolver(undefined);
+    });
+}
+
+function leerDeBase(id) {
+    return enAlmacen("readonly", almacen => almacen.get(id));
+}
+
+function escribirEnBase(id, entrada) {
+    enAlmacen("readwrite", almacen => almacen.put(entrada, id));
+}
+
+function borrarDeBase(id) {
+    enAlmacen("readwrite", almacen => almacen.delete(id));
+}
@@ -1,4 +1,4 @@
-import { buscarPorId } from "../service/pais.js";
+import { buscarPorId, esCancelado, esNoEncontrado } from "../service/pais.js";
 
 const bodyTablaPais = document.getElementById("bodyTablaPais");
 const spanIdPaisEncontrado = document.getElementById("idPaisEncontrado");
@@ -12,7 +12,16 @@ function inicializar() {
 async function buscar(idPais) {
     buscarPorId(idPais)
         .then(pais => mostrar(pais))
-        .catch(error => mostrarMensajeNoEncontrado());
+        .catch(error => {
+            // Una búsqueda reemplazada por otra más nueva no muestra nada.
+            if (esCancelado(error)) {
+                return;
+            }
+            if (!esNoEncontrado(error)) {
+                console.error("Error al buscar el pais " + idPais, error);
+            }
+            mostrarMensajeNoEncontrado();
+        });
 }
 
 function mostrar(pais) {
@@ -0,0 +1,131 @@
+package com.dosideas;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.fragmentacion.Fragmentos;
+import com.dosideas.repository.PaisRepository;
+import com.dosideas.service.IProvinciaService;
+
+import java.util.List;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Pruebas de las migraciones del esquema (src/main/resources/db) sobre HSQLDB,
+ * con la base principal y un fragmento. Hibernate arranca con
+ * ddl-auto=validate: si las entidades no coinciden con el esquema migrado, el
+ * contexto no levanta.
+ *
+ * @author Gabriel Romero
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:migraciones0",
+    "spring.datasource.username=sa",
+    "spring.jpa.database-platform=org.hibernate.dialect.HSQLDialect",
+    "spring.jpa.hibernate.ddl-auto=validate",
+    "fragmentacion.fragmento1.url=jdbc:hsqldb:mem:migraciones1",
+    "fragmentacion.fragmento1.username=sa",
+    "perfil.jfr.habilitado=false"
+})
+public class MigracionesTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private Fragmentos fragmentos;
+
+    @Autowired
+    private PaisRepository paisRepository;
+
+    @Autowired
+    private IProvinciaService provinciaService;
+
+    /**
+     * Prueba para verificar que la base principal recibe el esquema y los datos
+     * iniciales, y que los IDs generados siguen después de los cargados.
+     */
+    @Test
+    public void principal_tieneElEsquemaYLosDatosIniciales() {
+        assertThat(flyway.info().applied()).extracting(MigrationInfo::getVersion)
+                .extracting(Object::toString)
+                .containsExactly("1", "2", "3", "4");
+        assertThat(indices(fragmentos.jdbc(0))).contains(
+                "IDX_PROVINCIA_CAMBIO", "IDX_PROVINCIA_NOMBRE", "IDX_PROVINCIA_PAIS");
+
+        assertThat(paisRepository.findById(1L)).get().extracting(Pais::getNombre).isEqualTo("Argentina");
+        assertThat(provinciaService.buscarPorId(17L).getNombre()).isEqualTo("Salta");
+        assertThat(fragmentos.jdbc(0).queryForObject("SELECT COUNT(*) FROM provincia", Long.class))
+                .isEqualTo(20);
+
+        assertThat(paisRepository.save(new Pais(null, "Chile")).getId()).isGreaterThan(2L);
+    }
+
+    /**
+     * Prueba para verificar que cada fragmento recibe solo las migraciones del
+     * esquema: sin las provincias de ejemplo, y con los países copiados de la
+     * principal.
+     */
+    @Test
+    public void fragmento_tieneElEsquemaSinLosDatosIniciales() {
+        JdbcTemplate fragmento = fragmentos.jdbc(1);
+
+        assertThat(fragmento.queryForList(
+                "SELECT \"version\" FROM \"" + flyway.getConfiguration().getTable() + "\" ORDER BY \"installed_rank\"",
+                String.class)).containsExactly("1", "3", "4");
+        assertThat(indices(fragmento)).contains(
+                "IDX_PROVINCIA_CAMBIO", "IDX_PROVINCIA_NOMBRE", "IDX_PROVINCIA_PAIS");
+        assertThat(fragmento.queryForObject("SELECT COUNT(*) FROM provincia", Long.class)).isZero();
+        assertThat(fragmento.queryForObject("SELECT nombre FROM pais WHERE id = 2", String.class))
+                .isEqualTo("Brasil");
+    }
+
+    /**
+     * Prueba para verificar que una base creada con ddl-auto=update antes de
+     * las migraciones (solo id, nombre e id_pais, con la FK que nombraba
+     * Hibernate) se toma como versión 2 y recibe las columnas, los índices y
+     * las tablas nuevas, conservando sus provincias.
+     */
+    @Test
+    public void baseAnterior_seTomaComoVersion2YSeActualiza() {
+        JDBCDataSource dataSource = new JDBCDataSource();
+        dataSource.setUrl("jdbc:hsqldb:mem:migraciones-anterior");
+        dataSource.setUser("sa");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE pais (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                + " nombre VARCHAR(255))");
+        jdbc.execute("CREATE TABLE provincia (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                + " nombre VARCHAR(255), id_pais BIGINT,"
+                + " CONSTRAINT FKM4S599988W0V1Q1NW6DYY6T2 FOREIGN KEY (id_pais) REFERENCES pais (id))");
+        jdbc.update("INSERT INTO pais (id, nombre) VALUES (1, 'Uruguay')");
+        jdbc.update("INSERT INTO provincia (id, nombre, id_pais) VALUES (7, 'Colonia', 1)");
+
+        Flyway.configure()
+                .configuration(flyway.getConfiguration())
+                .dataSource(dataSource)
+                .load()
+                .migrate();
+
+        assertThat(jdbc.queryForList(
+                "SELECT \"version\" FROM \"" + flyway.getConfiguration().getTable() + "\" ORDER BY \"installed_rank\"",
+                String.class)).containsExactly("2", "3", "4");
+        assertThat(jdbc.queryForMap("SELECT nombre, cambio, version FROM provincia WHERE id = 7"))
+                .containsEntry("NOMBRE", "Colonia")
+                .containsEntry("CAMBIO", null)
+                .containsEntry("VERSION", 0L);
+        assertThat(indices(jdbc)).contains("IDX_PROVINCIA_CAMBIO", "IDX_PROVINCIA_NOMBRE");
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM provincia_eliminada", Long.class)).isZero();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM pais", Long.class)).isEqualTo(1);
+    }
+
+    private static List<String> indices(JdbcTemplate jdbc) {
+        return jdbc.queryForList("SELECT index_name FROM information_schema.system_indexinfo"
+                + " WHERE table_name = 'PROVINCIA'", String.class);
+    }
+}
@@ -0,0 +1,290 @@
+package com.dosideas.carga;
+
+import com.dosideas.ApplicationConfig;
+import com.dosideas.carga.OperacionCarga.DatosSembrados;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Generador de carga de lazo abierto para la API REST.
+ *
+ * Levanta la aplicación completa sobre HSQLDB en memoria, siembra un catálogo
+ * sintético con el perfil "generador" (ver GeneradorDeDatos) y dispara
+ * pedidos a una tasa fija, sin esperar a que terminen los anteriores.
+ * La latencia de cada pedido se mide desde el instante en que DEBÍA enviarse
+ * (no desde que se envió), de manera que si el servidor se atrasa la demora
+ * queda registrada: así se corrige la "omisión coordinada". También se
+ * registra el tiempo de servicio (desde el envío real) como referencia.
+ *
+ * Se ejecuta con:
+ *
+ * mvn -Pcarga test-compile exec:java -Dcarga.tasa=30 -Dcarga.duracion=20
+ *
+ * Propiedades (todas opcionales, con -D):
+ *
+ * carga.tasa: pedidos por segundo (30).
+ * carga.duracion / carga.calentamiento: segundos de medición y de
+ * calentamiento previo, que no se mide (20 / 10).
+ * carga.mezcla: pesos de cada operación, ej:
+ * "provincia-id:40,provincia-nombre:20,provincia-pais:15,provincia-todos:5,pais-id:20".
+ * carga.paises / carga.provincias: cantidad de datos a sembrar (50 / 2000).
+ * carga.linea-base: archivo de línea de base contra el cual comparar.
+ * carga.guardar-linea-base: si es true, guarda esta corrida como línea de base.
+ * carga.tolerancia: aumento máximo aceptado del p99 respecto de la línea de
+ * base (0.25 = 25%). Si se supera, la ejecución falla.
+ *
+ * @author Gabriel Romero
+ */
+public final class GeneradorDeCarga {
+
+    private static final long MAXIMO_REGISTRABLE_US = TimeUnit.MINUTES.toMicros(1);
+    private static final int MAXIMO_EN_VUELO = 10_000;
+
+    private final Configuracion config;
+    private final DatosSembrados datos;
+    private final String base;
+    private final Map<OperacionCarga, Medicion> mediciones = new EnumMap<>(OperacionCarga.class);
+    private final AtomicInteger enVuelo = new AtomicInteger();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong ultimaRespuesta = new AtomicLong();
+
+    private GeneradorDeCarga(Configuracion config, DatosSembrados datos, int puerto) {
+        this.config = config;
+        this.datos = datos;
+        this.base = "http://localhost:" + puerto;
+        for (OperacionCarga operacion : config.operaciones()) {
+            mediciones.put(operacion, new Medicion());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Configuracion config = Configuracion.desde(System.getProperties());
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        ReporteCarga reporte;
+        try (ConfigurableApplicationContext contexto = iniciarAplicacion(config)) {
+            DatosSembrados datos = DatosSembrados.cargar(contexto.getBean(JdbcTemplate.class));
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            reporte = new GeneradorDeCarga(config, datos, puerto).ejecutar();
+        }
+
+        reporte.imprimir(System.out);
+        reporte.guardarHistogramas(Path.of("target", "carga"));
+        if (config.guardarLineaBase()) {
+            reporte.guardarLineaBase(config.lineaBase());
+            System.out.println("Linea de base guardada en " + config.lineaBase());
+        } else if (config.lineaBase().toFile().exists()) {
+            boolean regresion = reporte.compararConLineaBase(config.lineaBase(), config.tolerancia(), System.out);
+            if (regresion) {
+                throw new IllegalStateException("El p99 supero la linea de base en mas de "
+                        + Math.round(config.tolerancia() * 100) + "%");
+            }
+        }
+    }
+
+    /**
+     * Levanta la aplicación en un puerto libre con el perfil "generador", que
+     * usa HSQLDB en memoria y siembra el catálogo sintético al arrancar. Las
+     * propiedades se pasan como argumentos para que tengan prioridad sobre
+     * los archivos de configuración.
+     */
+    private static ConfigurableApplicationContext iniciarAplicacion(Configuracion config) {
+        return new SpringApplicationBuilder(ApplicationConfig.class).run(
+                "--spring.profiles.active=generador",
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:hsqldb:mem:carga",
+                "--generador.paises=" + config.paises(),
+                "--generador.provincias=" + config.provincias(),
+                // Los diagnósticos continuos (JFR, trazas) no estaban al grabar la
+                // línea de base y en una máquina chica pesan más que la tolerancia.
+                "--perfil.jfr.habilitado=false",
+                "--traza.muestreo=0",
+                "--logging.level.com.dosideas=WARN");
+    }
+
+    private ReporteCarga ejecutar() throws InterruptedException {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(
+                Math.max(4, Runtime.getRuntime().availableProcessors()));
+        HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(ejecutor)
+                .build();
+        Selector selector = new Selector(config.mezcla());
+        SplittableRandom azar = new SplittableRandom(42);
+
+        long intervalo = TimeUnit.SECONDS.toNanos(1) / config.tasa();
+        long total = (long) config.tasa() * (config.calentamiento() + config.duracion());
+        long inicio = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long inicioMedicion = inicio + TimeUnit.SECONDS.toNanos(config.calentamiento());
+
+        for (long i = 0; i < total; i++) {
+            long programado = inicio + i * intervalo;
+            esperarHasta(programado);
+            // Lo programado durante el calentamiento se envía pero no se mide.
+            boolean medir = programado >= inicioMedicion;
+
+            OperacionCarga operacion = selector.elegir(azar);
+            Medicion medicion = mediciones.get(operacion);
+            if (enVuelo.get() >= MAXIMO_EN_VUELO) {
+                // El servidor no da abasto: se cuenta como error y se sigue
+                // respetando la tasa (lazo abierto).
+                if (medir) {
+                    descartadas.incrementAndGet();
+                    medicion.errores.incrementAndGet();
+                }
+                continue;
+            }
+
+            HttpRequest pedido = HttpRequest.newBuilder(URI.create(base + operacion.uri(datos, azar)))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            enVuelo.incrementAndGet();
+            long enviado = System.nanoTime();
+            cliente.sendAsync(pedido, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((respuesta, error) -> {
+                        long fin = System.nanoTime();
+                        enVuelo.decrementAndGet();
+                        ultimaRespuesta.accumulateAndGet(fin, Math::max);
+                        if (medir) {
+                            medicion.registrar(programado, enviado, fin,
+                                    error == null && respuesta.statusCode() < 400);
+                        }
+                    });
+        }
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (enVuelo.get() > 0 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        ejecutor.shutdownNow();
+
+        double segundosMedidos = (ultimaRespuesta.get() - inicioMedicion) / 1e9;
+        List<ReporteCarga.ResultadoOperacion> resultados = new ArrayList<>();
+        mediciones.forEach((operacion, medicion) -> resultados.add(new ReporteCarga.ResultadoOperacion(
+                operacion.getNombre(),
+                medicion.latencia.getIntervalHistogram(),
+                medicion.servicio.getIntervalHistogram(),
+                medicion.errores.get())));
+        return new ReporteCarga(config.tasa(), segundosMedidos, descartadas.get(), resultados);
+    }
+
+    private static void esperarHasta(long instante) {
+        long restante;
+        while ((restante = instante - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(restante);
+        }
+    }
+
+    /**
+     * Histogramas de una operación. Recorder permite registrar desde varios
+     * hilos sin bloqueos y obtener una copia al final.
+     */
+    private static final class Medicion {
+
+        private final Recorder latencia = new Recorder(MAXIMO_REGISTRABLE_US, 3);
+        private final Recorder servicio = new Recorder(MAXIMO_REGISTRABLE_US, 3);
+        private final AtomicLong errores = new AtomicLong();
+
+        private void registrar(long programado, long enviado, long fin, boolean exito) {
+            if (!exito) {
+                errores.incrementAndGet();
+            }
+            latencia.recordValue(Math.min(MAXIMO_REGISTRABLE_US, (fin - programado) / 1000));
+            servicio.recordValue(Math.min(MAXIMO_REGISTRABLE_US, (fin - enviado) / 1000));
+        }
+    }
+
+    /**
+     * Elige operaciones al azar respetando los pesos de la mezcla.
+     */
+    private static final class Selector {
+
+        private final OperacionCarga[] operaciones;
+        private final int[] acumulados;
+
+        private Selector(Map<OperacionCarga, Integer> mezcla) {
+            operaciones = mezcla.keySet().toArray(new OperacionCarga[0]);
+            acumulados = new int[operaciones.length];
+            int suma = 0;
+            for (int i = 0; i < operaciones.length; i++) {
+                suma += mezcla.get(operaciones[i]);
+                acumulados[i] = suma;
+            }
+        }
+
+        private OperacionCarga elegir(SplittableRandom azar) {
+            int valor = azar.nextInt(acumulados[acumulados.length - 1]);
+            for (int i = 0; i < acumulados.length; i++) {
+                if (valor < acumulados[i]) {
+                    return operaciones[i];
+                }
+            }
+            return operaciones[operaciones.length - 1];
+        }
+    }
+
+    /**
+     * Configuración de la corrida, leída de propiedades de sistema.
+     */
+    record Configuracion(int tasa, int duracion, int calentamiento, Map<OperacionCarga, Integer> mezcla,
+            int paises, int provincias, Path lineaBase, boolean guardarLineaBase, double tolerancia) {
+
+        static final String MEZCLA_POR_DEFECTO
+                = "provincia-id:40,provincia-nombre:20,provincia-pais:15,provincia-todos:5,pais-id:20";
+
+        static Configuracion desde(Properties propiedades) throws IOException {
+            Map<OperacionCarga, Integer> mezcla = new EnumMap<>(OperacionCarga.class);
+            for (String parte : propiedades.getProperty("carga.mezcla", MEZCLA_POR_DEFECTO).split(",")) {
+                String[] nombreYPeso = parte.split(":");
+                int peso = nombreYPeso.length > 1 ? Integer.parseInt(nombreYPeso[1].trim()) : 1;
+                if (peso > 0) {
+                    mezcla.put(OperacionCarga.porNombre(nombreYPeso[0]), peso);
+                }
+            }
+            if (mezcla.isEmpty()) {
+                throw new IllegalArgumentException("La mezcla de carga no tiene operaciones");
+            }
+            return new Configuracion(
+                    Integer.parseInt(propiedades.getProperty("carga.tasa", "30")),
+                    Integer.parseInt(propiedades.getProperty("carga.duracion", "20")),
+                    Integer.parseInt(propiedades.getProperty("carga.calentamiento", "10")),
+                    mezcla,
+                    Integer.parseInt(propiedades.getProperty("carga.paises", "50")),
+                    Integer.parseInt(propiedades.getProperty("carga.provincias", "2000")),
+                    Path.of(propiedades.getProperty("carga.linea-base",
+                            "src/test/resources/carga/linea-base.properties")),
+                    Boolean.parseBoolean(propiedades.getProperty("carga.guardar-linea-base", "false")),
+                    Double.parseDouble(propiedades.getProperty("carga.tolerancia", "0.25")));
+        }
+
+        List<OperacionCarga> operaciones() {
+            return new ArrayList<>(mezcla.keySet());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.dosideas.carga;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Operaciones que puede ejecutar el generador de carga. Cada una arma la URI
+ * a pedir a partir de los datos sembrados (rangos de IDs, nombres existentes).
+ *
+ * @author Gabriel Romero
+ */
+public enum OperacionCarga {
+
+    PROVINCIA_ID("provincia-id") {
+        @Override
+        String uri(DatosSembrados datos, SplittableRandom azar) {
+            return "/api/provincia/" + datos.idProvincia(azar);
+        }
+    },
+    PROVINCIA_NOMBRE("provincia-nombre") {
+        @Override
+        String uri(DatosSembrados datos, SplittableRandom azar) {
+            return "/api/provincia?nombre=" + datos.nombreProvincia(azar);
+        }
+    },
+    PROVINCIA_PAIS("provincia-pais") {
+        @Override
+        String uri(DatosSembrados datos, SplittableRandom azar) {
+            return "/api/provincia/pais?nombre=" + datos.nombrePais(azar);
+        }
+    },
+    PROVINCIA_TODOS("provincia-todos") {
+        @Override
+        String uri(DatosSembrados datos, SplittableRandom azar) {
+            return "/api/provincia/todos";
+        }
+    },
+    PAIS_ID("pais-id") {
+        @Override
+        String uri(DatosSembrados datos, SplittableRandom azar) {
+            return "/api/pais/" + datos.idPais(azar);
+        }
+    };
+
+    private final String nombre;
+
+    OperacionCarga(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    abstract String uri(DatosSembrados datos, SplittableRandom azar);
+
+    /**
+     * Busca una operación por el nombre usado en la configuración.
+     *
+     * @param nombre El nombre de la operación (ej: "provincia-id").
+     * @return La operación.
+     */
+    public static OperacionCarga porNombre(String nombre) {
+        for (OperacionCarga operacion : values()) {
+            if (operacion.nombre.equals(nombre.trim())) {
+                return operacion;
+            }
+        }
+        throw new IllegalArgumentException("Operacion de carga desconocida: " + nombre);
+    }
+
+    /**
+     * Rangos de IDs y nombres de los datos sembrados, leídos de la base, para
+     * armar URIs válidas. Los nombres ya vienen codificados para la URI.
+     */
+    public record DatosSembrados(long primerIdPais, long ultimoIdPais, long primerIdProvincia,
+            long ultimoIdProvincia, String[] nombresPais, String[] nombresProvincia) {
+
+        private static final int MAXIMO_NOMBRES = 10_000;
+
+        static DatosSembrados cargar(JdbcTemplate jdbc) {
+            return new DatosSembrados(
+                    jdbc.queryForObject("SELECT MIN(id) FROM pais", Long.class),
+                    jdbc.queryForObject("SELECT MAX(id) FROM pais", Long.class),
+                    jdbc.queryForObject("SELECT MIN(id) FROM provincia", Long.class),
+                    jdbc.queryForObject("SELECT MAX(id) FROM provincia", Long.class),
+                    nombres(jdbc, "SELECT nombre FROM pais ORDER BY id"),
+                    nombres(jdbc, "SELECT nombre FROM provincia ORDER BY id"));
+        }
+
+        private static String[] nombres(JdbcTemplate jdbc, String sql) {
+            // Un JdbcTemplate propio: el recibido es el bean de la aplicación,
+            // compartido con los requests que se están midiendo.
+            JdbcTemplate limitado = new JdbcTemplate(jdbc.getDataSource());
+            limitado.setMaxRows(MAXIMO_NOMBRES);
+            return limitado.queryForList(sql, String.class).stream()
+                    .map(nombre -> URLEncoder.encode(nombre, StandardCharsets.UTF_8))
+                    .toArray(String[]::new);
+        }
+
+        long idPais(SplittableRandom azar) {
+            return azar.nextLong(primerIdPais, ultimoIdPais + 1);
+        }
+
+        long idProvincia(SplittableRandom azar) {
+            return azar.nextLong(primerIdProvincia, ultimoIdProvincia + 1);
+        }
+
+        String nombrePais(SplittableRandom azar) {
+            return nombresPais[azar.nextInt(nombresPais.length)];
+        }
+
+        String nombreProvincia(SplittableRandom azar) {
+            return nombresProvincia[azar.nextInt(nombresProvincia.length)];
+        }
+    }
+}
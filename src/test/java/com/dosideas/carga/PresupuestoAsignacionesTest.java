@@ -0,0 +1,195 @@
+package com.dosideas.carga;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import com.dosideas.repository.PaisRepository;
+import com.dosideas.service.IProvinciaService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+/**
+ * Presupuesto de memoria asignada por request de cada endpoint de lectura.
+ *
+ * Levanta la aplicación sobre HSQLDB en memoria, con el esquema de las
+ * migraciones y sin los datos iniciales, siembra unas pocas provincias y,
+ * para cada endpoint, hace pedidos de calentamiento (para que
+ * el JIT y los caches se estabilicen) y luego mide los bytes asignados por
+ * los hilos que atienden el request (los de Tomcat y los de los
+ * compartimentos) con ThreadMXBean.getThreadAllocatedBytes. Los pedidos se
+ * hacen de a uno, así que lo que asignan esos hilos es del request.
+ *
+ * Si algún endpoint supera su presupuesto (carga/presupuesto-asignaciones.properties,
+ * en bytes por request) la prueba falla. Después de bajar las asignaciones
+ * de un endpoint conviene bajar también su presupuesto; las mediciones van
+ * al log en cada corrida y al mensaje de la falla.
+ *
+ * Tarda cerca de 40 segundos, así que no corre con el resto de las pruebas:
+ * tiene la etiqueta "carga" y se ejecuta con el perfil del mismo nombre,
+ *
+ * mvn -Pcarga test -Dtest=PresupuestoAsignacionesTest
+ *
+ * Las trazas no se muestrean (traza.muestreo=0), para que el presupuesto no
+ * dependa de qué requests quedaron en la muestra.
+ *
+ * @author Gabriel Romero
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:asignaciones",
+    "spring.datasource.username=sa",
+    "spring.jpa.database-platform=org.hibernate.dialect.HSQLDialect",
+    "spring.flyway.locations=classpath:db/migration/{vendor}",
+    "sql.contador.header=false",
+    "cambios.seguimiento.intervalo-ms=0",
+    "perfil.jfr.habilitado=false",
+    "traza.muestreo=0",
+    "logging.level.com.dosideas=WARN",
+    "logging.level.com.dosideas.carga=INFO"
+})
+@Tag("carga")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PresupuestoAsignacionesTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PresupuestoAsignacionesTest.class);
+
+    private static final String PRESUPUESTO = "/carga/presupuesto-asignaciones.properties";
+    private static final int CALENTAMIENTO = 500;
+    private static final int MEDICIONES = 200;
+    private static final long ID_INEXISTENTE = 999_999;
+
+    private static final com.sun.management.ThreadMXBean HILOS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private PaisRepository paisRepository;
+
+    @Autowired
+    private IProvinciaService provinciaService;
+
+    private final HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final Map<String, String> endpoints = new LinkedHashMap<>();
+
+    @BeforeAll
+    public void sembrar() {
+        Pais argentina = paisRepository.save(new Pais(null, "Argentina"));
+        Pais chile = paisRepository.save(new Pais(null, "Chile"));
+        Provincia primera = null;
+        for (int i = 1; i <= 20; i++) {
+            Provincia provincia = provinciaService.guardarProvincia(
+                    new Provincia(null, "Provincia " + i, i % 2 == 0 ? argentina : chile));
+            primera = primera == null ? provincia : primera;
+        }
+        long version = provinciaService.buscarCambiosDesde(0).getVersion();
+
+        endpoints.put("provincia-id", "/api/provincia/" + primera.getId());
+        endpoints.put("provincia-id-inexistente", "/api/provincia/" + ID_INEXISTENTE);
+        endpoints.put("provincia-campos", "/api/provincia/" + primera.getId() + "?fields=id,nombre");
+        endpoints.put("provincia-nombre", "/api/provincia?nombre=Provincia%203");
+        endpoints.put("provincia-pais", "/api/provincia/pais?nombre=Argentina");
+        endpoints.put("provincia-buscar", "/api/provincia/buscar?pais=" + argentina.getId());
+        endpoints.put("provincia-todos", "/api/provincia/todos");
+        endpoints.put("provincia-cambios", "/api/provincia/cambios?desde=" + version);
+        endpoints.put("pais-id", "/api/pais/" + argentina.getId());
+        endpoints.put("pais-id-inexistente", "/api/pais/" + ID_INEXISTENTE);
+    }
+
+    /**
+     * Prueba que ningún endpoint asigne más bytes por request que su
+     * presupuesto.
+     */
+    @Test
+    public void endpoints_noSuperanSuPresupuestoDeAsignaciones() throws Exception {
+        Properties presupuesto = leerPresupuesto();
+        List<String> excedidos = new ArrayList<>();
+        StringBuilder informe = new StringBuilder(String.format("%-26s %12s %12s%n",
+                "endpoint", "bytes/req", "presupuesto"));
+        for (Map.Entry<String, String> endpoint : endpoints.entrySet()) {
+            long medido = medir(endpoint.getValue());
+            String limite = presupuesto.getProperty(endpoint.getKey());
+            informe.append(String.format("%-26s %12d %12s%n", endpoint.getKey(), medido, limite));
+            if (limite == null) {
+                excedidos.add(endpoint.getKey() + ": sin presupuesto (" + medido + ")");
+            } else if (medido > Long.parseLong(limite)) {
+                excedidos.add(endpoint.getKey() + ": " + medido + " > " + limite);
+            }
+        }
+        LOG.info("Bytes asignados por request:\n{}", informe);
+        assertThat(excedidos).as("endpoints sobre su presupuesto de bytes por request%n%s", informe).isEmpty();
+    }
+
+    /**
+     * @return Los bytes asignados por request, en promedio, después del
+     * calentamiento.
+     */
+    private long medir(String uri) throws Exception {
+        HttpRequest pedido = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + uri)).GET().build();
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            cliente.send(pedido, HttpResponse.BodyHandlers.discarding());
+        }
+        Map<Long, Long> antes = asignadoPorHilo();
+        for (int i = 0; i < MEDICIONES; i++) {
+            cliente.send(pedido, HttpResponse.BodyHandlers.discarding());
+        }
+        Map<Long, Long> despues = asignadoPorHilo();
+
+        long total = 0;
+        Set<Long> hilos = new HashSet<>(despues.keySet());
+        hilos.addAll(antes.keySet());
+        for (Long hilo : hilos) {
+            total += despues.getOrDefault(hilo, 0L) - antes.getOrDefault(hilo, 0L);
+        }
+        return total / MEDICIONES;
+    }
+
+    /**
+     * Los bytes asignados hasta ahora por cada hilo que atiende requests.
+     */
+    private static Map<Long, Long> asignadoPorHilo() {
+        Map<Long, Long> asignado = new LinkedHashMap<>();
+        for (Thread hilo : Thread.getAllStackTraces().keySet()) {
+            String nombre = hilo.getName();
+            if (nombre.startsWith("http-nio-") || nombre.startsWith("compartimento-")) {
+                long bytes = HILOS.getThreadAllocatedBytes(hilo.getId());
+                if (bytes >= 0) {
+                    asignado.put(hilo.getId(), bytes);
+                }
+            }
+        }
+        return asignado;
+    }
+
+    private static Properties leerPresupuesto() throws IOException {
+        Properties presupuesto = new Properties();
+        try (InputStream entrada = PresupuestoAsignacionesTest.class.getResourceAsStream(PRESUPUESTO)) {
+            assertThat(entrada).as(PRESUPUESTO).isNotNull();
+            presupuesto.load(entrada);
+        }
+        return presupuesto;
+    }
+}
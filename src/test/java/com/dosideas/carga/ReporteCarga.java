@@ -0,0 +1,155 @@
+package com.dosideas.carga;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Resultado de una corrida del generador de carga: tabla de percentiles por
+ * operación, resumen de throughput y comparación contra una línea de base.
+ *
+ * Los valores se registran en microsegundos y se muestran en milisegundos.
+ *
+ * @author Gabriel Romero
+ */
+public class ReporteCarga {
+
+    private static final double US_POR_MS = 1000.0;
+
+    private final int tasaObjetivo;
+    private final double segundosMedidos;
+    private final long descartadas;
+    private final List<ResultadoOperacion> resultados;
+
+    public ReporteCarga(int tasaObjetivo, double segundosMedidos, long descartadas,
+            List<ResultadoOperacion> resultados) {
+        this.tasaObjetivo = tasaObjetivo;
+        this.segundosMedidos = segundosMedidos;
+        this.descartadas = descartadas;
+        this.resultados = resultados;
+    }
+
+    public void imprimir(PrintStream salida) {
+        salida.println();
+        salida.println("Latencia corregida por omision coordinada (ms)");
+        salida.printf(Locale.ROOT, "%-18s %8s %7s %8s %8s %8s %8s %8s %12s%n",
+                "operacion", "pedidos", "errores", "p50", "p90", "p99", "p99.9", "max", "p99 servicio");
+        long pedidos = 0;
+        long errores = 0;
+        for (ResultadoOperacion resultado : resultados) {
+            Histogram latencia = resultado.latencia();
+            salida.printf(Locale.ROOT, "%-18s %8d %7d %8.2f %8.2f %8.2f %8.2f %8.2f %12.2f%n",
+                    resultado.nombre(),
+                    latencia.getTotalCount(),
+                    resultado.errores(),
+                    ms(latencia, 50),
+                    ms(latencia, 90),
+                    ms(latencia, 99),
+                    ms(latencia, 99.9),
+                    latencia.getMaxValue() / US_POR_MS,
+                    ms(resultado.servicio(), 99));
+            pedidos += latencia.getTotalCount();
+            errores += resultado.errores();
+        }
+        salida.println();
+        salida.printf(Locale.ROOT, "Tasa objetivo: %d pedidos/s, lograda: %.1f pedidos/s%n",
+                tasaObjetivo, throughput(pedidos));
+        salida.printf(Locale.ROOT, "Pedidos: %d, errores: %d, descartados por saturacion: %d%n",
+                pedidos, errores, descartadas);
+    }
+
+    /**
+     * Guarda la distribución completa de cada operación en formato .hgrm, que
+     * puede graficarse con el HdrHistogram plotter.
+     */
+    public void guardarHistogramas(Path directorio) throws IOException {
+        Files.createDirectories(directorio);
+        for (ResultadoOperacion resultado : resultados) {
+            try (PrintStream salida = new PrintStream(
+                    Files.newOutputStream(directorio.resolve(resultado.nombre() + ".hgrm")),
+                    false, StandardCharsets.UTF_8)) {
+                resultado.latencia().outputPercentileDistribution(salida, US_POR_MS);
+            }
+        }
+    }
+
+    public void guardarLineaBase(Path archivo) throws IOException {
+        Properties lineaBase = new Properties();
+        long pedidos = 0;
+        for (ResultadoOperacion resultado : resultados) {
+            Histogram latencia = resultado.latencia();
+            lineaBase.setProperty(resultado.nombre() + ".p50", formatear(ms(latencia, 50)));
+            lineaBase.setProperty(resultado.nombre() + ".p99", formatear(ms(latencia, 99)));
+            lineaBase.setProperty(resultado.nombre() + ".p99.9", formatear(ms(latencia, 99.9)));
+            pedidos += latencia.getTotalCount();
+        }
+        lineaBase.setProperty("tasa.objetivo", Integer.toString(tasaObjetivo));
+        lineaBase.setProperty("tasa.lograda", formatear(throughput(pedidos)));
+        Files.createDirectories(archivo.toAbsolutePath().getParent());
+        try (Writer escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            lineaBase.store(escritor, "Linea de base del generador de carga (latencias en ms)");
+        }
+    }
+
+    /**
+     * Compara el p99 de cada operación contra la línea de base.
+     *
+     * @return true si alguna operación empeoró más que la tolerancia.
+     */
+    public boolean compararConLineaBase(Path archivo, double tolerancia, PrintStream salida) throws IOException {
+        Properties lineaBase = new Properties();
+        try (Reader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            lineaBase.load(lector);
+        }
+        salida.println();
+        salida.println("Comparacion de p99 contra " + archivo + " (tolerancia "
+                + Math.round(tolerancia * 100) + "%)");
+        String tasaBase = lineaBase.getProperty("tasa.objetivo");
+        if (tasaBase != null && Integer.parseInt(tasaBase) != tasaObjetivo) {
+            salida.println("ATENCION: la linea de base se tomo a " + tasaBase
+                    + " pedidos/s y esta corrida a " + tasaObjetivo + " pedidos/s");
+        }
+        boolean regresion = false;
+        for (ResultadoOperacion resultado : resultados) {
+            String valorBase = lineaBase.getProperty(resultado.nombre() + ".p99");
+            if (valorBase == null) {
+                continue;
+            }
+            double base = Double.parseDouble(valorBase);
+            double actual = ms(resultado.latencia(), 99);
+            double variacion = base > 0 ? (actual - base) / base : 0;
+            boolean empeoro = variacion > tolerancia;
+            regresion |= empeoro;
+            salida.printf(Locale.ROOT, "%-18s base %8.2f actual %8.2f %+7.1f%% %s%n",
+                    resultado.nombre(), base, actual, variacion * 100, empeoro ? "REGRESION" : "ok");
+        }
+        return regresion;
+    }
+
+    private double throughput(long pedidos) {
+        return segundosMedidos > 0 ? pedidos / segundosMedidos : 0;
+    }
+
+    private static double ms(Histogram histograma, double percentil) {
+        return histograma.getValueAtPercentile(percentil) / US_POR_MS;
+    }
+
+    private static String formatear(double valor) {
+        return String.format(Locale.ROOT, "%.3f", valor);
+    }
+
+    /**
+     * Histogramas y errores de una operación.
+     */
+    public record ResultadoOperacion(String nombre, Histogram latencia, Histogram servicio, long errores) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.dosideas.compartimento;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.diagnostico.AmbitoSentencias;
+import com.dosideas.diagnostico.ContadorSentencias;
+import com.dosideas.dto.CompartimentoDTO;
+import com.dosideas.exception.CompartimentoLlenoException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+/**
+ * Pruebas unitarias para {@link Compartimentos}.
+ *
+ * @author Gabriel Romero
+ */
+public class CompartimentosTest {
+
+    private final Compartimentos compartimentos = new Compartimentos(new MockEnvironment()
+            .withProperty("compartimentos.lectura-listado.hilos", "1")
+            .withProperty("compartimentos.lectura-listado.cola", "1"), 10);
+
+    @AfterEach
+    public void cerrar() {
+        compartimentos.cerrar();
+    }
+
+    /**
+     * Prueba para verificar que con el hilo ocupado y la cola llena se rechaza
+     * la tarea, y que los otros compartimentos siguen atendiendo.
+     */
+    @Test
+    public void ejecutar_conCompartimentoLleno_rechazaSinAfectarAOtros() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CompletableFuture<Boolean> ocupada = compartimentos.ejecutar(Compartimento.LECTURA_LISTADO,
+                () -> liberar.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> enCola = compartimentos.ejecutar(Compartimento.LECTURA_LISTADO, () -> "en cola");
+
+        CompletableFuture<String> rechazada = compartimentos.ejecutar(Compartimento.LECTURA_LISTADO, () -> "no");
+        String puntual = compartimentos.ejecutar(Compartimento.LECTURA_PUNTUAL, () -> "puntual")
+                .get(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(rechazada::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(CompartimentoLlenoException.class);
+        assertThat(puntual).isEqualTo("puntual");
+
+        liberar.countDown();
+        assertThat(ocupada.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(enCola.get(5, TimeUnit.SECONDS)).isEqualTo("en cola");
+
+        CompartimentoDTO listado = compartimentos.estado().stream()
+                .filter(c -> c.getNombre().equals("lectura-listado")).findFirst().orElseThrow();
+        assertThat(listado.getRechazadas()).isEqualTo(1);
+        assertThat(listado.getHilos()).isEqualTo(1);
+    }
+
+    /**
+     * Prueba para verificar que las sentencias ejecutadas en el pool cuentan
+     * en el ámbito del hilo que pidió la tarea.
+     */
+    @Test
+    public void ejecutar_conAmbitoAbierto_cuentaLasSentenciasDelPool() throws Exception {
+        try (AmbitoSentencias ambito = ContadorSentencias.abrir("request")) {
+            compartimentos.ejecutar(Compartimento.LECTURA_PUNTUAL,
+                    () -> new ContadorSentencias().inspect("select * from provincia where id = 1"))
+                    .get(5, TimeUnit.SECONDS);
+
+            assertThat(ambito.getTotal()).isEqualTo(1);
+        }
+    }
+}
@@ -1,24 +1,47 @@
 package com.dosideas.controller;
 
+import com.dosideas.compartimento.Compartimentos;
 import com.dosideas.controller.rest.ProvinciaRestController;
+import com.dosideas.diagnostico.ContadorSentenciasFilter;
 import com.dosideas.domain.Pais;
 import com.dosideas.domain.Provincia;
+import com.dosideas.dto.CampoProvincia;
+import com.dosideas.dto.FilasProvincias;
+import com.dosideas.dto.FiltroProvincias;
+import com.dosideas.exception.ProvinciaConflictoException;
 import com.dosideas.service.IProvinciaService;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.ResultHandler;
+import org.springframework.test.web.servlet.ResultMatcher;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
@@ -33,6 +56,8 @@ import static org.mockito.ArgumentMatchers.any;
  * @author Gabriel Romero
  */
 @WebMvcTest(ProvinciaRestController.class)
+@Import(Compartimentos.class)
+@TestPropertySource(properties = "sql.contador.header=true")
 public class ProvinciaControllerTest {
 
     @Autowired
@@ -44,6 +69,40 @@ public class ProvinciaControllerTest {
     @Autowired
     private ObjectMapper objectMapper; // Convertidor de objetos a JSON.
 
+    /**
+     * Realiza la solicitud y, como los endpoints responden de forma
+     * asincrónica (en su compartimento), espera el resultado y hace el
+     * despacho final antes de verificar la respuesta.
+     */
+    private ResultActions realizar(RequestBuilder solicitud) throws Exception {
+        MvcResult resultado = mockMvc.perform(solicitud).andReturn();
+        if (!resultado.getRequest().isAsyncStarted()) {
+            return resultadoYaObtenido(resultado);
+        }
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(resultado));
+    }
+
+    private static ResultActions resultadoYaObtenido(MvcResult resultado) {
+        return new ResultActions() {
+            @Override
+            public ResultActions andExpect(ResultMatcher matcher) throws Exception {
+                matcher.match(resultado);
+                return this;
+            }
+
+            @Override
+            public ResultActions andDo(ResultHandler handler) throws Exception {
+                handler.handle(resultado);
+                return this;
+            }
+
+            @Override
+            public MvcResult andReturn() {
+                return resultado;
+            }
+        };
+    }
+
     /**
      * Prueba para verificar que al buscar una provincia por su ID existente, se
      * retorna una respuesta HTTP 200 (OK).
@@ -55,13 +114,31 @@ public class ProvinciaControllerTest {
         Mockito.when(provinciaService.buscarPorId(Mockito.anyLong()))
                 .thenReturn(new Provincia(1L, "Cordoba", new Pais()));
 
-        mockMvc.perform(MockMvcRequestBuilders
+        realizar(MockMvcRequestBuilders
                 .get("/api/provincia/1")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andReturn();
     }
 
+    /**
+     * Prueba para verificar que la respuesta informa cuántas sentencias SQL se
+     * ejecutaron en el request (ninguna, porque el servicio es un mock).
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void buscarPorId_informaCantidadDeSentenciasEnHeader() throws Exception {
+        Mockito.when(provinciaService.buscarPorId(Mockito.anyLong()))
+                .thenReturn(new Provincia(1L, "Cordoba", new Pais()));
+
+        realizar(MockMvcRequestBuilders
+                .get("/api/provincia/1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(ContadorSentenciasFilter.HEADER_SENTENCIAS, "0"));
+    }
+
     /**
      * Prueba para verificar que al buscar una provincia por un ID nulo, se
      * retorna una respuesta HTTP 400 (Bad Request).
@@ -70,7 +147,7 @@ public class ProvinciaControllerTest {
      */
     @Test
     public void buscarPorId_conIdNull_retornaBadRequest() throws Exception {
-        mockMvc.perform(MockMvcRequestBuilders
+        realizar(MockMvcRequestBuilders
                 .get("/api/provincia/null")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(MockMvcResultMatchers.status().isBadRequest())
@@ -88,7 +165,7 @@ public class ProvinciaControllerTest {
         Mockito.when(provinciaService.buscarPorId(Mockito.anyLong()))
                 .thenReturn(null);
 
-        mockMvc.perform(MockMvcRequestBuilders
+        realizar(MockMvcRequestBuilders
                 .get("/api/provincia/1")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(MockMvcResultMatchers.status().isNotFound())
@@ -106,7 +183,7 @@ public class ProvinciaControllerTest {
         Mockito.when(provinciaService.buscarProvinciasPorNombreExacto(Mockito.anyString()))
                 .thenReturn(Collections.emptyList());
 
-        mockMvc.perform(MockMvcRequestBuilders
+        realizar(MockMvcRequestBuilders
                 .get("/api/provincia")
                 .param("nombre", "hola")
                 .contentType(MediaType.APPLICATION_JSON))
@@ -114,6 +191,27 @@ public class ProvinciaControllerTest {
                 .andReturn();
     }
 
+    /**
+     * Prueba para verificar que al buscar provincias por un nombre mal
+     * escrito, la respuesta 404 incluye los nombres parecidos.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void buscarProvinciasPorNombre_conNombreMalEscrito_retornaSugerencias() throws Exception {
+        Mockito.when(provinciaService.buscarProvinciasPorNombreExacto("Cordova"))
+                .thenReturn(Collections.emptyList());
+        Mockito.when(provinciaService.sugerirNombres("Cordova"))
+                .thenReturn(List.of("Córdoba"));
+
+        realizar(MockMvcRequestBuilders
+                .get("/api/provincia")
+                .param("nombre", "Cordova")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.sugerencias[0]", is("Córdoba")));
+    }
+
     /**
      * Prueba para verificar que al buscar provincias por un nombre correcto, se
      * retorna una respuesta HTTP 200 (OK) con la lista de provincias
@@ -131,7 +229,7 @@ public class ProvinciaControllerTest {
         Mockito.when(provinciaService.buscarProvinciasPorNombreExacto(Mockito.anyString()))
                 .thenReturn(provincias);
 
-        mockMvc.perform(MockMvcRequestBuilders
+        realizar(MockMvcRequestBuilders
                 .get("/api/provincia")
                 .param("nombre", "nombreEjemplo")
                 .contentType(MediaType.APPLICATION_JSON))
@@ -158,7 +256,7 @@ public class ProvinciaControllerTest {
         Mockito.when(provinciaService.obtenerProvinciasPorNombrePais(Mockito.anyString()))
                 .thenReturn(provinciasEncontradas);
 
-        mockMvc.perform(MockMvcRequestBuilders
+        realizar(MockMvcRequestBuilders
                 .get("/api/provincia/pais")
                 .param("nombre", "nombrePaisExistente")
                 .contentType(MediaType.APPLICATION_JSON))
@@ -181,7 +279,7 @@ public class ProvinciaControllerTest {
         Mockito.when(provinciaService.obtenerProvinciasPorNombrePais(Mockito.anyString()))
                 .thenReturn(provinciasNoEncontradas);
 
-        mockMvc.perform(MockMvcRequestBuilders.get("/api/provincia/pais")
+        realizar(MockMvcRequestBuilders.get("/api/provincia/pais")
                 .param("nombre", "nombrePaisNoExistente")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(MockMvcResultMatchers.status().isNotFound())
@@ -206,7 +304,7 @@ public class ProvinciaControllerTest {
         Mockito.when(provinciaService.guardarProvincia(Mockito.any(Provincia.class)))
                 .thenReturn(provinciaGuardada);
 
-        mockMvc.perform(MockMvcRequestBuilders.post("/api/provincia/guardar")
+        realizar(MockMvcRequestBuilders.post("/api/provincia/guardar")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(provinciaParaGuardar)))
                 .andExpect(MockMvcResultMatchers.status().isCreated())
@@ -237,7 +335,7 @@ public class ProvinciaControllerTest {
         Mockito.when(provinciaService.buscarPorId(provinciaAActualizar.getId())).thenReturn(provinciaExistente);
         Mockito.when(provinciaService.modificarProvincia(any(Provincia.class))).thenReturn(provinciaAActualizar);
 
-        mockMvc.perform(MockMvcRequestBuilders.put("/api/provincia")
+        realizar(MockMvcRequestBuilders.put("/api/provincia")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(provinciaAActualizar)))
                 .andExpect(MockMvcResultMatchers.status().isOk())
@@ -257,7 +355,7 @@ public class ProvinciaControllerTest {
     @Test
     public void actualizarProvincia_conProvinciaNula_retornaBadRequest() throws Exception {
         // Act y Assert
-        mockMvc.perform(MockMvcRequestBuilders.put("/api/provincia")
+        realizar(MockMvcRequestBuilders.put("/api/provincia")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(null)))
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
@@ -280,7 +378,7 @@ public class ProvinciaControllerTest {
         Provincia provinciaAActualizar = new Provincia(null, "SE MODIFICÓ TIERRA DEL FUEGO", new Pais(1L, "Argentina"));
 
         // Act y Assert
-        mockMvc.perform(MockMvcRequestBuilders.put("/api/provincia")
+        realizar(MockMvcRequestBuilders.put("/api/provincia")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(provinciaAActualizar)))
                 .andExpect(MockMvcResultMatchers.status().isBadRequest());
@@ -303,7 +401,7 @@ public class ProvinciaControllerTest {
         Mockito.when(provinciaService.buscarPorId(Mockito.anyLong()))
                 .thenReturn(null);
 
-        mockMvc.perform(MockMvcRequestBuilders
+        realizar(MockMvcRequestBuilders
                 .put("/api/provincia")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(provinciaAActualizar)))
@@ -312,29 +410,176 @@ public class ProvinciaControllerTest {
         Mockito.verify(provinciaService, Mockito.times(1)).buscarPorId(Mockito.anyLong());
         Mockito.verify(provinciaService, Mockito.never()).modificarProvincia(Mockito.any(Provincia.class));
     }
+
+    /**
+     * Verifica que con el header If-Match la modificación use la escritura
+     * condicionada a la versión y devuelva la nueva versión como ETag.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void actualizarProvincia_conIfMatch_modificaConVersionYDevuelveEtag() throws Exception {
+        Provincia provinciaAActualizar = new Provincia(21L, "Tierra del Fuego", new Pais(1L, "Argentina"));
+        Provincia provinciaModificada = new Provincia(21L, "Tierra del Fuego", null);
+        provinciaModificada.setVersion(4L);
+
+        Mockito.when(provinciaService.modificarNombre(Mockito.eq(21L), Mockito.eq("Tierra del Fuego"),
+                Mockito.eq(3L), Mockito.argThat(pais -> pais != null && pais.getId() == 1L)))
+                .thenReturn(provinciaModificada);
+
+        realizar(MockMvcRequestBuilders.put("/api/provincia")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(provinciaAActualizar)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"4\""));
+
+        Mockito.verify(provinciaService, Mockito.never()).buscarPorId(Mockito.anyLong());
+        Mockito.verify(provinciaService, Mockito.never()).modificarProvincia(Mockito.any(Provincia.class));
+    }
+
+    /**
+     * Verifica que si la versión indicada ya no es la vigente se responda 409
+     * (Conflict).
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void actualizarProvincia_conVersionVieja_retornaConflict() throws Exception {
+        Provincia provinciaAActualizar = new Provincia(21L, "Tierra del Fuego", new Pais(1L, "Argentina"));
+
+        Mockito.when(provinciaService.modificarNombre(Mockito.eq(21L), Mockito.eq("Tierra del Fuego"),
+                Mockito.eq(3L), Mockito.argThat(pais -> pais != null && pais.getId() == 1L)))
+                .thenThrow(new ProvinciaConflictoException("conflicto"));
+
+        realizar(MockMvcRequestBuilders.put("/api/provincia")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(provinciaAActualizar)))
+                .andExpect(MockMvcResultMatchers.status().isConflict());
+    }
+
+    /**
+     * Verifica que un If-Match con etiqueta débil se rechace con 412
+     * (Precondition Failed) sin intentar la modificación: If-Match compara en
+     * forma fuerte.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void actualizarProvincia_conEtiquetaDebil_retornaPreconditionFailed() throws Exception {
+        Provincia provinciaAActualizar = new Provincia(21L, "Tierra del Fuego", new Pais(1L, "Argentina"));
+
+        realizar(MockMvcRequestBuilders.put("/api/provincia")
+                .header("If-Match", "W/\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(provinciaAActualizar)))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+
+        Mockito.verify(provinciaService, Mockito.never())
+                .modificarNombre(Mockito.anyLong(), Mockito.anyString(), Mockito.anyLong(), Mockito.any());
+    }
     
-//    @Test
-//    public void eliminarProvincia_conIdValido_deberiaEliminarYDevolverOK() throws Exception {
-//        Long idProvincia = 1L;
-//
-//        mockMvc.perform(MockMvcRequestBuilders
-//                .delete("/api/provincia/{id}", idProvincia))
-//                .andExpect(MockMvcResultMatchers.status().isOk());
-//
-//        Mockito.verify(provinciaService, Mockito.times(1)).eliminarProvincia(idProvincia);
-//    }
-//
-//    @Test
-//    public void eliminarProvincia_conIdNull_deberiaDevolverBadRequest() throws Exception {
-//
-//        mockMvc.perform(MockMvcRequestBuilders
-//                // el compilador necesita entender que estás proporcionando 
-//                // un objeto nulo y no simplemente un valor nulo
-//                .delete("/api/provincia/{id}", (Object) null))
-//                .andExpect(MockMvcResultMatchers.status().isNotFound());
-//                
-//        Mockito.verify(provinciaService, Mockito.never()).eliminarProvincia(Mockito.anyLong());
-//    }
+    /**
+     * Verifica que al eliminar una provincia por ID se responda 200 (OK).
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void eliminarProvincia_conIdValido_deberiaEliminarYDevolverOK() throws Exception {
+        Long idProvincia = 1L;
+        Mockito.when(provinciaService.eliminarProvincia(idProvincia)).thenReturn(1);
+
+        realizar(MockMvcRequestBuilders
+                .delete("/api/provincia/{id}", idProvincia))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        Mockito.verify(provinciaService, Mockito.times(1)).eliminarProvincia(idProvincia);
+    }
+
+    /**
+     * Verifica que al eliminar una provincia que no existe se responda 404
+     * (Not Found).
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void eliminarProvincia_conIdInexistente_deberiaDevolverNotFound() throws Exception {
+        Mockito.when(provinciaService.eliminarProvincia(99L)).thenReturn(0);
+
+        realizar(MockMvcRequestBuilders
+                .delete("/api/provincia/{id}", 99L))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    /**
+     * Verifica que sin ID no se invoque la eliminación.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void eliminarProvincia_conIdNull_deberiaDevolverBadRequest() throws Exception {
+
+        realizar(MockMvcRequestBuilders
+                // el compilador necesita entender que estás proporcionando 
+                // un objeto nulo y no simplemente un valor nulo
+                .delete("/api/provincia/{id}", (Object) null))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+                
+        Mockito.verify(provinciaService, Mockito.never()).eliminarProvincia(Mockito.anyLong());
+    }
+
+    /**
+     * Verifica que la eliminación masiva por IDs informe la cantidad de
+     * provincias eliminadas.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void eliminarProvincias_conIds_retornaCantidadEliminada() throws Exception {
+        Mockito.when(provinciaService.eliminarProvincias(Arrays.asList(1L, 2L, 3L))).thenReturn(2);
+
+        realizar(MockMvcRequestBuilders
+                .delete("/api/provincia")
+                .param("ids", "1,2,3"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.eliminadas", is(2)));
+    }
+
+    /**
+     * Verifica que la eliminación masiva con más IDs que el máximo se rechace
+     * con 400 (Bad Request) sin llegar al servicio.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void eliminarProvincias_conDemasiadosIds_retornaBadRequest() throws Exception {
+        String ids = LongStream.rangeClosed(1, 1001)
+                .mapToObj(Long::toString).collect(Collectors.joining(","));
+
+        realizar(MockMvcRequestBuilders
+                .delete("/api/provincia")
+                .param("ids", ids))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        Mockito.verify(provinciaService, Mockito.never()).eliminarProvincias(Mockito.anyList());
+    }
+
+    /**
+     * Verifica que la eliminación de las provincias de un país informe la
+     * cantidad de provincias eliminadas.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void eliminarProvinciasDePais_conIdPais_retornaCantidadEliminada() throws Exception {
+        Mockito.when(provinciaService.eliminarProvinciasDePais(1L)).thenReturn(20);
+
+        realizar(MockMvcRequestBuilders
+                .delete("/api/provincia/pais/{idPais}", 1L))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.eliminadas", is(20)));
+    }
     
     /**
      * Verifica si devuelve la lista, y revisa si se duelven los mismos objetos
@@ -350,10 +595,10 @@ public class ProvinciaControllerTest {
                 new Provincia(2L, "Córdoba", new Pais(1L, "Argentina"))
         );
 
-        Mockito.when(provinciaService.buscarTodasLasProvincias()).thenReturn(provincias);
+        Mockito.when(provinciaService.buscarTodasLasProvincias()).thenReturn(FilasProvincias.de(provincias));
 
         // Act
-        mockMvc.perform(MockMvcRequestBuilders
+        realizar(MockMvcRequestBuilders
                 .get("/api/provincia/todos")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(MockMvcResultMatchers.status().isOk())
@@ -369,4 +614,145 @@ public class ProvinciaControllerTest {
         Mockito.verify(provinciaService, Mockito.times(1)).buscarTodasLasProvincias();
     }
 
+    /**
+     * Prueba que con "fields" se piden al servicio solo esos campos y se
+     * serializan únicamente ellos.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void listarLasProvincias_conFields_devuelveSoloLosCamposPedidos() throws Exception {
+        EnumSet<CampoProvincia> campos = EnumSet.of(CampoProvincia.ID, CampoProvincia.NOMBRE);
+        Mockito.doAnswer(invocacion -> {
+            Consumer<Iterator<Object[]>> consumidor = invocacion.getArgument(1);
+            consumidor.accept(List.of(
+                    new Object[] {1L, "Buenos Aires"},
+                    new Object[] {2L, "Córdoba"}).iterator());
+            return null;
+        }).when(provinciaService).recorrerCamposDeTodas(Mockito.eq(campos), Mockito.any());
+
+        realizar(MockMvcRequestBuilders
+                .get("/api/provincia/todos?fields=nombre,id")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json(
+                        "[{\"id\":1,\"nombre\":\"Buenos Aires\"},{\"id\":2,\"nombre\":\"Córdoba\"}]", true));
+
+        Mockito.verify(provinciaService, Mockito.never()).buscarTodasLasProvincias();
+    }
+
+    /**
+     * Prueba que con "fields" la consulta (que corre al serializar) se hace
+     * en un hilo del compartimento de listados y no en el del request.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void listarLasProvincias_conFields_consultaEnElCompartimento() throws Exception {
+        AtomicReference<String> hilo = new AtomicReference<>();
+        Mockito.doAnswer(invocacion -> {
+            hilo.set(Thread.currentThread().getName());
+            Consumer<Iterator<Object[]>> consumidor = invocacion.getArgument(1);
+            consumidor.accept(List.<Object[]>of(new Object[] {1L}).iterator());
+            return null;
+        }).when(provinciaService).recorrerCamposDeTodas(Mockito.any(), Mockito.any());
+
+        realizar(MockMvcRequestBuilders
+                .get("/api/provincia/todos?fields=id")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json("[{\"id\":1}]", true));
+
+        assertTrue(hilo.get().startsWith("compartimento-lectura-listado-"), hilo.get());
+    }
+
+    /**
+     * Prueba que un campo desconocido en "fields" responde 400 sin consultar.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void buscarPorId_conFieldDesconocido_retornaBadRequest() throws Exception {
+        realizar(MockMvcRequestBuilders
+                .get("/api/provincia/1?fields=id,poblacion")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        Mockito.verifyNoInteractions(provinciaService);
+    }
+
+    /**
+     * Prueba que los parámetros de /buscar llegan al servicio como filtro y
+     * orden, y que el resultado se devuelve en formato DTO.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void buscarConFiltro_conPaisYPrefijo_pasaElFiltroAlServicio() throws Exception {
+        Mockito.when(provinciaService.buscarConFiltro(any())).thenReturn(FilasProvincias.de(List.of(
+                new Provincia(7L, "San Luis", new Pais(1L, "Argentina")))));
+
+        realizar(MockMvcRequestBuilders
+                .get("/api/provincia/buscar?pais=1&prefijo=San&orden=-nombre")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$", hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].nombre", is("San Luis")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].pais", is("Argentina")));
+
+        ArgumentCaptor<FiltroProvincias> filtro = ArgumentCaptor.forClass(FiltroProvincias.class);
+        Mockito.verify(provinciaService).buscarConFiltro(filtro.capture());
+        assertEquals(1L, filtro.getValue().getIdPais());
+        assertEquals("San", filtro.getValue().getPrefijo());
+        assertEquals(Sort.Direction.DESC, filtro.getValue().getOrden().getOrderFor("nombre").getDirection());
+        assertEquals(FiltroProvincias.LIMITE_POR_DEFECTO, filtro.getValue().getLimite());
+    }
+
+    /**
+     * Prueba que /buscar con un límite mayor al máximo responde 400 sin
+     * consultar.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void buscarConFiltro_conLimiteExcesivo_retornaBadRequest() throws Exception {
+        realizar(MockMvcRequestBuilders
+                .get("/api/provincia/buscar?pais=1&limite=" + (FiltroProvincias.LIMITE_MAXIMO + 1))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        Mockito.verifyNoInteractions(provinciaService);
+    }
+
+    /**
+     * Prueba que /buscar sin ningún filtro indexado responde 400 sin consultar.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void buscarConFiltro_sinFiltros_retornaBadRequest() throws Exception {
+        realizar(MockMvcRequestBuilders
+                .get("/api/provincia/buscar?orden=nombre")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        Mockito.verifyNoInteractions(provinciaService);
+    }
+
+    /**
+     * Prueba que /buscar ordenado por nombre con solo un rango de IDs (que
+     * puede abarcar toda la tabla) responde 400 sin consultar.
+     *
+     * @throws Exception Si hay algún error durante la ejecución de la prueba.
+     */
+    @Test
+    public void buscarConFiltro_ordenPorNombreConSoloRangoDeIds_retornaBadRequest() throws Exception {
+        realizar(MockMvcRequestBuilders
+                .get("/api/provincia/buscar?idDesde=0&orden=nombre")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        Mockito.verifyNoInteractions(provinciaService);
+    }
+
 }
@@ -0,0 +1,60 @@
+package com.dosideas.controller.rest;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.ProvinciaDTO;
+import com.dosideas.dto.ProvinciaPaisDTO;
+import com.dosideas.dto.VistaProvincias;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para {@link SerializadoresJson}: la salida tiene que ser
+ * la misma que la de Jackson por reflexión.
+ *
+ * @author Gabriel Romero
+ */
+public class SerializadoresJsonTest {
+
+    private final ObjectMapper reflexivo = new ObjectMapper();
+    private final ObjectMapper especializado = new ObjectMapper().registerModule(SerializadoresJson.modulo());
+
+    /**
+     * Prueba para verificar que DTOs y países (con campos null, comillas y
+     * tildes) se escriben igual que con Jackson.
+     */
+    @Test
+    public void serializar_dtosYPais_igualQueJackson() throws Exception {
+        List<Object> valores = Arrays.asList(
+                new ProvinciaDTO(1L, "Córdoba \"la docta\"", "Argentina"),
+                new ProvinciaDTO(null, null, null),
+                new ProvinciaPaisDTO(2L, "Salta"),
+                new Pais(3L, "Uruguay"),
+                new Pais(null, "Chile"));
+
+        assertThat(especializado.writeValueAsString(valores)).isEqualTo(reflexivo.writeValueAsString(valores));
+    }
+
+    /**
+     * Prueba para verificar que VistaProvincias se escribe como la lista de
+     * DTOs equivalente.
+     */
+    @Test
+    public void serializar_vistaProvincias_igualQueLaListaDeDTOs() throws Exception {
+        Pais argentina = new Pais(1L, "Argentina");
+        List<Provincia> provincias = List.of(new Provincia(1L, "Córdoba", argentina), new Provincia(2L, "Sin país", null));
+
+        assertThat(especializado.writeValueAsString(new VistaProvincias(provincias, VistaProvincias.Formato.CON_PAIS)))
+                .isEqualTo(reflexivo.writeValueAsString(List.of(
+                        new ProvinciaDTO(1L, "Córdoba", "Argentina"), new ProvinciaDTO(2L, "Sin país", null))));
+        assertThat(especializado.writeValueAsString(new VistaProvincias(provincias, VistaProvincias.Formato.SIN_PAIS)))
+                .isEqualTo(reflexivo.writeValueAsString(List.of(
+                        new ProvinciaPaisDTO(1L, "Córdoba"), new ProvinciaPaisDTO(2L, "Sin país"))));
+    }
+}
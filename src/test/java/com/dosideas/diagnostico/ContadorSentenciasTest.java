@@ -0,0 +1,113 @@
+package com.dosideas.diagnostico;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para {@link ContadorSentencias} y
+ * {@link AmbitoSentencias}.
+ *
+ * @author Gabriel Romero
+ */
+public class ContadorSentenciasTest {
+
+    private final ContadorSentencias contador = new ContadorSentencias();
+
+    /**
+     * Prueba para verificar que dos consultas que solo difieren en los
+     * parámetros, literales o largo de la lista IN tienen la misma forma.
+     */
+    @Test
+    public void normalizar_consultasQueSoloDifierenEnParametros_tienenLaMismaForma() {
+        String una = ContadorSentencias.normalizar("select p1_0.id from provincia p1_0 where p1_0.id in (?,?,?) and p1_0.nombre='Salta'");
+        String otra = ContadorSentencias.normalizar("SELECT p1_0.id FROM provincia p1_0\n WHERE p1_0.id IN (?, ?) AND p1_0.nombre='Jujuy'");
+
+        assertThat(una).isEqualTo(otra);
+        assertThat(una).contains("p1_0.id").contains("in (?...)");
+    }
+
+    /**
+     * Prueba para verificar que sin un ámbito abierto no se cuenta nada y que
+     * lo que cuenta un ámbito anidado también lo cuenta el que lo contiene.
+     */
+    @Test
+    public void inspect_conAmbitosAnidados_cuentaEnAmbos() {
+        contador.inspect("select 1");
+        assertThat(ContadorSentencias.actual()).isNull();
+
+        try (AmbitoSentencias request = ContadorSentencias.abrir("request")) {
+            contador.inspect("select id from pais");
+            try (AmbitoSentencias llamada = ContadorSentencias.abrir("llamada")) {
+                contador.inspect("update provincia set nombre=? where id=?");
+                assertThat(llamada.getTotal()).isEqualTo(1);
+            }
+            assertThat(request.getTotal()).isEqualTo(2);
+            assertThat(ContadorSentencias.actual()).isSameAs(request);
+        }
+        assertThat(ContadorSentencias.actual()).isNull();
+    }
+
+    /**
+     * Prueba para verificar que lo contado en ámbitos separados desde otros
+     * hilos se suma al ámbito y a los que lo contienen, sin compartirlos
+     * mientras las tareas corren.
+     */
+    @Test
+    public void sumar_conTareasEnParalelo_cuentaTodasLasSentencias() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        try (AmbitoSentencias request = ContadorSentencias.abrir("request");
+                AmbitoSentencias llamada = ContadorSentencias.abrir("llamada")) {
+            List<AmbitoSentencias> separados = new ArrayList<>();
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                AmbitoSentencias separado = llamada.separado();
+                separados.add(separado);
+                tareas.add(hilos.submit(() -> {
+                    AmbitoSentencias anterior = ContadorSentencias.continuar(separado);
+                    try {
+                        for (int j = 0; j < 1000; j++) {
+                            contador.inspect("select id from provincia where id=" + j);
+                        }
+                    } finally {
+                        ContadorSentencias.restaurar(anterior);
+                    }
+                }));
+            }
+            for (int i = 0; i < tareas.size(); i++) {
+                tareas.get(i).get();
+                llamada.sumar(separados.get(i));
+            }
+
+            assertThat(llamada.getTotal()).isEqualTo(4000);
+            assertThat(request.getTotal()).isEqualTo(4000);
+            assertThat(request.getFormas()).containsExactly(entry("select id from provincia where id=?", 4000));
+        } finally {
+            hilos.shutdown();
+        }
+    }
+
+    /**
+     * Prueba para verificar que una consulta repetida con distintos
+     * parámetros se informa como posible N+1, y que las escrituras no.
+     */
+    @Test
+    public void getRepetidas_conConsultaPorCadaFila_laInforma() {
+        try (AmbitoSentencias ambito = ContadorSentencias.abrir("request")) {
+            contador.inspect("select p1_0.id,p1_0.nombre from provincia p1_0");
+            for (int id = 1; id <= 4; id++) {
+                contador.inspect("select p1_0.id,p1_0.nombre from pais p1_0 where p1_0.id=" + id);
+                contador.inspect("insert into provincia (nombre) values ('x" + id + "')");
+            }
+
+            assertThat(ambito.getRepetidas(3))
+                    .containsExactly(entry("select p1_0.id,p1_0.nombre from pais p1_0 where p1_0.id=?", 4));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.dosideas.diagnostico;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.dto.EstadisticaSqlDTO;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Pruebas de {@link DataSourceCronometrado} sobre un pool de HSQLDB en
+ * memoria.
+ *
+ * @author Gabriel Romero
+ */
+public class DataSourceCronometradoTest {
+
+    /**
+     * Prueba para verificar que cada sentencia se registra con sus filas (las
+     * leídas en una consulta, las modificadas en un update) y que cerrar el
+     * DataSource envuelto cierra el pool.
+     */
+    @Test
+    public void sentencias_seMidenConSusFilasYCerrarCierraElPool() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:hsqldb:mem:cronometrado");
+        pool.setUsername("sa");
+        EstadisticasSql estadisticas = new EstadisticasSql(1000, 4, 100);
+        DataSourceCronometrado dataSource = new DataSourceCronometrado(pool, estadisticas);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        jdbc.execute("CREATE TABLE medida (id INT PRIMARY KEY)");
+        jdbc.batchUpdate("INSERT INTO medida (id) VALUES (?)", List.of(
+                new Object[]{1}, new Object[]{2}, new Object[]{3}));
+        assertThat(jdbc.queryForList("SELECT id FROM medida WHERE id > ?", Integer.class, 1)).hasSize(2);
+        assertThat(jdbc.update("DELETE FROM medida WHERE id < ?", 3)).isEqualTo(2);
+
+        assertThat(estadisticas.top(10, false)).extracting(EstadisticaSqlDTO::getSql, EstadisticaSqlDTO::getFilas)
+                .contains(
+                        tuple("insert into medida (id) values (?)", 3L),
+                        tuple("select id from medida where id > ?", 2L),
+                        tuple("delete from medida where id < ?", 2L));
+        assertThat(dataSource.isWrapperFor(HikariDataSource.class)).isTrue();
+
+        dataSource.close();
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+}
@@ -0,0 +1,65 @@
+package com.dosideas.diagnostico;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.dto.ConsultaLentaDTO;
+import com.dosideas.dto.EstadisticaSqlDTO;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para {@link EstadisticasSql}.
+ *
+ * @author Gabriel Romero
+ */
+public class EstadisticasSqlTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Prueba para verificar que las ejecuciones se agrupan por forma y que el
+     * orden por total y por p99 puede dar resultados distintos.
+     */
+    @Test
+    public void top_agrupaPorFormaYOrdenaPorTotalOPorP99() {
+        EstadisticasSql estadisticas = new EstadisticasSql(1000, 4, 100);
+        // Muchas consultas rápidas: mayor total.
+        for (int id = 1; id <= 100; id++) {
+            estadisticas.registrar("select nombre from pais where id=" + id, 2 * MS, 1, "PaisRepository.findById");
+        }
+        // Pocas consultas lentas: mayor p99.
+        for (int i = 0; i < 3; i++) {
+            estadisticas.registrar("select * from provincia", 50 * MS, 1000, "ProvinciaRepository.findAll");
+        }
+
+        List<EstadisticaSqlDTO> porTotal = estadisticas.top(10, false);
+        List<EstadisticaSqlDTO> porP99 = estadisticas.top(1, true);
+
+        assertThat(porTotal).hasSize(2);
+        assertThat(porTotal.get(0).getSql()).isEqualTo("select nombre from pais where id=?");
+        assertThat(porTotal.get(0).getEjecuciones()).isEqualTo(100);
+        assertThat(porTotal.get(0).getTotalMs()).isCloseTo(200, within(0.001));
+        assertThat(porTotal.get(0).getLlamadores()).containsExactly("PaisRepository.findById");
+        assertThat(porP99).singleElement()
+                .satisfies(e -> assertThat(e.getP99Ms()).isCloseTo(50, within(50 * 0.125)))
+                .satisfies(e -> assertThat(e.getFilas()).isEqualTo(3000));
+    }
+
+    /**
+     * Prueba para verificar que el buffer de consultas lentas guarda solo las
+     * que superan el umbral y conserva las más recientes.
+     */
+    @Test
+    public void lentas_conBufferLleno_conservaLasMasRecientes() {
+        EstadisticasSql estadisticas = new EstadisticasSql(10, 2, 100);
+        estadisticas.registrar("select 1", 1 * MS, 1, null);
+        estadisticas.registrar("select 2", 20 * MS, 1, null);
+        estadisticas.registrar("select 3", 30 * MS, 1, null);
+        estadisticas.registrar("select 4", 40 * MS, 1, null);
+
+        assertThat(estadisticas.lentas()).extracting(ConsultaLentaDTO::getSql)
+                .containsExactlyInAnyOrder("select 3", "select 4");
+    }
+}
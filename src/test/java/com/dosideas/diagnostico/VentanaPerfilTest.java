@@ -0,0 +1,88 @@
+package com.dosideas.diagnostico;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.dto.PerfilDTO;
+import com.dosideas.dto.PerfilEndpointDTO;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para {@link VentanaPerfil}.
+ *
+ * @author Gabriel Romero
+ */
+public class VentanaPerfilTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Prueba para verificar que lo registrado se acumula por endpoint, que lo
+     * que no tiene endpoint va aparte y que el orden pedido decide cuáles
+     * aparecen primero.
+     */
+    @Test
+    public void resumen_acumulaPorEndpointYOrdena() {
+        VentanaPerfil ventana = new VentanaPerfil(Duration.ofSeconds(60), 6);
+        long ahora = 1_000_000;
+        ventana.tramo(ahora, "ProvinciaRestController.listarLasProvincias", true, 30 * MS, 2 * MS);
+        ventana.tramo(ahora, "ProvinciaRestController.listarLasProvincias", false, 20 * MS, 0);
+        ventana.asignacion(ahora, "ProvinciaRestController.listarLasProvincias", "[B en Arrays.copyOf", 4096);
+        ventana.asignacion(ahora, "ProvinciaRestController.listarLasProvincias", "[B en Arrays.copyOf", 1024);
+        ventana.sentencia(ahora, "ProvinciaRestController.listarLasProvincias", 5 * MS);
+        ventana.servicio(ahora, "ProvinciaRestController.listarLasProvincias",
+                "IProvinciaService.buscarTodasLasProvincias", 40 * MS);
+        ventana.tramo(ahora, "PaisRestController.buscarPorId", true, 10 * MS, 0);
+        ventana.bloqueo(ahora, "PaisRestController.buscarPorId", "java.lang.Object en PaisService.x", 8 * MS);
+        ventana.asignacion(ahora, null, "java.lang.String en Otro.metodo", 1_000_000);
+
+        PerfilDTO porTiempo = ventana.resumen(ahora, 10, "tiempo");
+        PerfilEndpointDTO listado = porTiempo.getEndpoints().get(0);
+        assertThat(listado.getEndpoint()).isEqualTo("ProvinciaRestController.listarLasProvincias");
+        assertThat(listado.getRequests()).isEqualTo(1);
+        assertThat(listado.getTiempoMs()).isEqualTo(50.0);
+        assertThat(listado.getPausaGcMs()).isEqualTo(2.0);
+        assertThat(listado.getBytesAsignados()).isEqualTo(5120);
+        assertThat(listado.getTopAsignaciones()).containsEntry("[B en Arrays.copyOf", 5120L);
+        assertThat(listado.getSentencias()).isEqualTo(1);
+        assertThat(listado.getJdbcMs()).isEqualTo(5.0);
+        assertThat(listado.getServicios()).containsEntry("IProvinciaService.buscarTodasLasProvincias", 40.0);
+
+        assertThat(ventana.resumen(ahora, 1, "bloqueo").getEndpoints())
+                .extracting(PerfilEndpointDTO::getEndpoint)
+                .containsExactly("PaisRestController.buscarPorId");
+        assertThat(ventana.resumen(ahora, 1, "asignacion").getEndpoints())
+                .extracting(PerfilEndpointDTO::getEndpoint)
+                .containsExactly(VentanaPerfil.FUERA_DE_ENDPOINTS);
+    }
+
+    /**
+     * Prueba para verificar que lo registrado sale del resumen cuando su
+     * intervalo queda fuera de la ventana.
+     */
+    @Test
+    public void resumen_descartaLosIntervalosFueraDeLaVentana() {
+        VentanaPerfil ventana = new VentanaPerfil(Duration.ofSeconds(60), 6);
+        long inicio = 1_000_000;
+        ventana.tramo(inicio, "ProvinciaRestController.buscarPorId", true, 10 * MS, 0);
+        ventana.pausaGc(inicio, 7 * MS);
+        ventana.tramo(inicio + 30_000, "ProvinciaRestController.buscarPorId", true, 10 * MS, 0);
+
+        PerfilDTO dentro = ventana.resumen(inicio + 30_000, 10, "tiempo");
+        assertThat(dentro.getEndpoints().get(0).getRequests()).isEqualTo(2);
+        assertThat(dentro.getPausasGc()).isEqualTo(1);
+        assertThat(dentro.getPausaGcMaximaMs()).isEqualTo(7.0);
+
+        PerfilDTO despues = ventana.resumen(inicio + 65_000, 10, "tiempo");
+        assertThat(despues.getEndpoints().get(0).getRequests()).isEqualTo(1);
+        assertThat(despues.getPausasGc()).isZero();
+
+        // Un evento atrasado de un intervalo ya reutilizado se ignora.
+        ventana.tramo(inicio + 90_000, "ProvinciaRestController.buscarPorId", true, 10 * MS, 0);
+        ventana.tramo(inicio + 30_000, "ProvinciaRestController.buscarPorId", true, 10 * MS, 0);
+        assertThat(ventana.resumen(inicio + 90_000, 10, "tiempo").getEndpoints().get(0).getRequests())
+                .isEqualTo(1);
+    }
+}
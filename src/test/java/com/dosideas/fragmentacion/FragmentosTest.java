@@ -0,0 +1,179 @@
+package com.dosideas.fragmentacion;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.CambiosProvinciaDTO;
+import com.dosideas.dto.FilasProvincias;
+import com.dosideas.dto.FiltroProvincias;
+import com.dosideas.dto.ProvinciaDTO;
+import com.dosideas.repository.PaisRepository;
+import com.dosideas.service.IProvinciaService;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Pruebas de la fragmentación por país con tres bases HSQLDB en memoria: la
+ * principal y dos fragmentos. Se usa el servicio de provincias tal como lo
+ * usan los controllers, sin saber que los datos están repartidos. Las bases
+ * tienen el esquema de las migraciones, sin los datos iniciales.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:fragmento0",
+    "spring.datasource.username=sa",
+    "spring.jpa.database-platform=org.hibernate.dialect.HSQLDialect",
+    "spring.flyway.locations=classpath:db/migration/{vendor}",
+    "fragmentacion.fragmento1.url=jdbc:hsqldb:mem:fragmento1",
+    "fragmentacion.fragmento1.username=sa",
+    "fragmentacion.fragmento2.url=jdbc:hsqldb:mem:fragmento2",
+    "fragmentacion.fragmento2.username=sa",
+    "cambios.seguimiento.intervalo-ms=0"
+})
+public class FragmentosTest {
+
+    @Autowired
+    private IProvinciaService provinciaService;
+
+    @Autowired
+    private PaisRepository paisRepository;
+
+    @Autowired
+    private Fragmentos fragmentos;
+
+    /**
+     * Crea un país por fragmento (según el mapa) con dos provincias cada uno.
+     */
+    private List<Provincia> crearProvinciasEnCadaFragmento(String prefijo) {
+        List<Pais> paises = new ArrayList<>();
+        while (paises.size() < fragmentos.cantidad()) {
+            Pais pais = paisRepository.save(new Pais(null, prefijo + " " + paisRepository.count()));
+            if (paises.stream().noneMatch(otro -> fragmentos.dePais(otro.getId()) == fragmentos.dePais(pais.getId()))) {
+                paises.add(pais);
+            }
+        }
+        List<Provincia> creadas = new ArrayList<>();
+        for (Pais pais : paises) {
+            creadas.add(provinciaService.guardarProvincia(new Provincia(null, prefijo + " A " + pais.getId(), pais)));
+            creadas.add(provinciaService.guardarProvincia(new Provincia(null, prefijo + " B " + pais.getId(), pais)));
+        }
+        return creadas;
+    }
+
+    private long contarEn(int fragmento, long id) {
+        return fragmentos.jdbc(fragmento).queryForObject(
+                "SELECT COUNT(*) FROM provincia WHERE id = ?", Long.class, id);
+    }
+
+    @Test
+    public void guardarProvincia_cadaProvinciaQuedaEnElFragmentoDeSuPaisConUnIdDeSuRango() {
+        for (Provincia provincia : crearProvinciasEnCadaFragmento("Rango")) {
+            int fragmento = fragmentos.dePais(provincia.getPais().getId());
+            assertThat(fragmentos.deId(provincia.getId())).isEqualTo(fragmento);
+            assertThat(contarEn(fragmento, provincia.getId())).isEqualTo(1);
+            assertThat(provinciaService.buscarPorId(provincia.getId()).getNombre()).isEqualTo(provincia.getNombre());
+        }
+    }
+
+    @Test
+    public void paisRepository_save_copiaElPaisATodosLosFragmentos() {
+        Pais pais = paisRepository.save(new Pais(null, "Replicado"));
+        for (int fragmento = 0; fragmento < fragmentos.cantidad(); fragmento++) {
+            assertThat(fragmentos.jdbc(fragmento).queryForObject(
+                    "SELECT nombre FROM pais WHERE id = ?", String.class, pais.getId())).isEqualTo("Replicado");
+        }
+    }
+
+    @Test
+    public void busquedas_unenLosResultadosDeTodosLosFragmentos() {
+        List<Provincia> creadas = crearProvinciasEnCadaFragmento("Union");
+        Provincia deUltimoFragmento = creadas.get(creadas.size() - 1);
+
+        assertThat(ids(provinciaService.buscarTodasLasProvincias()))
+                .containsAll(creadas.stream().map(Provincia::getId).toList());
+        assertThat(provinciaService.obtenerProvinciasPorNombrePais(deUltimoFragmento.getPais().getNombre()))
+                .extracting(Provincia::getNombre)
+                .containsExactlyInAnyOrder("Union A " + deUltimoFragmento.getPais().getId(),
+                        "Union B " + deUltimoFragmento.getPais().getId());
+
+        List<ProvinciaDTO> recorridas = new ArrayList<>();
+        provinciaService.recorrerProvincias(iterador -> iterador.forEachRemaining(recorridas::add));
+        assertThat(recorridas).extracting(ProvinciaDTO::getId).isSorted()
+                .containsAll(creadas.stream().map(Provincia::getId).toList());
+    }
+
+    @Test
+    public void buscarPaginaDeProvincias_ordenaYCortaEntreFragmentos() {
+        crearProvinciasEnCadaFragmento("Pagina");
+        List<String> esperados = nombres(provinciaService.buscarTodasLasProvincias()).stream()
+                .sorted(Comparator.reverseOrder())
+                .toList();
+
+        Page<Provincia> pagina = provinciaService.buscarPaginaDeProvincias(
+                PageRequest.of(1, 3, Sort.by(Sort.Direction.DESC, "nombre")));
+
+        assertThat(pagina.getTotalElements()).isEqualTo(esperados.size());
+        assertThat(pagina.getContent()).extracting(Provincia::getNombre)
+                .containsExactlyElementsOf(esperados.subList(3, 6));
+    }
+
+    @Test
+    public void buscarConFiltro_ordenaEntreFragmentosYConsultaSoloElDelPais() {
+        List<Provincia> creadas = crearProvinciasEnCadaFragmento("Filtro");
+        List<String> esperados = creadas.stream()
+                .map(Provincia::getNombre)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+
+        assertThat(nombres(provinciaService.buscarConFiltro(
+                FiltroProvincias.de(null, "Filtro", null, null, "-nombre", null))))
+                .containsExactlyElementsOf(esperados);
+        // Cada fragmento trae hasta el límite; al unirlos quedan las primeras.
+        assertThat(nombres(provinciaService.buscarConFiltro(
+                FiltroProvincias.de(null, "Filtro", null, null, "-nombre", 2))))
+                .containsExactlyElementsOf(esperados.subList(0, 2));
+
+        Pais pais = creadas.get(creadas.size() - 1).getPais();
+        assertThat(nombres(provinciaService.buscarConFiltro(
+                FiltroProvincias.de(pais.getId(), null, null, null, "id", null))))
+                .containsExactly("Filtro A " + pais.getId(), "Filtro B " + pais.getId());
+        assertThat(fragmentos.deRango(null, 10L)).containsExactly(0);
+        assertThat(fragmentos.deRango(1L << Fragmentos.BITS_POR_FRAGMENTO, null)).containsExactly(1, 2);
+    }
+
+    @Test
+    public void eliminarYModificar_seAplicanEnElFragmentoDeCadaId() throws Exception {
+        List<Provincia> creadas = crearProvinciasEnCadaFragmento("Baja");
+        long desde = provinciaService.buscarCambiosDesde(0).getVersion();
+        List<Long> aEliminar = List.of(creadas.get(0).getId(), creadas.get(creadas.size() - 1).getId());
+        Provincia aModificar = creadas.get(2);
+
+        assertThat(provinciaService.eliminarProvincias(aEliminar)).isEqualTo(2);
+        assertThat(provinciaService.modificarNombre(aModificar.getId(), "Modificada", aModificar.getVersion(), null))
+                .isNotNull();
+
+        for (Long id : aEliminar) {
+            assertThat(contarEn(fragmentos.deId(id), id)).isZero();
+        }
+        CambiosProvinciaDTO cambios = provinciaService.buscarCambiosDesde(desde);
+        assertThat(cambios.getEliminadas()).containsExactlyInAnyOrderElementsOf(aEliminar);
+        assertThat(cambios.getProvincias()).extracting(ProvinciaDTO::getNombre).containsExactly("Modificada");
+    }
+
+    private static List<Long> ids(FilasProvincias filas) {
+        return IntStream.range(0, filas.cantidad()).mapToObj(filas::id).toList();
+    }
+
+    private static List<String> nombres(FilasProvincias filas) {
+        return IntStream.range(0, filas.cantidad()).mapToObj(filas::nombre).toList();
+    }
+}
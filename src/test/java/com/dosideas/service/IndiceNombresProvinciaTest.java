@@ -0,0 +1,66 @@
+package com.dosideas.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import com.dosideas.event.ProvinciaEvento;
+import com.dosideas.repository.ProvinciaRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Pruebas unitarias para {@link IndiceNombresProvincia}.
+ *
+ * @author Gabriel Romero
+ */
+public class IndiceNombresProvinciaTest {
+
+    private IndiceNombresProvincia indice;
+
+    @BeforeEach
+    public void setUp() {
+        indice = new IndiceNombresProvincia(Mockito.mock(ProvinciaRepository.class),
+                Mockito.mock(PlatformTransactionManager.class), 2, 5);
+        Pais argentina = new Pais(1L, "Argentina");
+        String[] nombres = {"Córdoba", "Corrientes", "Santa Fe", "Santa Cruz", "Salta", "Buenos Aires"};
+        for (int i = 0; i < nombres.length; i++) {
+            crear(i + 1L, nombres[i], argentina);
+        }
+    }
+
+    /**
+     * Prueba para verificar que se sugieren los nombres a poca distancia de
+     * edición, sin distinguir mayúsculas ni tildes.
+     */
+    @Test
+    public void sugerir_conNombreMalEscrito_devuelveLosParecidos() {
+        assertThat(indice.sugerir("Cordova")).containsExactly("Córdoba");
+        assertThat(indice.sugerir("santa fee")).containsExactly("Santa Fe");
+        assertThat(indice.sugerir("Salt")).containsExactly("Salta");
+        assertThat(indice.sugerir("Mendoza")).isEmpty();
+        assertThat(indice.contiene("CORDOBA")).isTrue();
+    }
+
+    /**
+     * Prueba para verificar que las modificaciones y bajas (que solo traen el
+     * ID) se aplican al índice.
+     */
+    @Test
+    public void aplicar_modificacionesYBajas_actualizanLasSugerencias() {
+        indice.aplicar(ProvinciaEvento.eliminada(3L, 10L));
+        indice.aplicar(ProvinciaEvento.de(ProvinciaEvento.Tipo.MODIFICADA, new Provincia(5L, "Salto", null)));
+
+        assertThat(indice.contiene("Santa Fe")).isFalse();
+        assertThat(indice.sugerir("santa fee")).isEmpty();
+        assertThat(indice.contiene("Salta")).isFalse();
+        assertThat(indice.sugerir("Salta")).containsExactly("Salto");
+    }
+
+    private void crear(long id, String nombre, Pais pais) {
+        indice.aplicar(ProvinciaEvento.de(ProvinciaEvento.Tipo.CREADA, new Provincia(id, nombre, pais)));
+    }
+}
@@ -0,0 +1,45 @@
+package com.dosideas.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para {@link LectorCsv}.
+ *
+ * @author Gabriel Romero
+ */
+public class LectorCsvTest {
+
+    /**
+     * Prueba para verificar que se leen campos entre comillas (con comas,
+     * comillas y saltos de línea) y fines de línea \r\n, y que se informa la
+     * línea donde empieza cada registro.
+     */
+    @Test
+    public void siguiente_conComillasYSaltosDeLinea_separaLosCampos() throws IOException {
+        LectorCsv lector = new LectorCsv(new StringReader(
+                "nombre,pais\r\n\"Santa Fe, capital\",Argentina\n\"Dos\nlíneas\",\"Uru\"\"guay\"\nSalta,"));
+
+        assertThat(lector.siguiente()).containsExactly("nombre", "pais");
+        assertThat(lector.siguiente()).containsExactly("Santa Fe, capital", "Argentina");
+        assertThat(lector.getLinea()).isEqualTo(2);
+        assertThat(lector.siguiente()).containsExactly("Dos\nlíneas", "Uru\"guay");
+        assertThat(lector.siguiente()).containsExactly("Salta", "");
+        assertThat(lector.getLinea()).isEqualTo(5);
+        assertThat(lector.siguiente()).isNull();
+    }
+
+    /**
+     * Prueba para verificar que un campo con comillas sin cerrar es un error.
+     */
+    @Test
+    public void siguiente_conComillasSinCerrar_falla() {
+        LectorCsv lector = new LectorCsv(new StringReader("\"Salta,Argentina\n"));
+
+        assertThatThrownBy(lector::siguiente).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,128 @@
+package com.dosideas.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.FilasProvincias;
+import com.dosideas.dto.FiltroProvincias;
+import com.dosideas.event.ProvinciaEvento;
+import com.dosideas.repository.ProvinciaRepository;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Pruebas unitarias para {@link ModeloLecturaProvincias}.
+ *
+ * @author Gabriel Romero
+ */
+public class ModeloLecturaProvinciasTest {
+
+    private ModeloLecturaProvincias modelo;
+
+    @BeforeEach
+    public void setUp() {
+        ProvinciaRepository provinciaRepository = mock(ProvinciaRepository.class);
+        when(provinciaRepository.buscarFilasPlanas()).thenReturn(Stream.of(
+                new Object[]{1L, "Córdoba", 0L, 1L, "Argentina"},
+                new Object[]{2L, "Santa Fe", 0L, 1L, "Argentina"},
+                new Object[]{3L, "Montevideo", 0L, 2L, "Uruguay"},
+                new Object[]{4L, "Sin país", 0L, null, null}));
+        modelo = new ModeloLecturaProvincias(provinciaRepository, mock(PlatformTransactionManager.class));
+        // Llega durante la carga: se aplica al terminarla.
+        modelo.aplicar(ProvinciaEvento.eliminada(4L, 10L));
+        modelo.cargar();
+    }
+
+    /**
+     * Prueba para verificar que las consultas por ID, nombre y país responden
+     * lo cargado, y que el evento recibido durante la carga se aplicó.
+     */
+    @Test
+    public void cargar_respondeLasConsultasSinLaBase() {
+        assertThat(modelo.estaListo()).isTrue();
+        assertThat(modelo.buscarPorId(1L).getPais().getNombre()).isEqualTo("Argentina");
+        assertThat(modelo.buscarPorId(4L)).isNull();
+        assertThat(modelo.buscarPorNombre("SANTA FE")).extracting(Provincia::getId).containsExactly(2L);
+        assertThat(modelo.buscarPorNombrePais("Argentina")).extracting(Provincia::getId).containsExactly(1L, 2L);
+        assertThat(modelo.pagina(PageRequest.of(1, 1)).getContent()).extracting(Provincia::getId).containsExactly(2L);
+        assertThat(modelo.pagina(PageRequest.of(0, 1, Sort.by("nombre")))).isNull();
+        assertThat(modelo.estadisticas().getProvincias()).isEqualTo(3);
+    }
+
+    /**
+     * Prueba para verificar que el listado filtrado se arma desde las
+     * columnas, con el nombre del país, en el orden pedido y hasta el límite.
+     */
+    @Test
+    public void filtrar_devuelveLasFilasEnElOrdenPedido() {
+        FilasProvincias porNombre = modelo.filtrar(FiltroProvincias.de(1L, null, null, null, "-nombre", null));
+        assertThat(ids(porNombre)).containsExactly(2L, 1L);
+        assertThat(porNombre.nombre(0)).isEqualTo("Santa Fe");
+        assertThat(porNombre.nombrePais(0)).isEqualTo("Argentina");
+
+        assertThat(ids(modelo.filtrar(FiltroProvincias.de(1L, null, null, null, null, null)))).containsExactly(1L, 2L);
+        assertThat(ids(modelo.filtrar(FiltroProvincias.de(1L, null, null, null, "-id", 1)))).containsExactly(2L);
+        assertThat(ids(modelo.filtrar(FiltroProvincias.de(9L, null, null, null, null, null)))).isEmpty();
+        assertThat(ids(modelo.filtrar(FiltroProvincias.de(null, "mont", null, null, null, null)))).containsExactly(3L);
+        assertThat(ids(modelo.filtrar(FiltroProvincias.de(null, null, 2L, null, "-id", null)))).containsExactly(3L, 2L);
+        assertThat(ids(modelo.filtrar(FiltroProvincias.de(null, null, 1L, null, null, 2)))).containsExactly(1L, 2L);
+        assertThat(ids(modelo.filtrar(FiltroProvincias.de(null, null, 1L, null, "-id", 1)))).containsExactly(3L);
+    }
+
+    /**
+     * Prueba para verificar que altas, modificaciones y bajas actualizan los
+     * índices, y que un evento con una versión vieja se ignora.
+     */
+    @Test
+    public void aplicar_actualizaLosIndicesEIgnoraVersionesViejas() {
+        Provincia salto = new Provincia(5L, "Salto", new Pais(2L, "Uruguay"));
+        salto.setVersion(0L);
+        modelo.aplicar(ProvinciaEvento.de(ProvinciaEvento.Tipo.CREADA, salto));
+        Provincia cordoba = new Provincia(1L, "Rosario", new Pais(2L, "Uruguay"));
+        cordoba.setVersion(2L);
+        modelo.aplicar(ProvinciaEvento.de(ProvinciaEvento.Tipo.MODIFICADA, cordoba));
+        cordoba.setNombre("Viejo");
+        cordoba.setVersion(1L);
+        modelo.aplicar(ProvinciaEvento.de(ProvinciaEvento.Tipo.MODIFICADA, cordoba));
+        modelo.aplicar(ProvinciaEvento.eliminada(3L, 11L));
+
+        assertThat(modelo.buscarPorNombre("Córdoba")).isEmpty();
+        assertThat(modelo.buscarPorNombre("Viejo")).isEmpty();
+        assertThat(modelo.buscarPorId(1L).getNombre()).isEqualTo("Rosario");
+        assertThat(modelo.buscarPorId(1L).getVersion()).isEqualTo(2L);
+        assertThat(modelo.buscarPorNombrePais("Argentina")).extracting(Provincia::getId).containsExactly(2L);
+        assertThat(modelo.buscarPorNombrePais("Uruguay")).extracting(Provincia::getId).containsExactly(1L, 5L);
+        assertThat(ids(modelo.todas())).containsExactly(1L, 2L, 5L);
+    }
+
+    /**
+     * Prueba para verificar que un evento con otro nombre para un país ya
+     * conocido lo renombra para todas sus provincias.
+     */
+    @Test
+    public void aplicar_conOtroNombreDePais_loRenombra() {
+        Provincia santaFe = new Provincia(2L, "Santa Fe", new Pais(1L, "República Argentina"));
+        santaFe.setVersion(1L);
+        modelo.aplicar(ProvinciaEvento.de(ProvinciaEvento.Tipo.MODIFICADA, santaFe));
+
+        assertThat(modelo.nombrePais(1L)).isEqualTo("República Argentina");
+        assertThat(modelo.buscarPorId(1L).getPais().getNombre()).isEqualTo("República Argentina");
+        assertThat(modelo.buscarPorNombrePais("Argentina")).isEmpty();
+        assertThat(modelo.buscarPorNombrePais("República Argentina")).extracting(Provincia::getId)
+                .containsExactly(1L, 2L);
+    }
+
+    private static List<Long> ids(FilasProvincias filas) {
+        return IntStream.range(0, filas.cantidad()).mapToObj(filas::id).toList();
+    }
+}
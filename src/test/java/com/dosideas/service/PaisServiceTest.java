@@ -14,12 +14,12 @@ import org.junit.jupiter.api.Test;
  * encargan de testear una clase en particular, y todas las dependencias que la
  * misma tiene.
  *
- * Este test comprueba el funcionamiento de la clase PaisRepository. Esta clase
- * utiliza Spring Data para acceder a la base de datos. El proyecto utiliza una
- * base de datos en memoria (HSQLDB) que Spring levanta y configura de manera
- * automática. Cuando se crea el contexto de Spring, se levanta esta base de
- * datos y se ejecuta el archivo schema.sql (buscar en "Other Sources") que crea
- * las tablas PAIS y PROVINCIA, y le inserta datos de prueba.
+ * Este test comprueba el funcionamiento de la clase PaisService, que usa
+ * PaisRepository (Spring Data) para acceder a la base de datos. La aplicación
+ * se conecta a MySQL; el test la apunta a una base HSQLDB en memoria con las
+ * propiedades de @SpringBootTest. Cuando se crea el contexto de Spring, se
+ * levanta esta base y Flyway ejecuta las migraciones (src/main/resources/db)
+ * que crean las tablas PAIS y PROVINCIA y les insertan los datos iniciales.
  *
  * Para ejecutar este test en NetBeans: click derecho > "Test File" (CTRL + F6)
  *
@@ -28,10 +28,16 @@ import org.junit.jupiter.api.Test;
  * @SpringBootTest: Si utilizamos una aplicación con Spring Boot, nos da
  * diversas features de Spring Boot (ver Javadoc). Si en la clase
  * ApplicationConfig utilizamos la anotacion @SpringBootApplication, no hace
- * falta pasarle la clase como parámetro
+ * falta pasarle la clase como parámetro. Las propiedades que recibe pisan
+ * las de application.properties solo para este test.
  *
  */
-@SpringBootTest
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:pais",
+    "spring.datasource.username=sa",
+    "spring.jpa.database-platform=org.hibernate.dialect.HSQLDialect",
+    "perfil.jfr.habilitado=false"
+})
 public class PaisServiceTest {
 
     /**
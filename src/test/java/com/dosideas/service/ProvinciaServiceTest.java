@@ -7,22 +7,34 @@ import static org.mockito.Mockito.verify;
 
 import com.dosideas.domain.Pais;
 import com.dosideas.domain.Provincia;
+import com.dosideas.event.ProvinciaEvento;
+import com.dosideas.exception.ProvinciaConflictoException;
+import com.dosideas.dto.CambiosProvinciaDTO;
+import com.dosideas.dto.CampoProvincia;
+import com.dosideas.dto.FilasProvincias;
+import com.dosideas.dto.ProvinciaDTO;
+import com.dosideas.repository.PaisRepository;
+import com.dosideas.repository.ProvinciaEliminadaRepository;
 import com.dosideas.repository.ProvinciaRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
-import static org.mockito.Mockito.doNothing;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 /**
  * Pruebas unitarias para {@link ProvinciaService}.
@@ -34,6 +46,24 @@ public class ProvinciaServiceTest {
     @Mock
     private ProvinciaRepository provinciaRepository;
 
+    @Mock
+    private ProvinciaEliminadaRepository provinciaEliminadaRepository;
+
+    @Mock
+    private PaisRepository paisRepository;
+
+    @Mock
+    private RelojCambios relojCambios;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private IndiceNombresProvincia indiceNombres;
+
+    @Mock
+    private ModeloLecturaProvincias modeloLectura;
+
     @InjectMocks
     private ProvinciaService provinciaService;
 
@@ -112,6 +142,24 @@ public class ProvinciaServiceTest {
                                             .findByNombreIgnoreCase(nombre);
     }
 
+    /**
+     * Prueba para verificar que la búsqueda exacta siempre consulta la base,
+     * sin pasar por el índice de nombres (que puede no tener un alta reciente
+     * de otro nodo).
+     */
+    @Test
+    public void buscarProvinciasPorNombreExacto_NoConsultaElIndiceDeNombres() {
+        String nombre = "Cordova";
+        when(provinciaRepository.findByNombreIgnoreCase(nombre)).thenReturn(List.of());
+
+        List<Provincia> provinciasEncontradas = provinciaService
+                .buscarProvinciasPorNombreExacto(nombre);
+
+        assertThat(provinciasEncontradas).isEmpty();
+        verify(provinciaRepository).findByNombreIgnoreCase(nombre);
+        Mockito.verifyNoInteractions(indiceNombres);
+    }
+
     /**
      * Prueba para verificar que al buscar provincias por nombre con un
      * nombre nulo, debería lanzar IllegalArgumentException.
@@ -228,6 +276,43 @@ public class ProvinciaServiceTest {
                                             .save(provincia);
     }
     
+    /**
+     * Prueba para verificar que al guardar una provincia se publica el evento
+     * de alta con los datos de la provincia guardada.
+     */
+    @Test
+    public void guardarProvincia_conProvinciaValida_publicaEventoCreada() {
+        Provincia provincia = provincias.get(0);
+
+        when(provinciaRepository.save(provincia)).thenReturn(provincia);
+
+        provinciaService.guardarProvincia(provincia);
+
+        ArgumentCaptor<ProvinciaEvento> evento = ArgumentCaptor.forClass(ProvinciaEvento.class);
+        verify(eventPublisher, times(1)).publishEvent(evento.capture());
+        assertThat(evento.getValue().getTipo()).isEqualTo(ProvinciaEvento.Tipo.CREADA);
+        assertThat(evento.getValue().getNombre()).isEqualTo("Buenos Aires");
+        assertThat(evento.getValue().getPais()).isEqualTo("Argentina");
+    }
+
+    /**
+     * Prueba para verificar que una provincia dada con solo el ID del país
+     * publica el evento con el nombre del país, leído antes del commit.
+     */
+    @Test
+    public void guardarProvincia_conSoloElIdDelPais_publicaElNombreDelPais() {
+        Provincia provincia = new Provincia(null, "Salta", new Pais(1L, null));
+        when(paisRepository.findById(1L)).thenReturn(Optional.of(new Pais(1L, "Argentina")));
+        when(provinciaRepository.save(provincia)).thenReturn(provincia);
+
+        provinciaService.guardarProvincia(provincia);
+
+        ArgumentCaptor<ProvinciaEvento> evento = ArgumentCaptor.forClass(ProvinciaEvento.class);
+        verify(eventPublisher, times(1)).publishEvent(evento.capture());
+        assertThat(evento.getValue().getIdPais()).isEqualTo(1L);
+        assertThat(evento.getValue().getPais()).isEqualTo("Argentina");
+    }
+
     /**
      * Prueba para verificar que al intentar guardar una provincia nula, debería
      * lanzar IllegalArgumentException.
@@ -348,23 +433,78 @@ public class ProvinciaServiceTest {
     }
     
     /**
-     * Verifica si se llama correctamente al metodo deleteById del repositorio.
+     * Prueba para verificar que la modificación con versión se hace con una
+     * única sentencia condicionada y devuelve la versión siguiente, con el
+     * país del pedido y sin volver a leer la provincia.
+     */
+    @Test
+    public void modificarNombre_conVersionVigente_devuelveVersionSiguiente() throws Exception {
+        when(relojCambios.siguiente()).thenReturn(8L);
+        when(provinciaRepository.actualizarNombreSiVersion(1L, "Nuevo Nombre", 3L, 8L)).thenReturn(1);
+
+        Provincia provinciaModificada = provinciaService.modificarNombre(1L, "Nuevo Nombre", 3L,
+                new Pais(1L, "Argentina"));
+
+        assertThat(provinciaModificada.getVersion()).isEqualTo(4L);
+        assertThat(provinciaModificada.getNombre()).isEqualTo("Nuevo Nombre");
+        assertThat(provinciaModificada.getPais().getNombre()).isEqualTo("Argentina");
+        ArgumentCaptor<ProvinciaEvento> evento = ArgumentCaptor.forClass(ProvinciaEvento.class);
+        verify(eventPublisher).publishEvent(evento.capture());
+        assertThat(evento.getValue().getVersion()).isEqualTo(4L);
+        assertThat(evento.getValue().getIdPais()).isNull();
+        verify(provinciaRepository).actualizarNombreSiVersion(1L, "Nuevo Nombre", 3L, 8L);
+        Mockito.verifyNoMoreInteractions(provinciaRepository);
+    }
+
+    /**
+     * Prueba para verificar que si la provincia existe pero la versión no
+     * coincide, se lanza ProvinciaConflictoException.
+     */
+    @Test
+    public void modificarNombre_conVersionVieja_lanzaConflicto() {
+        when(relojCambios.siguiente()).thenReturn(8L);
+        when(provinciaRepository.actualizarNombreSiVersion(1L, "Nuevo Nombre", 2L, 8L)).thenReturn(0);
+        when(provinciaRepository.existsById(1L)).thenReturn(true);
+
+        assertThatExceptionOfType(ProvinciaConflictoException.class)
+                .isThrownBy(() -> provinciaService.modificarNombre(1L, "Nuevo Nombre", 2L, null));
+    }
+    
+    /**
+     * Verifica que la eliminación se haga con sentencias masivas, sin cargar
+     * la entidad (deleteById la carga antes de borrarla).
      */
     @Test
     public void eliminarProvincia_conIdvalido_deberiaEliminarProvincia() {
         long provinciaAEliminarId = provincias.get(0).getId();
-        
-        //Como devuelve void , tenemos que simular el comportamiento de alguna manera.
-        doNothing().when(provinciaRepository).deleteById(provinciaAEliminarId);
+
+        when(relojCambios.siguiente()).thenReturn(5L);
+        when(provinciaRepository.eliminarPorIds(List.of(provinciaAEliminarId))).thenReturn(1);
+        when(provinciaEliminadaRepository.buscarIdsPorCambio(5L)).thenReturn(List.of(provinciaAEliminarId));
 
         provinciaService.eliminarProvincia(provinciaAEliminarId);
-        //tdd, verificamos que falle sin forzarlo
-        //Creacion minima es parte del primer paso.
-        
-        //segundo paso implementacion de codigo y que ande todo
-        //refactor tercero
-        
-        verify(provinciaRepository, times(1)).deleteById(provinciaAEliminarId);
+
+        verify(provinciaEliminadaRepository, times(1)).registrarPorIds(List.of(provinciaAEliminarId), 5L);
+        verify(provinciaRepository, times(1)).eliminarPorIds(List.of(provinciaAEliminarId));
+        verify(provinciaRepository, Mockito.never()).deleteById(Mockito.anyLong());
+        verify(provinciaRepository, Mockito.never()).findById(Mockito.anyLong());
+        verify(eventPublisher, times(1)).publishEvent(Mockito.any(ProvinciaEvento.class));
+    }
+
+    /**
+     * Verifica que eliminar las provincias de un país informe la cantidad
+     * eliminada y no publique eventos si no había ninguna.
+     */
+    @Test
+    public void eliminarProvinciasDePais_sinProvincias_devuelveCeroSinEventos() {
+        when(relojCambios.siguiente()).thenReturn(5L);
+        when(provinciaRepository.eliminarPorPais(9L)).thenReturn(0);
+
+        int eliminadas = provinciaService.eliminarProvinciasDePais(9L);
+
+        assertThat(eliminadas).isZero();
+        verify(provinciaEliminadaRepository, times(1)).registrarPorPais(9L, 5L);
+        Mockito.verifyNoInteractions(eventPublisher);
     }
     
     /**
@@ -377,16 +517,93 @@ public class ProvinciaServiceTest {
                 new Provincia(2L, "Córdoba", new Pais(1L, "Argentina"))
         );
 
-        when(provinciaRepository.findAll()).thenReturn(provincias);
+        when(provinciaRepository.buscarTodasConPais()).thenReturn(provincias);
 
-        List<Provincia> resultado = provinciaService.buscarTodasLasProvincias();
+        FilasProvincias resultado = provinciaService.buscarTodasLasProvincias();
 
         assertThat(resultado).isNotNull();
-        assertThat(resultado).hasSize(2);
-        assertThat(resultado.get(0).getId()).isEqualTo(1L);
-        assertThat(resultado.get(0).getNombre()).isEqualTo("Buenos Aires");
-        assertThat(resultado.get(1).getId()).isEqualTo(2L);
-        assertThat(resultado.get(1).getNombre()).isEqualTo("Córdoba");
+        assertThat(resultado.cantidad()).isEqualTo(2);
+        assertThat(resultado.id(0)).isEqualTo(1L);
+        assertThat(resultado.nombre(0)).isEqualTo("Buenos Aires");
+        assertThat(resultado.nombrePais(0)).isEqualTo("Argentina");
+        assertThat(resultado.id(1)).isEqualTo(2L);
+        assertThat(resultado.nombre(1)).isEqualTo("Córdoba");
+    }
+
+    /**
+     * Prueba para verificar que la sincronización incremental consulta solo el
+     * rango de cambios entre la versión del cliente y la marca segura.
+     */
+    @Test
+    public void buscarCambiosDesde_conVersionAnterior_devuelveSoloElRango() {
+        when(relojCambios.marcaSegura()).thenReturn(10L);
+        when(provinciaRepository.buscarCambiosEntre(5L, 10L)).thenReturn(provincias.subList(0, 1));
+        when(provinciaEliminadaRepository.buscarIdsEntre(5L, 10L)).thenReturn(Arrays.asList(7L));
+
+        CambiosProvinciaDTO cambios = provinciaService.buscarCambiosDesde(5L);
+
+        assertThat(cambios.getVersion()).isEqualTo(10L);
+        assertThat(cambios.getProvincias()).hasSize(1);
+        assertThat(cambios.getProvincias().get(0).getPais()).isEqualTo("Argentina");
+        assertThat(cambios.getEliminadas()).containsExactly(7L);
+        verify(provinciaRepository, Mockito.never()).findAll();
+    }
+
+    /**
+     * Prueba para verificar que si el cliente ya está al día no se consulta
+     * la base de datos.
+     */
+    @Test
+    public void buscarCambiosDesde_conVersionActual_noConsultaLaBase() {
+        when(relojCambios.marcaSegura()).thenReturn(10L);
+
+        CambiosProvinciaDTO cambios = provinciaService.buscarCambiosDesde(10L);
+
+        assertThat(cambios.getVersion()).isEqualTo(10L);
+        assertThat(cambios.getProvincias()).isEmpty();
+        assertThat(cambios.getEliminadas()).isEmpty();
+        Mockito.verifyNoInteractions(provinciaRepository, provinciaEliminadaRepository);
+    }
+
+    /**
+     * Prueba para verificar que el recorrido en streaming entrega las
+     * provincias al consumidor y cierra el stream (el cursor) al terminar.
+     */
+    @Test
+    public void recorrerProvincias_entregaLasProvinciasYCierraElStream() {
+        AtomicBoolean cerrado = new AtomicBoolean();
+        Stream<ProvinciaDTO> stream = Stream.of(
+                new ProvinciaDTO(1L, "Buenos Aires", "Argentina"),
+                new ProvinciaDTO(2L, "Santa Fe", "Argentina"))
+                .onClose(() -> cerrado.set(true));
+        when(provinciaRepository.buscarTodasComoDTO()).thenReturn(stream);
+
+        List<String> nombres = new ArrayList<>();
+        provinciaService.recorrerProvincias(iterador -> iterador.forEachRemaining(p -> nombres.add(p.getNombre())));
+
+        assertThat(nombres).containsExactly("Buenos Aires", "Santa Fe");
+        assertThat(cerrado).isTrue();
+    }
+
+    /**
+     * Prueba para verificar que los campos pedidos se entregan fila por fila
+     * desde el stream del repositorio, y que el stream se cierra al terminar.
+     */
+    @Test
+    public void recorrerCamposDeTodas_entregaLasFilasYCierraElStream() {
+        EnumSet<CampoProvincia> campos = EnumSet.of(CampoProvincia.ID, CampoProvincia.NOMBRE);
+        AtomicBoolean cerrado = new AtomicBoolean();
+        Stream<Object[]> stream = Stream.of(
+                new Object[] {1L, "Buenos Aires"},
+                new Object[] {2L, "Santa Fe"})
+                .onClose(() -> cerrado.set(true));
+        when(provinciaRepository.buscarCampos(campos)).thenReturn(stream);
+
+        List<Object> nombres = new ArrayList<>();
+        provinciaService.recorrerCamposDeTodas(campos, filas -> filas.forEachRemaining(fila -> nombres.add(fila[1])));
+
+        assertThat(nombres).containsExactly("Buenos Aires", "Santa Fe");
+        assertThat(cerrado).isTrue();
     }
 
 }
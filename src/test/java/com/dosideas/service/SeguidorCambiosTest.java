@@ -0,0 +1,150 @@
+package com.dosideas.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.domain.Pais;
+import com.dosideas.domain.Provincia;
+import com.dosideas.event.ProvinciaEvento;
+import com.dosideas.repository.PaisRepository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Pruebas de {@link SeguidorCambios} sobre HSQLDB. Las escrituras de "otro
+ * nodo" se simulan por JDBC, tomando el número de cambio de la secuencia como
+ * lo haría ese nodo. El seguimiento se ejecuta a mano (el intervalo es largo).
+ *
+ * @author Gabriel Romero
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:seguidor",
+    "spring.datasource.username=sa",
+    "spring.jpa.database-platform=org.hibernate.dialect.HSQLDialect",
+    "cambios.seguimiento.intervalo-ms=3600000",
+    "perfil.jfr.habilitado=false"
+})
+@RecordApplicationEvents
+public class SeguidorCambiosTest {
+
+    @Autowired
+    private SeguidorCambios seguidorCambios;
+
+    @Autowired
+    private RelojCambios relojCambios;
+
+    @Autowired
+    private IProvinciaService provinciaService;
+
+    @Autowired
+    private PaisRepository paisRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEvents eventos;
+
+    @BeforeEach
+    public void setUp() {
+        // Deja aplicados los cambios de las pruebas anteriores.
+        seguidorCambios.seguir();
+        eventos.clear();
+    }
+
+    /**
+     * Prueba para verificar que las escrituras de este nodo no se vuelven a
+     * publicar: sus listeners ya las recibieron al confirmarse.
+     */
+    @Test
+    public void seguir_conCambiosPropios_noPublicaNada() {
+        Pais pais = paisRepository.findById(1L).orElseThrow();
+        provinciaService.guardarProvincia(new Provincia(null, "Propia", pais));
+        eventos.clear();
+
+        assertThat(seguidorCambios.seguir()).isZero();
+        assertThat(eventos.stream(ProvinciaEvento.class)).isEmpty();
+        assertThat(seguidorCambios.marcaAplicada()).isEqualTo(relojCambios.marcaSegura());
+    }
+
+    /**
+     * Prueba para verificar que las altas y bajas de otro nodo se publican
+     * como eventos, con el mismo número de cambio que les asignó ese nodo.
+     */
+    @Test
+    public void seguir_conCambiosDeOtroNodo_losPublica() {
+        long alta = escribirComoOtroNodo(cambio -> jdbcTemplate.update(
+                "INSERT INTO provincia (nombre, id_pais, cambio, version) VALUES ('Remota', 1, ?, 0)", cambio));
+        long id = jdbcTemplate.queryForObject("SELECT id FROM provincia WHERE cambio = ?", Long.class, alta);
+
+        assertThat(seguidorCambios.seguir()).isEqualTo(1);
+        assertThat(eventos.stream(ProvinciaEvento.class)).singleElement().satisfies(evento -> {
+            assertThat(evento.getTipo()).isEqualTo(ProvinciaEvento.Tipo.CREADA);
+            assertThat(evento.getNombre()).isEqualTo("Remota");
+            assertThat(evento.getCambio()).isEqualTo(alta);
+        });
+
+        eventos.clear();
+        long baja = escribirComoOtroNodo(cambio -> {
+            jdbcTemplate.update("DELETE FROM provincia WHERE id = ?", id);
+            jdbcTemplate.update("INSERT INTO provincia_eliminada (id, cambio) VALUES (?, ?)", id, cambio);
+        });
+
+        assertThat(seguidorCambios.seguir()).isEqualTo(1);
+        assertThat(eventos.stream(ProvinciaEvento.class)).singleElement().satisfies(evento -> {
+            assertThat(evento.getTipo()).isEqualTo(ProvinciaEvento.Tipo.ELIMINADA);
+            assertThat(evento.getId()).isEqualTo(id);
+            assertThat(evento.getCambio()).isEqualTo(baja);
+        });
+        assertThat(seguidorCambios.marcaAplicada()).isEqualTo(baja);
+    }
+
+    /**
+     * Prueba para verificar que un número en curso frena la marca segura
+     * aunque otro nodo ya haya confirmado uno mayor, y que al terminar la
+     * transacción la marca lo pasa.
+     */
+    @Test
+    public void avanzar_conUnCambioEnCurso_noPasaLaMarca() {
+        long[] numeros = new long[2];
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            numeros[0] = relojCambios.siguiente();
+            numeros[1] = CompletableFuture.supplyAsync(() -> escribirComoOtroNodo(cambio -> {})).join();
+
+            assertThat(numeros[1]).isGreaterThan(numeros[0]);
+            assertThat(CompletableFuture.supplyAsync(relojCambios::avanzar).join()).isLessThan(numeros[0]);
+        });
+
+        assertThat(relojCambios.avanzar()).isGreaterThanOrEqualTo(numeros[1]);
+    }
+
+    /**
+     * Prueba para verificar que el número de cambio solo se asigna dentro de
+     * una transacción, que es la que lo saca de curso al terminar.
+     */
+    @Test
+    public void siguiente_sinTransaccion_lanzaExcepcion() {
+        assertThatIllegalStateException().isThrownBy(relojCambios::siguiente);
+    }
+
+    private long escribirComoOtroNodo(LongConsumer escritura) {
+        return new TransactionTemplate(transactionManager).execute(estado -> {
+            long cambio = relojCambios.siguiente();
+            escritura.accept(cambio);
+            return cambio;
+        });
+    }
+}
@@ -0,0 +1,101 @@
+package com.dosideas.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.dosideas.domain.Provincia;
+import com.dosideas.dto.FilasProvincias;
+import com.dosideas.repository.ProvinciaEliminadaRepository;
+import com.dosideas.repository.ProvinciaRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Pruebas unitarias para {@link SnapshotCatalogo}.
+ *
+ * @author Gabriel Romero
+ */
+public class SnapshotCatalogoTest {
+
+    @TempDir
+    Path directorio;
+
+    private ProvinciaRepository provinciaRepository;
+    private RelojCambios relojCambios;
+    private SeguidorCambios seguidorCambios;
+    private Path archivo;
+
+    @BeforeEach
+    public void setUp() {
+        provinciaRepository = mock(ProvinciaRepository.class);
+        relojCambios = mock(RelojCambios.class);
+        seguidorCambios = mock(SeguidorCambios.class);
+        archivo = directorio.resolve("catalogo.snapshot");
+    }
+
+    /**
+     * Prueba para verificar que un modelo escrito en el snapshot se vuelve a
+     * cargar igual, sin consultar la base.
+     */
+    @Test
+    public void escribirYAbrir_recuperaElModeloSinLaBase() throws IOException {
+        when(provinciaRepository.buscarFilasPlanas()).thenReturn(Stream.of(
+                new Object[]{1L, "Córdoba", 3L, 1L, "Argentina"},
+                new Object[]{2L, "Montevideo", 0L, 2L, "Uruguay"},
+                new Object[]{4L, "Sin país", 1L, null, null}));
+        ModeloLecturaProvincias origen = nuevoModelo();
+        origen.cargar();
+        when(seguidorCambios.marcaAplicada()).thenReturn(42L);
+        assertThat(nuevoSnapshot(origen).escribir()).isTrue();
+
+        ModeloLecturaProvincias destino = nuevoModelo();
+        nuevoSnapshot(destino).abrir();
+
+        assertThat(destino.estaListo()).isTrue();
+        FilasProvincias todas = destino.todas();
+        assertThat(IntStream.range(0, todas.cantidad()).mapToObj(todas::id)).containsExactly(1L, 2L, 4L);
+        assertThat(destino.buscarPorId(1L).getNombre()).isEqualTo("Córdoba");
+        assertThat(destino.buscarPorId(1L).getVersion()).isEqualTo(3L);
+        assertThat(destino.buscarPorNombrePais("Uruguay")).extracting(Provincia::getId).containsExactly(2L);
+        assertThat(destino.buscarPorId(4L).getPais()).isNull();
+        verify(provinciaRepository, times(1)).buscarFilasPlanas();
+    }
+
+    /**
+     * Prueba para verificar que un snapshot dañado se rechaza.
+     */
+    @Test
+    public void leer_conArchivoDaniado_fallaPorCrc() throws IOException {
+        when(provinciaRepository.buscarFilasPlanas()).thenReturn(Stream.<Object[]>of(
+                new Object[]{1L, "Salta", 0L, 1L, "Argentina"}));
+        ModeloLecturaProvincias modelo = nuevoModelo();
+        modelo.cargar();
+        when(seguidorCambios.marcaAplicada()).thenReturn(1L);
+        nuevoSnapshot(modelo).escribir();
+        byte[] bytes = Files.readAllBytes(archivo);
+        bytes[bytes.length - 12] ^= 1;
+        Files.write(archivo, bytes);
+
+        assertThatThrownBy(() -> SnapshotCatalogo.leer(archivo, filas -> { }))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("CRC");
+    }
+
+    private ModeloLecturaProvincias nuevoModelo() {
+        return new ModeloLecturaProvincias(provinciaRepository, mock(PlatformTransactionManager.class));
+    }
+
+    private SnapshotCatalogo nuevoSnapshot(ModeloLecturaProvincias modelo) {
+        return new SnapshotCatalogo(modelo, provinciaRepository, mock(ProvinciaEliminadaRepository.class),
+                relojCambios, seguidorCambios, mock(PlatformTransactionManager.class), archivo.toString(), 300);
+    }
+}
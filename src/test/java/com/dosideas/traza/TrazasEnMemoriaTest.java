@@ -0,0 +1,94 @@
+package com.dosideas.traza;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.dosideas.dto.SpanDTO;
+import com.dosideas.dto.TrazaDTO;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas unitarias para {@link TrazasEnMemoria}.
+ *
+ * @author Gabriel Romero
+ */
+public class TrazasEnMemoriaTest {
+
+    /**
+     * Prueba para verificar que los spans se agrupan por traza y se devuelven
+     * como árbol: cada uno después de su padre, con su profundidad.
+     */
+    @Test
+    public void buscar_devuelveLosSpansComoArbol() {
+        TrazasEnMemoria trazas = new TrazasEnMemoria(10);
+        Tracer tracer = tracer(trazas, Sampler.alwaysOn());
+
+        Span request = tracer.spanBuilder("GET /api/provincia/{id}").startSpan();
+        try (Scope scope = request.makeCurrent()) {
+            Span servicio = tracer.spanBuilder("IProvinciaService.buscarPorId").startSpan();
+            try (Scope enServicio = servicio.makeCurrent()) {
+                tracer.spanBuilder("ProvinciaRepository.findById").startSpan().end();
+            } finally {
+                servicio.end();
+            }
+            tracer.spanBuilder("json.escribir").startSpan().end();
+        } finally {
+            request.end();
+        }
+
+        List<TrazaDTO> recientes = trazas.recientes(10, 0);
+        assertThat(recientes).hasSize(1);
+        assertThat(recientes.get(0).getNombre()).isEqualTo("GET /api/provincia/{id}");
+        assertThat(recientes.get(0).isCompleta()).isTrue();
+        assertThat(recientes.get(0).getCantidadSpans()).isEqualTo(4);
+        assertThat(recientes.get(0).getSpans()).isNull();
+
+        TrazaDTO traza = trazas.buscar(request.getSpanContext().getTraceId());
+        assertThat(traza.getSpans()).extracting(SpanDTO::getNombre).containsExactly(
+                "GET /api/provincia/{id}", "IProvinciaService.buscarPorId",
+                "ProvinciaRepository.findById", "json.escribir");
+        assertThat(traza.getSpans()).extracting(SpanDTO::getProfundidad).containsExactly(0, 1, 2, 1);
+        assertThat(traza.getSpans().get(0).getPadre()).isNull();
+        assertThat(trazas.buscar("0123456789abcdef0123456789abcdef")).isNull();
+    }
+
+    /**
+     * Prueba para verificar que se conservan solo las trazas más recientes y
+     * que el muestreo decide en el span raíz: sin muestrear no se guarda nada.
+     */
+    @Test
+    public void export_conservaLasMasRecientesYRespetaElMuestreo() {
+        TrazasEnMemoria trazas = new TrazasEnMemoria(2);
+        Tracer tracer = tracer(trazas, Sampler.alwaysOn());
+        for (int i = 1; i <= 3; i++) {
+            tracer.spanBuilder("request " + i).startSpan().end();
+        }
+        assertThat(trazas.recientes(10, 0)).extracting(TrazaDTO::getNombre)
+                .containsExactly("request 3", "request 2");
+
+        TrazasEnMemoria sinMuestreo = new TrazasEnMemoria(2);
+        Tracer nunca = tracer(sinMuestreo, Sampler.parentBased(Sampler.traceIdRatioBased(0)));
+        Span request = nunca.spanBuilder("request").startSpan();
+        try (Scope scope = request.makeCurrent()) {
+            nunca.spanBuilder("hijo").startSpan().end();
+        } finally {
+            request.end();
+        }
+        assertThat(sinMuestreo.recientes(10, 0)).isEmpty();
+    }
+
+    private static Tracer tracer(TrazasEnMemoria trazas, Sampler muestreo) {
+        return SdkTracerProvider.builder()
+                .setSampler(muestreo)
+                .addSpanProcessor(SimpleSpanProcessor.create(trazas))
+                .build()
+                .get("prueba");
+    }
+}